@@ -3,14 +3,13 @@ package beachresort;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
+import java.sql.SQLException;
+
 import beachresort.database.DatabaseConnection;
-import beachresort.repositories.BookingRepository;
-import beachresort.repositories.RoomRepository;
-import beachresort.repositories.UserRepository;
-import beachresort.repositories.OwnerRepository;
-import beachresort.repositories.StaffRepository;
-import beachresort.repositories.PaymentRepository;
-import beachresort.repositories.CustomerRepository;
+import beachresort.database.SchemaMigrator;
+import beachresort.repositories.BookingAvailabilityIndex;
+import beachresort.services.NightAuditJob;
+import beachresort.services.RateEngine;
 
 import beachresort.ui.LoginFrame;
 
@@ -22,8 +21,11 @@ public class Main {
             
             // Test and initialize database connection
             if (DatabaseConnection.testConnection()) {
-                // Initialize repositories
-                initializeRepositories();
+                // Bring the schema up to date before any repository is used
+                runSchemaMigrations();
+                loadBookingAvailability();
+                loadRateCalendar();
+                new NightAuditJob().start();
                 
                 // Launch application
                 SwingUtilities.invokeLater(() -> {
@@ -45,34 +47,40 @@ public class Main {
     }
 
     /**
-     * Initialize repositories and verify their table structures
+     * Apply pending schema migrations once, before the UI creates any repository
+     */
+    private static void runSchemaMigrations() throws SQLException {
+        System.out.println("Running schema migrations...");
+        SchemaMigrator.migrate();
+        System.out.println("Startup migrations took " + SchemaMigrator.getLastRunMillis() + " ms");
+    }
+
+    /**
+     * Load the room availability index now rather than on the first booking dialog
      */
-    private static void initializeRepositories() {
+    private static void loadBookingAvailability() {
+        BookingAvailabilityIndex index = BookingAvailabilityIndex.shared();
         try {
-            System.out.println("Initializing Repositories...");
-            
-            // Initialize and verify booking repository
-            new BookingRepository();
-            new CustomerRepository();
-            new OwnerRepository();
-            new PaymentRepository();
-            new RoomRepository();
-            new StaffRepository();
-            new UserRepository();
-            
-         
+            index.rebuild();
+            System.out.println("Loaded " + index.size() + " bookings into the availability index in "
+                    + index.getLastRebuildMillis() + " ms");
+        } catch (SQLException e) {
+            // Not fatal: the first conflict check retries the load
+            System.err.println("Could not load booking availability: " + e.getMessage());
+        }
+    }
 
-            System.out.println("Booking Repository initialized successfully.");
-            
-        } catch (Exception e) {
-            System.err.println("Error initializing repositories: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Show error dialog
-            JOptionPane.showMessageDialog(null, 
-                "Failed to initialize database repositories: " + e.getMessage(), 
-                "Repository Initialization Error", 
-                JOptionPane.ERROR_MESSAGE);
+    /**
+     * Precompute the nightly rate calendar so the first quote is instant
+     */
+    private static void loadRateCalendar() {
+        RateEngine rates = RateEngine.shared();
+        try {
+            rates.rebuild();
+            System.out.println("Built the rate calendar in " + rates.getLastRebuildMillis() + " ms");
+        } catch (SQLException e) {
+            // Not fatal: the first quote retries the load
+            System.err.println("Could not load rate rules: " + e.getMessage());
         }
     }
 
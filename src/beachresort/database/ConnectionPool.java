@@ -0,0 +1,446 @@
+package beachresort.database;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Connections are handed out as proxies; closing the proxy returns the
+ * physical connection to the pool. Idle connections are validated on borrow,
+ * evicted after sitting idle too long and retired once they reach their
+ * maximum lifetime. Connections held longer than the leak threshold are
+ * reported together with the stack trace of the code that borrowed them.
+ */
+public class ConnectionPool implements DataSource, ConnectionPoolMXBean {
+    private static final long[] LATENCY_BUCKETS_MICROS = {
+            100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000 };
+
+    // Connections used within this window are assumed healthy and skip the ping
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 30_000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long leakThresholdMillis;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition connectionAvailable = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = new HashSet<>();
+    private int opening;
+    private int waiters;
+    private boolean shutdown;
+
+    private final AtomicLongArray borrowLatencyHistogram = new AtomicLongArray(LATENCY_BUCKETS_MICROS.length + 1);
+    private final AtomicLong totalBorrows = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    private final AtomicLong connectionsClosed = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper;
+    private PrintWriter logWriter;
+
+    public ConnectionPool(String url, String username, String password, int maxSize,
+            long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis, long leakThresholdMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_INTERVAL_MILLIS, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Publish the counters over JMX so ops can watch the pool from JConsole
+    public void registerMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+        } catch (Exception e) {
+            System.err.println("Could not register connection pool MBean: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean openNew = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (shutdown) {
+                        throw new SQLException("Connection pool has been shut down");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        borrowed.add(candidate);
+                        break;
+                    }
+                    if (borrowed.size() + idle.size() + opening < maxSize) {
+                        opening++;
+                        openNew = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        borrowTimeouts.incrementAndGet();
+                        throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis
+                                + " ms waiting for a database connection (" + describe() + ")");
+                    }
+                    waiters++;
+                    try {
+                        connectionAvailable.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (openNew) {
+                candidate = openConnection();
+            } else if (isExpired(candidate) || !isAlive(candidate)) {
+                discard(candidate);
+                continue;
+            }
+
+            candidate.markBorrowed(leakThresholdMillis > 0);
+            recordBorrow(System.nanoTime() - start);
+            return candidate.newHandle();
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        try {
+            PooledConnection created = new PooledConnection(this,
+                    DriverManager.getConnection(url, username, password));
+            connectionsCreated.incrementAndGet();
+            lock.lock();
+            try {
+                opening--;
+                borrowed.add(created);
+            } finally {
+                lock.unlock();
+            }
+            return created;
+        } catch (SQLException e) {
+            lock.lock();
+            try {
+                opening--;
+                connectionAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private boolean isAlive(PooledConnection connection) {
+        if (System.currentTimeMillis() - connection.getLastUsedAt() < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return connection.getPhysicalConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection connection) {
+        return maxLifetimeMillis > 0
+                && System.currentTimeMillis() - connection.getCreatedAt() >= maxLifetimeMillis;
+    }
+
+    // Removes a borrowed connection from the pool and closes it
+    private void discard(PooledConnection connection) {
+        lock.lock();
+        try {
+            borrowed.remove(connection);
+            connectionAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        connection.closePhysical();
+        connectionsClosed.incrementAndGet();
+    }
+
+    void release(PooledConnection connection) {
+        boolean reusable = connection.reset() && !isExpired(connection);
+        connection.markReturned();
+
+        lock.lock();
+        try {
+            borrowed.remove(connection);
+            reusable = reusable && !shutdown;
+            if (reusable) {
+                // Most recently used first, so surplus connections age out at the tail
+                idle.addFirst(connection);
+            }
+            connectionAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (!reusable) {
+            connection.closePhysical();
+            connectionsClosed.incrementAndGet();
+        }
+    }
+
+    private void recordBorrow(long elapsedNanos) {
+        totalBorrows.incrementAndGet();
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS_MICROS.length && micros > LATENCY_BUCKETS_MICROS[bucket]) {
+            bucket++;
+        }
+        borrowLatencyHistogram.incrementAndGet(bucket);
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> toClose = new ArrayList<>();
+        List<PooledConnection> leaked = new ArrayList<>();
+
+        lock.lock();
+        try {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection connection = it.next();
+                boolean idleTooLong = idleTimeoutMillis > 0 && now - connection.getLastUsedAt() >= idleTimeoutMillis;
+                if (idleTooLong || isExpired(connection)) {
+                    it.remove();
+                    toClose.add(connection);
+                }
+            }
+            if (leakThresholdMillis > 0) {
+                for (PooledConnection connection : borrowed) {
+                    if (!connection.isLeakReported() && now - connection.getBorrowedAt() >= leakThresholdMillis) {
+                        connection.setLeakReported(true);
+                        leaked.add(connection);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection connection : toClose) {
+            connection.closePhysical();
+            connectionsClosed.incrementAndGet();
+        }
+        for (PooledConnection connection : leaked) {
+            leaksDetected.incrementAndGet();
+            System.err.println("Possible connection leak: connection held for "
+                    + (now - connection.getBorrowedAt()) + " ms");
+            if (connection.getBorrowStack() != null) {
+                connection.getBorrowStack().printStackTrace();
+            }
+        }
+    }
+
+    public void shutdown() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            shutdown = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            connectionAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection connection : toClose) {
+            connection.closePhysical();
+            connectionsClosed.incrementAndGet();
+        }
+    }
+
+    public String describe() {
+        return "active=" + getActiveConnections() + ", idle=" + getIdleConnections()
+                + ", waiting=" + getWaitingThreads() + ", max=" + maxSize;
+    }
+
+    // ConnectionPoolMXBean
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        lock.lock();
+        try {
+            return borrowed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getTotalConnections() {
+        lock.lock();
+        try {
+            return borrowed.size() + idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getWaitingThreads() {
+        lock.lock();
+        try {
+            return waiters;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getTotalBorrows() {
+        return totalBorrows.get();
+    }
+
+    @Override
+    public long getBorrowTimeouts() {
+        return borrowTimeouts.get();
+    }
+
+    @Override
+    public long getLeaksDetected() {
+        return leaksDetected.get();
+    }
+
+    @Override
+    public long getConnectionsCreated() {
+        return connectionsCreated.get();
+    }
+
+    @Override
+    public long getConnectionsClosed() {
+        return connectionsClosed.get();
+    }
+
+    @Override
+    public long[] getBorrowLatencyBucketsMicros() {
+        return LATENCY_BUCKETS_MICROS.clone();
+    }
+
+    @Override
+    public long[] getBorrowLatencyHistogram() {
+        long[] counts = new long[borrowLatencyHistogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = borrowLatencyHistogram.get(i);
+        }
+        return counts;
+    }
+
+    // DataSource
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections always use the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("ConnectionPool is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
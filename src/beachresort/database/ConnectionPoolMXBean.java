@@ -0,0 +1,33 @@
+package beachresort.database;
+
+/**
+ * Live pool counters published over JMX (JConsole / VisualVM under
+ * beachresort.database:type=ConnectionPool).
+ */
+public interface ConnectionPoolMXBean {
+    int getMaxSize();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getTotalConnections();
+
+    int getWaitingThreads();
+
+    long getTotalBorrows();
+
+    long getBorrowTimeouts();
+
+    long getLeaksDetected();
+
+    long getConnectionsCreated();
+
+    long getConnectionsClosed();
+
+    // Upper bounds (in microseconds) of the borrow latency histogram buckets;
+    // the last bucket of getBorrowLatencyHistogram() counts everything above.
+    long[] getBorrowLatencyBucketsMicros();
+
+    long[] getBorrowLatencyHistogram();
+}
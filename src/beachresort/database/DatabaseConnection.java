@@ -2,7 +2,6 @@
 package beachresort.database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnection {
@@ -11,21 +10,47 @@ public class DatabaseConnection {
     private static final String PORT = "3306";
     private static final String DATABASE = "beach_resort_db";
     
+    // rewriteBatchedStatements sends batched INSERTs as multi-row statements;
+    // useLocalSessionState answers getAutoCommit/getTransactionIsolation from
+    // the driver's own copy instead of asking the server each transaction.
+    // useCursorFetch is deliberately not here: in the URL it makes Connector/J
+    // prepare every statement on the server, paying a PREPARE and CLOSE round
+    // trip for each ad hoc query. StreamingQuery turns it on per connection
+    // for the statements it prepares on the server.
     private static final String URL = "jdbc:mysql://" + HOST + ":" + PORT + "/" + DATABASE + 
-        "?useSSL=false&allowPublicKeyRetrieval=true";
+        "?useSSL=false&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true"
+        + "&useLocalSessionState=true";
     private static final String USERNAME = "root";  // XAMPP default username
     private static final String PASSWORD = "";      // XAMPP default (empty password)
 
+    // Connection pool settings
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long BORROW_TIMEOUT_MILLIS = 5_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 5 * 60_000;
+    private static final long MAX_LIFETIME_MILLIS = 30 * 60_000;
+    private static final long LEAK_THRESHOLD_MILLIS = 60_000;
+
+    private static final ConnectionPool POOL;
+
     static {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("MySQL JDBC Driver not found", e);
         }
+        POOL = new ConnectionPool(URL, USERNAME, PASSWORD, POOL_MAX_SIZE,
+                BORROW_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, MAX_LIFETIME_MILLIS, LEAK_THRESHOLD_MILLIS);
+        POOL.registerMBean("beachresort.database:type=ConnectionPool");
+        Runtime.getRuntime().addShutdownHook(new Thread(POOL::shutdown, "connection-pool-shutdown"));
     }
 
+    // Borrow a pooled connection; closing it returns it to the pool
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        return POOL.getConnection();
+    }
+
+    public static ConnectionPool getPool() {
+        return POOL;
     }
 
     public static boolean testConnection() {
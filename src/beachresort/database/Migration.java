@@ -0,0 +1,55 @@
+package beachresort.database;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * One versioned schema change. The checksum covers the SQL text so an
+ * already-applied migration that is edited afterwards is detected at startup.
+ */
+public class Migration {
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    private final long checksum;
+
+    public Migration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = Collections.unmodifiableList(Arrays.asList(statements));
+        this.checksum = computeChecksum(this.statements);
+    }
+
+    private static long computeChecksum(List<String> statements) {
+        CRC32 crc = new CRC32();
+        for (String statement : statements) {
+            crc.update(statement.trim().getBytes(StandardCharsets.UTF_8));
+            crc.update(';');
+        }
+        return crc.getValue();
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+}
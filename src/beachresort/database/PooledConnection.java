@@ -0,0 +1,174 @@
+package beachresort.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A physical connection owned by {@link ConnectionPool}. Callers never see this
+ * object directly; they get a proxy handle whose close() hands the physical
+ * connection back to the pool instead of closing the socket.
+ */
+public class PooledConnection {
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final long createdAt;
+
+    private volatile long lastUsedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowStack;
+    private volatile boolean leakReported;
+
+    // Statements kept open on this physical connection across borrows. Only the
+    // current borrower touches it, so it needs no locking.
+    private final Map<Object, PreparedStatement> statementCache = new HashMap<>();
+
+    public interface StatementFactory {
+        PreparedStatement prepare(Connection physical) throws SQLException;
+    }
+
+    PooledConnection(ConnectionPool pool, Connection physical) {
+        this.pool = pool;
+        this.physical = physical;
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+    }
+
+    public Connection getPhysicalConnection() {
+        return physical;
+    }
+
+    /**
+     * The statement cached under key on this connection, prepared by the
+     * factory on first use (or again if the driver has closed it since).
+     * Callers must not close it; it goes away with the physical connection.
+     */
+    public PreparedStatement getCachedStatement(Object key, StatementFactory factory) throws SQLException {
+        PreparedStatement statement = statementCache.get(key);
+        if (statement == null || statement.isClosed()) {
+            statement = factory.prepare(physical);
+            statementCache.put(key, statement);
+        }
+        return statement;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowStack() {
+        return borrowStack;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    void markBorrowed(boolean captureStack) {
+        borrowedAt = System.currentTimeMillis();
+        borrowStack = captureStack ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+    }
+
+    void markReturned() {
+        lastUsedAt = System.currentTimeMillis();
+        borrowStack = null;
+    }
+
+    // Puts the connection back into a clean state for the next borrower.
+    // Returns false if the connection is no longer usable.
+    boolean reset() {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            physical.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Discarding pooled connection after reset failure: " + e.getMessage());
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        statementCache.clear();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    Connection newHandle() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Handle());
+    }
+
+    private class Handle implements InvocationHandler {
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(PooledConnection.this)) {
+                        return PooledConnection.this;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(PooledConnection.this)) {
+                        return true;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + (closed ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
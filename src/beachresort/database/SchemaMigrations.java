@@ -0,0 +1,430 @@
+package beachresort.database;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered list of every schema migration. Never edit a migration that has
+ * shipped; add a new version instead, otherwise startup fails on the
+ * checksum check.
+ */
+public final class SchemaMigrations {
+
+    private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            new Migration(1, "Baseline tables",
+                    "CREATE TABLE IF NOT EXISTS users (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "username VARCHAR(50) UNIQUE NOT NULL, " +
+                    "password VARCHAR(255) NOT NULL, " +
+                    "email VARCHAR(100) NOT NULL, " +
+                    "full_name VARCHAR(100) NOT NULL, " +
+                    "address VARCHAR(255), " +
+                    "contact_number VARCHAR(20), " +
+                    "role VARCHAR(20) NOT NULL, " +
+                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")",
+
+                    "CREATE TABLE IF NOT EXISTS customer (" +
+                    "   cust_id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   user_id INT," +
+                    "   numberVisits INT DEFAULT 0," +
+                    "   preferredAccommodationType VARCHAR(50)," +
+                    "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")",
+
+                    "CREATE TABLE IF NOT EXISTS owner (" +
+                    "   owner_id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   user_id VARCHAR(50)," +
+                    "   businessName VARCHAR(50)," +
+                    "   licenseNumber VARCHAR(50)," +
+                    "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")",
+
+                    "CREATE TABLE IF NOT EXISTS staff (" +
+                    "   staff_id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   user_id VARCHAR(50)," +
+                    "   position ENUM('Manager', 'Receptionist', 'Housekeeping', 'Maintenance','UNASSIGNED') NOT NULL," +
+                    "   status ENUM('Active', 'Inactive','Terminated') NOT NULL," +
+                    "   task VARCHAR(250)," +
+                    "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")",
+
+                    "CREATE TABLE IF NOT EXISTS rooms (" +
+                    "   roomID INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   room_number VARCHAR(10) UNIQUE NOT NULL," +
+                    "   room_type ENUM('Standard', 'Deluxe', 'Suite', 'Family') NOT NULL," +
+                    "   capacity INT NOT NULL," +
+                    "   price_per_night DECIMAL(10, 2) NOT NULL," +
+                    "   status ENUM('Available', 'Occupied', 'Maintenance') NOT NULL," +
+                    "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                    "   updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                    ")",
+
+                    "CREATE TABLE IF NOT EXISTS bookings (" +
+                    "   bookingID INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   user_id INT NOT NULL," +
+                    "   room_number VARCHAR(10) NOT NULL," +
+                    "   customer_name VARCHAR(36) NOT NULL," +
+                    "   check_in_date DATE NOT NULL," +
+                    "   check_out_date DATE NOT NULL," +
+                    "   number_of_guests INT NOT NULL," +
+                    "   total_price DECIMAL(10, 2) NOT NULL," +
+                    "   status VARCHAR(20) NOT NULL" +
+                    ")",
+
+                    "CREATE TABLE IF NOT EXISTS check_in_out (" +
+                    "   id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   user_id INT NOT NULL," +
+                    "   customer_name VARCHAR(36) NOT NULL," +
+                    "   check_in_date DATE NOT NULL," +
+                    "   check_out_date DATE NOT NULL," +
+                    "   room_number VARCHAR(10) NOT NULL," +
+                    "   check_in_type VARCHAR(20) NOT NULL," +
+                    "   status VARCHAR(20) NOT NULL" +
+                    ")",
+
+                    "CREATE TABLE IF NOT EXISTS payments (" +
+                    "payment_id SERIAL PRIMARY KEY, " +
+                    "user_id VARCHAR(255) NOT NULL, " +
+                    "payment_type VARCHAR(255), " +
+                    "amount DECIMAL(10, 2), " +
+                    "payment_method VARCHAR(255), " +
+                    "status VARCHAR(255), " +
+                    "description TEXT, " +
+                    "payment_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")",
+
+                    "CREATE TABLE IF NOT EXISTS absences (" +
+                    "   absence_id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   user_id INT NOT NULL," +
+                    "   leave_type VARCHAR(50) NOT NULL," +
+                    "   start_date DATE NOT NULL," +
+                    "   end_date DATE NOT NULL," +
+                    "   status ENUM('Pending', 'Approved', 'Rejected') NOT NULL," +
+                    "   reason TEXT," +
+                    "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                    "   updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                    ")"),
+
+            // Each index below backs a specific repository query; see QueryPlanCheck
+            new Migration(2, "Indexes for repository lookups",
+                    // getBookingsByUserId
+                    "CREATE INDEX idx_bookings_user ON bookings (user_id, check_in_date)",
+                    // getAllBookingIDs (status = 'Pending'), covering via the implicit bookingID
+                    "CREATE INDEX idx_bookings_status ON bookings (status)",
+                    // per-room overlap checks on date ranges
+                    "CREATE INDEX idx_bookings_room_dates ON bookings (room_number, check_in_date, check_out_date)",
+                    // getCheckInOutsByUserId
+                    "CREATE INDEX idx_check_in_out_user ON check_in_out (user_id)",
+                    // stays for a room over a date range
+                    "CREATE INDEX idx_check_in_out_room_dates ON check_in_out (room_number, check_in_date, check_out_date)",
+                    // open stays by status and due date
+                    "CREATE INDEX idx_check_in_out_status ON check_in_out (status, check_out_date)",
+                    // getPaymentsByUserId ... ORDER BY payment_date DESC
+                    "CREATE INDEX idx_payments_user_date ON payments (user_id, payment_date)",
+                    // date range reports over payments
+                    "CREATE INDEX idx_payments_date ON payments (payment_date)",
+                    // revenue totals by status, covering the summed amount
+                    "CREATE INDEX idx_payments_status_amount ON payments (status, amount)",
+                    // getAbsencesByUserId ... ORDER BY start_date DESC
+                    "CREATE INDEX idx_absences_user_start ON absences (user_id, start_date)",
+                    // getAllPendingAbsences ... ORDER BY start_date
+                    "CREATE INDEX idx_absences_status_start ON absences (status, start_date)",
+                    // getAvailableRoomsByType
+                    "CREATE INDEX idx_rooms_type_status ON rooms (room_type, status)"),
+
+            new Migration(3, "Index for paging payments by status",
+                    // getPaymentsPage with a status filter, seeking on (payment_date, payment_id)
+                    "CREATE INDEX idx_payments_status_date ON payments (status, payment_date)"),
+
+            // Backstop for the repositories validating users from UserRoleCache:
+            // writes that slip past a stale cache entry are still rejected here
+            new Migration(4, "Triggers enforcing user roles on writes",
+                    userCheckTrigger("trg_bookings_user_ins", "INSERT", "bookings", "role = 'CUSTOMER'",
+                            "Invalid user ID or user is not a customer"),
+                    userCheckTrigger("trg_bookings_user_upd", "UPDATE", "bookings", "role = 'CUSTOMER'",
+                            "Invalid user ID or user is not a customer"),
+                    userCheckTrigger("trg_check_in_out_user_ins", "INSERT", "check_in_out", "role = 'CUSTOMER'",
+                            "Invalid user ID or user is not a customer"),
+                    userCheckTrigger("trg_check_in_out_user_upd", "UPDATE", "check_in_out", "role = 'CUSTOMER'",
+                            "Invalid user ID or user is not a customer"),
+                    userCheckTrigger("trg_payments_user_ins", "INSERT", "payments", null,
+                            "User does not exist"),
+                    userCheckTrigger("trg_payments_user_upd", "UPDATE", "payments", null,
+                            "User does not exist"),
+                    userCheckTrigger("trg_absences_user_ins", "INSERT", "absences", "role = 'STAFF'",
+                            "Invalid staff user"),
+                    userCheckTrigger("trg_absences_user_upd", "UPDATE", "absences", "role = 'STAFF'",
+                            "Invalid staff user")),
+
+            // One row per booked room-night, kept in step by the repositories;
+            // the primary key stops two bookings holding the same night
+            new Migration(5, "room_nights inventory",
+                    // 0..999, for expanding a stay into its nights in SQL
+                    "CREATE TABLE night_offsets (n INT PRIMARY KEY)",
+                    "INSERT INTO night_offsets (n) " +
+                    "SELECT a.d + 10 * b.d + 100 * c.d FROM " +
+                    "(SELECT 0 AS d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 " +
+                    " UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) a " +
+                    "CROSS JOIN (SELECT 0 AS d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 " +
+                    " UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) b " +
+                    "CROSS JOIN (SELECT 0 AS d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 " +
+                    " UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) c",
+
+                    "CREATE TABLE room_nights (" +
+                    "   room_number VARCHAR(10) NOT NULL," +
+                    "   night DATE NOT NULL," +
+                    "   booking_id INT NOT NULL," +
+                    "   state VARCHAR(20) NOT NULL," +
+                    "   PRIMARY KEY (room_number, night)," +
+                    // nights of one booking, for updates and deletes
+                    "   INDEX idx_room_nights_booking (booking_id)," +
+                    // occupancy per night across all rooms
+                    "   INDEX idx_room_nights_night (night, state)" +
+                    ")",
+
+                    // Backfill; where old bookings overlap, the earliest one keeps the night
+                    "INSERT IGNORE INTO room_nights (room_number, night, booking_id, state) " +
+                    "SELECT b.room_number, DATE_ADD(b.check_in_date, INTERVAL o.n DAY), b.bookingID, b.status " +
+                    "FROM bookings b JOIN night_offsets o ON o.n < DATEDIFF(b.check_out_date, b.check_in_date) " +
+                    "WHERE b.status <> 'Cancelled' ORDER BY b.bookingID",
+                    "UPDATE room_nights rn JOIN check_in_out c ON c.room_number = rn.room_number " +
+                    "AND rn.night >= c.check_in_date AND rn.night < c.check_out_date " +
+                    "SET rn.state = IF(c.status = 'OUT', 'Checked Out', 'Checked In')"),
+
+            // Seasonal and weekday price adjustments; see services.RateEngine
+            new Migration(6, "Rate rules",
+                    "CREATE TABLE rate_rules (" +
+                    "   rule_id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   name VARCHAR(50) NOT NULL," +
+                    // NULL for every room type
+                    "   room_type VARCHAR(20) NULL," +
+                    "   start_date DATE NOT NULL," +
+                    // exclusive, like a check-out date
+                    "   end_date DATE NOT NULL," +
+                    // bit 0 = Monday ... bit 6 = Sunday
+                    "   days_of_week TINYINT UNSIGNED NOT NULL DEFAULT 127," +
+                    "   adjustment_percent DECIMAL(6, 2) NOT NULL" +
+                    ")"),
+
+            // Append-only history of every booking; see services.BookingLedger
+            new Migration(7, "Booking event log",
+                    "CREATE TABLE booking_events (" +
+                    "   event_id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                    "   booking_id INT NOT NULL," +
+                    "   event_type VARCHAR(20) NOT NULL," +
+                    // the booking's fields as of the event; NULL where the event leaves them alone
+                    "   user_id INT NULL," +
+                    "   room_number VARCHAR(10) NULL," +
+                    "   customer_name VARCHAR(36) NULL," +
+                    "   check_in_date DATE NULL," +
+                    "   check_out_date DATE NULL," +
+                    "   number_of_guests INT NULL," +
+                    "   total_price DECIMAL(10, 2) NULL," +
+                    "   status VARCHAR(20) NULL," +
+                    "   stay_id INT NULL," +
+                    "   performed_by VARCHAR(50) NULL," +
+                    "   recorded_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)," +
+                    // one booking's history
+                    "   INDEX idx_booking_events_booking (booking_id, event_id)" +
+                    ")",
+
+                    // The state every booking is in now is the first thing the log knows of it
+                    "INSERT INTO booking_events (booking_id, event_type, user_id, room_number, customer_name, " +
+                    "check_in_date, check_out_date, number_of_guests, total_price, status, performed_by) " +
+                    "SELECT bookingID, 'CREATED', user_id, room_number, customer_name, check_in_date, " +
+                    "check_out_date, number_of_guests, total_price, status, 'migration' " +
+                    "FROM bookings ORDER BY bookingID",
+
+                    // Every booking as of last_event_id, so a replay only reads the events after it
+                    "CREATE TABLE booking_snapshots (" +
+                    "   snapshot_id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "   last_event_id BIGINT NOT NULL," +
+                    "   bookings INT NOT NULL," +
+                    "   state LONGBLOB NOT NULL," +
+                    "   taken_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                    "   INDEX idx_booking_snapshots_event (last_event_id)" +
+                    ")"),
+
+            // Bookings the room assignment optimizer must leave in their room; see services.RoomAssignmentOptimizer
+            new Migration(8, "Room locks",
+                    "CREATE TABLE room_locks (" +
+                    "   booking_id INT PRIMARY KEY," +
+                    "   locked_by VARCHAR(50) NULL," +
+                    "   locked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")"),
+
+            // Daily rollups the reports read instead of raw history; see repositories.ReportRollupRepository
+            new Migration(9, "Reporting rollups",
+                    "CREATE TABLE report_daily_stays (" +
+                    "   day DATE PRIMARY KEY," +
+                    // rooms on the books that day; kept once the day is past, rooms has no history
+                    "   rooms INT NOT NULL," +
+                    "   room_nights_sold INT NOT NULL," +
+                    // each night's share of its booking's total_price
+                    "   room_revenue DECIMAL(14, 2) NOT NULL," +
+                    "   check_ins INT NOT NULL," +
+                    "   computed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                    ")",
+                    // Completed payments only
+                    "CREATE TABLE report_daily_payments (" +
+                    "   day DATE NOT NULL," +
+                    "   payment_method VARCHAR(255) NOT NULL," +
+                    "   payments INT NOT NULL," +
+                    "   amount DECIMAL(14, 2) NOT NULL," +
+                    "   PRIMARY KEY (day, payment_method)" +
+                    ")",
+                    // By the day the booking was cancelled or marked a no-show, from booking_events
+                    "CREATE TABLE report_daily_cancellations (" +
+                    "   day DATE PRIMARY KEY," +
+                    "   cancellations INT NOT NULL," +
+                    "   no_shows INT NOT NULL," +
+                    "   lost_revenue DECIMAL(14, 2) NOT NULL" +
+                    ")",
+                    // Days [first_day, end_day) whose rollups are out of date; append-only, so
+                    // concurrent writers never wait on each other's rows here
+                    "CREATE TABLE report_pending (" +
+                    "   id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                    "   first_day DATE NULL," +
+                    "   end_day DATE NULL" +
+                    ")",
+
+                    // The refresh reads these by day
+                    "CREATE INDEX idx_check_in_out_check_in ON check_in_out (check_in_date)",
+                    "CREATE INDEX idx_booking_events_recorded ON booking_events (recorded_at, event_type)",
+
+                    rollupTrigger("trg_bookings_report_ins", "INSERT", "bookings", null,
+                            "NEW.check_in_date, NEW.check_out_date"),
+                    rollupTrigger("trg_bookings_report_upd", "UPDATE", "bookings",
+                            "NOT (OLD.check_in_date <=> NEW.check_in_date AND OLD.check_out_date <=> NEW.check_out_date " +
+                            "AND OLD.status <=> NEW.status AND OLD.total_price <=> NEW.total_price)",
+                            "OLD.check_in_date, OLD.check_out_date", "NEW.check_in_date, NEW.check_out_date"),
+                    rollupTrigger("trg_bookings_report_del", "DELETE", "bookings", null,
+                            "OLD.check_in_date, OLD.check_out_date"),
+                    rollupTrigger("trg_check_in_out_report_ins", "INSERT", "check_in_out", null,
+                            "NEW.check_in_date, NEW.check_out_date"),
+                    rollupTrigger("trg_check_in_out_report_upd", "UPDATE", "check_in_out",
+                            "NOT (OLD.check_in_date <=> NEW.check_in_date AND OLD.check_out_date <=> NEW.check_out_date " +
+                            "AND OLD.status <=> NEW.status)",
+                            "OLD.check_in_date, OLD.check_out_date", "NEW.check_in_date, NEW.check_out_date"),
+                    rollupTrigger("trg_check_in_out_report_del", "DELETE", "check_in_out", null,
+                            "OLD.check_in_date, OLD.check_out_date"),
+                    rollupTrigger("trg_payments_report_ins", "INSERT", "payments", null,
+                            "DATE(NEW.payment_date), DATE(NEW.payment_date) + INTERVAL 1 DAY"),
+                    rollupTrigger("trg_payments_report_upd", "UPDATE", "payments",
+                            "NOT (OLD.payment_date <=> NEW.payment_date AND OLD.amount <=> NEW.amount " +
+                            "AND OLD.payment_method <=> NEW.payment_method AND OLD.status <=> NEW.status)",
+                            "DATE(OLD.payment_date), DATE(OLD.payment_date) + INTERVAL 1 DAY",
+                            "DATE(NEW.payment_date), DATE(NEW.payment_date) + INTERVAL 1 DAY"),
+                    rollupTrigger("trg_payments_report_del", "DELETE", "payments", null,
+                            "DATE(OLD.payment_date), DATE(OLD.payment_date) + INTERVAL 1 DAY"),
+                    rollupTrigger("trg_booking_events_report_ins", "INSERT", "booking_events",
+                            "NEW.event_type IN ('CANCELLED', 'NO_SHOW')",
+                            "DATE(NEW.recorded_at), DATE(NEW.recorded_at) + INTERVAL 1 DAY"),
+
+                    // Backfill: everything the data covers is out of date; the first refresh computes it
+                    "INSERT INTO report_pending (first_day, end_day) " +
+                    "SELECT MIN(check_in_date), MAX(check_out_date) FROM bookings HAVING COUNT(*) > 0",
+                    "INSERT INTO report_pending (first_day, end_day) " +
+                    "SELECT MIN(check_in_date), MAX(check_out_date) FROM check_in_out HAVING COUNT(*) > 0",
+                    "INSERT INTO report_pending (first_day, end_day) " +
+                    "SELECT DATE(MIN(payment_date)), DATE(MAX(payment_date)) + INTERVAL 1 DAY FROM payments " +
+                    "HAVING COUNT(*) > 0",
+                    "INSERT INTO report_pending (first_day, end_day) " +
+                    "SELECT DATE(MIN(recorded_at)), DATE(MAX(recorded_at)) + INTERVAL 1 DAY FROM booking_events " +
+                    "WHERE event_type IN ('CANCELLED', 'NO_SHOW') HAVING COUNT(*) > 0"),
+
+            // Running payment totals kept by PaymentRepository's writes; see repositories.PaymentTotalsRepository.
+            // They replace the V9 payments rollup, whose triggers and table go.
+            new Migration(10, "Payment totals",
+                    // Every status, per day of payment_date; payments without a date only count per status
+                    "CREATE TABLE payment_totals (" +
+                    "   day DATE NOT NULL," +
+                    "   payment_method VARCHAR(255) NOT NULL," +
+                    "   status VARCHAR(255) NOT NULL," +
+                    "   payments BIGINT NOT NULL," +
+                    "   amount DECIMAL(16, 2) NOT NULL," +
+                    "   PRIMARY KEY (day, payment_method, status)" +
+                    ")",
+                    // Per status, spread over a few slots so concurrent writers rarely update the same row
+                    "CREATE TABLE payment_status_totals (" +
+                    "   status VARCHAR(255) NOT NULL," +
+                    "   slot TINYINT NOT NULL," +
+                    "   payments BIGINT NOT NULL," +
+                    "   amount DECIMAL(16, 2) NOT NULL," +
+                    "   PRIMARY KEY (status, slot)" +
+                    ")",
+                    "INSERT INTO payment_totals (day, payment_method, status, payments, amount) " +
+                    "SELECT DATE(payment_date), COALESCE(payment_method, ''), COALESCE(status, ''), COUNT(*), " +
+                    "COALESCE(SUM(amount), 0) FROM payments WHERE payment_date IS NOT NULL " +
+                    "GROUP BY DATE(payment_date), COALESCE(payment_method, ''), COALESCE(status, '')",
+                    "INSERT INTO payment_status_totals (status, slot, payments, amount) " +
+                    "SELECT COALESCE(status, ''), 0, COUNT(*), COALESCE(SUM(amount), 0) FROM payments " +
+                    "GROUP BY COALESCE(status, '')",
+
+                    "DROP TRIGGER trg_payments_report_ins",
+                    "DROP TRIGGER trg_payments_report_upd",
+                    "DROP TRIGGER trg_payments_report_del",
+                    "DROP TABLE report_daily_payments"),
+
+            // What services.AnalyticsCache needs to pick up payment changes incrementally
+            new Migration(11, "Payment change tracking",
+                    "ALTER TABLE payments " +
+                    "   ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) " +
+                    "       ON UPDATE CURRENT_TIMESTAMP(3)," +
+                    "   ADD INDEX idx_payments_updated (updated_at)",
+                    // Written by PaymentRepository.deletePayment in the delete's transaction
+                    "CREATE TABLE payment_deletions (" +
+                    "   payment_id BIGINT UNSIGNED PRIMARY KEY," +
+                    "   deleted_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)," +
+                    "   INDEX idx_payment_deletions_deleted (deleted_at)" +
+                    ")"),
+
+            // BookingAvailabilityIndex loads only the stays that have not long ended
+            new Migration(12, "Booking check-out index",
+                    "CREATE INDEX idx_bookings_check_out ON bookings (check_out_date)")
+    ));
+
+    private SchemaMigrations() {
+    }
+
+    // BEFORE INSERT/UPDATE trigger rejecting rows whose user_id has no matching
+    // user (with the given role condition, if any). Updates are only checked
+    // when user_id actually changes, so status updates cost nothing extra.
+    private static String userCheckTrigger(String name, String event, String table, String roleCondition,
+            String message) {
+        String exists = "EXISTS (SELECT 1 FROM users WHERE id = NEW.user_id"
+                + (roleCondition == null ? "" : " AND " + roleCondition) + ")";
+        String condition = "UPDATE".equals(event)
+                ? "NEW.user_id <> OLD.user_id AND NOT " + exists
+                : "NOT " + exists;
+        return "CREATE TRIGGER " + name + " BEFORE " + event + " ON " + table + " FOR EACH ROW " +
+                "BEGIN " +
+                "   IF " + condition + " THEN " +
+                "       SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = '" + message + "';" +
+                "   END IF;" +
+                "END";
+    }
+
+    // AFTER trigger queuing the day ranges a row change puts out of date in report_pending;
+    // each range is "first_day, end_day". Updates only queue when condition holds.
+    private static String rollupTrigger(String name, String event, String table, String condition,
+            String... ranges) {
+        StringBuilder values = new StringBuilder();
+        for (String range : ranges) {
+            values.append(values.length() == 0 ? "" : ", ").append("(").append(range).append(")");
+        }
+        String insert = "INSERT INTO report_pending (first_day, end_day) VALUES " + values + ";";
+        return "CREATE TRIGGER " + name + " AFTER " + event + " ON " + table + " FOR EACH ROW " +
+                "BEGIN " +
+                (condition == null
+                        ? "   " + insert
+                        : "   IF " + condition + " THEN " + insert + " END IF;") +
+                " END";
+    }
+
+    public static List<Migration> all() {
+        return MIGRATIONS;
+    }
+}
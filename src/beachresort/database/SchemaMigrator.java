@@ -0,0 +1,142 @@
+package beachresort.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies pending {@link SchemaMigrations} once at startup and records each
+ * one in the schema_version table. A database-level lock keeps two front desk
+ * machines that start at the same time from migrating concurrently.
+ */
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "beachresort_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static volatile long lastRunMillis = -1;
+    private static volatile int lastAppliedCount;
+
+    private SchemaMigrator() {
+    }
+
+    // Migrate the application database
+    public static int migrate() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            return migrate(connection, SchemaMigrations.all());
+        }
+    }
+
+    public static int migrate(Connection connection, List<Migration> migrations) throws SQLException {
+        long start = System.nanoTime();
+        int applied = 0;
+
+        acquireLock(connection);
+        try {
+            createVersionTableIfNotExists(connection);
+            Map<Integer, Long> appliedChecksums = loadAppliedChecksums(connection);
+
+            for (Migration migration : migrations) {
+                Long recorded = appliedChecksums.get(migration.getVersion());
+                if (recorded != null) {
+                    if (recorded != migration.getChecksum()) {
+                        throw new SQLException("Checksum mismatch for applied migration " + migration
+                                + ": database has " + recorded + ", code has " + migration.getChecksum());
+                    }
+                    continue;
+                }
+                apply(connection, migration);
+                applied++;
+            }
+        } finally {
+            releaseLock(connection);
+        }
+
+        lastRunMillis = (System.nanoTime() - start) / 1_000_000;
+        lastAppliedCount = applied;
+        System.out.println("Schema migrations: " + applied + " applied, "
+                + (migrations.size() - applied) + " up to date, took " + lastRunMillis + " ms");
+        return applied;
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        System.out.println("Applying migration " + migration);
+        long start = System.nanoTime();
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new SQLException("Migration " + migration + " failed: " + e.getMessage(), e.getSQLState(),
+                    e.getErrorCode(), e);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        String insert = "INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(insert)) {
+            pstmt.setInt(1, migration.getVersion());
+            pstmt.setString(2, migration.getDescription());
+            pstmt.setLong(3, migration.getChecksum());
+            pstmt.setLong(4, elapsedMillis);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void createVersionTableIfNotExists(Connection connection) throws SQLException {
+        String createTableQuery = "CREATE TABLE IF NOT EXISTS schema_version (" +
+                "   version INT PRIMARY KEY," +
+                "   description VARCHAR(200) NOT NULL," +
+                "   checksum BIGINT NOT NULL," +
+                "   execution_ms BIGINT NOT NULL," +
+                "   applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ")";
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(createTableQuery);
+        }
+    }
+
+    private static Map<Integer, Long> loadAppliedChecksums(Connection connection) throws SQLException {
+        Map<Integer, Long> checksums = new HashMap<>();
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT version, checksum FROM schema_version");
+                ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                checksums.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return checksums;
+    }
+
+    private static void acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another instance to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Error releasing schema migration lock: " + e.getMessage());
+        }
+    }
+
+    // Wall-clock time of the last migrate() call, or -1 if it has not run
+    public static long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    public static int getLastAppliedCount() {
+        return lastAppliedCount;
+    }
+}
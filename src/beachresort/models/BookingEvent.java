@@ -0,0 +1,235 @@
+package beachresort.models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the append-only booking_events log. Events that write the
+ * whole booking (CREATED, MODIFIED, CANCELLED, RESTORED) carry every field;
+ * the others carry only what they change, and the rest is null. Applying the
+ * events of a booking in eventId order gives its state at any point.
+ */
+public class BookingEvent {
+
+    public enum Type {
+        CREATED,
+        MODIFIED,
+        CONFIRMED,
+        CHECKED_IN,
+        CHECKED_OUT,
+        CANCELLED,
+        NO_SHOW,
+        // Put back to an earlier state from the log
+        RESTORED,
+        DELETED
+    }
+
+    private long eventId;
+    private int bookingId;
+    private Type type;
+    private Integer userId;
+    private String roomNumber;
+    private String customerName;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private Integer numberOfGuests;
+    private Double totalPrice;
+    private String status;
+    // check_in_out row of CHECKED_IN and CHECKED_OUT events
+    private Integer stayId;
+    private String performedBy;
+    private LocalDateTime recordedAt;
+
+    // Constructor
+    public BookingEvent(long eventId, int bookingId, Type type, String performedBy, LocalDateTime recordedAt) {
+        this.eventId = eventId;
+        this.bookingId = bookingId;
+        this.type = type;
+        this.performedBy = performedBy;
+        this.recordedAt = recordedAt;
+    }
+
+    // An event carrying the whole booking
+    public static BookingEvent of(long eventId, Type type, Booking booking, String performedBy,
+            LocalDateTime recordedAt) {
+        BookingEvent event = new BookingEvent(eventId, booking.getBookingID(), type, performedBy, recordedAt);
+        event.userId = booking.getUserId();
+        event.roomNumber = booking.getRoomNumber();
+        event.customerName = booking.getCustomerName();
+        event.checkInDate = booking.getCheckInDate();
+        event.checkOutDate = booking.getCheckOutDate();
+        event.numberOfGuests = booking.getNumberOfGuests();
+        event.totalPrice = booking.getTotalPrice();
+        event.status = booking.getStatus();
+        return event;
+    }
+
+    /**
+     * The booking after this event, given the booking before it (null if it
+     * did not exist yet). Returns null once the booking is deleted. The
+     * booking passed in is updated in place where possible.
+     */
+    public Booking applyTo(Booking booking) {
+        if (type == Type.DELETED) {
+            return null;
+        }
+        if (booking == null) {
+            if (roomNumber == null) {
+                // A partial event for a booking the log never saw created; nothing to apply it to
+                return null;
+            }
+            booking = new Booking(bookingId, 0, null, null, null, null, 0, 0, null);
+        }
+        if (userId != null) {
+            booking.setUserId(userId);
+        }
+        if (roomNumber != null) {
+            booking.setRoomNumber(roomNumber);
+        }
+        if (customerName != null) {
+            booking.setCustomerName(customerName);
+        }
+        if (checkInDate != null) {
+            booking.setCheckInDate(checkInDate);
+        }
+        if (checkOutDate != null) {
+            booking.setCheckOutDate(checkOutDate);
+        }
+        if (numberOfGuests != null) {
+            booking.setNumberOfGuests(numberOfGuests);
+        }
+        if (totalPrice != null) {
+            booking.setTotalPrice(totalPrice);
+        }
+        if (status != null) {
+            booking.setStatus(status);
+        }
+        return booking;
+    }
+
+    // Getters and Setters
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public int getBookingId() {
+        return bookingId;
+    }
+
+    public void setBookingId(int bookingId) {
+        this.bookingId = bookingId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    public void setRoomNumber(String roomNumber) {
+        this.roomNumber = roomNumber;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public LocalDate getCheckInDate() {
+        return checkInDate;
+    }
+
+    public void setCheckInDate(LocalDate checkInDate) {
+        this.checkInDate = checkInDate;
+    }
+
+    public LocalDate getCheckOutDate() {
+        return checkOutDate;
+    }
+
+    public void setCheckOutDate(LocalDate checkOutDate) {
+        this.checkOutDate = checkOutDate;
+    }
+
+    public Integer getNumberOfGuests() {
+        return numberOfGuests;
+    }
+
+    public void setNumberOfGuests(Integer numberOfGuests) {
+        this.numberOfGuests = numberOfGuests;
+    }
+
+    public Double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(Double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getStayId() {
+        return stayId;
+    }
+
+    public void setStayId(Integer stayId) {
+        this.stayId = stayId;
+    }
+
+    public String getPerformedBy() {
+        return performedBy;
+    }
+
+    public void setPerformedBy(String performedBy) {
+        this.performedBy = performedBy;
+    }
+
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(LocalDateTime recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingEvent{" +
+                "eventId=" + eventId +
+                ", bookingId=" + bookingId +
+                ", type=" + type +
+                ", status='" + status + '\'' +
+                ", stayId=" + stayId +
+                ", performedBy='" + performedBy + '\'' +
+                ", recordedAt=" + recordedAt +
+                '}';
+    }
+}
@@ -0,0 +1,37 @@
+package beachresort.models;
+
+import java.time.LocalDate;
+
+/**
+ * Bookings cancelled or marked no-show during one report period, and the
+ * total price they were booked at.
+ */
+public class CancellationStats {
+    private final LocalDate periodStart;
+    private final long cancellations;
+    private final long noShows;
+    private final double lostRevenue;
+
+    public CancellationStats(LocalDate periodStart, long cancellations, long noShows, double lostRevenue) {
+        this.periodStart = periodStart;
+        this.cancellations = cancellations;
+        this.noShows = noShows;
+        this.lostRevenue = lostRevenue;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getCancellations() {
+        return cancellations;
+    }
+
+    public long getNoShows() {
+        return noShows;
+    }
+
+    public double getLostRevenue() {
+        return lostRevenue;
+    }
+}
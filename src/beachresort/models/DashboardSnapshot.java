@@ -0,0 +1,74 @@
+package beachresort.models;
+
+/**
+ * The owner dashboard's figures as of one moment, read in a single query.
+ * Never changed once built, so it can be handed between threads freely.
+ */
+public class DashboardSnapshot {
+    private final long totalRooms;
+    private final long availableRooms;
+    private final long occupiedRooms;
+    private final long totalStaff;
+    private final long totalBookings;
+    private final double totalRevenue;
+    private final long computedAtMillis;
+    private final long computeNanos;
+
+    public DashboardSnapshot(long totalRooms, long availableRooms, long occupiedRooms, long totalStaff,
+            long totalBookings, double totalRevenue, long computedAtMillis, long computeNanos) {
+        this.totalRooms = totalRooms;
+        this.availableRooms = availableRooms;
+        this.occupiedRooms = occupiedRooms;
+        this.totalStaff = totalStaff;
+        this.totalBookings = totalBookings;
+        this.totalRevenue = totalRevenue;
+        this.computedAtMillis = computedAtMillis;
+        this.computeNanos = computeNanos;
+    }
+
+    public long getTotalRooms() {
+        return totalRooms;
+    }
+
+    public long getAvailableRooms() {
+        return availableRooms;
+    }
+
+    public long getOccupiedRooms() {
+        return occupiedRooms;
+    }
+
+    public long getTotalStaff() {
+        return totalStaff;
+    }
+
+    public long getTotalBookings() {
+        return totalBookings;
+    }
+
+    // Sum of completed payments
+    public double getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    // Wall-clock time the query finished
+    public long getComputedAtMillis() {
+        return computedAtMillis;
+    }
+
+    public long getAgeMillis() {
+        return Math.max(0, System.currentTimeMillis() - computedAtMillis);
+    }
+
+    // How long the query took, connection included
+    public double getComputeMillis() {
+        return computeNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rooms %d (%d available, %d occupied), staff %d, bookings %d, revenue %.2f, "
+                        + "computed in %.1f ms", totalRooms, availableRooms, occupiedRooms, totalStaff, totalBookings,
+                totalRevenue, getComputeMillis());
+    }
+}
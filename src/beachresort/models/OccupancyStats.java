@@ -0,0 +1,59 @@
+package beachresort.models;
+
+import java.time.LocalDate;
+
+/**
+ * Room nights and room revenue over one report period (a day, week or
+ * month), summed from the daily rollups.
+ */
+public class OccupancyStats {
+    private final LocalDate periodStart;
+    private final long roomNightsAvailable;
+    private final long roomNightsSold;
+    private final double roomRevenue;
+    private final long checkIns;
+
+    public OccupancyStats(LocalDate periodStart, long roomNightsAvailable, long roomNightsSold, double roomRevenue,
+            long checkIns) {
+        this.periodStart = periodStart;
+        this.roomNightsAvailable = roomNightsAvailable;
+        this.roomNightsSold = roomNightsSold;
+        this.roomRevenue = roomRevenue;
+        this.checkIns = checkIns;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getRoomNightsAvailable() {
+        return roomNightsAvailable;
+    }
+
+    public long getRoomNightsSold() {
+        return roomNightsSold;
+    }
+
+    public double getRoomRevenue() {
+        return roomRevenue;
+    }
+
+    public long getCheckIns() {
+        return checkIns;
+    }
+
+    // Share of the room nights sold, 0-100
+    public double getOccupancyPercent() {
+        return roomNightsAvailable == 0 ? 0 : 100.0 * roomNightsSold / roomNightsAvailable;
+    }
+
+    // Average daily rate: room revenue per room night sold
+    public double getAdr() {
+        return roomNightsSold == 0 ? 0 : roomRevenue / roomNightsSold;
+    }
+
+    // Revenue per available room night
+    public double getRevPar() {
+        return roomNightsAvailable == 0 ? 0 : roomRevenue / roomNightsAvailable;
+    }
+}
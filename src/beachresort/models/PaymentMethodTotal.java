@@ -0,0 +1,34 @@
+package beachresort.models;
+
+import java.time.LocalDate;
+
+// Completed payments by one method over one report period
+public class PaymentMethodTotal {
+    private final LocalDate periodStart;
+    private final String paymentMethod;
+    private final long payments;
+    private final double amount;
+
+    public PaymentMethodTotal(LocalDate periodStart, String paymentMethod, long payments, double amount) {
+        this.periodStart = periodStart;
+        this.paymentMethod = paymentMethod;
+        this.payments = payments;
+        this.amount = amount;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public long getPayments() {
+        return payments;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+}
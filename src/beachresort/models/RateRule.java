@@ -0,0 +1,131 @@
+package beachresort.models;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * A seasonal or weekday price adjustment: every night in [startDate, endDate)
+ * that falls on one of the rule's days costs adjustmentPercent more (or less,
+ * when negative) than the room's price per night. A null room type applies
+ * the rule to every type. Rules that overlap add up.
+ */
+public class RateRule {
+    // Bit (day.getValue() - 1) per day, Monday first
+    public static final int EVERY_DAY = 0x7F;
+    public static final int WEEKENDS = dayBit(DayOfWeek.FRIDAY) | dayBit(DayOfWeek.SATURDAY);
+
+    private int ruleId;
+    private String name;
+    private String roomType;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private int daysOfWeek;
+    private double adjustmentPercent;
+
+    // Constructor
+    public RateRule(String name, String roomType, LocalDate startDate, LocalDate endDate, int daysOfWeek,
+            double adjustmentPercent) {
+        this(0, name, roomType, startDate, endDate, daysOfWeek, adjustmentPercent);
+    }
+
+    // Constructor with ID
+    public RateRule(int ruleId, String name, String roomType, LocalDate startDate, LocalDate endDate,
+            int daysOfWeek, double adjustmentPercent) {
+        this.ruleId = ruleId;
+        this.name = name;
+        this.roomType = roomType;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.daysOfWeek = daysOfWeek;
+        this.adjustmentPercent = adjustmentPercent;
+    }
+
+    public static int dayBit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    // Whether the rule prices this night for this room type
+    public boolean appliesTo(String type, LocalDate night) {
+        return (roomType == null || roomType.equalsIgnoreCase(type))
+                && !night.isBefore(startDate) && night.isBefore(endDate)
+                && (daysOfWeek & dayBit(night.getDayOfWeek())) != 0;
+    }
+
+    // Validation method
+    public boolean validate() {
+        return name != null && !name.trim().isEmpty()
+                && startDate != null && endDate != null && endDate.isAfter(startDate)
+                && (daysOfWeek & EVERY_DAY) != 0
+                && adjustmentPercent >= -100;
+    }
+
+    // Getters and Setters
+    public int getRuleId() {
+        return ruleId;
+    }
+
+    public void setRuleId(int ruleId) {
+        this.ruleId = ruleId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getRoomType() {
+        return roomType;
+    }
+
+    public void setRoomType(String roomType) {
+        this.roomType = roomType;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public int getDaysOfWeek() {
+        return daysOfWeek;
+    }
+
+    public void setDaysOfWeek(int daysOfWeek) {
+        this.daysOfWeek = daysOfWeek;
+    }
+
+    public double getAdjustmentPercent() {
+        return adjustmentPercent;
+    }
+
+    public void setAdjustmentPercent(double adjustmentPercent) {
+        this.adjustmentPercent = adjustmentPercent;
+    }
+
+    @Override
+    public String toString() {
+        return "RateRule{" +
+                "ruleId=" + ruleId +
+                ", name='" + name + '\'' +
+                ", roomType='" + roomType + '\'' +
+                ", startDate=" + startDate +
+                ", endDate=" + endDate +
+                ", daysOfWeek=" + daysOfWeek +
+                ", adjustmentPercent=" + adjustmentPercent +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+package beachresort.models;
+
+/**
+ * A booking moved to another room of the same type by the room assignment
+ * optimizer. The booking is as it was read, so the move can be checked
+ * against the row before it is made.
+ */
+public class RoomMove {
+    private final Booking booking;
+    private final String toRoom;
+
+    public RoomMove(Booking booking, String toRoom) {
+        this.booking = booking;
+        this.toRoom = toRoom;
+    }
+
+    public Booking getBooking() {
+        return booking;
+    }
+
+    public int getBookingId() {
+        return booking.getBookingID();
+    }
+
+    public String getFromRoom() {
+        return booking.getRoomNumber();
+    }
+
+    public String getToRoom() {
+        return toRoom;
+    }
+
+    @Override
+    public String toString() {
+        return "Booking " + booking.getBookingID() + " (" + booking.getCheckInDate() + " to "
+                + booking.getCheckOutDate() + "): " + getFromRoom() + " -> " + toRoom;
+    }
+}
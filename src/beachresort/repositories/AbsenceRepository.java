@@ -6,52 +6,14 @@ import beachresort.database.DatabaseConnection;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class AbsenceRepository {
-    private Connection connection;
 
-    public AbsenceRepository() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            createAbsenceTableIfNotExists();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void createAbsenceTableIfNotExists() {
-        String createTableQuery = 
-            "CREATE TABLE IF NOT EXISTS absences (" +
-                        "   absence_id INT AUTO_INCREMENT PRIMARY KEY," +
-                        "   user_id INT NOT NULL," +
-            "   leave_type VARCHAR(50) NOT NULL," +
-            "   start_date DATE NOT NULL," +
-            "   end_date DATE NOT NULL," +
-            "   status ENUM('Pending', 'Approved', 'Rejected') NOT NULL," +
-            "   reason TEXT," +
-            "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-            "   updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
-            ")";
-        try (PreparedStatement pstmt = connection.prepareStatement(createTableQuery)) {
-            pstmt.execute();
-            System.out.println("Absences table created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating absences table: " + e.getMessage());
-        }
-    }
-
-    // Validate staff user
+    // Validate staff user (from the shared role cache; the absences triggers back this up)
     private boolean validateStaffUser (int staffId) throws SQLException {
-        String query = "SELECT role FROM users WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, staffId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return "staff".equalsIgnoreCase(rs.getString("role"));
-                }
-            }
-        }
-        return false;
+        return UserRoleCache.shared().hasRole(staffId, "STAFF");
     }
 
     public boolean addAbsence(Absence absence) {
@@ -62,11 +24,9 @@ public class AbsenceRepository {
                 return false;
             }
 
-            String query = "INSERT INTO absences " +
-                           "(user_id, leave_type, start_date, end_date, status, reason) " +
-                           "VALUES (?, ?, ?, ?, ?, ?)";
             
-            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            try (Connection connection = DatabaseConnection.getConnection();
+                    PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ABSENCE_INSERT)) {
                 pstmt.setInt(1, absence.getUserId());
                 pstmt.setString(2, absence.getLeaveType());
                 pstmt.setDate(3, absence.getStartDate());
@@ -92,23 +52,11 @@ public class AbsenceRepository {
                 return absences;
             }
 
-            String query = "SELECT * FROM absences WHERE user_id = ? ORDER BY start_date DESC";
-            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            try (Connection connection = DatabaseConnection.getConnection();
+                    PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ABSENCES_BY_USER)) {
                 pstmt.setInt(1, userId);
                 try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        Absence absence = new Absence(
-                                rs.getInt("absence_id"),
-                                rs.getInt("user_id"),
-                                rs.getString("leave_type"),
-                                rs.getDate("start_date"),
-                                rs.getDate("end_date"),
-                                rs.getString("status"),
-                                rs.getString("reason"),
-                                rs.getTimestamp("created_at"),
-                                rs.getTimestamp("updated_at"));
-                        absences.add(absence);
-                    }
+                    absences.addAll(RowMappers.list(rs, RowMappers.ABSENCE));
                 }
             }
         } catch (SQLException e) {
@@ -120,22 +68,11 @@ public class AbsenceRepository {
     
     
     public Absence getAbsenceById(int absenceId) {
-        String query = "SELECT * FROM absences WHERE absence_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ABSENCE_BY_ID)) {
             pstmt.setInt(1, absenceId);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Absence(
-                            rs.getInt("absence_id"),
-                            rs.getInt("user_id"),
-                            rs.getString("leave_type"),
-                            rs.getDate("start_date"),
-                            rs.getDate("end_date"),
-                            rs.getString("status"),
-                            rs.getString("reason"),
-                            rs.getTimestamp("created_at"),
-                            rs.getTimestamp("updated_at"));
-                }
+                return RowMappers.first(rs, RowMappers.ABSENCE);
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving absence by ID: " + e.getMessage());
@@ -145,34 +82,29 @@ public class AbsenceRepository {
     
     public List<Absence> getAllLeaveRequests() {
         List<Absence> absences = new ArrayList<>();
-        String query = "SELECT * FROM absences ORDER BY start_date DESC";
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
-                ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                Absence absence = new Absence(
-                        rs.getInt("absence_id"),
-                        rs.getInt("user_id"),
-                        rs.getString("leave_type"),
-                        rs.getDate("start_date"),
-                        rs.getDate("end_date"),
-                        rs.getString("status"),
-                        rs.getString("reason"),
-                        rs.getTimestamp("created_at"),
-                        rs.getTimestamp("updated_at"));
-                absences.add(absence);
-            }
+        try {
+            forEachLeaveRequest(StreamingQuery.DEFAULT_FETCH_SIZE, absences::add);
         } catch (SQLException e) {
             System.err.println("Error retrieving all leave requests: " + e.getMessage());
         }
         return absences;
     }
 
+    // Streams every leave request, latest start date first; close the stream when done
+    public Stream<Absence> streamAllLeaveRequests(int fetchSize) throws SQLException {
+        return StreamingQuery.stream(NamedQuery.ALL_ABSENCES, fetchSize, RowMappers.ABSENCE);
+    }
+
+    public long forEachLeaveRequest(int fetchSize, Consumer<? super Absence> action) throws SQLException {
+        return StreamingQuery.forEach(NamedQuery.ALL_ABSENCES, fetchSize, RowMappers.ABSENCE, action);
+    }
+
     
 
     public boolean updateAbsenceStatus(int absenceId, String newStatus) {
         try {
-            String query = "UPDATE absences SET status = ? WHERE absence_id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            try (Connection connection = DatabaseConnection.getConnection();
+                    PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ABSENCE_STATUS_UPDATE)) {
                 pstmt.setString(1, newStatus);
                 pstmt.setInt(2, absenceId);
                 
@@ -188,23 +120,10 @@ public class AbsenceRepository {
     public List<Absence> getAllPendingAbsences() {
         List<Absence> pendingAbsences = new ArrayList<>();
         try {
-            String query = "SELECT * FROM absences WHERE status = 'Pending' ORDER BY start_date";
-            try (PreparedStatement pstmt = connection.prepareStatement(query);
+            try (Connection connection = DatabaseConnection.getConnection();
+                    PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PENDING_ABSENCES);
                  ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Absence absence = new Absence(
-                        rs.getInt("absence_id"),
-                        rs.getInt("user_id"),
-                        rs.getString("leave_type"),
-                        rs.getDate("start_date"),
-                        rs.getDate("end_date"),
-                        rs.getString("status"),
-                        rs.getString("reason"),
-                        rs.getTimestamp("created_at"),
-                        rs.getTimestamp("updated_at")
-                    );
-                    pendingAbsences.add(absence);
-                }
+                pendingAbsences.addAll(RowMappers.list(rs, RowMappers.ABSENCE));
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving pending absences: " + e.getMessage());
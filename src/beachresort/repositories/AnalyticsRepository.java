@@ -0,0 +1,87 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.models.Booking;
+import beachresort.models.Payment;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The reads behind services.AnalyticsCache: full loads of bookings and
+ * payments with only the columns it keeps, and the payments changed or
+ * deleted since a watermark. Booking changes come from the booking_events
+ * log instead (BookingEventRepository.forEachEvent).
+ *
+ * Payment rows are mapped by position and carry no user or description.
+ */
+public class AnalyticsRepository {
+
+    private static final ResultSetMapper<Booking> BOOKING = ResultSetMapper.of(rs -> new Booking(
+            rs.getInt(1), 0, rs.getString(2), null, rs.getDate(3).toLocalDate(), rs.getDate(4).toLocalDate(),
+            rs.getInt(5), rs.getDouble(6), rs.getString(7)));
+
+    private static final ResultSetMapper<Payment> PAYMENT = ResultSetMapper.of(rs -> {
+        Payment payment = new Payment(null, rs.getString(2), rs.getBigDecimal(3), rs.getString(4), rs.getString(5),
+                null, rs.getTimestamp(6));
+        payment.setPaymentId(rs.getInt(1));
+        return payment;
+    });
+
+    // Every booking in bookingID order; returns how many were read
+    public long forEachBooking(Consumer<? super Booking> action) throws SQLException {
+        return StreamingQuery.forEach(NamedQuery.ANALYTICS_BOOKINGS, StreamingQuery.DEFAULT_FETCH_SIZE, BOOKING,
+                action);
+    }
+
+    // Every payment in payment_id order
+    public long forEachPayment(Consumer<? super Payment> action) throws SQLException {
+        return StreamingQuery.forEach(NamedQuery.ANALYTICS_PAYMENTS, StreamingQuery.DEFAULT_FETCH_SIZE, PAYMENT,
+                action);
+    }
+
+    // Payments inserted or updated at or after the watermark, in payment_id order
+    public long forEachPaymentChange(Timestamp since, Consumer<? super Payment> action) throws SQLException {
+        return StreamingQuery.forEach(NamedQuery.ANALYTICS_PAYMENTS_CHANGED, StreamingQuery.DEFAULT_FETCH_SIZE,
+                PAYMENT, action, since);
+    }
+
+    // Ids of the payments deleted at or after the watermark
+    public long forEachPaymentDeletion(Timestamp since, Consumer<Integer> action) throws SQLException {
+        return StreamingQuery.forEach(NamedQuery.ANALYTICS_PAYMENTS_DELETED, StreamingQuery.DEFAULT_FETCH_SIZE,
+                ResultSetMapper.of(rs -> rs.getInt(1)), action, since);
+    }
+
+    /**
+     * The server time before which every payment change has committed. Read
+     * it before the changes: the next refresh starts from it, so whatever
+     * commits meanwhile is read again then.
+     */
+    public Timestamp getWatermark() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ANALYTICS_WATERMARK);
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    // Room number -> room type
+    public Map<String, String> getRoomTypes() throws SQLException {
+        Map<String, String> types = new HashMap<>();
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ANALYTICS_ROOM_TYPES);
+                ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                types.put(rs.getString(1), rs.getString(2));
+            }
+        }
+        return types;
+    }
+}
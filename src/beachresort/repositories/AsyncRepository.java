@@ -0,0 +1,32 @@
+package beachresort.repositories;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * CompletableFuture facade over any repository, e.g.
+ *
+ *   AsyncRepository<RoomRepository> rooms = AsyncRepository.of(new RoomRepository());
+ *   rooms.call(RoomRepository::getAllRooms).thenAccept(...);
+ *
+ * Calls run on {@link RepositoryExecutor}; futures complete on that thread, so
+ * UI code should hand the result to the EDT (see beachresort.ui.PanelTasks).
+ */
+public final class AsyncRepository<R> {
+    private final R repository;
+
+    private AsyncRepository(R repository) {
+        this.repository = repository;
+    }
+
+    public static <R> AsyncRepository<R> of(R repository) {
+        return new AsyncRepository<>(repository);
+    }
+
+    public R unwrap() {
+        return repository;
+    }
+
+    public <T> CompletableFuture<T> call(RepositoryCall<? super R, ? extends T> operation) {
+        return RepositoryExecutor.supply(() -> operation.apply(repository));
+    }
+}
@@ -0,0 +1,437 @@
+package beachresort.repositories;
+
+import beachresort.models.Booking;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index of which days each room is booked, so a booking dialog can
+ * check for a clash without reading the room's bookings from the database.
+ * One {@link IntervalTree} per room answers a conflict query in O(log n), and
+ * an {@link OccupancyCalendar} answers multi-room "free between these dates"
+ * searches with a few bit operations per room.
+ *
+ * A stay occupies the nights [check-in, check-out): a guest may arrive on the
+ * day the previous one leaves. Cancelled bookings and no-shows hold no nights
+ * and are not kept. Neither are stays that ended more than PAST_NIGHTS before
+ * the index was loaded; a question about a night before that is answered from
+ * room_nights instead.
+ *
+ * The index is loaded from the bookings table at startup (or on first use)
+ * and BookingRepository keeps it current on every add, update and delete.
+ * Writes made outside this process, e.g. by another front desk machine, are
+ * picked up by a background reload once the index is older than MAX_AGE, and
+ * writes that bypass the repository (a bulk import) by one after invalidate().
+ */
+public class BookingAvailabilityIndex {
+    private static final long MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    // Past nights held, the same as the occupancy calendar's
+    private static final int PAST_NIGHTS = OccupancyCalendar.PAST_NIGHTS;
+
+    private static final BookingAvailabilityIndex SHARED = new BookingAvailabilityIndex();
+
+    private static final class Entry {
+        final String roomNumber;
+        final int checkIn;
+        final int checkOut;
+        final boolean active;
+
+        Entry(String roomNumber, int checkIn, int checkOut, boolean active) {
+            this.roomNumber = roomNumber;
+            this.checkIn = checkIn;
+            this.checkOut = checkOut;
+            this.active = active;
+        }
+    }
+
+    // The bookings holding nights from the horizon on, by id, with their trees and night bitsets
+    private static final class Rooms {
+        final Map<Integer, Entry> bookings = new HashMap<>();
+        final Map<String, IntervalTree> trees = new HashMap<>();
+        final OccupancyCalendar calendar;
+        // First night held; stays that end by then are left out
+        final int horizon;
+
+        Rooms(LocalDate today) {
+            calendar = new OccupancyCalendar(today);
+            horizon = day(today) - PAST_NIGHTS;
+        }
+
+        void put(int bookingId, Entry entry) {
+            remove(bookingId);
+            if (!entry.active || entry.checkOut <= horizon) {
+                return;
+            }
+            bookings.put(bookingId, entry);
+            trees.computeIfAbsent(entry.roomNumber, room -> new IntervalTree())
+                    .insert(entry.checkIn, entry.checkOut, bookingId);
+            calendar.occupy(entry.roomNumber, entry.checkIn, entry.checkOut);
+        }
+
+        // Drops every stay held in the room
+        void clearRoom(String roomNumber) {
+            IntervalTree tree = trees.get(roomNumber);
+            if (tree == null) {
+                return;
+            }
+            List<Integer> bookingIds = new ArrayList<>();
+            tree.forEachOverlap(Integer.MIN_VALUE, Integer.MAX_VALUE, bookingIds::add);
+            for (int bookingId : bookingIds) {
+                remove(bookingId);
+            }
+        }
+
+        void remove(int bookingId) {
+            Entry old = bookings.remove(bookingId);
+            if (old == null) {
+                return;
+            }
+            IntervalTree tree = trees.get(old.roomNumber);
+            tree.remove(old.checkIn, bookingId);
+            calendar.release(old.roomNumber, old.checkIn, old.checkOut);
+            if (tree.isEmpty()) {
+                trees.remove(old.roomNumber);
+                return;
+            }
+            // Older data can hold overlapping stays; give back the nights they still hold
+            tree.forEachOverlap(old.checkIn, old.checkOut, other -> {
+                Entry still = bookings.get(other);
+                calendar.occupy(still.roomNumber, still.checkIn, still.checkOut);
+            });
+        }
+    }
+
+    private final Object rebuildLock = new Object();
+
+    private Rooms rooms = new Rooms(LocalDate.now());
+    private boolean loaded;
+    private long loadedAtNanos;
+    // Set by invalidate(); the next query reloads in the background
+    private boolean invalidated;
+    private boolean reloading;
+    private long lastRebuildMillis;
+    // Writes made while a rebuild reads the table, replayed onto its result
+    private List<Consumer<Rooms>> replay;
+
+    // The index every repository and panel shares
+    public static BookingAvailabilityIndex shared() {
+        return SHARED;
+    }
+
+    /**
+     * Reloads the bookings that hold nights from the horizon on, through
+     * idx_bookings_check_out. Queries keep using the old index until the new
+     * one is complete.
+     */
+    public void rebuild() throws SQLException {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                replay = new ArrayList<>();
+                // An invalidate() from here on is not covered by this read and sets it again
+                invalidated = false;
+            }
+            long start = System.nanoTime();
+            Rooms fresh = new Rooms(LocalDate.now());
+            try {
+                StreamingQuery.forEach(NamedQuery.BOOKINGS_HOLDING_NIGHTS_SINCE, StreamingQuery.DEFAULT_FETCH_SIZE,
+                        RowMappers.BOOKING, booking -> fresh.put(booking.getBookingID(), entryFor(booking)),
+                        java.sql.Date.valueOf(LocalDate.ofEpochDay(fresh.horizon)));
+            } catch (SQLException | RuntimeException e) {
+                synchronized (this) {
+                    replay = null;
+                    invalidated = true;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                // Put and remove replace by id, so replaying a write the read already saw is harmless
+                for (Consumer<Rooms> write : replay) {
+                    write.accept(fresh);
+                }
+                replay = null;
+                rooms = fresh;
+                loaded = true;
+                loadedAtNanos = System.nanoTime();
+                lastRebuildMillis = TimeUnit.NANOSECONDS.toMillis(loadedAtNanos - start);
+            }
+        }
+    }
+
+    /**
+     * Reloads just these rooms' stays from room_nights, e.g. after a
+     * reservation found one of them taken since the index was read: one
+     * indexed read per room rather than a rebuild. A stay that began before
+     * the horizon is held from the horizon on, which answers the same.
+     */
+    public void refreshRooms(Collection<String> roomNumbers) throws SQLException {
+        ensureLoaded();
+        int horizon;
+        synchronized (this) {
+            horizon = rooms.horizon;
+        }
+        Map<String, List<int[]>> stays = new HashMap<>();
+        for (String roomNumber : roomNumbers) {
+            List<int[]> roomStays = new ArrayList<>();
+            // Booking id, first night, and the day after the last
+            StreamingQuery.forEach(NamedQuery.ROOM_NIGHTS_STAYS_FOR_ROOM, 0,
+                    ResultSetMapper.of(rs -> new int[] { rs.getInt(1), day(rs.getDate(2).toLocalDate()),
+                            day(rs.getDate(3).toLocalDate()) + 1 }),
+                    roomStays::add, roomNumber, java.sql.Date.valueOf(LocalDate.ofEpochDay(horizon)));
+            stays.put(roomNumber, roomStays);
+        }
+        write(rooms -> {
+            for (Map.Entry<String, List<int[]>> room : stays.entrySet()) {
+                rooms.clearRoom(room.getKey());
+                for (int[] stay : room.getValue()) {
+                    rooms.put(stay[0], new Entry(room.getKey(), stay[1], stay[2], true));
+                }
+            }
+        });
+    }
+
+    // Forces a full reload on the next query, e.g. after a bulk import; until
+    // it completes, queries are answered from the current index
+    public synchronized void invalidate() {
+        invalidated = true;
+    }
+
+    /**
+     * Whether any booking holds the room for a night in [checkIn, checkOut).
+     * A checkOut on or before checkIn is treated as a single night.
+     */
+    public boolean hasConflict(String roomNumber, LocalDate checkIn, LocalDate checkOut) throws SQLException {
+        ensureLoaded();
+        int start = day(checkIn);
+        int end = Math.max(day(checkOut), start + 1);
+        if (beforeHorizon(start)) {
+            return !isFreeInTable(roomNumber, start, end);
+        }
+        synchronized (this) {
+            IntervalTree tree = rooms.trees.get(roomNumber);
+            return tree != null && tree.findAnyOverlap(start, end) >= 0;
+        }
+    }
+
+    // Ids of the bookings holding the room for a night in [checkIn, checkOut); nights
+    // before the horizon are not held, so only stays that reach it are found
+    public List<Integer> findConflicts(String roomNumber, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        ensureLoaded();
+        int start = day(checkIn);
+        int end = Math.max(day(checkOut), start + 1);
+        List<Integer> bookingIds = new ArrayList<>();
+        synchronized (this) {
+            IntervalTree tree = rooms.trees.get(roomNumber);
+            if (tree != null) {
+                tree.forEachOverlap(start, end, bookingIds::add);
+            }
+        }
+        return bookingIds;
+    }
+
+    /**
+     * The rooms, in the given order, that no booking holds for any night in
+     * [checkIn, checkOut). Stays inside the occupancy calendar's window are
+     * answered from its bitsets, anything further out from the interval trees.
+     */
+    public List<String> findFreeRooms(Collection<String> roomNumbers, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        ensureLoaded();
+        int start = day(checkIn);
+        int end = Math.max(day(checkOut), start + 1);
+        List<String> free = new ArrayList<>();
+        if (beforeHorizon(start)) {
+            for (String roomNumber : roomNumbers) {
+                if (isFreeInTable(roomNumber, start, end)) {
+                    free.add(roomNumber);
+                }
+            }
+            return free;
+        }
+        synchronized (this) {
+            boolean inWindow = rooms.calendar.covers(start, end);
+            for (String roomNumber : roomNumbers) {
+                if (isFree(roomNumber, start, end, inWindow)) {
+                    free.add(roomNumber);
+                }
+            }
+        }
+        return free;
+    }
+
+    /**
+     * How many of the rooms are free on each night of [checkIn, checkOut),
+     * first night first, to show which nights a search came up short on.
+     */
+    public int[] countFreeRoomsPerNight(Collection<String> roomNumbers, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        ensureLoaded();
+        int start = day(checkIn);
+        int end = Math.max(day(checkOut), start + 1);
+        int[] free = new int[end - start];
+        if (beforeHorizon(start)) {
+            for (String roomNumber : roomNumbers) {
+                for (int night = start; night < end; night++) {
+                    if (isFreeInTable(roomNumber, night, night + 1)) {
+                        free[night - start]++;
+                    }
+                }
+            }
+            return free;
+        }
+        synchronized (this) {
+            boolean inWindow = rooms.calendar.covers(start, end);
+            for (String roomNumber : roomNumbers) {
+                for (int night = start; night < end; night++) {
+                    if (isFree(roomNumber, night, night + 1, inWindow)) {
+                        free[night - start]++;
+                    }
+                }
+            }
+        }
+        return free;
+    }
+
+    public synchronized int size() {
+        return rooms.bookings.size();
+    }
+
+    public synchronized long getLastRebuildMillis() {
+        return lastRebuildMillis;
+    }
+
+    // Called by BookingRepository once a booking row has been written
+    void bookingSaved(Booking booking) {
+        int bookingId = booking.getBookingID();
+        Entry entry = entryFor(booking);
+        write(rooms -> rooms.put(bookingId, entry));
+    }
+
+    // BookingRepository's updates keep the room, so only dates and status change
+    void bookingUpdated(int bookingId, LocalDate checkIn, LocalDate checkOut, String status) {
+        write(rooms -> {
+            Entry old = rooms.bookings.get(bookingId);
+            if (old != null) {
+                rooms.put(bookingId, entryFor(old.roomNumber, checkIn, checkOut, status));
+            } else if (isActive(status)) {
+                // Not held (cancelled or long past), so its room is unknown here; reload
+                invalidated = true;
+            }
+        });
+    }
+
+    void statusChanged(int bookingId, String status) {
+        write(rooms -> {
+            Entry old = rooms.bookings.get(bookingId);
+            if (old != null) {
+                rooms.put(bookingId, new Entry(old.roomNumber, old.checkIn, old.checkOut,
+                        isActive(status) && old.checkOut > old.checkIn));
+            } else if (isActive(status)) {
+                invalidated = true;
+            }
+        });
+    }
+
+    void bookingDeleted(int bookingId) {
+        write(rooms -> rooms.remove(bookingId));
+    }
+
+    private synchronized boolean beforeHorizon(int start) {
+        return start < rooms.horizon;
+    }
+
+    // For nights the index does not hold; room_nights is what the index mirrors
+    private static boolean isFreeInTable(String roomNumber, int start, int end) throws SQLException {
+        return new RoomNightRepository().isRoomFree(roomNumber, LocalDate.ofEpochDay(start),
+                LocalDate.ofEpochDay(end));
+    }
+
+    // Caller holds the lock; inWindow is rooms.calendar.covers for the whole range asked about
+    private boolean isFree(String roomNumber, int start, int end, boolean inWindow) {
+        if (inWindow) {
+            return rooms.calendar.isFree(roomNumber, start, end);
+        }
+        IntervalTree tree = rooms.trees.get(roomNumber);
+        return tree == null || tree.findAnyOverlap(start, end) < 0;
+    }
+
+    private synchronized void write(Consumer<Rooms> change) {
+        change.accept(rooms);
+        if (replay != null) {
+            replay.add(change);
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        boolean stale;
+        synchronized (this) {
+            if (!loaded) {
+                stale = false;
+            } else if (reloading || !invalidated && System.nanoTime() - loadedAtNanos < MAX_AGE_NANOS) {
+                return;
+            } else {
+                stale = true;
+                reloading = true;
+            }
+        }
+        if (!stale) {
+            // Nothing to answer from yet, so wait; callers arriving meanwhile wait for the same load
+            synchronized (rebuildLock) {
+                synchronized (this) {
+                    if (loaded) {
+                        return;
+                    }
+                }
+                rebuild();
+            }
+            return;
+        }
+        // Keep answering from the current index while a fresh one loads
+        RepositoryExecutor.supply(() -> {
+            try {
+                rebuild();
+            } catch (SQLException e) {
+                System.err.println("Error reloading booking availability: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    reloading = false;
+                }
+            }
+            return null;
+        });
+    }
+
+    private static Entry entryFor(Booking booking) {
+        return entryFor(booking.getRoomNumber(), booking.getCheckInDate(), booking.getCheckOutDate(),
+                booking.getStatus());
+    }
+
+    private static Entry entryFor(String roomNumber, LocalDate checkIn, LocalDate checkOut, String status) {
+        int start = day(checkIn);
+        int end = day(checkOut);
+        // A booking with no nights (bad dates) cannot clash with anything
+        return new Entry(roomNumber, start, end, isActive(status) && end > start);
+    }
+
+    private static boolean isActive(String status) {
+        return RoomNightRepository.holdsNights(status);
+    }
+
+    private static int day(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("BookingAvailabilityIndex[bookings=%d, rooms=%d, bookedNightsInWindow=%d, lastRebuild=%d ms]",
+                rooms.bookings.size(), rooms.trees.size(), rooms.calendar.bookedNights(), lastRebuildMillis);
+    }
+}
@@ -0,0 +1,241 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.models.BookingEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The booking_events log and its booking_snapshots. BookingRepository and
+ * CheckInOutRepository append an event in the same transaction as every
+ * booking write, through the package-private methods below, so the log and
+ * the bookings table never disagree. Rows are only ever inserted; replaying
+ * them is left to services.BookingLedger.
+ */
+public class BookingEventRepository {
+
+    // Bookings per BOOKING_EVENTS_RECORD_UNTRACKED statement; each is its own short transaction
+    private static final int UNTRACKED_CHUNK = 5_000;
+
+    public static final class Snapshot {
+        private final long lastEventId;
+        private final byte[] state;
+
+        Snapshot(long lastEventId, byte[] state) {
+            this.lastEventId = lastEventId;
+            this.state = state;
+        }
+
+        public long getLastEventId() {
+            return lastEventId;
+        }
+
+        public byte[] getState() {
+            return state;
+        }
+    }
+
+    // Logs the booking's row as it now stands (CREATED, MODIFIED, CANCELLED or RESTORED)
+    static void recordRow(Connection connection, int bookingId, BookingEvent.Type type, String performedBy)
+            throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_EVENT_FROM_ROW)) {
+            pstmt.setString(1, type.name());
+            setPerformedBy(pstmt, 2, performedBy);
+            pstmt.setInt(3, bookingId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // recordRow for several bookings in one statement
+    static void recordRows(Connection connection, List<Integer> bookingIds, BookingEvent.Type type,
+            String performedBy) throws SQLException {
+        String sql = "INSERT INTO booking_events (booking_id, event_type, user_id, room_number, customer_name, "
+                + "check_in_date, check_out_date, number_of_guests, total_price, status, performed_by) "
+                + "SELECT bookingID, ?, user_id, room_number, customer_name, check_in_date, check_out_date, "
+                + "number_of_guests, total_price, status, ? FROM bookings "
+                + "WHERE bookingID IN (" + QueryCatalog.placeholders(bookingIds.size()) + ") ORDER BY bookingID";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, type.name());
+            setPerformedBy(pstmt, 2, performedBy);
+            for (int i = 0; i < bookingIds.size(); i++) {
+                pstmt.setInt(i + 3, bookingIds.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Logs an event that changes at most the status; stayId is 0 when no stay is involved
+    static void record(Connection connection, int bookingId, BookingEvent.Type type, String status, int stayId,
+            String performedBy) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_EVENT_INSERT)) {
+            pstmt.setInt(1, bookingId);
+            pstmt.setString(2, type.name());
+            if (status == null) {
+                pstmt.setNull(3, Types.VARCHAR);
+            } else {
+                pstmt.setString(3, status);
+            }
+            if (stayId == 0) {
+                pstmt.setNull(4, Types.INTEGER);
+            } else {
+                pstmt.setInt(4, stayId);
+            }
+            setPerformedBy(pstmt, 5, performedBy);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Logs CHECKED_OUT against the booking the stay was checked in from
+    static void recordCheckOut(Connection connection, int stayId, String performedBy) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_EVENT_CHECK_OUT)) {
+            setPerformedBy(pstmt, 1, performedBy);
+            pstmt.setInt(2, stayId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Logs a CREATED event for every booking the log has never seen, e.g.
+     * after a bulk import. Returns the number of bookings logged.
+     */
+    public long recordUntrackedBookings(String performedBy) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            long first;
+            long last;
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_ID_RANGE);
+                    ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getObject(1) == null) {
+                    return 0;
+                }
+                first = rs.getLong(1);
+                last = rs.getLong(2);
+            }
+
+            // One autocommitted statement per range: a single INSERT ... SELECT over a
+            // large import would keep its event ids missing, and the log's readers waiting, until it ended
+            long logged = 0;
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection,
+                    NamedQuery.BOOKING_EVENTS_RECORD_UNTRACKED)) {
+                setPerformedBy(pstmt, 1, performedBy);
+                for (long from = first - 1; from < last; from += UNTRACKED_CHUNK) {
+                    pstmt.setLong(2, from);
+                    pstmt.setLong(3, Math.min(from + UNTRACKED_CHUNK, last));
+                    logged += pstmt.executeLargeUpdate();
+                }
+            }
+            return logged;
+        }
+    }
+
+    // The booking's events up to and including upToEventId, oldest first
+    public List<BookingEvent> getEvents(int bookingId, long upToEventId) throws SQLException {
+        List<BookingEvent> events = new ArrayList<>();
+        StreamingQuery.forEach(NamedQuery.BOOKING_EVENTS_FOR_BOOKING, 0, RowMappers.BOOKING_EVENT, events::add,
+                bookingId, upToEventId);
+        return events;
+    }
+
+    public List<BookingEvent> getEvents(int bookingId) throws SQLException {
+        return getEvents(bookingId, Long.MAX_VALUE);
+    }
+
+    // Streams the events in (afterEventId, upToEventId] in order; returns how many were read
+    public long forEachEvent(long afterEventId, long upToEventId, Consumer<? super BookingEvent> action)
+            throws SQLException {
+        return StreamingQuery.forEach(NamedQuery.BOOKING_EVENTS_RANGE, StreamingQuery.DEFAULT_FETCH_SIZE,
+                RowMappers.BOOKING_EVENT, action, afterEventId, upToEventId);
+    }
+
+    /**
+     * The highest event_id below which no event can still turn up. Events
+     * are numbered when written but appear when their transaction commits,
+     * so the newest ids may have gaps: the settled point stops before the
+     * first one. A gap is given up on once the events after it are older
+     * than BOOKING_EVENTS_GAP_HORIZON's allowance, since a rolled back write
+     * (or auto-increment's own skips) leaves one that never fills.
+     */
+    public long getSettledEventId() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            long settled;
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_EVENTS_GAP_HORIZON);
+                    ResultSet rs = pstmt.executeQuery()) {
+                settled = rs.next() ? rs.getLong(1) : 0;
+            }
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_EVENT_IDS_AFTER)) {
+                pstmt.setLong(1, settled);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next() && rs.getLong(1) == settled + 1) {
+                        settled++;
+                    }
+                }
+            }
+            return settled;
+        }
+    }
+
+    // The newest snapshot taken at or before upToEventId, or null if there is none
+    public Snapshot getLatestSnapshot(long upToEventId) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            return latestSnapshot(connection, upToEventId);
+        }
+    }
+
+    /**
+     * Stores a snapshot and drops all but it and the one before, so a replay
+     * to a point shortly before the newest snapshot still has one to start from.
+     */
+    public void saveSnapshot(long lastEventId, int bookings, byte[] state) throws SQLException {
+        Transactions.run(connection -> {
+            Snapshot previous = latestSnapshot(connection, Long.MAX_VALUE);
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_SNAPSHOT_INSERT)) {
+                pstmt.setLong(1, lastEventId);
+                pstmt.setInt(2, bookings);
+                pstmt.setBytes(3, state);
+                pstmt.executeUpdate();
+            }
+            if (previous != null) {
+                try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_SNAPSHOT_PRUNE)) {
+                    pstmt.setLong(1, Math.min(previous.lastEventId, lastEventId));
+                    pstmt.executeUpdate();
+                }
+            }
+            return null;
+        });
+    }
+
+    // Rows in booking_events, for reports
+    public long countEvents() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM booking_events")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static Snapshot latestSnapshot(Connection connection, long upToEventId) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_SNAPSHOT_LATEST)) {
+            pstmt.setLong(1, upToEventId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new Snapshot(rs.getLong(1), rs.getBytes(2)) : null;
+            }
+        }
+    }
+
+    private static void setPerformedBy(PreparedStatement pstmt, int index, String performedBy) throws SQLException {
+        // The dialogs pass placeholders such as "User "
+        String name = performedBy == null ? "" : performedBy.trim();
+        if (name.isEmpty()) {
+            pstmt.setNull(index, Types.VARCHAR);
+        } else {
+            pstmt.setString(index, name.length() > 50 ? name.substring(0, 50) : name);
+        }
+    }
+}
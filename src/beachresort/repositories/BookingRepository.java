@@ -1,55 +1,36 @@
 package beachresort.repositories;
 
 import beachresort.models.Booking;
+import beachresort.models.BookingEvent;
 import beachresort.database.DatabaseConnection;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class BookingRepository {
-    private Connection connection;
+    static final int MAX_RESERVE_ATTEMPTS = 3;
 
-    public BookingRepository() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            createBookingsTableIfNotExists();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    public enum ReservationResult {
+        RESERVED,
+        // Another booking holds the room for at least one of the nights
+        CONFLICT,
+        INVALID_USER,
+        UNKNOWN_ROOM,
+        FAILED
     }
 
-    // Create bookings table if not exists
-    private void createBookingsTableIfNotExists() {
-        String createTableQuery = "CREATE TABLE IF NOT EXISTS bookings (" +
-                "   bookingID INT AUTO_INCREMENT PRIMARY KEY," +
-                "   user_id INT NOT NULL," +
-                "   room_number VARCHAR(10) NOT NULL," +
-                "   customer_name VARCHAR(36) NOT NULL," +
-                "   check_in_date DATE NOT NULL," +
-                "   check_out_date DATE NOT NULL," +
-                "   number_of_guests INT NOT NULL," +
-                "   total_price DECIMAL(10, 2) NOT NULL," +
-                "   status VARCHAR(20) NOT NULL" +
-                ");";
-        try (PreparedStatement pstmt = connection.prepareStatement(createTableQuery)) {
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-     // Validate User ID
+     // Validate User ID (from the shared role cache; the bookings triggers back this up)
      public boolean isValidCustomerUser(int userId) {
-         String query = "SELECT COUNT(*) FROM users WHERE id = ? AND role = 'CUSTOMER'";
-         try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-             pstmt.setInt(1, userId);
-             ResultSet rs = pstmt.executeQuery();
-             if (rs.next()) {
-                 return rs.getInt(1) > 0;
-             }
+         try {
+             return UserRoleCache.shared().hasRole(userId, "CUSTOMER");
          } catch (SQLException e) {
              System.err.println("Error validating user: " + e.getMessage());
          }
@@ -59,22 +40,11 @@ public class BookingRepository {
 
      
     public Booking getBookingById(int bookingId) {
-        String query = "SELECT * FROM bookings WHERE bookingID = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_BY_ID)) {
             pstmt.setInt(1, bookingId);
             ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return new Booking(
-                        rs.getInt("bookingID"),
-                        rs.getInt("user_id"),
-                        rs.getString("room_number"),
-                        rs.getString("customer_name"),
-                        rs.getDate("check_in_date").toLocalDate(),
-                        rs.getDate("check_out_date").toLocalDate(),
-                        rs.getInt("number_of_guests"),
-                        rs.getDouble("total_price"),
-                        rs.getString("status"));
-            }
+            return RowMappers.first(rs, RowMappers.BOOKING);
         } catch (SQLException e) {
             System.err.println("Error retrieving booking: " + e.getMessage());
         }
@@ -84,16 +54,211 @@ public class BookingRepository {
     
     // Modify addBooking method to include user validation
     public boolean addBooking(Booking booking, String performedBy) {
-        // Validate user first
+        return reserveBooking(booking, performedBy) == ReservationResult.RESERVED;
+    }
+
+    /**
+     * Inserts the booking only if no other booking holds the room for any of
+     * its nights, checking and inserting in one transaction. The room's row
+     * is locked first, so two front desks booking the same room queue up
+     * behind each other and the second one sees the first one's booking.
+     * Retried a few times if MySQL picks the transaction as a deadlock victim.
+     * On success the booking's bookingID is set.
+     */
+    public ReservationResult reserveBooking(Booking booking, String performedBy) {
         if (!isValidCustomerUser(booking.getUserId())) {
             System.err.println("Invalid user ID or user is not a customer");
-            return false;
+            return ReservationResult.INVALID_USER;
+        }
+
+        try {
+            // Read committed, so the clash check sees bookings committed while we waited for the lock
+            ReservationResult result = Transactions.runRetrying(Connection.TRANSACTION_READ_COMMITTED,
+                    MAX_RESERVE_ATTEMPTS, connection -> {
+                        ReservationResult clash = lockRoom(connection, booking);
+                        if (clash != null) {
+                            return clash;
+                        }
+                        insertBooking(connection, booking);
+                        RoomNightRepository.bookingWritten(connection, booking.getBookingID());
+                        BookingEventRepository.recordRow(connection, booking.getBookingID(),
+                                BookingEvent.Type.CREATED, performedBy);
+                        return ReservationResult.RESERVED;
+                    });
+            if (result == ReservationResult.RESERVED) {
+                BookingAvailabilityIndex.shared().bookingSaved(booking);
+            }
+            return result;
+        } catch (SQLException e) {
+            if (RoomNightRepository.isNightTaken(e)) {
+                // room_nights caught a clash the bookings check did not see
+                System.err.println("Room " + booking.getRoomNumber() + " is already booked: " + e.getMessage());
+                return ReservationResult.CONFLICT;
+            }
+            System.err.println("Error adding booking: " + e.getMessage());
+            return ReservationResult.FAILED;
+        }
+    }
+
+    /**
+     * Reserves a block of rooms for the same dates, all or none, in one
+     * transaction: the rooms' rows are locked in room-number order (so two
+     * blocks sharing rooms cannot deadlock), one query looks for clashes
+     * across all of them, and the bookings go in as a single batch with
+     * their nights and events written set-based. On success every booking's
+     * bookingID is set. CONFLICT means at least one room was taken since the
+     * caller looked.
+     */
+    public ReservationResult reserveBlock(List<Booking> bookings, String performedBy) {
+        if (bookings.isEmpty()) {
+            throw new IllegalArgumentException("A block needs at least one booking");
+        }
+        Booking first = bookings.get(0);
+        TreeSet<String> roomNumbers = new TreeSet<>();
+        for (Booking booking : bookings) {
+            if (!booking.getCheckInDate().equals(first.getCheckInDate())
+                    || !booking.getCheckOutDate().equals(first.getCheckOutDate())) {
+                throw new IllegalArgumentException("Every booking in a block must have the same dates");
+            }
+            if (!roomNumbers.add(booking.getRoomNumber())) {
+                throw new IllegalArgumentException("Room " + booking.getRoomNumber() + " is in the block twice");
+            }
+            if (!isValidCustomerUser(booking.getUserId())) {
+                System.err.println("Invalid user ID or user is not a customer");
+                return ReservationResult.INVALID_USER;
+            }
+        }
+
+        try {
+            ReservationResult result = Transactions.runRetrying(Connection.TRANSACTION_READ_COMMITTED,
+                    MAX_RESERVE_ATTEMPTS, connection -> {
+                        ReservationResult clash = lockRooms(connection, new ArrayList<>(roomNumbers),
+                                first.getCheckInDate(), first.getCheckOutDate());
+                        if (clash != null) {
+                            return clash;
+                        }
+                        List<Integer> bookingIds = insertBookings(connection, bookings);
+                        RoomNightRepository.bookingsInserted(connection, bookingIds);
+                        BookingEventRepository.recordRows(connection, bookingIds, BookingEvent.Type.CREATED,
+                                performedBy);
+                        return ReservationResult.RESERVED;
+                    });
+            if (result == ReservationResult.RESERVED) {
+                for (Booking booking : bookings) {
+                    BookingAvailabilityIndex.shared().bookingSaved(booking);
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            if (RoomNightRepository.isNightTaken(e)) {
+                System.err.println("A room in the block is already booked: " + e.getMessage());
+                return ReservationResult.CONFLICT;
+            }
+            System.err.println("Error reserving block: " + e.getMessage());
+            return ReservationResult.FAILED;
+        }
+    }
+
+    // lockRoom for several rooms with the same dates, in two statements whatever the number of rooms
+    private static ReservationResult lockRooms(Connection connection, List<String> roomNumbers, LocalDate checkIn,
+            LocalDate checkOut) throws SQLException {
+        int locked = 0;
+        try (PreparedStatement lock = connection.prepareStatement(blockLockQuery(roomNumbers.size()))) {
+            for (int i = 0; i < roomNumbers.size(); i++) {
+                lock.setString(i + 1, roomNumbers.get(i));
+            }
+            try (ResultSet rs = lock.executeQuery()) {
+                while (rs.next()) {
+                    locked++;
+                }
+            }
+        }
+        if (locked < roomNumbers.size()) {
+            System.err.println("Unknown room in block: " + roomNumbers);
+            return ReservationResult.UNKNOWN_ROOM;
         }
 
+        try (PreparedStatement conflict = connection.prepareStatement(blockConflictQuery(roomNumbers.size()))) {
+            int index = 1;
+            for (String roomNumber : roomNumbers) {
+                conflict.setString(index++, roomNumber);
+            }
+            conflict.setDate(index++, java.sql.Date.valueOf(checkOut));
+            conflict.setDate(index, java.sql.Date.valueOf(checkIn));
+            try (ResultSet rs = conflict.executeQuery()) {
+                if (rs.next()) {
+                    System.err.println("Room " + rs.getString(1) + " is already booked by booking " + rs.getInt(2));
+                    return ReservationResult.CONFLICT;
+                }
+            }
+        }
+        return null;
+    }
 
-        String query = "INSERT INTO bookings (user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // insertBooking for several bookings as one batch (a multi-row INSERT on the wire); returns their ids in order
+    private static List<Integer> insertBookings(Connection connection, List<Booking> bookings) throws SQLException {
+        List<Integer> bookingIds = new ArrayList<>(bookings.size());
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_INSERT)) {
+            for (Booking booking : bookings) {
+                pstmt.setInt(1, booking.getUserId());
+                pstmt.setString(2, booking.getRoomNumber());
+                pstmt.setString(3, booking.getCustomerName());
+                pstmt.setDate(4, java.sql.Date.valueOf(booking.getCheckInDate()));
+                pstmt.setDate(5, java.sql.Date.valueOf(booking.getCheckOutDate()));
+                pstmt.setInt(6, booking.getNumberOfGuests());
+                pstmt.setDouble(7, booking.getTotalPrice());
+                pstmt.setString(8, booking.getStatus());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                for (Booking booking : bookings) {
+                    if (!keys.next()) {
+                        throw new SQLException("Fewer bookingIDs generated than bookings in the block");
+                    }
+                    booking.setBookingId(keys.getInt(1));
+                    bookingIds.add(booking.getBookingID());
+                }
+            }
+        }
+        return bookingIds;
+    }
+
+    /**
+     * Locks the room's row for the rest of the caller's transaction, then
+     * looks for a live booking holding any of the booking's nights. Returns
+     * null if the room is free, otherwise CONFLICT or UNKNOWN_ROOM.
+     */
+    static ReservationResult lockRoom(Connection connection, Booking booking) throws SQLException {
+        try (PreparedStatement lock = QueryCatalog.prepare(connection, NamedQuery.ROOM_LOCK)) {
+            lock.setString(1, booking.getRoomNumber());
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next()) {
+                    System.err.println("Unknown room: " + booking.getRoomNumber());
+                    return ReservationResult.UNKNOWN_ROOM;
+                }
+            }
+        }
+
+        try (PreparedStatement conflict = QueryCatalog.prepare(connection, NamedQuery.BOOKING_CONFLICT)) {
+            conflict.setString(1, booking.getRoomNumber());
+            conflict.setDate(2, java.sql.Date.valueOf(booking.getCheckOutDate()));
+            conflict.setDate(3, java.sql.Date.valueOf(booking.getCheckInDate()));
+            try (ResultSet rs = conflict.executeQuery()) {
+                if (rs.next()) {
+                    System.err.println("Room " + booking.getRoomNumber() + " is already booked by booking "
+                            + rs.getInt(1));
+                    return ReservationResult.CONFLICT;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Inserts the booking row only and sets its generated bookingID; room_nights is left to the caller
+    static void insertBooking(Connection connection, Booking booking) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_INSERT)) {
             pstmt.setInt(1, booking.getUserId());
             pstmt.setString(2, booking.getRoomNumber());
             pstmt.setString(3, booking.getCustomerName());
@@ -104,43 +269,135 @@ public class BookingRepository {
             pstmt.setString(8, booking.getStatus());
             pstmt.executeUpdate();
 
-            return true;
-        } catch (SQLException e) {
-            System.err.println("Error adding booking: " + e.getMessage());
-            return false;
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No bookingID generated for the new booking");
+                }
+                booking.setBookingId(keys.getInt(1));
+            }
         }
     }
-    
+
     public List<Booking> getAllBookings() {
         List<Booking> bookings = new ArrayList<>();
-        String query = "SELECT * FROM bookings";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
-                ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                Booking booking = new Booking(
-                        rs.getInt("bookingID"),
-                        rs.getInt("user_id"),
-                        rs.getString("room_number"),
-                        rs.getString("customer_name"),
-                        rs.getDate("check_in_date").toLocalDate(),
-                        rs.getDate("check_out_date").toLocalDate(),
-                        rs.getInt("number_of_guests"),
-                        rs.getDouble("total_price"),
-                        rs.getString("status"));
-                bookings.add(booking);
-            }
+        try {
+            forEachBooking(StreamingQuery.DEFAULT_FETCH_SIZE, bookings::add);
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return bookings;
     }
 
+    // Streams every booking through a server-side cursor; close the stream when done
+    public Stream<Booking> streamAllBookings(int fetchSize) throws SQLException {
+        return StreamingQuery.stream(NamedQuery.ALL_BOOKINGS, fetchSize, RowMappers.BOOKING);
+    }
+
+    public long forEachBooking(int fetchSize, Consumer<? super Booking> action) throws SQLException {
+        return StreamingQuery.forEach(NamedQuery.ALL_BOOKINGS, fetchSize, RowMappers.BOOKING, action);
+    }
+
+    // Whether the room is already booked for a night in [checkIn, checkOut); answered
+    // from the in-memory availability index
+    public boolean hasConflictingBooking(String roomNumber, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        return BookingAvailabilityIndex.shared().hasConflict(roomNumber, checkIn, checkOut);
+    }
+
+    // Bookings for one room only, read through idx_bookings_room_dates
+    public Stream<Booking> streamBookingsForRoom(String roomNumber) throws SQLException {
+        return StreamingQuery.stream(NamedQuery.BOOKINGS_FOR_ROOM, StreamingQuery.DEFAULT_FETCH_SIZE,
+                RowMappers.BOOKING, roomNumber);
+    }
+
+    // Keyset pagination: up to limit bookings that come after afterBookingId in
+    // bookingID order (descending when newestFirst). Pass null for the first
+    // page and the last bookingID of a page for the next one. statusFilter of
+    // null matches every status.
+    public List<Booking> getBookingsPage(String statusFilter, boolean newestFirst, Integer afterBookingId, int limit)
+            throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String query = pageQuery(statusFilter, newestFirst, afterBookingId, limit, params);
+
+        List<Booking> page = new ArrayList<>(limit);
+        StreamingQuery.forEach(query, 0, RowMappers.BOOKING, page::add, params.toArray());
+        return page;
+    }
+
+    // bookingID of the row that sits `rows` positions after afterBookingId, or
+    // null if there are fewer rows left. Lets a pager seek ahead using only the index.
+    public Integer skipBookings(String statusFilter, boolean newestFirst, Integer afterBookingId, int rows)
+            throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String query = skipQuery(statusFilter, newestFirst, afterBookingId, rows, params);
+
+        List<Integer> key = new ArrayList<>(1);
+        StreamingQuery.forEach(query, 0, RowMappers.FIRST_INT, key::add, params.toArray());
+        return key.isEmpty() ? null : key.get(0);
+    }
+
+    public int countBookings(String statusFilter) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String query = countQuery(statusFilter, params);
+
+        List<Integer> count = new ArrayList<>(1);
+        StreamingQuery.forEach(query, 0, RowMappers.FIRST_INT, count::add, params.toArray());
+        return count.get(0);
+    }
+
+    // The page queries are built per call, so they are not in NamedQuery; these builders are public
+    // so tools.QueryPlanCheck explains exactly the SQL the pager runs. Each appends its parameters.
+    public static String pageQuery(String statusFilter, boolean newestFirst, Integer afterBookingId, int limit,
+            List<Object> params) {
+        String query = "SELECT * FROM bookings" + bookingPageWhere(statusFilter, newestFirst, afterBookingId, params)
+                + " ORDER BY bookingID " + (newestFirst ? "DESC" : "ASC") + " LIMIT ?";
+        params.add(limit);
+        return query;
+    }
+
+    public static String skipQuery(String statusFilter, boolean newestFirst, Integer afterBookingId, int rows,
+            List<Object> params) {
+        String query = "SELECT bookingID FROM bookings" + bookingPageWhere(statusFilter, newestFirst, afterBookingId, params)
+                + " ORDER BY bookingID " + (newestFirst ? "DESC" : "ASC") + " LIMIT 1 OFFSET ?";
+        params.add(rows - 1);
+        return query;
+    }
+
+    public static String countQuery(String statusFilter, List<Object> params) {
+        return "SELECT COUNT(*) FROM bookings" + bookingPageWhere(statusFilter, false, null, params);
+    }
+
+    // lockRooms' statements for a block of the given size, public for tools.QueryPlanCheck like the
+    // page builders; the conflict query takes the room numbers, then check-out and check-in
+    public static String blockLockQuery(int rooms) {
+        return "SELECT room_number FROM rooms WHERE room_number IN (" + QueryCatalog.placeholders(rooms)
+                + ") ORDER BY room_number FOR UPDATE";
+    }
+
+    public static String blockConflictQuery(int rooms) {
+        return "SELECT room_number, bookingID FROM bookings WHERE room_number IN (" + QueryCatalog.placeholders(rooms)
+                + ") AND check_in_date < ? AND check_out_date > ? AND status NOT IN ('Cancelled', 'No-Show') LIMIT 1";
+    }
+
+    private static String bookingPageWhere(String statusFilter, boolean newestFirst, Integer afterBookingId,
+            List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (statusFilter != null) {
+            conditions.add("status = ?");
+            params.add(statusFilter);
+        }
+        if (afterBookingId != null) {
+            conditions.add(newestFirst ? "bookingID < ?" : "bookingID > ?");
+            params.add(afterBookingId);
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
     public List<Integer> getAllBookingIDs() {
         List<Integer> bookingIDs = new ArrayList<>();
-        String query = "SELECT bookingID FROM bookings where status = 'Pending'";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PENDING_BOOKING_IDS);
                 ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
                 bookingIDs.add(rs.getInt("bookingID"));
@@ -152,12 +409,23 @@ public class BookingRepository {
     }
 
     public boolean updateBookingStatusToConfirmed(int bookingID) {
-        String query = "UPDATE bookings SET status = ? WHERE bookingID = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setString(1, "Confirmed"); // Set the status to "Confirmed"
-            pstmt.setInt(2, bookingID); // Set the booking ID for the WHERE clause
-
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = Transactions.run(connection -> {
+                try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_STATUS_UPDATE)) {
+                    pstmt.setString(1, "Confirmed"); // Set the status to "Confirmed"
+                    pstmt.setInt(2, bookingID); // Set the booking ID for the WHERE clause
+                    int updated = pstmt.executeUpdate();
+                    RoomNightRepository.bookingStatusChanged(connection, bookingID, "Confirmed");
+                    if (updated > 0) {
+                        BookingEventRepository.record(connection, bookingID, BookingEvent.Type.CONFIRMED,
+                                "Confirmed", 0, null);
+                    }
+                    return updated;
+                }
+            });
+            if (rowsAffected > 0) {
+                BookingAvailabilityIndex.shared().statusChanged(bookingID, "Confirmed");
+            }
             return rowsAffected > 0; // Return true if at least one row was updated
         } catch (SQLException e) {
             System.err.println("Error updating booking status: " + e.getMessage());
@@ -167,24 +435,12 @@ public class BookingRepository {
 
     public Booking getBookingByID(int bookingID) {
         Booking booking = null;
-        String query = "SELECT * FROM bookings WHERE bookingID = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_BY_ID)) {
             pstmt.setInt(1, bookingID);
             ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                booking = new Booking(
-                    rs.getInt("bookingID"),
-                    rs.getInt("user_id"),
-                    rs.getString("room_number"),
-                    rs.getString("customer_name"),
-                    rs.getDate("check_in_date").toLocalDate(),
-                    rs.getDate("check_out_date").toLocalDate(),
-                    rs.getInt("number_of_guests"),
-                    rs.getDouble("total_price"),
-                    rs.getString("status")
-                );
-            }
+            booking = RowMappers.first(rs, RowMappers.BOOKING);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -198,36 +454,102 @@ public class BookingRepository {
             return false;
         }
 
-        String query = "UPDATE bookings SET user_id = ?, customer_name = ?, check_in_date = ?, check_out_date = ?, status = ? WHERE bookingID = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, booking.getUserId());
-            pstmt.setString(2, booking.getCustomerName());
-            pstmt.setDate(3, java.sql.Date.valueOf(booking.getCheckInDate()));
-            pstmt.setDate(4, java.sql.Date.valueOf(booking.getCheckOutDate()));
-            pstmt.setString(5, booking.getStatus());
-            pstmt.setInt(6, booking.getBookingID());
-
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = Transactions.run(connection -> {
+                try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_UPDATE)) {
+                    pstmt.setInt(1, booking.getUserId());
+                    pstmt.setString(2, booking.getCustomerName());
+                    pstmt.setDate(3, java.sql.Date.valueOf(booking.getCheckInDate()));
+                    pstmt.setDate(4, java.sql.Date.valueOf(booking.getCheckOutDate()));
+                    pstmt.setString(5, booking.getStatus());
+                    pstmt.setInt(6, booking.getBookingID());
+                    int updated = pstmt.executeUpdate();
+                    // Moving the dates onto another booking's nights fails here and undoes the update
+                    RoomNightRepository.bookingWritten(connection, booking.getBookingID());
+                    if (updated > 0) {
+                        BookingEventRepository.recordRow(connection, booking.getBookingID(),
+                                "Cancelled".equals(booking.getStatus()) ? BookingEvent.Type.CANCELLED
+                                        : BookingEvent.Type.MODIFIED,
+                                performedBy);
+                    }
+                    return updated;
+                }
+            });
+            if (rowsAffected > 0) {
+                BookingAvailabilityIndex.shared().bookingUpdated(booking.getBookingID(), booking.getCheckInDate(),
+                        booking.getCheckOutDate(), booking.getStatus());
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
+            if (RoomNightRepository.isNightTaken(e)) {
+                System.err.println("Booking " + booking.getBookingID() + " not updated: the room is already booked on those dates");
+                return false;
+            }
             System.err.println("Error updating booking: " + e.getMessage());
             return false;
         }
     }
     
     public boolean deleteBooking(int bookingId, String performedBy) {
-        String query = "DELETE FROM bookings WHERE bookingID = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, bookingId);
-            pstmt.executeUpdate();
+        try {
+            Transactions.run(connection -> {
+                try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_DELETE)) {
+                    pstmt.setInt(1, bookingId);
+                    if (pstmt.executeUpdate() > 0) {
+                        BookingEventRepository.record(connection, bookingId, BookingEvent.Type.DELETED, null, 0,
+                                performedBy);
+                    }
+                }
+                RoomNightRepository.bookingDeleted(connection, bookingId);
+                return null;
+            });
+            BookingAvailabilityIndex.shared().bookingDeleted(bookingId);
             return true;
         } catch (SQLException e) {
             System.err.println("Error deleting booking: " + e.getMessage());
             return false;
         }
     }
+
+    /**
+     * Writes the booking back exactly as given, re-creating it under the
+     * same bookingID if it has since been deleted, and logs a RESTORED event.
+     * Used to undo a bad edit from the booking's event history. Fails, and
+     * changes nothing, if another booking now holds any of its nights.
+     */
+    public boolean restoreBooking(Booking booking, String performedBy) {
+        try {
+            Transactions.run(connection -> {
+                try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_RESTORE)) {
+                    pstmt.setInt(1, booking.getBookingID());
+                    pstmt.setInt(2, booking.getUserId());
+                    pstmt.setString(3, booking.getRoomNumber());
+                    pstmt.setString(4, booking.getCustomerName());
+                    pstmt.setDate(5, java.sql.Date.valueOf(booking.getCheckInDate()));
+                    pstmt.setDate(6, java.sql.Date.valueOf(booking.getCheckOutDate()));
+                    pstmt.setInt(7, booking.getNumberOfGuests());
+                    pstmt.setDouble(8, booking.getTotalPrice());
+                    pstmt.setString(9, booking.getStatus());
+                    pstmt.executeUpdate();
+                }
+                RoomNightRepository.bookingWritten(connection, booking.getBookingID());
+                BookingEventRepository.recordRow(connection, booking.getBookingID(), BookingEvent.Type.RESTORED,
+                        performedBy);
+                return null;
+            });
+            BookingAvailabilityIndex index = BookingAvailabilityIndex.shared();
+            index.bookingDeleted(booking.getBookingID());
+            index.bookingSaved(booking);
+            return true;
+        } catch (SQLException e) {
+            if (RoomNightRepository.isNightTaken(e)) {
+                System.err.println("Booking " + booking.getBookingID() + " not restored: the room is already booked on those dates");
+                return false;
+            }
+            System.err.println("Error restoring booking: " + e.getMessage());
+            return false;
+        }
+    }
     // Modify getBookingsByUserId to validate user
     public List<Booking> getBookingsByUserId(int userId) {
         List<Booking> bookings = new ArrayList<>();
@@ -238,25 +560,12 @@ public class BookingRepository {
             return bookings;
         }
 
-        String query = "SELECT * FROM bookings WHERE user_id = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKINGS_BY_USER)) {
             pstmt.setInt(1, userId);
             ResultSet rs = pstmt.executeQuery();
 
-            while (rs.next()) {
-                Booking booking = new Booking(
-                        rs.getInt("bookingID"),
-                        rs.getInt("user_id"),
-                        rs.getString("room_number"),
-                        rs.getString("customer_name"),
-                        rs.getDate("check_in_date").toLocalDate(),
-                        rs.getDate("check_out_date").toLocalDate(),
-                        rs.getInt("number_of_guests"),
-                        rs.getDouble("total_price"),
-                        rs.getString("status"));
-                bookings.add(booking);
-            }
+            bookings.addAll(RowMappers.list(rs, RowMappers.BOOKING));
         } catch (SQLException e) {
             System.err.println("Error retrieving bookings by user ID: " + e.getMessage());
         }
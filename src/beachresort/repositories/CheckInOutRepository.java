@@ -1,6 +1,9 @@
 package beachresort.repositories;
 
+import beachresort.models.Booking;
+import beachresort.models.BookingEvent;
 import beachresort.models.CheckInOut;
+import beachresort.repositories.BookingRepository.ReservationResult;
 import beachresort.database.DatabaseConnection;
 
 import java.sql.Connection;
@@ -9,49 +12,17 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.swing.JOptionPane;
 
 public class CheckInOutRepository {
-    private Connection connection;
 
-    public CheckInOutRepository() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            createCheckInOutTableIfNotExists();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    // Create check-in/check-out table if it does not exist
-    private void createCheckInOutTableIfNotExists() {
-        String createTableQuery = "CREATE TABLE IF NOT EXISTS check_in_out (" +
-                "   id INT AUTO_INCREMENT PRIMARY KEY," +
-                "   user_id INT NOT NULL," +
-                "   customer_name VARCHAR(36) NOT NULL," +
-                "   check_in_date DATE NOT NULL," +
-                "   check_out_date DATE NOT NULL," +
-                "   room_number VARCHAR(10) NOT NULL," +
-                "   check_in_type VARCHAR(20) NOT NULL," +
-                "   status VARCHAR(20) NOT NULL" +
-                ");";
-        try (PreparedStatement pstmt = connection.prepareStatement(createTableQuery)) {
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    // Validate User ID
+    // Validate User ID (from the shared role cache; the check_in_out triggers back this up)
     public boolean isValidCustomerUser(int userId) {
-        String query = "SELECT COUNT(*) FROM users WHERE id = ? AND role = 'CUSTOMER'";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
+        try {
+            return UserRoleCache.shared().hasRole(userId, "CUSTOMER");
         } catch (SQLException e) {
             System.err.println("Error validating user: " + e.getMessage());
         }
@@ -66,16 +37,22 @@ public class CheckInOutRepository {
             return false;
         }
 
-        String query = "INSERT INTO check_in_out (user_id, customer_name, check_in_date, check_out_date, room_number, check_in_type, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, checkInOut.getUserId());
-            pstmt.setString(2, checkInOut.getCustomerName());
-            pstmt.setDate(3, java.sql.Date.valueOf(checkInOut.getCheckInDate()));
-            pstmt.setDate(4, java.sql.Date.valueOf(checkInOut.getCheckOutDate()));
-            pstmt.setString(5, checkInOut.getRoomNumber());
-            pstmt.setString(6, checkInOut.getCheckInType());
-            pstmt.setString(7, checkInOut.getStatus());
-            pstmt.executeUpdate();
+        try {
+            Transactions.run(connection -> {
+                try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.CHECK_IN_OUT_INSERT)) {
+                    pstmt.setInt(1, checkInOut.getUserId());
+                    pstmt.setString(2, checkInOut.getCustomerName());
+                    pstmt.setDate(3, java.sql.Date.valueOf(checkInOut.getCheckInDate()));
+                    pstmt.setDate(4, java.sql.Date.valueOf(checkInOut.getCheckOutDate()));
+                    pstmt.setString(5, checkInOut.getRoomNumber());
+                    pstmt.setString(6, checkInOut.getCheckInType());
+                    pstmt.setString(7, checkInOut.getStatus());
+                    pstmt.executeUpdate();
+                }
+                RoomNightRepository.stayChanged(connection, checkInOut.getRoomNumber(), checkInOut.getCheckInDate(),
+                        checkInOut.getCheckOutDate(), checkInOut.getStatus());
+                return null;
+            });
             return true;
         } catch (SQLException e) {
             System.err.println("Error adding check-in/check-out record: " + e.getMessage());
@@ -83,6 +60,138 @@ public class CheckInOutRepository {
         }
     }
 
+    /**
+     * Walk-in: books the room and checks the guest in as one transaction.
+     * The room is locked and checked for clashes as in reserveBooking, then
+     * the booking, its nights (already Checked In), the stay and the room's
+     * Occupied status are written. Sets the booking's bookingID and the
+     * stay's id from the generated keys. The caller validates the user; the
+     * bookings and check_in_out triggers back that up.
+     */
+    public ReservationResult checkInWalkIn(Booking booking, CheckInOut stay) throws SQLException {
+        ReservationResult result;
+        try {
+            result = Transactions.runRetrying(Connection.TRANSACTION_READ_COMMITTED,
+                    BookingRepository.MAX_RESERVE_ATTEMPTS, connection -> {
+                        ReservationResult clash = BookingRepository.lockRoom(connection, booking);
+                        if (clash != null) {
+                            return clash;
+                        }
+                        BookingRepository.insertBooking(connection, booking);
+                        RoomNightRepository.bookingInserted(connection, booking.getBookingID(), "Checked In");
+                        BookingEventRepository.recordRow(connection, booking.getBookingID(),
+                                BookingEvent.Type.CREATED, null);
+                        insertStay(connection, stay);
+                        BookingEventRepository.record(connection, booking.getBookingID(),
+                                BookingEvent.Type.CHECKED_IN, null, stay.getId(), null);
+                        setRoomStatus(connection, stay.getId(), "Occupied");
+                        return ReservationResult.RESERVED;
+                    });
+        } catch (SQLException e) {
+            if (RoomNightRepository.isNightTaken(e)) {
+                return ReservationResult.CONFLICT;
+            }
+            throw e;
+        }
+        if (result == ReservationResult.RESERVED) {
+            BookingAvailabilityIndex.shared().bookingSaved(booking);
+            RoomRepository.roomsChanged();
+        }
+        return result;
+    }
+
+    /**
+     * Checks in the guest of an existing booking as one transaction: the
+     * booking is confirmed, a stay is copied from it, its nights are marked
+     * Checked In and the room Occupied. Returns the new stay's id, or 0 if
+     * there is no such booking or it was cancelled or a no-show.
+     */
+    public int checkInBooking(int bookingId, int userId) throws SQLException {
+        int stayId = Transactions.run(connection -> {
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_CHECK_IN)) {
+                pstmt.setInt(1, bookingId);
+                if (pstmt.executeUpdate() == 0) {
+                    return 0;
+                }
+            }
+            int id;
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection,
+                    NamedQuery.CHECK_IN_OUT_INSERT_FROM_BOOKING)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, bookingId);
+                pstmt.executeUpdate();
+                id = generatedId(pstmt);
+            }
+            RoomNightRepository.bookingStatusChanged(connection, bookingId, "Checked In");
+            BookingEventRepository.record(connection, bookingId, BookingEvent.Type.CHECKED_IN, "Confirmed", id, null);
+            setRoomStatus(connection, id, "Occupied");
+            return id;
+        });
+        if (stayId != 0) {
+            BookingAvailabilityIndex.shared().statusChanged(bookingId, "Confirmed");
+            RoomRepository.roomsChanged();
+        }
+        return stayId;
+    }
+
+    /**
+     * Checks the guest out as one transaction: the stay goes to OUT, its
+     * nights to Checked Out and the room to Maintenance until housekeeping
+     * has been. Returns false if there is no such stay or it was already
+     * checked out.
+     */
+    public boolean checkOut(int checkInOutId, int userId) throws SQLException {
+        boolean checkedOut = Transactions.run(connection -> {
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.CHECK_OUT)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, checkInOutId);
+                if (pstmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            RoomNightRepository.stayCheckedOut(connection, checkInOutId);
+            BookingEventRepository.recordCheckOut(connection, checkInOutId, null);
+            setRoomStatus(connection, checkInOutId, "Maintenance");
+            return true;
+        });
+        if (checkedOut) {
+            RoomRepository.roomsChanged();
+        }
+        return checkedOut;
+    }
+
+    private static void insertStay(Connection connection, CheckInOut stay) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.CHECK_IN_OUT_INSERT)) {
+            pstmt.setInt(1, stay.getUserId());
+            pstmt.setString(2, stay.getCustomerName());
+            pstmt.setDate(3, java.sql.Date.valueOf(stay.getCheckInDate()));
+            pstmt.setDate(4, java.sql.Date.valueOf(stay.getCheckOutDate()));
+            pstmt.setString(5, stay.getRoomNumber());
+            pstmt.setString(6, stay.getCheckInType());
+            pstmt.setString(7, stay.getStatus());
+            pstmt.executeUpdate();
+            stay.setId(generatedId(pstmt));
+        }
+    }
+
+    // Sets the status of the room the stay is in
+    private static void setRoomStatus(Connection connection, int checkInOutId, String status) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_STATUS_FOR_STAY)) {
+            pstmt.setString(1, status);
+            pstmt.setInt(2, checkInOutId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static int generatedId(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet keys = pstmt.getGeneratedKeys()) {
+            if (!keys.next()) {
+                throw new SQLException("No id generated for the new check-in");
+            }
+            return keys.getInt(1);
+        }
+    }
+
     // Update the status of a check-in/check-out record
     public boolean updateCheckInOut(CheckInOut checkInOut) {
         // Validate user first
@@ -92,8 +201,8 @@ public class CheckInOutRepository {
         }
 
         // First, check the current status of the check-in/check-out record
-        String statusQuery = "SELECT status FROM check_in_out WHERE id = ?";
-        try (PreparedStatement statusPstmt = connection.prepareStatement(statusQuery)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement statusPstmt = QueryCatalog.prepare(connection, NamedQuery.CHECK_IN_OUT_STATUS)) {
             statusPstmt.setInt(1, checkInOut.getId());
             ResultSet rs = statusPstmt.executeQuery();
 
@@ -111,12 +220,24 @@ public class CheckInOutRepository {
         }
 
         // Proceed to update the status if it is not already "OUT"
-        String query = "UPDATE check_in_out SET status = ?, user_id = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setString(1, checkInOut.getStatus());
-            pstmt.setInt(2, checkInOut.getUserId());
-            pstmt.setInt(3, checkInOut.getId());
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = Transactions.run(connection -> {
+                try (PreparedStatement pstmt = QueryCatalog.prepare(connection,
+                        NamedQuery.CHECK_IN_OUT_STATUS_UPDATE)) {
+                    pstmt.setString(1, checkInOut.getStatus());
+                    pstmt.setInt(2, checkInOut.getUserId());
+                    pstmt.setInt(3, checkInOut.getId());
+                    int updated = pstmt.executeUpdate();
+                    if (updated > 0 && checkInOut.getCheckInDate() != null && checkInOut.getCheckOutDate() != null) {
+                        RoomNightRepository.stayChanged(connection, checkInOut.getRoomNumber(),
+                                checkInOut.getCheckInDate(), checkInOut.getCheckOutDate(), checkInOut.getStatus());
+                    }
+                    if (updated > 0 && "OUT".equals(checkInOut.getStatus())) {
+                        BookingEventRepository.recordCheckOut(connection, checkInOut.getId(), null);
+                    }
+                    return updated;
+                }
+            });
             JOptionPane.showMessageDialog(null, "Checked out successfully.");
             return rowsAffected > 0;
         } catch (SQLException e) {
@@ -127,22 +248,11 @@ public class CheckInOutRepository {
 
     // Retrieve a check-in/check-out record by ID
     public CheckInOut getCheckInOutById(int id) {
-        String query = "SELECT * FROM check_in_out WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.CHECK_IN_OUT_BY_ID)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return new CheckInOut(
-                        rs.getInt("id"),
-                        rs.getInt("user_id"),
-                        rs.getString("customer_name"),
-                        rs.getDate("check_in_date").toLocalDate(),
-                        rs.getDate("check_out_date").toLocalDate(),
-                        rs.getString("room_number"),
-                        rs.getString("check_in_type"),
-                        rs.getString("status")
-                );
-            }
+            return RowMappers.first(rs, RowMappers.CHECK_IN_OUT);
         } catch (SQLException e) {
             System.err.println("Error retrieving check-in/check-out record: " + e.getMessage());
         }
@@ -152,50 +262,33 @@ public class CheckInOutRepository {
     // Retrieve all check-in/check-out records
     public List<CheckInOut> getAllCheckInOuts() {
         List<CheckInOut> checkInOuts = new ArrayList<>();
-        String query = "SELECT * FROM check_in_out";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                CheckInOut checkInOut = new CheckInOut(
-                        rs.getInt("id"),
-                        rs.getInt("user_id"),
-                        rs.getString("customer_name"),
-                        rs.getDate("check_in_date").toLocalDate(),
-                        rs.getDate("check_out_date").toLocalDate(),
-                        rs.getString("room_number"),
-                        rs.getString("check_in_type"),
-                        rs.getString("status")
-                );
-                checkInOuts.add(checkInOut);
-            }
+        try {
+            forEachCheckInOut(StreamingQuery.DEFAULT_FETCH_SIZE, checkInOuts::add);
         } catch (SQLException e) {
             System.err.println("Error retrieving all check-in/check-out records: " + e.getMessage());
         }
         return checkInOuts; // Return the list of records
     }
 
+    // Streams every check-in/check-out record; close the stream when done
+    public Stream<CheckInOut> streamAllCheckInOuts(int fetchSize) throws SQLException {
+        return StreamingQuery.stream(NamedQuery.ALL_CHECK_IN_OUTS, fetchSize, RowMappers.CHECK_IN_OUT);
+    }
+
+    public long forEachCheckInOut(int fetchSize, Consumer<? super CheckInOut> action) throws SQLException {
+        return StreamingQuery.forEach(NamedQuery.ALL_CHECK_IN_OUTS, fetchSize, RowMappers.CHECK_IN_OUT,
+                action);
+    }
+
     // New method to get check-in/out records by user ID
     public List<CheckInOut> getCheckInOutsByUserId(int userId) {
         List<CheckInOut> checkInOuts = new ArrayList<>();
-        String query = "SELECT * FROM check_in_out WHERE user_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.CHECK_IN_OUTS_BY_USER)) {
             pstmt.setInt(1, userId);
             ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                CheckInOut checkInOut = new CheckInOut(
-                        rs.getInt("id"),
-                        rs.getInt("user_id"),
-                        rs.getString("customer_name"),
-                        rs.getDate("check_in_date").toLocalDate(),
-                        rs.getDate("check_out_date").toLocalDate(),
-                        rs.getString("room_number"),
-                        rs.getString("check_in_type"),
-                        rs.getString("status")
-                );
-                checkInOuts.add(checkInOut);
-            }
+            checkInOuts.addAll(RowMappers.list(rs, RowMappers.CHECK_IN_OUT));
         } catch (SQLException e) {
             System.err.println("Error retrieving check-in/out records by user ID: " + e.getMessage());
         }
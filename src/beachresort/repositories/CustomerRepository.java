@@ -9,36 +9,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class CustomerRepository {
-    private Connection connection;
-
-    public CustomerRepository() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            createCustomerTableIfNotExists();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void createCustomerTableIfNotExists() {
-        String createTableQuery = "CREATE TABLE IF NOT EXISTS customer (" +
-                "   cust_id INT AUTO_INCREMENT PRIMARY KEY," +
-                "   user_id INT," + // Assuming user_id is an integer
-                "   numberVisits INT DEFAULT 0," +
-                "   preferredAccommodationType VARCHAR(50)," +
-                "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")";
-        try (PreparedStatement pstmt = connection.prepareStatement(createTableQuery)) {
-            pstmt.execute();
-            System.out.println("Customer table created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating customer table: " + e.getMessage());
-        }
-    }
 
     public void updateCustomer(int userId, int numberVisits, String preferredAccommodationType) throws SQLException {
         String updateQuery = "UPDATE customer SET numberVisits = ?, preferredAccommodationType = ? WHERE user_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(updateQuery)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(updateQuery)) {
             pstmt.setInt(1, numberVisits);
             pstmt.setString(2, preferredAccommodationType);
             pstmt.setInt(3, userId);
@@ -57,7 +32,8 @@ public class CustomerRepository {
                 "FROM customer c " +
                 "JOIN users u ON c.user_id = u.id " +
                 "WHERE u.id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setInt(1, userId); // Use userId as an integer
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -81,15 +57,4 @@ public class CustomerRepository {
         return null; // Return null if no customer found
     }
 
-    // Close the connection when done
-    public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing connection: " + e.getMessage());
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.models.DashboardSnapshot;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The owner dashboard's counts and totals; see services.DashboardSnapshotService,
+ * which caches them.
+ */
+public class DashboardRepository {
+
+    public DashboardSnapshot loadSnapshot() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.DASHBOARD_SNAPSHOT);
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return new DashboardSnapshot(rs.getLong("total_rooms"), rs.getLong("available_rooms"),
+                    rs.getLong("occupied_rooms"), rs.getLong("total_staff"), rs.getLong("total_bookings"),
+                    rs.getDouble("total_revenue"), System.currentTimeMillis(), System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package beachresort.repositories;
+
+import java.util.function.IntConsumer;
+
+/**
+ * AVL tree of half-open day intervals [start, end), each tagged with a unique
+ * id. Every node also records the largest end in its subtree, so an overlap
+ * query can skip whole subtrees: finding any overlap is O(log n), listing all
+ * of them O(log n + k).
+ *
+ * Not thread-safe; BookingAvailabilityIndex guards it.
+ */
+final class IntervalTree {
+
+    private static final class Node {
+        final int start;
+        final int end;
+        final int id;
+        int maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(int start, int end, int id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    // start and id must be the values the interval was inserted with
+    void insert(int start, int end, int id) {
+        root = insert(root, start, end, id);
+        size++;
+    }
+
+    boolean remove(int start, int id) {
+        int before = size;
+        root = remove(root, start, id);
+        return size < before;
+    }
+
+    /**
+     * Id of some interval overlapping [start, end), or -1 if none does.
+     * Walks one root-to-leaf path: if the left subtree reaches past start but
+     * holds no overlap, everything in it (and so everything to the right)
+     * begins at or after end.
+     */
+    int findAnyOverlap(int start, int end) {
+        Node node = root;
+        while (node != null) {
+            if (node.start < end && start < node.end) {
+                return node.id;
+            }
+            if (node.left != null && node.left.maxEnd > start) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    void forEachOverlap(int start, int end, IntConsumer action) {
+        forEachOverlap(root, start, end, action);
+    }
+
+    private static void forEachOverlap(Node node, int start, int end, IntConsumer action) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        forEachOverlap(node.left, start, end, action);
+        if (node.start >= end) {
+            // Everything to the right starts even later
+            return;
+        }
+        if (start < node.end) {
+            action.accept(node.id);
+        }
+        forEachOverlap(node.right, start, end, action);
+    }
+
+    private static int compare(int start, int id, Node node) {
+        int byStart = Integer.compare(start, node.start);
+        return byStart != 0 ? byStart : Integer.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, int start, int end, int id) {
+        if (node == null) {
+            return new Node(start, end, id);
+        }
+        if (compare(start, id, node) < 0) {
+            node.left = insert(node.left, start, end, id);
+        } else {
+            node.right = insert(node.right, start, end, id);
+        }
+        return rebalance(node);
+    }
+
+    private Node remove(Node node, int start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, start, id);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace with the in-order successor
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            Node replacement = new Node(successor.start, successor.end, successor.id);
+            replacement.right = removeMin(node.right);
+            replacement.left = node.left;
+            return rebalance(replacement);
+        }
+        return rebalance(node);
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return rebalance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        int maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > maxEnd) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
@@ -0,0 +1,331 @@
+package beachresort.repositories;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Catalog of the fixed SQL the repositories run. Statements are prepared
+ * through {@link QueryCatalog}, which keeps them open on each pooled
+ * connection, so a query is parsed once per connection rather than on every
+ * call.
+ *
+ * SERVER queries are prepared on the MySQL server: the hot lookups, which run
+ * often enough to repay the prepare round trip, and the streamed listings,
+ * which need a server-side statement to read through a cursor. CLIENT queries
+ * (mostly writes from dialogs) are prepared in the driver and cost no extra
+ * round trip the first time they run on a connection.
+ *
+ * Queries whose WHERE clause is built at run time (the keyset pages) stay
+ * inline in their repositories.
+ */
+public enum NamedQuery {
+    // Users
+    USER_ROLE(Prepare.SERVER, "SELECT role FROM users WHERE id = ?"),
+
+    // Rooms
+    ROOM_INSERT(Prepare.CLIENT,
+            "INSERT INTO rooms (room_number, room_type, capacity, price_per_night, status) VALUES (?, ?, ?, ?, ?)"),
+    ROOM_UPDATE(Prepare.CLIENT,
+            "UPDATE rooms SET room_type = ?, capacity = ?, price_per_night = ?, status = ? WHERE room_number = ?"),
+    ROOM_DELETE(Prepare.CLIENT, "DELETE FROM rooms WHERE room_number = ?"),
+    ROOM_STATUS_UPDATE(Prepare.CLIENT, "UPDATE rooms SET status = ? WHERE room_number = ?"),
+    ROOM_STATUS_FOR_STAY(Prepare.CLIENT,
+            "UPDATE rooms r JOIN check_in_out c ON c.room_number = r.room_number SET r.status = ? WHERE c.id = ?"),
+    ALL_ROOMS(Prepare.SERVER, "SELECT * FROM rooms"),
+    ROOM_BY_NUMBER(Prepare.SERVER, "SELECT * FROM rooms WHERE room_number = ?"),
+    ROOM_EXISTS(Prepare.SERVER, "SELECT COUNT(*) FROM rooms WHERE room_number = ?"),
+    AVAILABLE_ROOMS_BY_TYPE(Prepare.SERVER,
+            "SELECT room_number FROM rooms WHERE room_type = ? AND status = 'Available'"),
+
+    // Bookings
+    BOOKING_INSERT(Prepare.CLIENT, true,
+            "INSERT INTO bookings (user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"),
+    BOOKING_UPDATE(Prepare.CLIENT,
+            "UPDATE bookings SET user_id = ?, customer_name = ?, check_in_date = ?, check_out_date = ?, status = ? WHERE bookingID = ?"),
+    BOOKING_STATUS_UPDATE(Prepare.CLIENT, "UPDATE bookings SET status = ? WHERE bookingID = ?"),
+    BOOKING_CHECK_IN(Prepare.CLIENT,
+            "UPDATE bookings SET status = 'Confirmed' WHERE bookingID = ? AND status NOT IN ('Cancelled', 'No-Show')"),
+    BOOKING_DELETE(Prepare.CLIENT, "DELETE FROM bookings WHERE bookingID = ?"),
+    BOOKING_BY_ID(Prepare.SERVER, "SELECT * FROM bookings WHERE bookingID = ?"),
+    BOOKINGS_BY_USER(Prepare.SERVER, "SELECT * FROM bookings WHERE user_id = ?"),
+    BOOKINGS_FOR_ROOM(Prepare.SERVER, "SELECT * FROM bookings WHERE room_number = ?"),
+    PENDING_BOOKING_IDS(Prepare.SERVER, "SELECT bookingID FROM bookings where status = 'Pending'"),
+    ALL_BOOKINGS(Prepare.SERVER, "SELECT * FROM bookings"),
+    // BookingAvailabilityIndex's load: stays still holding a night on or after the given day
+    BOOKINGS_HOLDING_NIGHTS_SINCE(Prepare.SERVER,
+            "SELECT * FROM bookings WHERE check_out_date > ? AND status NOT IN ('Cancelled', 'No-Show')"),
+    // reserveBooking: serialize writers per room, then look for a clash through idx_bookings_room_dates
+    ROOM_LOCK(Prepare.SERVER, "SELECT room_number FROM rooms WHERE room_number = ? FOR UPDATE"),
+    BOOKING_CONFLICT(Prepare.SERVER,
+            "SELECT bookingID FROM bookings WHERE room_number = ? AND check_in_date < ? AND check_out_date > ? AND status NOT IN ('Cancelled', 'No-Show') LIMIT 1"),
+
+    // Room nights, kept in step with bookings and check-ins; see RoomNightRepository
+    ROOM_NIGHTS_INSERT_BOOKING(Prepare.CLIENT,
+            "INSERT INTO room_nights (room_number, night, booking_id, state) "
+                    + "SELECT b.room_number, DATE_ADD(b.check_in_date, INTERVAL o.n DAY), b.bookingID, b.status "
+                    + "FROM bookings b JOIN night_offsets o ON o.n < DATEDIFF(b.check_out_date, b.check_in_date) "
+                    + "WHERE b.bookingID = ? AND b.status NOT IN ('Cancelled', 'No-Show')"),
+    // Nights of a booking inserted in the same transaction, with the state given
+    ROOM_NIGHTS_INSERT_NEW_BOOKING(Prepare.CLIENT,
+            "INSERT INTO room_nights (room_number, night, booking_id, state) "
+                    + "SELECT b.room_number, DATE_ADD(b.check_in_date, INTERVAL o.n DAY), b.bookingID, ? "
+                    + "FROM bookings b JOIN night_offsets o ON o.n < DATEDIFF(b.check_out_date, b.check_in_date) "
+                    + "WHERE b.bookingID = ?"),
+    ROOM_NIGHTS_DELETE_BOOKING(Prepare.CLIENT, "DELETE FROM room_nights WHERE booking_id = ?"),
+    ROOM_NIGHTS_BOOKING_STATE(Prepare.CLIENT,
+            "UPDATE room_nights SET state = ? WHERE booking_id = ? AND state NOT IN ('Checked In', 'Checked Out')"),
+    ROOM_NIGHTS_APPLY_STAYS(Prepare.CLIENT,
+            "UPDATE room_nights rn JOIN check_in_out c ON c.room_number = rn.room_number "
+                    + "AND rn.night >= c.check_in_date AND rn.night < c.check_out_date "
+                    + "SET rn.state = IF(c.status = 'OUT', 'Checked Out', 'Checked In') WHERE rn.booking_id = ?"),
+    ROOM_NIGHTS_STAY_STATE(Prepare.CLIENT,
+            "UPDATE room_nights SET state = ? WHERE room_number = ? AND night >= ? AND night < ?"),
+    ROOM_NIGHTS_CHECK_OUT(Prepare.CLIENT,
+            "UPDATE room_nights rn JOIN check_in_out c ON c.room_number = rn.room_number "
+                    + "AND rn.night >= c.check_in_date AND rn.night < c.check_out_date "
+                    + "SET rn.state = 'Checked Out' WHERE c.id = ?"),
+    ROOM_NIGHTS_TAKEN(Prepare.SERVER,
+            "SELECT COUNT(*) FROM room_nights WHERE room_number = ? AND night >= ? AND night < ?"),
+    // Each booking holding the room from the given night on: its first night held and its last
+    ROOM_NIGHTS_STAYS_FOR_ROOM(Prepare.SERVER,
+            "SELECT booking_id, MIN(night), MAX(night) FROM room_nights WHERE room_number = ? AND night >= ? "
+                    + "GROUP BY booking_id"),
+    ROOM_NIGHTS_PER_NIGHT(Prepare.SERVER,
+            "SELECT night, COUNT(*) FROM room_nights WHERE night >= ? AND night < ? GROUP BY night ORDER BY night"),
+    ROOM_COUNT(Prepare.SERVER, "SELECT COUNT(*) FROM rooms"),
+
+    // Booking events, appended in the same transaction as the booking write; see BookingEventRepository
+    BOOKING_EVENT_FROM_ROW(Prepare.CLIENT,
+            "INSERT INTO booking_events (booking_id, event_type, user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status, performed_by) "
+                    + "SELECT bookingID, ?, user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status, ? "
+                    + "FROM bookings WHERE bookingID = ?"),
+    BOOKING_EVENT_INSERT(Prepare.CLIENT,
+            "INSERT INTO booking_events (booking_id, event_type, status, stay_id, performed_by) VALUES (?, ?, ?, ?, ?)"),
+    // The booking a stay belongs to is the one holding the room on its first night
+    BOOKING_EVENT_CHECK_OUT(Prepare.CLIENT,
+            "INSERT INTO booking_events (booking_id, event_type, stay_id, performed_by) "
+                    + "SELECT rn.booking_id, 'CHECKED_OUT', c.id, ? FROM check_in_out c "
+                    + "JOIN room_nights rn ON rn.room_number = c.room_number AND rn.night = c.check_in_date "
+                    + "WHERE c.id = ?"),
+    // Bookings written without going through the repositories (bulk import), logged as created.
+    // Run one bookingID range (from, to] at a time so no transaction holds event ids back from the
+    // log's readers for long
+    BOOKING_EVENTS_RECORD_UNTRACKED(Prepare.CLIENT,
+            "INSERT INTO booking_events (booking_id, event_type, user_id, room_number, customer_name, "
+                    + "check_in_date, check_out_date, number_of_guests, total_price, status, performed_by) "
+                    + "SELECT b.bookingID, 'CREATED', b.user_id, b.room_number, b.customer_name, b.check_in_date, "
+                    + "b.check_out_date, b.number_of_guests, b.total_price, b.status, ? "
+                    + "FROM bookings b WHERE b.bookingID > ? AND b.bookingID <= ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM booking_events e WHERE e.booking_id = b.bookingID) "
+                    + "ORDER BY b.bookingID"),
+    BOOKING_ID_RANGE(Prepare.SERVER, "SELECT MIN(bookingID), MAX(bookingID) FROM bookings"),
+    BOOKING_EVENTS_FOR_BOOKING(Prepare.SERVER,
+            "SELECT * FROM booking_events WHERE booking_id = ? AND event_id <= ? ORDER BY event_id"),
+    BOOKING_EVENTS_RANGE(Prepare.SERVER,
+            "SELECT * FROM booking_events WHERE event_id > ? AND event_id <= ? ORDER BY event_id"),
+    // Newest event older than the gap allowance: an id still missing below it is given up on (rolled
+    // back, or skipped by auto-increment). Walks the primary key back from the newest event.
+    BOOKING_EVENTS_GAP_HORIZON(Prepare.SERVER,
+            "SELECT event_id FROM booking_events WHERE recorded_at < NOW(3) - INTERVAL 10 MINUTE ORDER BY event_id DESC LIMIT 1"),
+    BOOKING_EVENT_IDS_AFTER(Prepare.SERVER, "SELECT event_id FROM booking_events WHERE event_id > ? ORDER BY event_id"),
+    BOOKING_SNAPSHOT_LATEST(Prepare.SERVER,
+            "SELECT last_event_id, state FROM booking_snapshots WHERE last_event_id <= ? ORDER BY last_event_id DESC LIMIT 1"),
+    BOOKING_SNAPSHOT_INSERT(Prepare.CLIENT,
+            "INSERT INTO booking_snapshots (last_event_id, bookings, state) VALUES (?, ?, ?)"),
+    BOOKING_SNAPSHOT_PRUNE(Prepare.CLIENT, "DELETE FROM booking_snapshots WHERE last_event_id < ?"),
+    // Puts a booking back as given, re-creating it if it was deleted
+    BOOKING_RESTORE(Prepare.CLIENT,
+            "INSERT INTO bookings (bookingID, user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE user_id = VALUES(user_id), "
+                    + "room_number = VALUES(room_number), customer_name = VALUES(customer_name), "
+                    + "check_in_date = VALUES(check_in_date), check_out_date = VALUES(check_out_date), "
+                    + "number_of_guests = VALUES(number_of_guests), total_price = VALUES(total_price), status = VALUES(status)"),
+
+    // Room assignment; see RoomAssignmentRepository
+    // Live bookings in rooms of one type with a night in [?, ?), earliest first
+    ROOM_ASSIGNMENT_BOOKINGS(Prepare.SERVER,
+            "SELECT b.* FROM bookings b JOIN rooms r ON r.room_number = b.room_number "
+                    + "WHERE r.room_type = ? AND b.check_out_date > ? AND b.check_in_date < ? "
+                    + "AND b.status NOT IN ('Cancelled', 'No-Show') ORDER BY b.check_in_date, b.bookingID"),
+    ROOM_ASSIGNMENT_LOCKED(Prepare.SERVER,
+            "SELECT l.booking_id FROM room_locks l JOIN bookings b ON b.bookingID = l.booking_id "
+                    + "JOIN rooms r ON r.room_number = b.room_number "
+                    + "WHERE r.room_type = ? AND b.check_out_date > ? AND b.check_in_date < ?"),
+    // lockRoom takes the booking's row first, as moveBookings does, so the two queue behind each other
+    BOOKING_ROW_LOCK(Prepare.SERVER, "SELECT bookingID FROM bookings WHERE bookingID = ? FOR UPDATE"),
+    ROOM_LOCK_INSERT(Prepare.CLIENT, "INSERT IGNORE INTO room_locks (booking_id, locked_by) VALUES (?, ?)"),
+    ROOM_LOCK_DELETE(Prepare.CLIENT, "DELETE FROM room_locks WHERE booking_id = ?"),
+    BOOKING_ROOM_UPDATE(Prepare.CLIENT, "UPDATE bookings SET room_number = ? WHERE bookingID = ?"),
+
+    // Check-in/check-out
+    CHECK_IN_OUT_INSERT(Prepare.CLIENT, true,
+            "INSERT INTO check_in_out (user_id, customer_name, check_in_date, check_out_date, room_number, check_in_type, status) VALUES (?, ?, ?, ?, ?, ?, ?)"),
+    // Check-in against a booking: the stay is copied from the booking row rather than read back first
+    CHECK_IN_OUT_INSERT_FROM_BOOKING(Prepare.CLIENT, true,
+            "INSERT INTO check_in_out (user_id, customer_name, check_in_date, check_out_date, room_number, check_in_type, status) "
+                    + "SELECT ?, customer_name, check_in_date, check_out_date, room_number, 'Booking', 'Checked In' "
+                    + "FROM bookings WHERE bookingID = ?"),
+    CHECK_OUT(Prepare.CLIENT, "UPDATE check_in_out SET status = 'OUT', user_id = ? WHERE id = ? AND status <> 'OUT'"),
+    CHECK_IN_OUT_STATUS_UPDATE(Prepare.CLIENT, "UPDATE check_in_out SET status = ?, user_id = ? WHERE id = ?"),
+    CHECK_IN_OUT_STATUS(Prepare.SERVER, "SELECT status FROM check_in_out WHERE id = ?"),
+    CHECK_IN_OUT_BY_ID(Prepare.SERVER, "SELECT * FROM check_in_out WHERE id = ?"),
+    CHECK_IN_OUTS_BY_USER(Prepare.SERVER, "SELECT * FROM check_in_out WHERE user_id = ?"),
+    ALL_CHECK_IN_OUTS(Prepare.SERVER, "SELECT * FROM check_in_out"),
+
+    // Payments
+    PAYMENT_INSERT(Prepare.CLIENT, true,
+            "INSERT INTO payments (user_id, payment_type, amount, payment_method, status, description, payment_date) VALUES (?, ?, ?, ?, ?, ?, ?)"),
+    PAYMENT_UPDATE(Prepare.CLIENT,
+            "UPDATE payments SET user_id = ?, payment_type = ?, amount = ?, payment_method = ?, status = ?, description = ? WHERE payment_id = ?"),
+    PAYMENT_DELETE(Prepare.CLIENT, "DELETE FROM payments WHERE payment_id = ?"),
+    PAYMENT_DELETION_INSERT(Prepare.CLIENT, "INSERT IGNORE INTO payment_deletions (payment_id) VALUES (?)"),
+    PAYMENT_BY_ID(Prepare.SERVER, "SELECT * FROM payments WHERE payment_id = ?"),
+    PAYMENTS_BY_USER(Prepare.SERVER, "SELECT * FROM payments WHERE user_id = ? ORDER BY payment_date DESC"),
+    ALL_PAYMENTS(Prepare.SERVER, "SELECT * FROM payments ORDER BY payment_date DESC"),
+    // What a payment contributes to the totals; FOR UPDATE before changing it
+    PAYMENT_TOTALS_KEY(Prepare.SERVER,
+            "SELECT DATE(payment_date), COALESCE(payment_method, ''), COALESCE(status, ''), COALESCE(amount, 0) "
+                    + "FROM payments WHERE payment_id = ? FOR UPDATE"),
+
+    // Payment totals, kept by delta on every payment write; see PaymentTotalsRepository
+    PAYMENT_TOTALS_APPLY(Prepare.CLIENT,
+            "INSERT INTO payment_totals (day, payment_method, status, payments, amount) VALUES (DATE(?), ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE payments = payments + VALUES(payments), "
+                    + "amount = amount + VALUES(amount)"),
+    PAYMENT_STATUS_TOTALS_APPLY(Prepare.CLIENT,
+            "INSERT INTO payment_status_totals (status, slot, payments, amount) VALUES (?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE payments = payments + VALUES(payments), "
+                    + "amount = amount + VALUES(amount)"),
+    PAYMENT_STATUS_TOTAL(Prepare.SERVER,
+            "SELECT COALESCE(SUM(payments), 0), COALESCE(SUM(amount), 0) FROM payment_status_totals WHERE status = ?"),
+    PAYMENT_GRAND_TOTAL(Prepare.SERVER,
+            "SELECT COALESCE(SUM(payments), 0), COALESCE(SUM(amount), 0) FROM payment_status_totals"),
+
+    // Dashboard; every KPI in one round trip, rooms counted in a single scan
+    DASHBOARD_SNAPSHOT(Prepare.SERVER,
+            "SELECT r.total_rooms, r.available_rooms, r.occupied_rooms, "
+                    + "(SELECT COUNT(*) FROM staff) AS total_staff, "
+                    + "(SELECT COUNT(*) FROM bookings) AS total_bookings, "
+                    + "(SELECT COALESCE(SUM(amount), 0) FROM payment_status_totals WHERE status = 'Completed') AS total_revenue "
+                    + "FROM (SELECT COUNT(*) AS total_rooms, "
+                    + "COALESCE(SUM(status = 'Available'), 0) AS available_rooms, "
+                    + "COALESCE(SUM(status = 'Occupied'), 0) AS occupied_rooms FROM rooms) r"),
+
+    // Reporting rollups; see ReportRollupRepository. Each refresh covers the days [?, ?)
+    REPORT_PENDING(Prepare.SERVER, "SELECT id, first_day, end_day FROM report_pending ORDER BY id LIMIT ?"),
+    REPORT_PENDING_DELETE(Prepare.CLIENT, "DELETE FROM report_pending WHERE id BETWEEN ? AND ?"),
+    REPORT_STAYS_REFRESH(Prepare.CLIENT,
+            "INSERT INTO report_daily_stays (day, rooms, room_nights_sold, room_revenue, check_ins) "
+                    + "SELECT d.day, r.rooms, COALESCE(n.sold, 0), COALESCE(n.revenue, 0), COALESCE(c.check_ins, 0) "
+                    + "FROM (SELECT DATE_ADD(?, INTERVAL o.n DAY) AS day FROM night_offsets o WHERE o.n < ?) d "
+                    + "CROSS JOIN (SELECT COUNT(*) AS rooms FROM rooms) r "
+                    + "LEFT JOIN (SELECT rn.night, COUNT(*) AS sold, "
+                    + "SUM(b.total_price / GREATEST(DATEDIFF(b.check_out_date, b.check_in_date), 1)) AS revenue "
+                    + "FROM room_nights rn JOIN bookings b ON b.bookingID = rn.booking_id "
+                    + "WHERE rn.night >= ? AND rn.night < ? GROUP BY rn.night) n ON n.night = d.day "
+                    + "LEFT JOIN (SELECT check_in_date, COUNT(*) AS check_ins FROM check_in_out "
+                    + "WHERE check_in_date >= ? AND check_in_date < ? GROUP BY check_in_date) c "
+                    + "ON c.check_in_date = d.day "
+                    + "ON DUPLICATE KEY UPDATE rooms = IF(day < CURDATE(), rooms, VALUES(rooms)), "
+                    + "room_nights_sold = VALUES(room_nights_sold), room_revenue = VALUES(room_revenue), "
+                    + "check_ins = VALUES(check_ins)"),
+    REPORT_CANCELLATIONS_CLEAR(Prepare.CLIENT, "DELETE FROM report_daily_cancellations WHERE day >= ? AND day < ?"),
+    REPORT_CANCELLATIONS_REFRESH(Prepare.CLIENT,
+            "INSERT INTO report_daily_cancellations (day, cancellations, no_shows, lost_revenue) "
+                    + "SELECT DATE(e.recorded_at), SUM(e.event_type = 'CANCELLED'), SUM(e.event_type = 'NO_SHOW'), "
+                    + "SUM(COALESCE(e.total_price, b.total_price, 0)) "
+                    + "FROM booking_events e LEFT JOIN bookings b ON b.bookingID = e.booking_id "
+                    + "WHERE e.event_type IN ('CANCELLED', 'NO_SHOW') AND e.recorded_at >= ? AND e.recorded_at < ? "
+                    + "GROUP BY DATE(e.recorded_at)"),
+
+    // Analytics cache loads; see AnalyticsRepository
+    ANALYTICS_BOOKINGS(Prepare.SERVER,
+            "SELECT bookingID, room_number, check_in_date, check_out_date, number_of_guests, total_price, status "
+                    + "FROM bookings ORDER BY bookingID"),
+    ANALYTICS_PAYMENTS(Prepare.SERVER,
+            "SELECT payment_id, payment_type, amount, payment_method, status, payment_date FROM payments "
+                    + "ORDER BY payment_id"),
+    ANALYTICS_PAYMENTS_CHANGED(Prepare.SERVER,
+            "SELECT payment_id, payment_type, amount, payment_method, status, payment_date FROM payments "
+                    + "WHERE updated_at >= ? ORDER BY payment_id"),
+    ANALYTICS_PAYMENTS_DELETED(Prepare.SERVER, "SELECT payment_id FROM payment_deletions WHERE deleted_at >= ?"),
+    // Changes stamped before this have committed: the same allowance as BOOKING_EVENTS_GAP_HORIZON,
+    // well past innodb_lock_wait_timeout for each statement a payment write runs after the stamp
+    ANALYTICS_WATERMARK(Prepare.SERVER, "SELECT NOW(3) - INTERVAL 10 MINUTE"),
+    ANALYTICS_ROOM_TYPES(Prepare.SERVER, "SELECT room_number, room_type FROM rooms"),
+
+    // Rate rules
+    RATE_RULE_INSERT(Prepare.CLIENT, true,
+            "INSERT INTO rate_rules (name, room_type, start_date, end_date, days_of_week, adjustment_percent) VALUES (?, ?, ?, ?, ?, ?)"),
+    RATE_RULE_UPDATE(Prepare.CLIENT,
+            "UPDATE rate_rules SET name = ?, room_type = ?, start_date = ?, end_date = ?, days_of_week = ?, adjustment_percent = ? WHERE rule_id = ?"),
+    RATE_RULE_DELETE(Prepare.CLIENT, "DELETE FROM rate_rules WHERE rule_id = ?"),
+    ALL_RATE_RULES(Prepare.SERVER, "SELECT * FROM rate_rules ORDER BY start_date, rule_id"),
+
+    // Absences
+    ABSENCE_INSERT(Prepare.CLIENT,
+            "INSERT INTO absences (user_id, leave_type, start_date, end_date, status, reason) VALUES (?, ?, ?, ?, ?, ?)"),
+    ABSENCE_STATUS_UPDATE(Prepare.CLIENT, "UPDATE absences SET status = ? WHERE absence_id = ?"),
+    ABSENCE_BY_ID(Prepare.SERVER, "SELECT * FROM absences WHERE absence_id = ?"),
+    ABSENCES_BY_USER(Prepare.SERVER, "SELECT * FROM absences WHERE user_id = ? ORDER BY start_date DESC"),
+    PENDING_ABSENCES(Prepare.SERVER, "SELECT * FROM absences WHERE status = 'Pending' ORDER BY start_date"),
+    ALL_ABSENCES(Prepare.SERVER, "SELECT * FROM absences ORDER BY start_date DESC");
+
+    public enum Prepare {
+        SERVER,
+        CLIENT
+    }
+
+    private final Prepare prepare;
+    private final boolean returnsGeneratedKeys;
+    private final String sql;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder executionNanos = new LongAdder();
+    private final LongAdder prepares = new LongAdder();
+
+    NamedQuery(Prepare prepare, String sql) {
+        this(prepare, false, sql);
+    }
+
+    // returnsGeneratedKeys: prepared so getGeneratedKeys() yields the new auto-increment id
+    NamedQuery(Prepare prepare, boolean returnsGeneratedKeys, String sql) {
+        this.prepare = prepare;
+        this.returnsGeneratedKeys = returnsGeneratedKeys;
+        this.sql = sql;
+    }
+
+    public Prepare getPrepare() {
+        return prepare;
+    }
+
+    public boolean returnsGeneratedKeys() {
+        return returnsGeneratedKeys;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    // Time spent inside execute calls; for streamed queries this excludes fetching the later rows
+    public long getExecutionMillis() {
+        return executionNanos.sum() / 1_000_000;
+    }
+
+    // Statements actually prepared; executions minus prepares is the reuse the cache bought
+    public long getPrepares() {
+        return prepares.sum();
+    }
+
+    void recordExecution(long nanos) {
+        executions.increment();
+        executionNanos.add(nanos);
+    }
+
+    void recordPrepare() {
+        prepares.increment();
+    }
+}
@@ -0,0 +1,103 @@
+package beachresort.repositories;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One bitset per room with one bit per night, over a fixed window of nights
+ * starting a month in the past and reaching about two years ahead. Bit i is
+ * set when night (origin + i) is booked. Testing whether a room is free for a
+ * stay touches one long per 64 nights, so a search over every room of a type
+ * costs a few word operations per room.
+ *
+ * The window is fixed when the calendar is created; BookingAvailabilityIndex
+ * builds a new one on each reload, which keeps it rolling forward. Nights
+ * outside the window are not tracked and must be answered elsewhere.
+ *
+ * Not thread-safe; BookingAvailabilityIndex guards it.
+ */
+final class OccupancyCalendar {
+    static final int PAST_NIGHTS = 31;
+    static final int WORDS = 12;
+    static final int NIGHTS = WORDS * Long.SIZE;
+
+    private static final long[] FREE = new long[WORDS];
+
+    private final int origin;
+    private final Map<String, long[]> rooms = new HashMap<>();
+
+    OccupancyCalendar(LocalDate today) {
+        this.origin = (int) today.toEpochDay() - PAST_NIGHTS;
+    }
+
+    // Whether every night in [start, end) lies inside the window
+    boolean covers(int start, int end) {
+        return start >= origin && end <= origin + NIGHTS;
+    }
+
+    // Marks the nights of [start, end) that fall inside the window as booked
+    void occupy(String roomNumber, int start, int end) {
+        int from = Math.max(start - origin, 0);
+        int to = Math.min(end - origin, NIGHTS);
+        if (from < to) {
+            apply(rooms.computeIfAbsent(roomNumber, room -> new long[WORDS]), from, to, true);
+        }
+    }
+
+    void release(String roomNumber, int start, int end) {
+        long[] nights = rooms.get(roomNumber);
+        int from = Math.max(start - origin, 0);
+        int to = Math.min(end - origin, NIGHTS);
+        if (nights != null && from < to) {
+            apply(nights, from, to, false);
+        }
+    }
+
+    // Only meaningful when covers(start, end)
+    boolean isFree(String roomNumber, int start, int end) {
+        long[] nights = rooms.getOrDefault(roomNumber, FREE);
+        int from = start - origin;
+        int to = end - origin;
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            if ((nights[word] & mask(word, firstWord, lastWord, from, to)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Number of booked nights in the window, summed over all rooms
+    long bookedNights() {
+        long booked = 0;
+        for (long[] nights : rooms.values()) {
+            for (long word : nights) {
+                booked += Long.bitCount(word);
+            }
+        }
+        return booked;
+    }
+
+    private static void apply(long[] nights, int from, int to, boolean set) {
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = mask(word, firstWord, lastWord, from, to);
+            nights[word] = set ? nights[word] | mask : nights[word] & ~mask;
+        }
+    }
+
+    // Bits of this word that fall inside [from, to)
+    private static long mask(int word, int firstWord, int lastWord, int from, int to) {
+        long mask = -1L;
+        if (word == firstWord) {
+            mask &= -1L << (from & 63);
+        }
+        if (word == lastWord) {
+            mask &= -1L >>> (63 - ((to - 1) & 63));
+        }
+        return mask;
+    }
+}
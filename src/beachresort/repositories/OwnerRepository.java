@@ -12,36 +12,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class OwnerRepository {
-    private Connection connection;
-    
 
-    public OwnerRepository() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            createStaffTableIfNotExists();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
- 
-    private void createStaffTableIfNotExists() {
-        String createTableQuery = "CREATE TABLE IF NOT EXISTS owner (" +
-                "   owner_id INT AUTO_INCREMENT PRIMARY KEY," +
-                "   user_id VARCHAR(50)," +
-                "   businessName VARCHAR(50)," +
-                "   licenseNumber VARCHAR(50)," +
-                "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")";
-        try (PreparedStatement pstmt = connection.prepareStatement(createTableQuery)) {
-            pstmt.execute();
-            System.out.println("Staff table created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating staff table: " + e.getMessage());
-        }
-    }
     public void updateOwner(String businessName, String licenseNumber, int userId) throws SQLException {
         String updateQuery = "UPDATE owner SET businessName = ?, licenseNumber = ? WHERE user_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(updateQuery)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(updateQuery)) {
             pstmt.setString(1, businessName);
             pstmt.setString(2, licenseNumber);
             pstmt.setInt(3, userId);
@@ -64,7 +39,8 @@ public class OwnerRepository {
                 "FROM owner o " +
                 "JOIN users u ON o.user_id = u.id " +
                 "WHERE u.id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setInt(1, userId); // Use userId as an integer
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -92,17 +68,6 @@ public class OwnerRepository {
     
     
 
-    // Close the connection when done
-    public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing connection: " + e.getMessage());
-        }
-    }
 
    
     
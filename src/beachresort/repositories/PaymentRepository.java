@@ -6,50 +6,26 @@ import beachresort.database.DatabaseConnection;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Payments. Every write here also moves the running totals (see
+ * PaymentTotalsRepository) in the same transaction, retried a few times if
+ * MySQL picks it as a deadlock victim on a busy totals row.
+ */
 public class PaymentRepository {
-    private Connection connection;
+    private static final int MAX_WRITE_ATTEMPTS = 3;
 
-    public PaymentRepository() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            createPaymentTableIfNotExists();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void createPaymentTableIfNotExists() {
-        String createTableSQL = "CREATE TABLE IF NOT EXISTS payments (" +
-                "payment_id SERIAL PRIMARY KEY, " +
-                "user_id VARCHAR(255) NOT NULL, " +
-                "payment_type VARCHAR(255), " +
-                "amount DECIMAL(10, 2), " +
-                "payment_method VARCHAR(255), " +
-                "status VARCHAR(255), " +
-                "description TEXT, " +
-                "payment_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")";
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createTableSQL);
-        } catch (SQLException e) {
-            System.err.println("Error creating payments table: " + e.getMessage());
-        }
-    }
-    
+    private final PaymentTotalsRepository totalsRepository = new PaymentTotalsRepository();
 
-     // Validate if user exists in users table
+     // Validate if user exists in users table (from the shared role cache; the
+     // payments triggers back this up). user_id is a string column holding users.id.
      private boolean validateUser(String userId) throws SQLException {
-         String query = "SELECT COUNT(*) FROM users WHERE id = ?";
-         try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-             pstmt.setString(1, userId);
-             try (ResultSet rs = pstmt.executeQuery()) {
-                 if (rs.next()) {
-                     return rs.getInt(1) > 0;
-                 }
-             }
+         if (userId == null || !userId.trim().matches("\\d{1,9}")) {
+             return false;
          }
-         return false;
+         return UserRoleCache.shared().exists(Integer.parseInt(userId.trim()));
      }
      
      public boolean addPayment(Payment payment) {
@@ -60,22 +36,29 @@ public class PaymentRepository {
                  return false;
              }
 
-             String query = "INSERT INTO payments " +
-                     "(user_id, payment_type, amount, payment_method, status, description, payment_date) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-             try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-                 pstmt.setString(1, payment.getUserId());
-                 pstmt.setString(2, payment.getPaymentType());
-                 pstmt.setBigDecimal(3, payment.getAmount());
-                 pstmt.setString(4, payment.getPaymentMethod());
-                 pstmt.setString(5, payment.getStatus());
-                 pstmt.setString(6, payment.getDescription());
-                 pstmt.setTimestamp(7, payment.getPaymentDate());
-
-                 int rowsAffected = pstmt.executeUpdate();
-                 return rowsAffected > 0;
-             }
+             return Transactions.runRetrying(Connection.TRANSACTION_READ_COMMITTED, MAX_WRITE_ATTEMPTS,
+                     connection -> {
+                         try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PAYMENT_INSERT)) {
+                             pstmt.setString(1, payment.getUserId());
+                             pstmt.setString(2, payment.getPaymentType());
+                             pstmt.setBigDecimal(3, payment.getAmount());
+                             pstmt.setString(4, payment.getPaymentMethod());
+                             pstmt.setString(5, payment.getStatus());
+                             pstmt.setString(6, payment.getDescription());
+                             pstmt.setTimestamp(7, payment.getPaymentDate());
+                             if (pstmt.executeUpdate() == 0) {
+                                 return false;
+                             }
+                             try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                                 if (keys.next()) {
+                                     payment.setPaymentId(keys.getInt(1));
+                                 }
+                             }
+                         }
+                         PaymentTotalsRepository.paymentChanged(connection, null,
+                                 PaymentTotalsRepository.lockContribution(connection, payment.getPaymentId()));
+                         return true;
+                     });
          } catch (SQLException e) {
              System.err.println("Error adding payment: " + e.getMessage());
              return false;
@@ -86,23 +69,8 @@ public class PaymentRepository {
     
      public List<Payment> getAllPayments() {
          List<Payment> payments = new ArrayList<>();
-         String query = "SELECT * FROM payments ORDER BY payment_date DESC";
-
-         try (PreparedStatement pstmt = connection.prepareStatement(query);
-                 ResultSet rs = pstmt.executeQuery()) {
-
-             while (rs.next()) {
-                 Payment payment = new Payment(
-                         rs.getString("user_id"),
-                         rs.getString("payment_type"),
-                         rs.getBigDecimal("amount"),
-                         rs.getString("payment_method"),
-                         rs.getString("status"),
-                         rs.getString("description"),
-                         rs.getTimestamp("payment_date"));
-                 payment.setPaymentId(rs.getInt("payment_id"));
-                 payments.add(payment);
-             }
+         try {
+             forEachPayment(StreamingQuery.DEFAULT_FETCH_SIZE, payments::add);
          } catch (SQLException e) {
              System.err.println("Error retrieving payments: " + e.getMessage());
          }
@@ -110,9 +78,135 @@ public class PaymentRepository {
          return payments;
      }
 
+     // Streams every payment, newest first; close the stream when done
+     public Stream<Payment> streamAllPayments(int fetchSize) throws SQLException {
+         return StreamingQuery.stream(NamedQuery.ALL_PAYMENTS, fetchSize, RowMappers.PAYMENT);
+     }
+
+     public long forEachPayment(int fetchSize, Consumer<? super Payment> action) throws SQLException {
+         return StreamingQuery.forEach(NamedQuery.ALL_PAYMENTS, fetchSize, RowMappers.PAYMENT, action);
+     }
 
+     // Position of a payment in (payment_date, payment_id) order, used as the
+     // seek key between pages
+     public static final class PageKey {
+         private final Timestamp paymentDate;
+         private final int paymentId;
 
-    
+         public PageKey(Timestamp paymentDate, int paymentId) {
+             this.paymentDate = paymentDate;
+             this.paymentId = paymentId;
+         }
+
+         public static PageKey of(Payment payment) {
+             return new PageKey(payment.getPaymentDate(), payment.getPaymentId());
+         }
+
+         public Timestamp getPaymentDate() {
+             return paymentDate;
+         }
+
+         public int getPaymentId() {
+             return paymentId;
+         }
+     }
+
+     // Keyset pagination over (payment_date, payment_id): up to limit payments
+     // after the given key, newest first unless newestFirst is false. Pass a null
+     // key for the first page. statusFilter of null matches every status.
+     public List<Payment> getPaymentsPage(String statusFilter, boolean newestFirst, PageKey after, int limit)
+             throws SQLException {
+         List<Object> params = new ArrayList<>();
+         String query = pageQuery(statusFilter, newestFirst, after, limit, params);
+
+         List<Payment> page = new ArrayList<>(limit);
+         StreamingQuery.forEach(query, 0, RowMappers.PAYMENT, page::add, params.toArray());
+         return page;
+     }
+
+     // Key of the payment `rows` positions after the given key, or null if there
+     // are fewer rows left
+     public PageKey skipPayments(String statusFilter, boolean newestFirst, PageKey after, int rows)
+             throws SQLException {
+         List<Object> params = new ArrayList<>();
+         String query = skipQuery(statusFilter, newestFirst, after, rows, params);
+
+         List<PageKey> key = new ArrayList<>(1);
+         StreamingQuery.forEach(query, 0, ResultSetMapper.of(rs -> new PageKey(rs.getTimestamp(1), rs.getInt(2))), key::add,
+                 params.toArray());
+         return key.isEmpty() ? null : key.get(0);
+     }
+
+     // From the running totals, so as cheap for a million payments as for ten
+     public int countPayments(String statusFilter) throws SQLException {
+         PaymentTotalsRepository.Total total = statusFilter == null
+                 ? totalsRepository.getGrandTotal()
+                 : totalsRepository.getTotal(statusFilter);
+         return (int) total.getPayments();
+     }
+
+     // Built per call like BookingRepository's; public for tools.QueryPlanCheck. Each appends its parameters.
+     public static String pageQuery(String statusFilter, boolean newestFirst, PageKey after, int limit,
+             List<Object> params) {
+         String query = "SELECT * FROM payments" + paymentPageWhere(statusFilter, newestFirst, after, params)
+                 + paymentPageOrder(newestFirst) + " LIMIT ?";
+         params.add(limit);
+         return query;
+     }
+
+     public static String skipQuery(String statusFilter, boolean newestFirst, PageKey after, int rows,
+             List<Object> params) {
+         String query = "SELECT payment_date, payment_id FROM payments"
+                 + paymentPageWhere(statusFilter, newestFirst, after, params)
+                 + paymentPageOrder(newestFirst) + " LIMIT 1 OFFSET ?";
+         params.add(rows - 1);
+         return query;
+     }
+
+     private static String paymentPageWhere(String statusFilter, boolean newestFirst, PageKey after,
+             List<Object> params) {
+         List<String> conditions = new ArrayList<>();
+         if (statusFilter != null) {
+             conditions.add("status = ?");
+             params.add(statusFilter);
+         }
+         if (after != null) {
+             conditions.add(paymentSeek(newestFirst, after, params));
+         }
+         return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+     }
+
+     /**
+      * The rows after the key in paymentPageOrder. payment_date is nullable
+      * and NULL compares neither < nor = to anything, so the undated payments
+      * get their own terms: MySQL sorts NULL below every date, last newest
+      * first and first oldest first, which is also where the payment_date
+      * indexes keep them. Each form is an OR of index ranges, so MySQL still
+      * seeks rather than scans.
+      */
+     private static String paymentSeek(boolean newestFirst, PageKey after, List<Object> params) {
+         Timestamp date = after.getPaymentDate();
+         if (date == null) {
+             params.add(after.getPaymentId());
+             return newestFirst
+                     ? "(payment_date IS NULL AND payment_id < ?)"
+                     : "((payment_date IS NULL AND payment_id > ?) OR payment_date IS NOT NULL)";
+         }
+         // Expanded form of (payment_date, payment_id) < (?, ?) so MySQL can use a range scan
+         String op = newestFirst ? "<" : ">";
+         params.add(date);
+         params.add(date);
+         params.add(after.getPaymentId());
+         return "(payment_date " + op + " ? OR (payment_date = ? AND payment_id " + op + " ?)"
+                 + (newestFirst ? " OR payment_date IS NULL)" : ")");
+     }
+
+     // NULL dates sort lowest, as in the index, so no filesort is needed
+     private static String paymentPageOrder(boolean newestFirst) {
+         return newestFirst
+                 ? " ORDER BY payment_date DESC, payment_id DESC"
+                 : " ORDER BY payment_date ASC, payment_id ASC";
+     }
 
   
      public List<Payment> getPaymentsByUserId(String userId) {
@@ -128,25 +222,13 @@ public class PaymentRepository {
         }
 
         List<Payment> payments = new ArrayList<>();
-        String query = "SELECT * FROM payments WHERE user_id = ? ORDER BY payment_date DESC";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PAYMENTS_BY_USER)) {
             pstmt.setString(1, userId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Payment payment = new Payment(
-                        rs.getString("user_id"),
-                        rs.getString("payment_type"),
-                        rs.getBigDecimal("amount"),
-                        rs.getString("payment_method"),
-                        rs.getString("status"),
-                        rs.getString("description"),
-                        rs.getTimestamp("payment_date")
-                    );
-                    payment.setPaymentId(rs.getInt("payment_id"));
-                    payments.add(payment);
-                }
+                payments.addAll(RowMappers.list(rs, RowMappers.PAYMENT));
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving payments: " + e.getMessage());
@@ -163,23 +245,27 @@ public class PaymentRepository {
                 return false;
             }
 
-            String query = "UPDATE payments SET " +
-                    "user_id = ?, payment_type = ?, amount = ?, " +
-                    "payment_method = ?, status = ?, description = ? " +
-                    "WHERE payment_id = ?";
-
-            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-                pstmt.setString(1, payment.getUserId());
-                pstmt.setString(2, payment.getPaymentType());
-                pstmt.setBigDecimal(3, payment.getAmount());
-                pstmt.setString(4, payment.getPaymentMethod());
-                pstmt.setString(5, payment.getStatus());
-                pstmt.setString(6, payment.getDescription());
-                pstmt.setInt(7, payment.getPaymentId());
-
-                int rowsAffected = pstmt.executeUpdate();
-                return rowsAffected > 0;
-            }
+            return Transactions.runRetrying(Connection.TRANSACTION_READ_COMMITTED, MAX_WRITE_ATTEMPTS,
+                    connection -> {
+                        PaymentTotalsRepository.Contribution before =
+                                PaymentTotalsRepository.lockContribution(connection, payment.getPaymentId());
+                        if (before == null) {
+                            return false;
+                        }
+                        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PAYMENT_UPDATE)) {
+                            pstmt.setString(1, payment.getUserId());
+                            pstmt.setString(2, payment.getPaymentType());
+                            pstmt.setBigDecimal(3, payment.getAmount());
+                            pstmt.setString(4, payment.getPaymentMethod());
+                            pstmt.setString(5, payment.getStatus());
+                            pstmt.setString(6, payment.getDescription());
+                            pstmt.setInt(7, payment.getPaymentId());
+                            pstmt.executeUpdate();
+                        }
+                        PaymentTotalsRepository.paymentChanged(connection, before,
+                                PaymentTotalsRepository.lockContribution(connection, payment.getPaymentId()));
+                        return true;
+                    });
         } catch (SQLException e) {
             System.err.println("Error updating payment: " + e.getMessage());
             return false;
@@ -187,30 +273,18 @@ public class PaymentRepository {
     }
 
     public Payment getPaymentById(int paymentId) {
-        String query = "SELECT * FROM payments WHERE payment_id = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PAYMENT_BY_ID)) {
             pstmt.setInt(1, paymentId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    // Validate user exists
-                    if (!validateUser(rs.getString("user_id"))) {
-                        System.err.println("Associated user does not exist");
-                        return null;
-                    }
-
-                    Payment payment = new Payment(
-                            rs.getString("user_id"),
-                            rs.getString("payment_type"),
-                            rs.getBigDecimal("amount"),
-                            rs.getString("payment_method"),
-                            rs.getString("status"),
-                            rs.getString("description"),
-                            rs.getTimestamp("payment_date"));
-                    payment.setPaymentId(rs.getInt("payment_id"));
-                    return payment;
+                Payment payment = RowMappers.first(rs, RowMappers.PAYMENT);
+                // Validate user exists
+                if (payment != null && !validateUser(payment.getUserId())) {
+                    System.err.println("Associated user does not exist");
+                    return null;
                 }
+                return payment;
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving payment: " + e.getMessage());
@@ -227,13 +301,28 @@ public class PaymentRepository {
         //     return false;
         // }
 
-        String query = "DELETE FROM payments WHERE payment_id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, paymentId);
-            
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return Transactions.runRetrying(Connection.TRANSACTION_READ_COMMITTED, MAX_WRITE_ATTEMPTS,
+                    connection -> {
+                        PaymentTotalsRepository.Contribution before =
+                                PaymentTotalsRepository.lockContribution(connection, paymentId);
+                        if (before == null) {
+                            return false;
+                        }
+                        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PAYMENT_DELETE)) {
+                            pstmt.setInt(1, paymentId);
+                            pstmt.executeUpdate();
+                        }
+                        // Lets the analytics cache drop it; a deleted row leaves no updated_at behind
+                        try (PreparedStatement pstmt =
+                                QueryCatalog.prepare(connection, NamedQuery.PAYMENT_DELETION_INSERT)) {
+                            pstmt.setInt(1, paymentId);
+                            pstmt.executeUpdate();
+                        }
+                        PaymentTotalsRepository.paymentChanged(connection, before, null);
+                        return true;
+                    });
         } catch (SQLException e) {
             System.err.println("Error deleting payment: " + e.getMessage());
             return false;
@@ -0,0 +1,406 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Running payment totals (migration V10): count and amount per day, method
+ * and status in payment_totals, and per status in payment_status_totals.
+ *
+ * PaymentRepository changes them in the same transaction as the payment
+ * itself, through the package-private methods below: a new payment adds its
+ * contribution, a deleted one takes it away, and an update takes away what
+ * the row contributed before and adds what it contributes after, so a status
+ * change moves the payment from one status's totals to the other's. Reading a
+ * status total is a primary key lookup of STATUS_SLOTS rows however many
+ * payments there are.
+ *
+ * A status total is spread over STATUS_SLOTS rows, each write picking one at
+ * random, so busy writers seldom wait on each other's row; the slots are
+ * summed when read. Payments with no payment_date only count per status.
+ *
+ * The bulk import adds each chunk's payments the same way, set-based, in the
+ * chunk's transaction ({@link #paymentsInserted}). Nothing else keeps the
+ * totals right: a payment changed by hand leaves them wrong.
+ * {@link #verify()} recomputes them from payments and reports every
+ * difference; the night audit runs it, and tools.PaymentTotalsCommand runs it
+ * or {@link #rebuild()} from the command line.
+ */
+public class PaymentTotalsRepository {
+    static final int STATUS_SLOTS = 16;
+
+    // Each (day, method, status) recomputed next to its stored row, where they differ
+    private static final String DAILY_DRIFT =
+            "SELECT k.day, k.payment_method, k.status, COALESCE(p.payments, 0), COALESCE(p.amount, 0), "
+            + "COALESCE(t.payments, 0), COALESCE(t.amount, 0) "
+            + "FROM (SELECT day, payment_method, status FROM payment_totals "
+            + "UNION SELECT DATE(payment_date), COALESCE(payment_method, ''), COALESCE(status, '') FROM payments "
+            + "WHERE payment_date IS NOT NULL) k "
+            + "LEFT JOIN (SELECT DATE(payment_date) AS day, COALESCE(payment_method, '') AS payment_method, "
+            + "COALESCE(status, '') AS status, COUNT(*) AS payments, COALESCE(SUM(amount), 0) AS amount "
+            + "FROM payments WHERE payment_date IS NOT NULL "
+            + "GROUP BY DATE(payment_date), COALESCE(payment_method, ''), COALESCE(status, '')) p "
+            + "ON p.day = k.day AND p.payment_method = k.payment_method AND p.status = k.status "
+            + "LEFT JOIN payment_totals t "
+            + "ON t.day = k.day AND t.payment_method = k.payment_method AND t.status = k.status "
+            + "WHERE COALESCE(p.payments, 0) <> COALESCE(t.payments, 0) "
+            + "OR COALESCE(p.amount, 0) <> COALESCE(t.amount, 0) "
+            + "ORDER BY k.day, k.payment_method, k.status";
+    private static final String STATUS_DRIFT =
+            "SELECT k.status, COALESCE(p.payments, 0), COALESCE(p.amount, 0), "
+            + "COALESCE(t.payments, 0), COALESCE(t.amount, 0) "
+            + "FROM (SELECT status FROM payment_status_totals UNION SELECT COALESCE(status, '') FROM payments) k "
+            + "LEFT JOIN (SELECT COALESCE(status, '') AS status, COUNT(*) AS payments, "
+            + "COALESCE(SUM(amount), 0) AS amount FROM payments GROUP BY COALESCE(status, '')) p "
+            + "ON p.status = k.status "
+            + "LEFT JOIN (SELECT status, SUM(payments) AS payments, SUM(amount) AS amount "
+            + "FROM payment_status_totals GROUP BY status) t ON t.status = k.status "
+            + "WHERE COALESCE(p.payments, 0) <> COALESCE(t.payments, 0) "
+            + "OR COALESCE(p.amount, 0) <> COALESCE(t.amount, 0) "
+            + "ORDER BY k.status";
+    private static final String INSERT_ALL_DAILY =
+            "INSERT INTO payment_totals (day, payment_method, status, payments, amount) "
+            + "SELECT DATE(payment_date), COALESCE(payment_method, ''), COALESCE(status, ''), COUNT(*), "
+            + "COALESCE(SUM(amount), 0) FROM payments WHERE payment_date IS NOT NULL "
+            + "GROUP BY DATE(payment_date), COALESCE(payment_method, ''), COALESCE(status, '')";
+    private static final String INSERT_ALL_STATUS =
+            "INSERT INTO payment_status_totals (status, slot, payments, amount) "
+            + "SELECT COALESCE(status, ''), 0, COUNT(*), COALESCE(SUM(amount), 0) FROM payments "
+            + "GROUP BY COALESCE(status, '')";
+
+    public static final class Total {
+        private final long payments;
+        private final BigDecimal amount;
+
+        Total(long payments, BigDecimal amount) {
+            this.payments = payments;
+            this.amount = amount;
+        }
+
+        public long getPayments() {
+            return payments;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+    }
+
+    // A total that differs from what the payments add up to
+    public static final class Drift {
+        private final Date day;
+        private final String paymentMethod;
+        private final String status;
+        private final long expectedPayments;
+        private final BigDecimal expectedAmount;
+        private final long recordedPayments;
+        private final BigDecimal recordedAmount;
+
+        Drift(Date day, String paymentMethod, String status, long expectedPayments, BigDecimal expectedAmount,
+                long recordedPayments, BigDecimal recordedAmount) {
+            this.day = day;
+            this.paymentMethod = paymentMethod;
+            this.status = status;
+            this.expectedPayments = expectedPayments;
+            this.expectedAmount = expectedAmount;
+            this.recordedPayments = recordedPayments;
+            this.recordedAmount = recordedAmount;
+        }
+
+        // Null for a per-status total
+        public Date getDay() {
+            return day;
+        }
+
+        // Null for a per-status total
+        public String getPaymentMethod() {
+            return paymentMethod;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public long getExpectedPayments() {
+            return expectedPayments;
+        }
+
+        public BigDecimal getExpectedAmount() {
+            return expectedAmount;
+        }
+
+        public long getRecordedPayments() {
+            return recordedPayments;
+        }
+
+        public BigDecimal getRecordedAmount() {
+            return recordedAmount;
+        }
+
+        @Override
+        public String toString() {
+            String key = day == null ? "status '" + status + "'"
+                    : day + " '" + paymentMethod + "' '" + status + "'";
+            return String.format("%s: %d payments / %s recorded, %d / %s in payments", key, recordedPayments,
+                    recordedAmount, expectedPayments, expectedAmount);
+        }
+    }
+
+    public static final class VerifyReport {
+        private final List<Drift> drift;
+        private final long elapsedMillis;
+
+        VerifyReport(List<Drift> drift, long elapsedMillis) {
+            this.drift = drift;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public boolean isClean() {
+            return drift.isEmpty();
+        }
+
+        public List<Drift> getDrift() {
+            return drift;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format("payment totals: %d drifted, verified in %d ms",
+                    drift.size(), elapsedMillis));
+            for (Drift d : drift) {
+                report.append("\n  ").append(d);
+            }
+            return report.toString();
+        }
+    }
+
+    // What one payment row adds to the totals
+    static final class Contribution {
+        private final Date day;
+        private final String paymentMethod;
+        private final String status;
+        private final BigDecimal amount;
+
+        Contribution(Date day, String paymentMethod, String status, BigDecimal amount) {
+            this.day = day;
+            this.paymentMethod = paymentMethod;
+            this.status = status;
+            this.amount = amount;
+        }
+
+        // Same payment_totals row
+        boolean sameDay(Contribution other) {
+            return Objects.equals(day, other.day) && paymentMethod.equals(other.paymentMethod)
+                    && status.equals(other.status);
+        }
+
+        // In payment_totals key order; no day sorts first
+        int compareTo(Contribution other) {
+            if (!Objects.equals(day, other.day)) {
+                return day == null ? -1 : other.day == null ? 1 : day.compareTo(other.day);
+            }
+            int byMethod = paymentMethod.compareTo(other.paymentMethod);
+            return byMethod != 0 ? byMethod : status.compareTo(other.status);
+        }
+    }
+
+    // Payments with the given status and their amount
+    public Total getTotal(String status) throws SQLException {
+        return readTotal(NamedQuery.PAYMENT_STATUS_TOTAL, status);
+    }
+
+    // Every payment, whatever its status
+    public Total getGrandTotal() throws SQLException {
+        return readTotal(NamedQuery.PAYMENT_GRAND_TOTAL, null);
+    }
+
+    // Completed payments' amount
+    public BigDecimal getRevenue() throws SQLException {
+        return getTotal("Completed").getAmount();
+    }
+
+    /**
+     * Recomputes every total from payments and returns those that differ.
+     * Both checks run in one repeatable-read transaction, so payments
+     * written meanwhile cannot show up as drift.
+     */
+    public VerifyReport verify() throws SQLException {
+        long start = System.nanoTime();
+        List<Drift> drift = Transactions.run(Connection.TRANSACTION_REPEATABLE_READ, connection -> {
+            List<Drift> found = new ArrayList<>();
+            try (Statement stmt = connection.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery(DAILY_DRIFT)) {
+                    while (rs.next()) {
+                        found.add(new Drift(rs.getDate(1), rs.getString(2), rs.getString(3), rs.getLong(4),
+                                rs.getBigDecimal(5), rs.getLong(6), rs.getBigDecimal(7)));
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery(STATUS_DRIFT)) {
+                    while (rs.next()) {
+                        found.add(new Drift(null, null, rs.getString(1), rs.getLong(2), rs.getBigDecimal(3),
+                                rs.getLong(4), rs.getBigDecimal(5)));
+                    }
+                }
+            }
+            return found;
+        });
+        return new VerifyReport(drift, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Regenerates both tables from payments in one transaction; returns the
+     * payment_totals rows written. For tools.PaymentTotalsCommand only, with
+     * nothing else writing payments: the DELETEs take no gap locks, so a
+     * payment written meanwhile can add a row the INSERTs then collide with.
+     */
+    public long rebuild() throws SQLException {
+        return Transactions.run(connection -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("DELETE FROM payment_totals");
+                stmt.executeUpdate("DELETE FROM payment_status_totals");
+                long rows = stmt.executeLargeUpdate(INSERT_ALL_DAILY);
+                stmt.executeUpdate(INSERT_ALL_STATUS);
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Adds the contributions of payments inserted earlier in the caller's
+     * transaction, one statement per table whatever their number. Keys are
+     * written in order, daily before status, as paymentChanged writes them.
+     */
+    public static void paymentsInserted(Connection connection, List<Integer> paymentIds) throws SQLException {
+        if (paymentIds.isEmpty()) {
+            return;
+        }
+        String in = QueryCatalog.placeholders(paymentIds.size());
+        String daily = "INSERT INTO payment_totals (day, payment_method, status, payments, amount) "
+                + "SELECT d.day, d.payment_method, d.status, d.payments, d.amount FROM ("
+                + "SELECT DATE(payment_date) AS day, COALESCE(payment_method, '') AS payment_method, "
+                + "COALESCE(status, '') AS status, COUNT(*) AS payments, COALESCE(SUM(amount), 0) AS amount "
+                + "FROM payments WHERE payment_id IN (" + in + ") AND payment_date IS NOT NULL "
+                + "GROUP BY DATE(payment_date), COALESCE(payment_method, ''), COALESCE(status, '')) d "
+                + "ORDER BY d.day, d.payment_method, d.status "
+                + "ON DUPLICATE KEY UPDATE payment_totals.payments = payment_totals.payments + d.payments, "
+                + "payment_totals.amount = payment_totals.amount + d.amount";
+        try (PreparedStatement pstmt = connection.prepareStatement(daily)) {
+            for (int i = 0; i < paymentIds.size(); i++) {
+                pstmt.setInt(i + 1, paymentIds.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+        String status = "INSERT INTO payment_status_totals (status, slot, payments, amount) "
+                + "SELECT d.status, ?, d.payments, d.amount FROM ("
+                + "SELECT COALESCE(status, '') AS status, COUNT(*) AS payments, COALESCE(SUM(amount), 0) AS amount "
+                + "FROM payments WHERE payment_id IN (" + in + ") GROUP BY COALESCE(status, '')) d "
+                + "ORDER BY d.status "
+                + "ON DUPLICATE KEY UPDATE payment_status_totals.payments = payment_status_totals.payments + d.payments, "
+                + "payment_status_totals.amount = payment_status_totals.amount + d.amount";
+        try (PreparedStatement pstmt = connection.prepareStatement(status)) {
+            pstmt.setInt(1, ThreadLocalRandom.current().nextInt(STATUS_SLOTS));
+            for (int i = 0; i < paymentIds.size(); i++) {
+                pstmt.setInt(i + 2, paymentIds.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    // The payment's contribution as stored, its row locked until commit; null if there is no such payment
+    static Contribution lockContribution(Connection connection, int paymentId) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PAYMENT_TOTALS_KEY)) {
+            pstmt.setInt(1, paymentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next()
+                        ? new Contribution(rs.getDate(1), rs.getString(2), rs.getString(3), rs.getBigDecimal(4))
+                        : null;
+            }
+        }
+    }
+
+    /**
+     * Moves the totals from a payment's contribution before a write to its
+     * contribution after it; before is null for an insert, after for a
+     * delete. A change that keeps the key only adjusts the amount.
+     */
+    static void paymentChanged(Connection connection, Contribution before, Contribution after) throws SQLException {
+        if (before != null && after != null && before.sameDay(after)) {
+            applyDaily(connection, after, 0, after.amount.subtract(before.amount));
+        } else if (after == null || (before != null && before.compareTo(after) <= 0)) {
+            // Lower key first, so two writers lock the rows in the same order and cannot deadlock
+            applyDaily(connection, before, -1, before == null ? null : before.amount.negate());
+            applyDaily(connection, after, 1, after == null ? null : after.amount);
+        } else {
+            applyDaily(connection, after, 1, after.amount);
+            applyDaily(connection, before, -1, before == null ? null : before.amount.negate());
+        }
+
+        if (before != null && after != null && before.status.equals(after.status)) {
+            applyStatus(connection, after.status, 0, after.amount.subtract(before.amount));
+        } else {
+            if (before != null) {
+                applyStatus(connection, before.status, -1, before.amount.negate());
+            }
+            if (after != null) {
+                applyStatus(connection, after.status, 1, after.amount);
+            }
+        }
+    }
+
+    private static void applyDaily(Connection connection, Contribution key, long payments, BigDecimal amount)
+            throws SQLException {
+        if (key == null || key.day == null || (payments == 0 && amount.signum() == 0)) {
+            return;
+        }
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PAYMENT_TOTALS_APPLY)) {
+            pstmt.setDate(1, key.day);
+            pstmt.setString(2, key.paymentMethod);
+            pstmt.setString(3, key.status);
+            pstmt.setLong(4, payments);
+            pstmt.setBigDecimal(5, amount);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void applyStatus(Connection connection, String status, long payments, BigDecimal amount)
+            throws SQLException {
+        if (payments == 0 && amount.signum() == 0) {
+            return;
+        }
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.PAYMENT_STATUS_TOTALS_APPLY)) {
+            pstmt.setString(1, status);
+            pstmt.setInt(2, ThreadLocalRandom.current().nextInt(STATUS_SLOTS));
+            pstmt.setLong(3, payments);
+            pstmt.setBigDecimal(4, amount);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static Total readTotal(NamedQuery query, String status) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, query)) {
+            if (status != null) {
+                pstmt.setString(1, status);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new Total(rs.getLong(1), rs.getBigDecimal(2));
+            }
+        }
+    }
+}
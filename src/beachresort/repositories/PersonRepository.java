@@ -8,37 +8,14 @@ import beachresort.database.DatabaseConnection;
 import java.sql.*;
 
 public class PersonRepository {
-    private final Connection connection;
-
 
     public PersonRepository() throws SQLException {
-        connection = DatabaseConnection.getConnection();
-        createUserTableIfNotExists();
-        
-    }
-
-    private void createUserTableIfNotExists() {
-        String createTableSQL = "CREATE TABLE IF NOT EXISTS users (" +
-                "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                "username VARCHAR(50) UNIQUE NOT NULL, " +
-                "password VARCHAR(255) NOT NULL, " +
-                "email VARCHAR(100) NOT NULL, " +
-                "full_name VARCHAR(100) NOT NULL, " +
-                "address VARCHAR(255), " + // New address column
-                "contact_number VARCHAR(20), " + // New contact number column
-                "role VARCHAR(20) NOT NULL, " +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")";
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createTableSQL);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
     }
 
     public boolean createUser(Person person) {
         String query = "INSERT INTO users (username, password, email, full_name, address, contact_number, role) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             // Validate input
             if (person == null) {
                 System.err.println("Attempting to create null user");
@@ -85,7 +62,11 @@ public class PersonRepository {
 
             // If user is created successfully, check the role and create the corresponding record
             if (rowsAffected > 0) {
-                String userId = getLastInsertedUserId(); // Implement this method to retrieve the last inserted user ID
+                String userId = getLastInsertedUserId(connection); // LAST_INSERT_ID() is per connection
+                if (userId != null) {
+                    // The id may be cached as "no such user" from an earlier lookup
+                    UserRoleCache.shared().invalidate(Integer.parseInt(userId));
+                }
 
                 if (person.getRole() == Person.PersonRole.OWNER) {
                     // Insert owner record
@@ -146,7 +127,7 @@ public class PersonRepository {
     }
     
     // Method to get the last inserted user ID
-    private String getLastInsertedUserId() throws SQLException {
+    private String getLastInsertedUserId(Connection connection) throws SQLException {
         String query = "SELECT LAST_INSERT_ID()"; // MySQL specific
         try (PreparedStatement pstmt = connection.prepareStatement(query);
                 ResultSet rs = pstmt.executeQuery()) {
@@ -161,7 +142,8 @@ public class PersonRepository {
     
     public boolean updateUser(Person person) {
         String query = "UPDATE users SET username = ?, password = ?, email = ?, full_name = ?, address = ?, contact_number = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             // Validate input
             if (person == null) {
                 System.err.println("Attempting to update null user");
@@ -197,6 +179,7 @@ public class PersonRepository {
 
             // Execute and return result
             int rowsAffected = pstmt.executeUpdate();
+            UserRoleCache.shared().invalidate(person.getId());
             return rowsAffected > 0;
         } catch (SQLException e) {
             // Log specific SQL error
@@ -211,7 +194,8 @@ public class PersonRepository {
 
     public boolean usernameExists(String username) {
         String query = "SELECT COUNT(*) FROM users WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setString(1, username);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -228,7 +212,8 @@ public class PersonRepository {
 
     public Person findByUsername(String username) throws SQLException {
         String query = "SELECT * FROM users WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setString(1, username);
              
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -263,7 +248,8 @@ public class PersonRepository {
 
     public Integer validateUser(String username, String password) throws SQLException {
         String query = "SELECT id FROM users WHERE username = ? AND password = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setString(1, username);
             pstmt.setString(2, password);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -0,0 +1,223 @@
+package beachresort.repositories;
+
+import beachresort.database.PooledConnection;
+
+import com.mysql.cj.jdbc.JdbcConnection;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+/**
+ * Hands out statements for {@link NamedQuery} entries. On a pooled connection
+ * the statement is prepared once per physical connection and kept open; the
+ * caller gets a handle whose close() only clears it for the next use, so the
+ * usual try-with-resources code stays unchanged. Every execution is counted
+ * against its query.
+ */
+public final class QueryCatalog implements QueryCatalogMXBean {
+    private static final QueryCatalog INSTANCE = new QueryCatalog();
+
+    // Cached statements currently handed out. A second request for the same
+    // query on the same connection while the first is open gets a fresh statement.
+    private static final Set<PreparedStatement> IN_USE = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                    new ObjectName("beachresort.repositories:type=QueryCatalog"));
+        } catch (Exception e) {
+            System.err.println("Could not register query catalog MBean: " + e.getMessage());
+        }
+    }
+
+    private QueryCatalog() {
+    }
+
+    public static PreparedStatement prepare(Connection connection, NamedQuery query) throws SQLException {
+        if (connection.isWrapperFor(PooledConnection.class)) {
+            PooledConnection pooled = connection.unwrap(PooledConnection.class);
+            PreparedStatement statement = pooled.getCachedStatement(query, physical -> create(physical, query));
+            if (IN_USE.add(statement)) {
+                return handle(statement, query, connection, true);
+            }
+        }
+        return handle(create(connection, query), query, connection, false);
+    }
+
+    // "?, ?, ?" for an IN list of count values; such queries vary in length, so they are not cataloged
+    static String placeholders(int count) {
+        StringBuilder list = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            list.append(i == 0 ? "?" : ", ?");
+        }
+        return list.toString();
+    }
+
+    public static String report() {
+        List<NamedQuery> queries = new ArrayList<>(Arrays.asList(NamedQuery.values()));
+        queries.sort((a, b) -> Long.compare(b.getExecutions(), a.getExecutions()));
+
+        StringBuilder report = new StringBuilder(String.format("%-28s %6s %12s %10s %10s%n",
+                "query", "mode", "executions", "prepares", "ms"));
+        for (NamedQuery query : queries) {
+            report.append(String.format("%-28s %6s %12d %10d %10d%n", query.name(), query.getPrepare(),
+                    query.getExecutions(), query.getPrepares(), query.getExecutionMillis()));
+        }
+        return report.toString();
+    }
+
+    private static PreparedStatement create(Connection connection, NamedQuery query) throws SQLException {
+        query.recordPrepare();
+        int keys = query.returnsGeneratedKeys() ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+        if (connection.isWrapperFor(JdbcConnection.class)) {
+            JdbcConnection mysql = connection.unwrap(JdbcConnection.class);
+            if (query.getPrepare() == NamedQuery.Prepare.CLIENT) {
+                return mysql.clientPrepareStatement(query.getSql(), keys);
+            }
+            // The streamed listings are among these, and the statement is cached: cursor fetch goes on first
+            StreamingQuery.enableCursorFetch(mysql);
+            return mysql.serverPrepareStatement(query.getSql(), keys);
+        }
+        return connection.prepareStatement(query.getSql(), keys);
+    }
+
+    private static PreparedStatement handle(PreparedStatement statement, NamedQuery query, Connection connection,
+            boolean cached) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new StatementHandle(statement, query, connection, cached));
+    }
+
+    // Puts a cached statement back into the state a new one would be in
+    private static void release(PreparedStatement statement) {
+        try {
+            ResultSet open = statement.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.setFetchSize(0);
+        } catch (SQLException e) {
+            // Closing it makes the connection prepare a new one next time
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // already unusable
+            }
+        } finally {
+            IN_USE.remove(statement);
+        }
+    }
+
+    private static final class StatementHandle implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final NamedQuery query;
+        private final Connection connection;
+        private final boolean cached;
+        private boolean closed;
+
+        StatementHandle(PreparedStatement statement, NamedQuery query, Connection connection, boolean cached) {
+            this.statement = statement;
+            this.query = query;
+            this.connection = connection;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (cached) {
+                            release(statement);
+                        } else {
+                            statement.close();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return query.name() + "[" + statement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement for " + query.name() + " has already been closed");
+            }
+
+            boolean execution = name.startsWith("execute");
+            long start = execution ? System.nanoTime() : 0;
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (execution) {
+                    query.recordExecution(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Long> getExecutions() {
+        Map<String, Long> executions = new LinkedHashMap<>();
+        for (NamedQuery query : NamedQuery.values()) {
+            executions.put(query.name(), query.getExecutions());
+        }
+        return executions;
+    }
+
+    @Override
+    public Map<String, Long> getExecutionMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        for (NamedQuery query : NamedQuery.values()) {
+            millis.put(query.name(), query.getExecutionMillis());
+        }
+        return millis;
+    }
+
+    @Override
+    public Map<String, Long> getPrepares() {
+        Map<String, Long> prepares = new LinkedHashMap<>();
+        for (NamedQuery query : NamedQuery.values()) {
+            prepares.put(query.name(), query.getPrepares());
+        }
+        return prepares;
+    }
+
+    @Override
+    public String getReport() {
+        return report();
+    }
+}
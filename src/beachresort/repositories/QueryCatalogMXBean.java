@@ -0,0 +1,18 @@
+package beachresort.repositories;
+
+import java.util.Map;
+
+/**
+ * Per-query counters of the {@link NamedQuery} catalog, published over JMX
+ * under beachresort.repositories:type=QueryCatalog.
+ */
+public interface QueryCatalogMXBean {
+    Map<String, Long> getExecutions();
+
+    Map<String, Long> getExecutionMillis();
+
+    Map<String, Long> getPrepares();
+
+    // The same numbers as a table, busiest query first
+    String getReport();
+}
@@ -0,0 +1,72 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.models.RateRule;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * The rate_rules table. Edits should go through services.RateEngine, which
+ * writes them here and updates its price calendar to match.
+ */
+public class RateRuleRepository {
+
+    public List<RateRule> getAllRules() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ALL_RATE_RULES);
+                ResultSet rs = pstmt.executeQuery()) {
+            return RowMappers.list(rs, RowMappers.RATE_RULE);
+        }
+    }
+
+    // Inserts the rule and sets its generated ruleId
+    public void addRule(RateRule rule) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.RATE_RULE_INSERT)) {
+            bindRule(pstmt, rule);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No rule_id generated for the new rate rule");
+                }
+                rule.setRuleId(keys.getInt(1));
+            }
+        }
+    }
+
+    public boolean updateRule(RateRule rule) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.RATE_RULE_UPDATE)) {
+            bindRule(pstmt, rule);
+            pstmt.setInt(7, rule.getRuleId());
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    public boolean deleteRule(int ruleId) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.RATE_RULE_DELETE)) {
+            pstmt.setInt(1, ruleId);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    private static void bindRule(PreparedStatement pstmt, RateRule rule) throws SQLException {
+        pstmt.setString(1, rule.getName());
+        if (rule.getRoomType() == null) {
+            pstmt.setNull(2, Types.VARCHAR);
+        } else {
+            pstmt.setString(2, rule.getRoomType());
+        }
+        pstmt.setDate(3, java.sql.Date.valueOf(rule.getStartDate()));
+        pstmt.setDate(4, java.sql.Date.valueOf(rule.getEndDate()));
+        pstmt.setInt(5, rule.getDaysOfWeek());
+        pstmt.setBigDecimal(6, BigDecimal.valueOf(rule.getAdjustmentPercent()));
+    }
+}
@@ -0,0 +1,81 @@
+package beachresort.repositories;
+
+import beachresort.models.CancellationStats;
+import beachresort.models.OccupancyStats;
+import beachresort.models.PaymentMethodTotal;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports over [from, to), read from the daily rollups kept by
+ * ReportRollupRepository (payments: the daily totals kept by
+ * PaymentTotalsRepository) and summed per day, week (from Monday) or month in
+ * SQL. A year by month touches 365 rollup rows and returns 12, however many
+ * bookings and payments lie behind them. Days the rollups do not cover yet
+ * simply count as empty.
+ */
+public class ReportRepository {
+
+    public enum Granularity {
+        DAY("day"),
+        WEEK("DATE_SUB(day, INTERVAL WEEKDAY(day) DAY)"),
+        MONTH("DATE_SUB(day, INTERVAL DAYOFMONTH(day) - 1 DAY)");
+
+        // First day of the period holding day
+        private final String periodStart;
+
+        Granularity(String periodStart) {
+            this.periodStart = periodStart;
+        }
+    }
+
+    public List<OccupancyStats> getOccupancy(LocalDate from, LocalDate to, Granularity granularity)
+            throws SQLException {
+        List<OccupancyStats> rows = new ArrayList<>();
+        StreamingQuery.forEach(occupancyQuery(granularity), 0, RowMappers.OCCUPANCY_STATS, rows::add,
+                Date.valueOf(from), Date.valueOf(to));
+        return rows;
+    }
+
+    // Completed payments per period and method, from the running totals of PaymentTotalsRepository
+    public List<PaymentMethodTotal> getPaymentsByMethod(LocalDate from, LocalDate to, Granularity granularity)
+            throws SQLException {
+        List<PaymentMethodTotal> rows = new ArrayList<>();
+        StreamingQuery.forEach(paymentsByMethodQuery(granularity), 0, RowMappers.PAYMENT_METHOD_TOTAL, rows::add,
+                Date.valueOf(from), Date.valueOf(to));
+        return rows;
+    }
+
+    public List<CancellationStats> getCancellations(LocalDate from, LocalDate to, Granularity granularity)
+            throws SQLException {
+        List<CancellationStats> rows = new ArrayList<>();
+        StreamingQuery.forEach(cancellationsQuery(granularity), 0, RowMappers.CANCELLATION_STATS, rows::add,
+                Date.valueOf(from), Date.valueOf(to));
+        return rows;
+    }
+
+    // The SQL differs per granularity, so it is not in NamedQuery; public for tools.QueryPlanCheck.
+    // Each takes the days [?, ?).
+    public static String occupancyQuery(Granularity granularity) {
+        return "SELECT " + granularity.periodStart + " AS period, SUM(rooms), "
+                + "SUM(room_nights_sold), SUM(room_revenue), SUM(check_ins) FROM report_daily_stays "
+                + "WHERE day >= ? AND day < ? GROUP BY period ORDER BY period";
+    }
+
+    public static String paymentsByMethodQuery(Granularity granularity) {
+        return "SELECT " + granularity.periodStart + " AS period, payment_method, SUM(payments), "
+                + "SUM(amount) FROM payment_totals WHERE status = 'Completed' AND day >= ? AND day < ? "
+                + "GROUP BY period, payment_method HAVING SUM(payments) > 0 "
+                + "ORDER BY period, payment_method";
+    }
+
+    public static String cancellationsQuery(Granularity granularity) {
+        return "SELECT " + granularity.periodStart + " AS period, SUM(cancellations), "
+                + "SUM(no_shows), SUM(lost_revenue) FROM report_daily_cancellations "
+                + "WHERE day >= ? AND day < ? GROUP BY period ORDER BY period";
+    }
+}
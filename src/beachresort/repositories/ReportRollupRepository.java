@@ -0,0 +1,223 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the daily rollup tables of migration V9 (report_daily_stays,
+ * report_daily_cancellations) in step with bookings, check_in_out and
+ * booking_events. Payments are totalled as they are written instead; see
+ * PaymentTotalsRepository.
+ *
+ * Triggers on those tables append the day ranges a row change affects to
+ * report_pending, in the writer's own transaction. refreshPending reads the
+ * queue, merges the ranges and recomputes just those days from the source
+ * tables, then deletes the queue rows it read. Recomputing a day is
+ * idempotent, so a refresh that dies halfway, or two running at once, leave
+ * correct rollups behind. The migration queues every day the data covers,
+ * so the first refresh is the backfill.
+ *
+ * repairRecent recomputes the last few weeks and the next year whatever the
+ * queue says: it puts right anything changed without the triggers (a
+ * restore, a hand edit with triggers off) and keeps future days' room counts
+ * in line with the rooms table. rebuild does the same for any range, e.g.
+ * all of history from tools.ReportRollupCommand.
+ */
+public class ReportRollupRepository {
+    // Days recomputed per transaction; night_offsets allows up to 1000
+    private static final int CHUNK_DAYS = 366;
+    private static final int PENDING_BATCH = 10_000;
+    // Queued ranges are clipped to these bounds, so one bad date cannot queue centuries
+    private static final LocalDate EARLIEST_DAY = LocalDate.of(2000, 1, 1);
+    private static final int MAX_FUTURE_DAYS = 3 * 366;
+    public static final int REPAIR_PAST_DAYS = 35;
+    public static final int REPAIR_FUTURE_DAYS = 366;
+
+    public static final class RefreshReport {
+        private final long pendingRows;
+        private final long days;
+        private final long elapsedMillis;
+
+        RefreshReport(long pendingRows, long days, long elapsedMillis) {
+            this.pendingRows = pendingRows;
+            this.days = days;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        // Queue rows consumed
+        public long getPendingRows() {
+            return pendingRows;
+        }
+
+        // Days recomputed
+        public long getDays() {
+            return days;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("report rollups: %d queued changes, %d days recomputed, %d ms",
+                    pendingRows, days, elapsedMillis);
+        }
+    }
+
+    // Recomputes every day queued in report_pending
+    public RefreshReport refreshPending() throws SQLException {
+        long start = System.nanoTime();
+        LocalDate latest = LocalDate.now().plusDays(MAX_FUTURE_DAYS);
+        long rows = 0;
+        long days = 0;
+        while (true) {
+            List<Long> ids = new ArrayList<>();
+            // first day -> end day of the merged ranges
+            TreeMap<LocalDate, LocalDate> ranges = new TreeMap<>();
+            try (Connection connection = DatabaseConnection.getConnection();
+                    PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.REPORT_PENDING)) {
+                pstmt.setInt(1, PENDING_BATCH);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                        Date first = rs.getDate(2);
+                        Date end = rs.getDate(3);
+                        if (first != null && end != null) {
+                            addRange(ranges, max(first.toLocalDate(), EARLIEST_DAY), min(end.toLocalDate(), latest));
+                        }
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (Map.Entry<LocalDate, LocalDate> range : ranges.entrySet()) {
+                days += recompute(range.getKey(), range.getValue());
+            }
+            deletePending(ids);
+            rows += ids.size();
+            if (ids.size() < PENDING_BATCH) {
+                break;
+            }
+        }
+        return new RefreshReport(rows, days, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Recomputes [from, to) whether or not it was queued; returns the days recomputed
+    public long rebuild(LocalDate from, LocalDate to) throws SQLException {
+        return recompute(max(from, EARLIEST_DAY), to);
+    }
+
+    // The last REPAIR_PAST_DAYS and the next REPAIR_FUTURE_DAYS, as the night audit runs it
+    public long repairRecent(LocalDate today) throws SQLException {
+        return rebuild(today.minusDays(REPAIR_PAST_DAYS), today.plusDays(REPAIR_FUTURE_DAYS));
+    }
+
+    // Queued changes not yet refreshed
+    public long countPending() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM report_pending")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Adds [first, end) to the ranges, merging it with any it overlaps or touches
+    private static void addRange(TreeMap<LocalDate, LocalDate> ranges, LocalDate first, LocalDate end) {
+        if (!first.isBefore(end)) {
+            return;
+        }
+        Map.Entry<LocalDate, LocalDate> before = ranges.floorEntry(first);
+        if (before != null && !before.getValue().isBefore(first)) {
+            first = before.getKey();
+            end = max(end, before.getValue());
+        }
+        Map.Entry<LocalDate, LocalDate> next = ranges.ceilingEntry(first);
+        while (next != null && !next.getKey().isAfter(end)) {
+            end = max(end, next.getValue());
+            ranges.remove(next.getKey());
+            next = ranges.higherEntry(first);
+        }
+        ranges.put(first, end);
+    }
+
+    // Every rollup for [from, to), CHUNK_DAYS to a transaction
+    private static long recompute(LocalDate from, LocalDate to) throws SQLException {
+        long days = 0;
+        for (LocalDate chunk = from; chunk.isBefore(to); chunk = chunk.plusDays(CHUNK_DAYS)) {
+            LocalDate chunkStart = chunk;
+            LocalDate chunkEnd = min(chunk.plusDays(CHUNK_DAYS), to);
+            Date first = Date.valueOf(chunkStart);
+            Date end = Date.valueOf(chunkEnd);
+            int dayCount = (int) ChronoUnit.DAYS.between(chunkStart, chunkEnd);
+            Transactions.run(connection -> {
+                try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.REPORT_STAYS_REFRESH)) {
+                    pstmt.setDate(1, first);
+                    pstmt.setInt(2, dayCount);
+                    pstmt.setDate(3, first);
+                    pstmt.setDate(4, end);
+                    pstmt.setDate(5, first);
+                    pstmt.setDate(6, end);
+                    pstmt.executeUpdate();
+                }
+                replace(connection, NamedQuery.REPORT_CANCELLATIONS_CLEAR, NamedQuery.REPORT_CANCELLATIONS_REFRESH,
+                        first, end);
+                return null;
+            });
+            days += dayCount;
+        }
+        return days;
+    }
+
+    // Deletes a rollup's rows for [first, end) and inserts them afresh; a day may have lost rows
+    private static void replace(Connection connection, NamedQuery clear, NamedQuery refresh, Date first, Date end)
+            throws SQLException {
+        for (NamedQuery query : new NamedQuery[] { clear, refresh }) {
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, query)) {
+                pstmt.setDate(1, first);
+                pstmt.setDate(2, end);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    // Deletes exactly the queue rows read; a row committed meanwhile with a lower id stays queued
+    private static void deletePending(List<Long> ids) throws SQLException {
+        Transactions.run(connection -> {
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.REPORT_PENDING_DELETE)) {
+                int runStart = 0;
+                for (int i = 1; i <= ids.size(); i++) {
+                    if (i == ids.size() || ids.get(i) != ids.get(i - 1) + 1) {
+                        pstmt.setLong(1, ids.get(runStart));
+                        pstmt.setLong(2, ids.get(i - 1));
+                        pstmt.addBatch();
+                        runStart = i;
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
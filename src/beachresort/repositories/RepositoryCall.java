@@ -0,0 +1,9 @@
+package beachresort.repositories;
+
+import java.sql.SQLException;
+
+// One repository operation, run off the EDT by AsyncRepository
+@FunctionalInterface
+public interface RepositoryCall<R, T> {
+    T apply(R repository) throws SQLException;
+}
@@ -0,0 +1,82 @@
+package beachresort.repositories;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking repository work off the Swing event dispatch thread.
+ *
+ * On Java 21+ each call gets its own virtual thread, so a slow query costs no
+ * platform thread while it waits on the database. Older runtimes fall back to
+ * a fixed pool of daemon threads sized like the connection pool, since extra
+ * threads would only queue up waiting for a connection.
+ */
+public final class RepositoryExecutor {
+    private static final int FALLBACK_THREADS = 10;
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private RepositoryExecutor() {
+    }
+
+    /**
+     * Runs the task asynchronously. Cancelling the returned future before the
+     * task starts skips it; once a JDBC call is running it finishes, but its
+     * result is discarded.
+     */
+    public static <T> CompletableFuture<T> supply(Callable<? extends T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    public static boolean usesVirtualThreads() {
+        return !(EXECUTOR instanceof FallbackPool);
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return new FallbackPool();
+        }
+    }
+
+    // Marker subclass so usesVirtualThreads() can tell the two apart
+    private static final class FallbackPool extends ThreadPoolExecutor {
+        FallbackPool() {
+            super(FALLBACK_THREADS, FALLBACK_THREADS, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new DaemonThreadFactory());
+            allowCoreThreadTimeOut(true);
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "repository-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
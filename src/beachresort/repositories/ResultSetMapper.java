@@ -0,0 +1,16 @@
+package beachresort.repositories;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Prepares a RowMapper for one result set. Implementations look up column
+// positions from the metadata once here, so mapping each row is index-based.
+@FunctionalInterface
+public interface ResultSetMapper<T> {
+    RowMapper<T> bind(ResultSet rs) throws SQLException;
+
+    // For row mappers that already read by position and need no binding
+    static <T> ResultSetMapper<T> of(RowMapper<T> mapper) {
+        return rs -> mapper;
+    }
+}
@@ -0,0 +1,196 @@
+package beachresort.repositories;
+
+import beachresort.models.Booking;
+import beachresort.models.BookingEvent;
+import beachresort.models.RoomMove;
+import beachresort.repositories.BookingRepository.ReservationResult;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bookings by room type for services.RoomAssignmentOptimizer, the room_locks
+ * that keep a booking in the room it was given, and the moves themselves.
+ */
+public class RoomAssignmentRepository {
+
+    // Live bookings in rooms of the type with at least one night in [from, to), earliest first
+    public List<Booking> getBookings(String roomType, LocalDate from, LocalDate to) throws SQLException {
+        List<Booking> bookings = new ArrayList<>();
+        StreamingQuery.forEach(NamedQuery.ROOM_ASSIGNMENT_BOOKINGS, StreamingQuery.DEFAULT_FETCH_SIZE,
+                RowMappers.BOOKING, bookings::add, roomType, java.sql.Date.valueOf(from),
+                java.sql.Date.valueOf(to));
+        return bookings;
+    }
+
+    // Ids of the bookings getBookings would return that are locked to their room
+    public Set<Integer> getLockedBookingIds(String roomType, LocalDate from, LocalDate to) throws SQLException {
+        Set<Integer> locked = new HashSet<>();
+        StreamingQuery.forEach(NamedQuery.ROOM_ASSIGNMENT_LOCKED, 0, RowMappers.FIRST_INT, locked::add,
+                roomType, java.sql.Date.valueOf(from), java.sql.Date.valueOf(to));
+        return locked;
+    }
+
+    // Keeps the booking in its room, e.g. when the guest asked for it; false if it was already locked.
+    // The room_locks row does not exist yet, so moveBookings' FOR UPDATE cannot hold it off; the
+    // booking's own row, which moveBookings locks too, does
+    public boolean lockRoom(int bookingId, String lockedBy) throws SQLException {
+        return Transactions.run(connection -> {
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.BOOKING_ROW_LOCK)) {
+                pstmt.setInt(1, bookingId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                }
+            }
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_LOCK_INSERT)) {
+                pstmt.setInt(1, bookingId);
+                pstmt.setString(2, lockedBy);
+                return pstmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    public boolean unlockRoom(int bookingId) throws SQLException {
+        return Transactions.run(connection -> {
+            try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_LOCK_DELETE)) {
+                pstmt.setInt(1, bookingId);
+                return pstmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    /**
+     * Makes the moves in one transaction, all or none. Every room involved is
+     * locked in room-number order, as reserveBooking and reserveBlock lock
+     * them, and each booking is checked to be unchanged and unlocked since it
+     * was read. The moved bookings' nights are cleared before any is written
+     * back, so two bookings may trade rooms. CONFLICT means something changed
+     * in between: a booking was edited or locked, or a night was taken.
+     */
+    public ReservationResult moveBookings(List<RoomMove> moves, String performedBy) {
+        if (moves.isEmpty()) {
+            return ReservationResult.RESERVED;
+        }
+        TreeSet<String> rooms = new TreeSet<>();
+        List<Integer> bookingIds = new ArrayList<>(moves.size());
+        for (RoomMove move : moves) {
+            rooms.add(move.getFromRoom());
+            rooms.add(move.getToRoom());
+            bookingIds.add(move.getBookingId());
+        }
+
+        try {
+            ReservationResult result = Transactions.runRetrying(Connection.TRANSACTION_READ_COMMITTED,
+                    BookingRepository.MAX_RESERVE_ATTEMPTS, connection -> {
+                        if (lockRooms(connection, rooms) < rooms.size()) {
+                            return ReservationResult.UNKNOWN_ROOM;
+                        }
+                        if (!unchanged(connection, moves)) {
+                            return ReservationResult.CONFLICT;
+                        }
+                        deleteNights(connection, bookingIds);
+                        try (PreparedStatement pstmt = QueryCatalog.prepare(connection,
+                                NamedQuery.BOOKING_ROOM_UPDATE)) {
+                            for (RoomMove move : moves) {
+                                pstmt.setString(1, move.getToRoom());
+                                pstmt.setInt(2, move.getBookingId());
+                                pstmt.addBatch();
+                            }
+                            pstmt.executeBatch();
+                        }
+                        RoomNightRepository.bookingsInserted(connection, bookingIds);
+                        BookingEventRepository.recordRows(connection, bookingIds, BookingEvent.Type.MODIFIED,
+                                performedBy);
+                        return ReservationResult.RESERVED;
+                    });
+            if (result == ReservationResult.RESERVED) {
+                BookingAvailabilityIndex index = BookingAvailabilityIndex.shared();
+                for (RoomMove move : moves) {
+                    Booking booking = move.getBooking();
+                    index.bookingDeleted(booking.getBookingID());
+                    index.bookingSaved(new Booking(booking.getBookingID(), booking.getUserId(), move.getToRoom(),
+                            booking.getCustomerName(), booking.getCheckInDate(), booking.getCheckOutDate(),
+                            booking.getNumberOfGuests(), booking.getTotalPrice(), booking.getStatus()));
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            if (RoomNightRepository.isNightTaken(e)) {
+                System.err.println("A room was booked while its bookings were being moved: " + e.getMessage());
+                return ReservationResult.CONFLICT;
+            }
+            System.err.println("Error moving bookings: " + e.getMessage());
+            return ReservationResult.FAILED;
+        }
+    }
+
+    // Returns how many of the rooms exist
+    private static int lockRooms(Connection connection, TreeSet<String> rooms) throws SQLException {
+        List<String> roomNumbers = new ArrayList<>(rooms);
+        int locked = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT room_number FROM rooms WHERE room_number IN ("
+                + QueryCatalog.placeholders(roomNumbers.size()) + ") ORDER BY room_number FOR UPDATE")) {
+            for (int i = 0; i < roomNumbers.size(); i++) {
+                pstmt.setString(i + 1, roomNumbers.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    locked++;
+                }
+            }
+        }
+        return locked;
+    }
+
+    // Whether every booking still has the room, dates and status it was read with, and no room lock
+    private static boolean unchanged(Connection connection, List<RoomMove> moves) throws SQLException {
+        Map<Integer, Booking> expected = new HashMap<>();
+        for (RoomMove move : moves) {
+            expected.put(move.getBookingId(), move.getBooking());
+        }
+        int matched = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT b.bookingID, b.room_number, b.check_in_date, b.check_out_date, b.status FROM bookings b "
+                        + "LEFT JOIN room_locks l ON l.booking_id = b.bookingID "
+                        + "WHERE b.bookingID IN (" + QueryCatalog.placeholders(expected.size()) + ") "
+                        + "AND l.booking_id IS NULL FOR UPDATE")) {
+            int index = 1;
+            for (Integer bookingId : expected.keySet()) {
+                pstmt.setInt(index++, bookingId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Booking booking = expected.get(rs.getInt(1));
+                    if (booking.getRoomNumber().equals(rs.getString(2))
+                            && booking.getCheckInDate().equals(rs.getDate(3).toLocalDate())
+                            && booking.getCheckOutDate().equals(rs.getDate(4).toLocalDate())
+                            && Objects.equals(booking.getStatus(), rs.getString(5))) {
+                        matched++;
+                    }
+                }
+            }
+        }
+        return matched == expected.size();
+    }
+
+    private static void deleteNights(Connection connection, List<Integer> bookingIds) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM room_nights WHERE booking_id IN ("
+                + QueryCatalog.placeholders(bookingIds.size()) + ")")) {
+            for (int i = 0; i < bookingIds.size(); i++) {
+                pstmt.setInt(i + 1, bookingIds.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The room_nights inventory: one row per booked (room, night) with the booking
+ * that holds it and its state (the booking status, then Checked In / Checked
+ * Out once the guest arrives and leaves). Cancelled bookings and no-shows
+ * hold no rows.
+ *
+ * BookingRepository and CheckInOutRepository update it in the same transaction
+ * as their own write, through the package-private methods below. The primary
+ * key on (room_number, night) means two bookings can never hold the same
+ * night. {@link #rebuild()} regenerates the whole table from bookings and
+ * check_in_out, e.g. after rows were changed by hand; tools.RoomNightsRepair
+ * runs it from the command line.
+ */
+public class RoomNightRepository {
+
+    // Nights of every live booking; stays over 1000 nights (night_offsets) are cut short
+    private static final String INSERT_ALL =
+            "INSERT IGNORE INTO room_nights (room_number, night, booking_id, state) "
+            + "SELECT b.room_number, DATE_ADD(b.check_in_date, INTERVAL o.n DAY), b.bookingID, b.status "
+            + "FROM bookings b JOIN night_offsets o ON o.n < DATEDIFF(b.check_out_date, b.check_in_date) "
+            + "WHERE b.status NOT IN ('Cancelled', 'No-Show') ORDER BY b.bookingID";
+    private static final String APPLY_ALL_STAYS =
+            "UPDATE room_nights rn JOIN check_in_out c ON c.room_number = rn.room_number "
+            + "AND rn.night >= c.check_in_date AND rn.night < c.check_out_date "
+            + "SET rn.state = IF(c.status = 'OUT', 'Checked Out', 'Checked In')";
+    private static final String EXPECTED_NIGHTS =
+            "SELECT COALESCE(SUM(LEAST(GREATEST(DATEDIFF(check_out_date, check_in_date), 0), 1000)), 0) "
+            + "FROM bookings WHERE status NOT IN ('Cancelled', 'No-Show')";
+
+    public static final class RebuildReport {
+        private final long nights;
+        private final long clashingNights;
+        private final long elapsedMillis;
+
+        RebuildReport(long nights, long clashingNights, long elapsedMillis) {
+            this.nights = nights;
+            this.clashingNights = clashingNights;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getNights() {
+            return nights;
+        }
+
+        // Nights claimed by more than one booking; only the earliest booking keeps them
+        public long getClashingNights() {
+            return clashingNights;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("room_nights rebuilt: %d nights, %d clashing nights skipped, %d ms",
+                    nights, clashingNights, elapsedMillis);
+        }
+    }
+
+    // Whether no booking holds the room for any night in [checkIn, checkOut)
+    public boolean isRoomFree(String roomNumber, LocalDate checkIn, LocalDate checkOut) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_TAKEN)) {
+            pstmt.setString(1, roomNumber);
+            pstmt.setDate(2, java.sql.Date.valueOf(checkIn));
+            pstmt.setDate(3, java.sql.Date.valueOf(checkOut));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getLong(1) == 0;
+            }
+        }
+    }
+
+    /**
+     * Booked rooms for each night in [from, to), including nights nobody
+     * booked (as 0). Past nights give actual occupancy, future ones the
+     * forecast from bookings on the books.
+     */
+    public Map<LocalDate, Integer> getBookedRoomsPerNight(LocalDate from, LocalDate to) throws SQLException {
+        Map<LocalDate, Integer> perNight = new LinkedHashMap<>();
+        for (LocalDate night = from; night.isBefore(to); night = night.plusDays(1)) {
+            perNight.put(night, 0);
+        }
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_PER_NIGHT)) {
+            pstmt.setDate(1, java.sql.Date.valueOf(from));
+            pstmt.setDate(2, java.sql.Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    perNight.put(rs.getDate(1).toLocalDate(), rs.getInt(2));
+                }
+            }
+        }
+        return perNight;
+    }
+
+    // Booked room-nights over available room-nights in [from, to), between 0 and 1
+    public double getOccupancyRate(LocalDate from, LocalDate to) throws SQLException {
+        long nights = ChronoUnit.DAYS.between(from, to);
+        if (nights <= 0) {
+            return 0;
+        }
+        long rooms;
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_COUNT);
+                ResultSet rs = pstmt.executeQuery()) {
+            rooms = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (rooms == 0) {
+            return 0;
+        }
+        long booked = 0;
+        for (int count : getBookedRoomsPerNight(from, to).values()) {
+            booked += count;
+        }
+        return (double) booked / (rooms * nights);
+    }
+
+    /**
+     * Regenerates room_nights from bookings and check_in_out in one
+     * transaction. Where older bookings overlap, the lowest bookingID keeps
+     * the night and the rest are counted as clashing.
+     */
+    public RebuildReport rebuild() throws SQLException {
+        long start = System.nanoTime();
+        return Transactions.run(connection -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("DELETE FROM room_nights");
+                long nights = stmt.executeLargeUpdate(INSERT_ALL);
+                stmt.executeUpdate(APPLY_ALL_STAYS);
+                long expected;
+                try (ResultSet rs = stmt.executeQuery(EXPECTED_NIGHTS)) {
+                    rs.next();
+                    expected = rs.getLong(1);
+                }
+                return new RebuildReport(nights, expected - nights, (System.nanoTime() - start) / 1_000_000);
+            }
+        });
+    }
+
+    // Writes the nights of a booking that was just inserted or changed, inside the caller's transaction
+    static void bookingWritten(Connection connection, int bookingId) throws SQLException {
+        bookingDeleted(connection, bookingId);
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_INSERT_BOOKING)) {
+            pstmt.setInt(1, bookingId);
+            pstmt.executeUpdate();
+        }
+        // A stay already under way keeps its Checked In / Checked Out state
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_APPLY_STAYS)) {
+            pstmt.setInt(1, bookingId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Nights of a booking inserted earlier in the caller's transaction; no stay can cover them yet
+    static void bookingInserted(Connection connection, int bookingId, String state) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_INSERT_NEW_BOOKING)) {
+            pstmt.setString(1, state);
+            pstmt.setInt(2, bookingId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Nights of several bookings inserted earlier in the caller's transaction, in one statement
+    public static void bookingsInserted(Connection connection, List<Integer> bookingIds) throws SQLException {
+        String sql = "INSERT INTO room_nights (room_number, night, booking_id, state) "
+                + "SELECT b.room_number, DATE_ADD(b.check_in_date, INTERVAL o.n DAY), b.bookingID, b.status "
+                + "FROM bookings b JOIN night_offsets o ON o.n < DATEDIFF(b.check_out_date, b.check_in_date) "
+                + "WHERE b.bookingID IN (" + QueryCatalog.placeholders(bookingIds.size()) + ") "
+                + "AND b.status NOT IN ('Cancelled', 'No-Show')";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < bookingIds.size(); i++) {
+                pstmt.setInt(i + 1, bookingIds.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    static void bookingDeleted(Connection connection, int bookingId) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_DELETE_BOOKING)) {
+            pstmt.setInt(1, bookingId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    static void bookingStatusChanged(Connection connection, int bookingId, String status) throws SQLException {
+        if (!holdsNights(status)) {
+            bookingDeleted(connection, bookingId);
+            return;
+        }
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_BOOKING_STATE)) {
+            pstmt.setString(1, status);
+            pstmt.setInt(2, bookingId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Marks the nights of a check-in/check-out stay; checkInOutStatus is "Checked In" or "OUT"
+    static void stayChanged(Connection connection, String roomNumber, LocalDate checkIn, LocalDate checkOut,
+            String checkInOutStatus) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_STAY_STATE)) {
+            pstmt.setString(1, "OUT".equals(checkInOutStatus) ? "Checked Out" : "Checked In");
+            pstmt.setString(2, roomNumber);
+            pstmt.setDate(3, java.sql.Date.valueOf(checkIn));
+            pstmt.setDate(4, java.sql.Date.valueOf(checkOut));
+            pstmt.executeUpdate();
+        }
+    }
+
+    static void stayCheckedOut(Connection connection, int checkInOutId) throws SQLException {
+        try (PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_NIGHTS_CHECK_OUT)) {
+            pstmt.setInt(1, checkInOutId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Cancelled bookings and no-shows (see NightAuditJob) give their nights back
+    static boolean holdsNights(String status) {
+        return !"Cancelled".equalsIgnoreCase(status) && !"No-Show".equalsIgnoreCase(status);
+    }
+
+    // Duplicate key on room_nights' (room_number, night): another booking already holds a night
+    public static boolean isNightTaken(SQLException e) {
+        return e.getErrorCode() == 1062;
+    }
+}
@@ -9,37 +9,19 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class RoomRepository {
-    private Connection connection;
+    // Bumped on every write to rooms so cached room lists know to reload
+    private static final AtomicLong ROOMS_VERSION = new AtomicLong();
 
-    public RoomRepository() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            createRoomsTableIfNotExists();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    public static long getRoomsVersion() {
+        return ROOMS_VERSION.get();
     }
 
-    private void createRoomsTableIfNotExists() {
-        String createTableQuery = 
-            "CREATE TABLE IF NOT EXISTS rooms (" +
-            "   roomID INT AUTO_INCREMENT PRIMARY KEY," +
-            "   room_number VARCHAR(10) UNIQUE NOT NULL," +
-            "   room_type ENUM('Standard', 'Deluxe', 'Suite', 'Family') NOT NULL," +
-            "   capacity INT NOT NULL," +
-            "   price_per_night DECIMAL(10, 2) NOT NULL," +
-            "   status ENUM('Available', 'Occupied', 'Maintenance') NOT NULL," +
-            "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-            "   updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
-            ")";
-        try (PreparedStatement pstmt = connection.prepareStatement(createTableQuery )) {
-            pstmt.execute();
-            System.out.println("Rooms table created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating rooms table: " + e.getMessage());
-        }
+    // For writes to rooms made by other repositories; call after they commit
+    static void roomsChanged() {
+        ROOMS_VERSION.incrementAndGet();
     }
 
     public boolean addRoom(Room room) {
@@ -53,14 +35,15 @@ public class RoomRepository {
             return false;
         }
 
-        String query = "INSERT INTO rooms (room_number, room_type, capacity, price_per_night, status) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_INSERT)) {
             pstmt.setString(1, room.getRoomNumber());
             pstmt.setString(2, room.getRoomType());
             pstmt.setInt(3, room.getCapacity());
             pstmt.setDouble(4, room.getPricePerNight());
             pstmt.setString(5, room.getStatus());
             int rowsAffected = pstmt.executeUpdate();
+            ROOMS_VERSION.incrementAndGet();
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error adding room: " + e.getMessage());
@@ -74,14 +57,15 @@ public class RoomRepository {
             return false;
         }
 
-        String query = "UPDATE rooms SET room_type = ?, capacity = ?, price_per_night = ?, status = ? WHERE room_number = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_UPDATE)) {
             pstmt.setString(1, room.getRoomType());
             pstmt.setInt(2, room.getCapacity());
             pstmt.setDouble(3, room.getPricePerNight());
             pstmt.setString(4, room.getStatus());
             pstmt.setString(5, room.getRoomNumber());
             int rowsAffected = pstmt.executeUpdate();
+            ROOMS_VERSION.incrementAndGet();
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error updating room: " + e.getMessage());
@@ -90,10 +74,11 @@ public class RoomRepository {
     }
 
     public boolean deleteRoom(String roomNumber) {
-        String query = "DELETE FROM rooms WHERE room_number = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_DELETE)) {
             pstmt.setString(1, roomNumber);
             int rowsAffected = pstmt.executeUpdate();
+            ROOMS_VERSION.incrementAndGet();
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting room: " + e.getMessage());
@@ -103,21 +88,10 @@ public class RoomRepository {
 
     public List<Room> getAllRooms() {
         List<Room> rooms = new ArrayList<>();
-        String query = "SELECT * FROM rooms";
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ALL_ROOMS);
              ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                Room room = new Room(
-                    rs.getString("room_number"),
-                    rs.getString("room_type"),
-                    rs.getInt("capacity"),
-                    rs.getDouble("price_per_night"),
-                    rs.getString("status"),
-                    rs.getTimestamp("created_at"),
-                    rs.getTimestamp("updated_at")
-                );
-                rooms.add(room);
-            }
+            rooms.addAll(RowMappers.list(rs, RowMappers.ROOM));
         } catch (SQLException e) {
             System.err.println("Error retrieving rooms: " + e.getMessage());
         }
@@ -125,20 +99,11 @@ public class RoomRepository {
     }
 
     public Room getRoomByNumber(String roomNumber) {
-        String query = "SELECT * FROM rooms WHERE room_number = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_BY_NUMBER)) {
             pstmt.setString(1, roomNumber);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Room(
-                            rs.getString("room_number"),
-                            rs.getString("room_type"),
-                            rs.getInt("capacity"),
-                            rs.getDouble("price_per_night"),
-                            rs.getString("status"),
-                            rs.getTimestamp("created_at"),
-                            rs.getTimestamp("updated_at"));
-                }
+                return RowMappers.first(rs, RowMappers.ROOM);
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving room: " + e.getMessage());
@@ -146,13 +111,14 @@ public class RoomRepository {
         return null;
     }
     public boolean updateRoomStatus(String roomNumber, String newStatus) {
-        String query = "UPDATE rooms SET status = ? WHERE room_number = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_STATUS_UPDATE)) {
             pstmt.setString(1, newStatus); 
             pstmt.setString(2, roomNumber); 
 
             int rowsAffected = pstmt.executeUpdate(); 
+            ROOMS_VERSION.incrementAndGet();
             return rowsAffected > 0; 
         } catch (SQLException e) {
             System.err.println("Error updating room status: " + e.getMessage());
@@ -184,8 +150,8 @@ public class RoomRepository {
     }
     
     public boolean roomExists(String roomNumber) {
-        String query = "SELECT COUNT(*) FROM rooms WHERE room_number = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.ROOM_EXISTS)) {
             pstmt.setString(1, roomNumber);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -200,8 +166,8 @@ public class RoomRepository {
     public List<String> getAvailableRoomsByType(String roomType) {
         List<String> availableRooms = new ArrayList<>();
         System.out.println("Room Type: " + roomType);
-        String query = "SELECT room_number FROM rooms WHERE room_type = ? AND status = 'Available'";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.AVAILABLE_ROOMS_BY_TYPE)) {
             pstmt.setString(1, roomType);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -0,0 +1,255 @@
+package beachresort.repositories;
+
+import beachresort.models.Absence;
+import beachresort.models.Booking;
+import beachresort.models.BookingEvent;
+import beachresort.models.CancellationStats;
+import beachresort.models.CheckInOut;
+import beachresort.models.OccupancyStats;
+import beachresort.models.Payment;
+import beachresort.models.PaymentMethodTotal;
+import beachresort.models.RateRule;
+import beachresort.models.Room;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The one place model objects are built from query results. Each mapper
+ * resolves its column labels to positions once per result set, then reads
+ * every row by index; rs.getXxx("label") would repeat the label lookup for
+ * each column of each row.
+ */
+public final class RowMappers {
+
+    public static final ResultSetMapper<Booking> BOOKING = rs -> {
+        Map<String, Integer> columns = columns(rs);
+        int bookingId = index(columns, "bookingID");
+        int userId = index(columns, "user_id");
+        int roomNumber = index(columns, "room_number");
+        int customerName = index(columns, "customer_name");
+        int checkIn = index(columns, "check_in_date");
+        int checkOut = index(columns, "check_out_date");
+        int guests = index(columns, "number_of_guests");
+        int totalPrice = index(columns, "total_price");
+        int status = index(columns, "status");
+        return row -> new Booking(
+                row.getInt(bookingId),
+                row.getInt(userId),
+                row.getString(roomNumber),
+                row.getString(customerName),
+                row.getDate(checkIn).toLocalDate(),
+                row.getDate(checkOut).toLocalDate(),
+                row.getInt(guests),
+                row.getDouble(totalPrice),
+                row.getString(status));
+    };
+
+    public static final ResultSetMapper<CheckInOut> CHECK_IN_OUT = rs -> {
+        Map<String, Integer> columns = columns(rs);
+        int id = index(columns, "id");
+        int userId = index(columns, "user_id");
+        int customerName = index(columns, "customer_name");
+        int checkIn = index(columns, "check_in_date");
+        int checkOut = index(columns, "check_out_date");
+        int roomNumber = index(columns, "room_number");
+        int checkInType = index(columns, "check_in_type");
+        int status = index(columns, "status");
+        return row -> new CheckInOut(
+                row.getInt(id),
+                row.getInt(userId),
+                row.getString(customerName),
+                row.getDate(checkIn).toLocalDate(),
+                row.getDate(checkOut).toLocalDate(),
+                row.getString(roomNumber),
+                row.getString(checkInType),
+                row.getString(status));
+    };
+
+    public static final ResultSetMapper<Payment> PAYMENT = rs -> {
+        Map<String, Integer> columns = columns(rs);
+        int paymentId = index(columns, "payment_id");
+        int userId = index(columns, "user_id");
+        int paymentType = index(columns, "payment_type");
+        int amount = index(columns, "amount");
+        int paymentMethod = index(columns, "payment_method");
+        int status = index(columns, "status");
+        int description = index(columns, "description");
+        int paymentDate = index(columns, "payment_date");
+        return row -> {
+            Payment payment = new Payment(
+                    row.getString(userId),
+                    row.getString(paymentType),
+                    row.getBigDecimal(amount),
+                    row.getString(paymentMethod),
+                    row.getString(status),
+                    row.getString(description),
+                    row.getTimestamp(paymentDate));
+            payment.setPaymentId(row.getInt(paymentId));
+            return payment;
+        };
+    };
+
+    public static final ResultSetMapper<Room> ROOM = rs -> {
+        Map<String, Integer> columns = columns(rs);
+        int roomNumber = index(columns, "room_number");
+        int roomType = index(columns, "room_type");
+        int capacity = index(columns, "capacity");
+        int price = index(columns, "price_per_night");
+        int status = index(columns, "status");
+        int createdAt = index(columns, "created_at");
+        int updatedAt = index(columns, "updated_at");
+        return row -> new Room(
+                row.getString(roomNumber),
+                row.getString(roomType),
+                row.getInt(capacity),
+                row.getDouble(price),
+                row.getString(status),
+                row.getTimestamp(createdAt),
+                row.getTimestamp(updatedAt));
+    };
+
+    public static final ResultSetMapper<Absence> ABSENCE = rs -> {
+        Map<String, Integer> columns = columns(rs);
+        int absenceId = index(columns, "absence_id");
+        int userId = index(columns, "user_id");
+        int leaveType = index(columns, "leave_type");
+        int startDate = index(columns, "start_date");
+        int endDate = index(columns, "end_date");
+        int status = index(columns, "status");
+        int reason = index(columns, "reason");
+        int createdAt = index(columns, "created_at");
+        int updatedAt = index(columns, "updated_at");
+        return row -> new Absence(
+                row.getInt(absenceId),
+                row.getInt(userId),
+                row.getString(leaveType),
+                row.getDate(startDate),
+                row.getDate(endDate),
+                row.getString(status),
+                row.getString(reason),
+                row.getTimestamp(createdAt),
+                row.getTimestamp(updatedAt));
+    };
+
+    public static final ResultSetMapper<RateRule> RATE_RULE = rs -> {
+        Map<String, Integer> columns = columns(rs);
+        int ruleId = index(columns, "rule_id");
+        int name = index(columns, "name");
+        int roomType = index(columns, "room_type");
+        int startDate = index(columns, "start_date");
+        int endDate = index(columns, "end_date");
+        int daysOfWeek = index(columns, "days_of_week");
+        int adjustment = index(columns, "adjustment_percent");
+        return row -> new RateRule(
+                row.getInt(ruleId),
+                row.getString(name),
+                row.getString(roomType),
+                row.getDate(startDate).toLocalDate(),
+                row.getDate(endDate).toLocalDate(),
+                row.getInt(daysOfWeek),
+                row.getDouble(adjustment));
+    };
+
+    // Columns the event leaves alone come back null
+    public static final ResultSetMapper<BookingEvent> BOOKING_EVENT = rs -> {
+        Map<String, Integer> columns = columns(rs);
+        int eventId = index(columns, "event_id");
+        int bookingId = index(columns, "booking_id");
+        int type = index(columns, "event_type");
+        int userId = index(columns, "user_id");
+        int roomNumber = index(columns, "room_number");
+        int customerName = index(columns, "customer_name");
+        int checkIn = index(columns, "check_in_date");
+        int checkOut = index(columns, "check_out_date");
+        int guests = index(columns, "number_of_guests");
+        int totalPrice = index(columns, "total_price");
+        int status = index(columns, "status");
+        int stayId = index(columns, "stay_id");
+        int performedBy = index(columns, "performed_by");
+        int recordedAt = index(columns, "recorded_at");
+        return row -> {
+            Timestamp recorded = row.getTimestamp(recordedAt);
+            BookingEvent event = new BookingEvent(
+                    row.getLong(eventId),
+                    row.getInt(bookingId),
+                    BookingEvent.Type.valueOf(row.getString(type)),
+                    row.getString(performedBy),
+                    recorded == null ? null : recorded.toLocalDateTime());
+            event.setUserId(row.getObject(userId, Integer.class));
+            event.setRoomNumber(row.getString(roomNumber));
+            event.setCustomerName(row.getString(customerName));
+            java.sql.Date checkInDate = row.getDate(checkIn);
+            event.setCheckInDate(checkInDate == null ? null : checkInDate.toLocalDate());
+            java.sql.Date checkOutDate = row.getDate(checkOut);
+            event.setCheckOutDate(checkOutDate == null ? null : checkOutDate.toLocalDate());
+            event.setNumberOfGuests(row.getObject(guests, Integer.class));
+            java.math.BigDecimal price = row.getBigDecimal(totalPrice);
+            event.setTotalPrice(price == null ? null : price.doubleValue());
+            event.setStatus(row.getString(status));
+            event.setStayId(row.getObject(stayId, Integer.class));
+            return event;
+        };
+    };
+
+    // Report rows; see ReportRepository, whose queries fix the column order
+    public static final ResultSetMapper<OccupancyStats> OCCUPANCY_STATS = ResultSetMapper.of(
+            rs -> new OccupancyStats(rs.getDate(1).toLocalDate(), rs.getLong(2), rs.getLong(3), rs.getDouble(4),
+                    rs.getLong(5)));
+
+    public static final ResultSetMapper<PaymentMethodTotal> PAYMENT_METHOD_TOTAL = ResultSetMapper.of(
+            rs -> new PaymentMethodTotal(rs.getDate(1).toLocalDate(), rs.getString(2), rs.getLong(3),
+                    rs.getDouble(4)));
+
+    public static final ResultSetMapper<CancellationStats> CANCELLATION_STATS = ResultSetMapper.of(
+            rs -> new CancellationStats(rs.getDate(1).toLocalDate(), rs.getLong(2), rs.getLong(3),
+                    rs.getDouble(4)));
+
+    // Single-column results such as COUNT(*) or an id list
+    public static final ResultSetMapper<Integer> FIRST_INT = ResultSetMapper.of(rs -> rs.getInt(1));
+
+    private RowMappers() {
+    }
+
+    // Maps every remaining row of the result set
+    public static <T> List<T> list(ResultSet rs, ResultSetMapper<T> mapper) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        RowMapper<T> rowMapper = mapper.bind(rs);
+        while (rs.next()) {
+            rows.add(rowMapper.map(rs));
+        }
+        return rows;
+    }
+
+    // The next row mapped, or null if there is none
+    public static <T> T first(ResultSet rs, ResultSetMapper<T> mapper) throws SQLException {
+        return rs.next() ? mapper.bind(rs).map(rs) : null;
+    }
+
+    // Lower-cased column label to 1-based position; the first occurrence wins,
+    // as with ResultSet.findColumn
+    private static Map<String, Integer> columns(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int count = metaData.getColumnCount();
+        Map<String, Integer> columns = new HashMap<>(count * 2);
+        for (int i = 1; i <= count; i++) {
+            columns.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    private static int index(Map<String, Integer> columns, String label) throws SQLException {
+        Integer index = columns.get(label.toLowerCase(Locale.ROOT));
+        if (index == null) {
+            throw new SQLException("Column '" + label + "' not found in result set", "S0022");
+        }
+        return index;
+    }
+}
@@ -11,41 +11,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class StaffRepository {
-    private Connection connection;
     private UserRepository userRepository; // Reference to UserRepository
 
     public StaffRepository() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
-            this.userRepository = new UserRepository(); // Initialize UserRepository
-            createStaffTableIfNotExists();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void createStaffTableIfNotExists() {
-        String createTableQuery = "CREATE TABLE IF NOT EXISTS staff (" +
-                "   staff_id INT AUTO_INCREMENT PRIMARY KEY," +
-                "   user_id VARCHAR(50)," +
-                "   position ENUM('Manager', 'Receptionist', 'Housekeeping', 'Maintenance','UNASSIGNED') NOT NULL," +
-                "   status ENUM('Active', 'Inactive','Terminated') NOT NULL," +
-                "   task VARCHAR(250)," +
-                "   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")";
-        try (PreparedStatement pstmt = connection.prepareStatement(createTableQuery)) {
-            pstmt.execute();
-            System.out.println("Staff table created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating staff table: " + e.getMessage());
-        }
+        this.userRepository = new UserRepository(); // Initialize UserRepository
     }
 
     public List<Integer> getAllStaffIds() {
         List<Integer> staffIds = new ArrayList<>();
         String query = "SELECT staff_id FROM staff where position = 'UNASSIGNED'";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query);
                 ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
@@ -79,7 +56,8 @@ public class StaffRepository {
                     "(user_id, position, status, tas;) " +
                     "VALUES (?, ?, ?, ?)";
 
-            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            try (Connection connection = DatabaseConnection.getConnection();
+                    PreparedStatement pstmt = connection.prepareStatement(query)) {
                 pstmt.setString(1, staff.getUsername());
                 pstmt.setString(2, staff.getPosition());
                 pstmt.setString(3, staff.getStatus());
@@ -98,7 +76,8 @@ public class StaffRepository {
                 "position = ?, status = ?, task = ? " +
                 "WHERE staff_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setString(1, position);
             pstmt.setString(2, status);
             pstmt.setString(3, task);
@@ -120,7 +99,8 @@ public class StaffRepository {
                 "FROM staff s " +
                 "JOIN users u ON s.user_id = u.id " +
                 "WHERE s.staff_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setInt(1, staffId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -148,7 +128,8 @@ public class StaffRepository {
     public boolean deleteStaff(int userId) {
         String query = "UPDATE staff SET status = 'Terminated' WHERE staff_id = ?";
             
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setInt(1, userId);
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
@@ -168,7 +149,8 @@ public class StaffRepository {
                 "JOIN users u ON s.user_id = u.id " +
                 "WHERE s.position != 'UNASSIGNED'";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query);
                 ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
                 staffList.add(new Staff(
@@ -195,7 +177,8 @@ public class StaffRepository {
                 "FROM staff s " +
                 "JOIN users u ON s.user_id = u.id " +
                 "WHERE s.user_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setInt(1, userId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -223,7 +206,8 @@ public class StaffRepository {
 
     private boolean staffExists(String userId) {
         String query = "SELECT COUNT(*) FROM staff WHERE user_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setString(1, userId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
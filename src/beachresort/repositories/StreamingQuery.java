@@ -0,0 +1,175 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+
+import com.mysql.cj.conf.PropertyKey;
+import com.mysql.cj.conf.RuntimeProperty;
+import com.mysql.cj.jdbc.JdbcConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Row-at-a-time reads over large tables. The statement is prepared on the
+ * server and runs with a positive fetch size on a connection with cursor
+ * fetch turned on, which makes Connector/J pull rows from a server-side
+ * cursor in blocks of fetchSize, so memory stays flat no matter how many rows
+ * the query returns.
+ *
+ * Cursor fetch is a connection property, switched on here rather than in the
+ * URL, where it would also make the driver prepare every other statement on
+ * the server. It only changes statements prepared on the server after it is
+ * set and run with a positive fetch size, so the client-side statements the
+ * rest of the code prepares are untouched.
+ */
+public final class StreamingQuery {
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private StreamingQuery() {
+    }
+
+    /**
+     * Opens a lazily populated stream over the query. The stream holds a pooled
+     * connection until it is closed, so always use it in try-with-resources.
+     * Errors while reading rows surface as {@link UncheckedSQLException}.
+     */
+    public static <T> Stream<T> stream(String sql, int fetchSize, ResultSetMapper<T> mapper, Object... params)
+            throws SQLException {
+        return streamFrom(adHoc(sql, fetchSize), fetchSize, mapper, params);
+    }
+
+    // As above, on the connection's cached statement for the catalog query
+    public static <T> Stream<T> stream(NamedQuery query, int fetchSize, ResultSetMapper<T> mapper, Object... params)
+            throws SQLException {
+        return streamFrom(connection -> QueryCatalog.prepare(connection, query), fetchSize, mapper, params);
+    }
+
+    private static <T> Stream<T> streamFrom(StatementSource source, int fetchSize, ResultSetMapper<T> mapper,
+            Object... params) throws SQLException {
+        Connection connection = DatabaseConnection.getConnection();
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        RowMapper<T> rowMapper;
+        try {
+            pstmt = prepare(connection, source, fetchSize, params);
+            rs = pstmt.executeQuery();
+            rowMapper = mapper.bind(rs);
+        } catch (SQLException e) {
+            closeQuietly(rs, pstmt, connection);
+            throw e;
+        }
+
+        ResultSet results = rs;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!results.next()) {
+                        return false;
+                    }
+                    action.accept(rowMapper.map(results));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+        PreparedStatement statement = pstmt;
+        return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(results, statement, connection));
+    }
+
+    // Feeds every row to the action and returns the number of rows read. A
+    // fetchSize of 0 reads the result in one round trip, which suits short pages.
+    public static <T> long forEach(String sql, int fetchSize, ResultSetMapper<T> mapper, Consumer<? super T> action,
+            Object... params) throws SQLException {
+        return forEachFrom(adHoc(sql, fetchSize), fetchSize, mapper, action, params);
+    }
+
+    public static <T> long forEach(NamedQuery query, int fetchSize, ResultSetMapper<T> mapper,
+            Consumer<? super T> action, Object... params) throws SQLException {
+        return forEachFrom(connection -> QueryCatalog.prepare(connection, query), fetchSize, mapper, action, params);
+    }
+
+    private static <T> long forEachFrom(StatementSource source, int fetchSize, ResultSetMapper<T> mapper,
+            Consumer<? super T> action, Object... params) throws SQLException {
+        long count = 0;
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = prepare(connection, source, fetchSize, params);
+                ResultSet rs = pstmt.executeQuery()) {
+            RowMapper<T> rowMapper = mapper.bind(rs);
+            while (rs.next()) {
+                action.accept(rowMapper.map(rs));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private interface StatementSource {
+        PreparedStatement open(Connection connection) throws SQLException;
+    }
+
+    // Statements for dynamic SQL (e.g. keyset pages) are prepared per call: on the
+    // server only when they stream, on the client (no extra round trip) otherwise
+    private static StatementSource adHoc(String sql, int fetchSize) {
+        return connection -> {
+            if (fetchSize > 0 && connection.isWrapperFor(JdbcConnection.class)) {
+                JdbcConnection mysql = connection.unwrap(JdbcConnection.class);
+                enableCursorFetch(mysql);
+                return mysql.serverPrepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            }
+            return connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        };
+    }
+
+    // Must run before the statement is prepared; Connector/J reads it when preparing
+    static void enableCursorFetch(JdbcConnection connection) {
+        RuntimeProperty<Boolean> cursorFetch =
+                connection.getPropertySet().getBooleanProperty(PropertyKey.useCursorFetch);
+        if (!cursorFetch.getValue()) {
+            cursorFetch.setValue(true);
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, StatementSource source, int fetchSize,
+            Object... params) throws SQLException {
+        PreparedStatement pstmt = source.open(connection);
+        try {
+            pstmt.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+        } catch (SQLException e) {
+            pstmt.close();
+            throw e;
+        }
+        return pstmt;
+    }
+
+    private static void closeQuietly(ResultSet rs, PreparedStatement pstmt, Connection connection) {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (pstmt != null) {
+                pstmt.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error closing streamed query: " + e.getMessage());
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Error returning streamed connection: " + e.getMessage());
+            }
+        }
+    }
+}
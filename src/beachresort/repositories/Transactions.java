@@ -0,0 +1,95 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs several statements on one pooled connection as a single transaction:
+ * committed if the work returns, rolled back if it throws.
+ */
+final class Transactions {
+
+    interface Work<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private Transactions() {
+    }
+
+    static <T> T run(Work<T> work) throws SQLException {
+        return run(-1, work);
+    }
+
+    // isolation is one of the Connection.TRANSACTION_* levels, or -1 for the connection's default
+    static <T> T run(int isolation, Work<T> work) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (isolation != -1) {
+                    // Applies to this transaction only, so there is no session setting to put back afterwards
+                    try (Statement stmt = connection.createStatement()) {
+                        stmt.execute("SET TRANSACTION ISOLATION LEVEL " + isolationLevel(isolation));
+                    }
+                }
+                T result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #run(int, Work)}, but runs the whole transaction again, up
+     * to attempts times in all, if MySQL picks it as a deadlock victim or a
+     * lock wait times out.
+     */
+    static <T> T runRetrying(int isolation, int attempts, Work<T> work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return run(isolation, work);
+            } catch (SQLException e) {
+                if (!isRetryable(e) || attempt >= attempts) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Deadlock victim (1213) or lock wait timeout (1205): safe to run the whole transaction again
+    private static boolean isRetryable(SQLException e) {
+        return e.getErrorCode() == 1213 || e.getErrorCode() == 1205 || "40001".equals(e.getSQLState());
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50) * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String isolationLevel(int isolation) {
+        switch (isolation) {
+            case Connection.TRANSACTION_READ_UNCOMMITTED:
+                return "READ UNCOMMITTED";
+            case Connection.TRANSACTION_READ_COMMITTED:
+                return "READ COMMITTED";
+            case Connection.TRANSACTION_REPEATABLE_READ:
+                return "REPEATABLE READ";
+            case Connection.TRANSACTION_SERIALIZABLE:
+                return "SERIALIZABLE";
+            default:
+                throw new IllegalArgumentException("Unknown isolation level " + isolation);
+        }
+    }
+}
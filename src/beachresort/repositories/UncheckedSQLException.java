@@ -0,0 +1,16 @@
+package beachresort.repositories;
+
+import java.sql.SQLException;
+
+// Thrown from inside a row stream, where SQLException cannot be declared
+public class UncheckedSQLException extends RuntimeException {
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,216 @@
+package beachresort.repositories;
+
+import beachresort.database.DatabaseConnection;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+/**
+ * Bounded cache of user id to role, so the repositories can validate the user
+ * on a write from memory instead of running a SELECT against users first.
+ *
+ * Entries live for a fixed TTL and the least recently used ones are evicted
+ * once the cache is full. Users that do not exist are cached too, but only for
+ * a few seconds: long enough that a typo in a user ID field does not query the
+ * database on every keystroke-triggered check, short enough that a customer
+ * registered on another machine is not turned away for long. PersonRepository invalidates an id whenever it writes that user; the
+ * TTL bounds how stale another front desk machine's view can get. The
+ * database triggers from migration V4 enforce the same rules, so a stale entry
+ * can at worst let a write through to be rejected there.
+ */
+public class UserRoleCache implements UserRoleCacheMXBean {
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_TTL_MILLIS = 5 * 60_000;
+    private static final long NO_USER_TTL_MILLIS = 5_000;
+
+    // Cached in place of a role for ids that have no user row
+    private static final String NO_USER = "";
+
+    private static final UserRoleCache SHARED = createShared();
+
+    // Looks up the role of one user; null when the user does not exist
+    public interface Loader {
+        String loadRole(int userId) throws SQLException;
+    }
+
+    private static final class Entry {
+        final String role;
+        final long loadedAtNanos;
+
+        Entry(String role, long loadedAtNanos) {
+            this.role = role;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long noUserTtlNanos;
+    private final Loader loader;
+    private final Map<Integer, Entry> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    // Bumped by every invalidation so a lookup that raced one does not store its result
+    private long epoch;
+
+    public UserRoleCache(int maxEntries, long ttlMillis, Loader loader) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.noUserTtlNanos = Math.min(ttlNanos, TimeUnit.MILLISECONDS.toNanos(NO_USER_TTL_MILLIS));
+        this.loader = loader;
+        this.entries = new LinkedHashMap<Integer, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > UserRoleCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // The cache every repository shares
+    public static UserRoleCache shared() {
+        return SHARED;
+    }
+
+    private static UserRoleCache createShared() {
+        UserRoleCache cache = new UserRoleCache(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, UserRoleCache::queryRole);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(cache,
+                    new ObjectName("beachresort.repositories:type=UserRoleCache"));
+        } catch (Exception e) {
+            System.err.println("Could not register user role cache MBean: " + e.getMessage());
+        }
+        return cache;
+    }
+
+    private static String queryRole(int userId) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = QueryCatalog.prepare(connection, NamedQuery.USER_ROLE)) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString("role") : null;
+            }
+        }
+    }
+
+    /**
+     * The user's role in upper case (as stored by PersonRepository), or null
+     * if there is no such user.
+     */
+    public String getRole(int userId) throws SQLException {
+        long startEpoch;
+        synchronized (this) {
+            Entry entry = entries.get(userId);
+            if (entry != null) {
+                long ttl = entry.role == NO_USER ? noUserTtlNanos : ttlNanos;
+                if (System.nanoTime() - entry.loadedAtNanos < ttl) {
+                    hits++;
+                    return entry.role == NO_USER ? null : entry.role;
+                }
+                entries.remove(userId);
+                expirations++;
+            }
+            misses++;
+            startEpoch = epoch;
+        }
+
+        // Query outside the lock so one slow lookup does not stall the others
+        long loadedAt = System.nanoTime();
+        String role = loader.loadRole(userId);
+        String normalized = role == null ? NO_USER : role.trim().toUpperCase();
+        synchronized (this) {
+            if (epoch == startEpoch) {
+                entries.put(userId, new Entry(normalized, loadedAt));
+            }
+        }
+        return role == null ? null : normalized;
+    }
+
+    public boolean exists(int userId) throws SQLException {
+        return getRole(userId) != null;
+    }
+
+    public boolean hasRole(int userId, String role) throws SQLException {
+        return role.equalsIgnoreCase(getRole(userId));
+    }
+
+    public synchronized void invalidate(int userId) {
+        epoch++;
+        if (entries.remove(userId) != null) {
+            invalidations++;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        epoch++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    @Override
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public long getTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    @Override
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("UserRoleCache[size=%d/%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, expirations=%d, invalidations=%d]",
+                entries.size(), maxEntries, hits, misses, getHitRatio(), evictions, expirations, invalidations);
+    }
+}
@@ -0,0 +1,26 @@
+package beachresort.repositories;
+
+/**
+ * User role cache counters published over JMX (JConsole / VisualVM under
+ * beachresort.repositories:type=UserRoleCache).
+ */
+public interface UserRoleCacheMXBean {
+    int getMaxEntries();
+
+    long getTtlMillis();
+
+    int getSize();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    long getExpirations();
+
+    long getInvalidations();
+
+    // Hits divided by lookups, 0 before the first lookup
+    double getHitRatio();
+}
@@ -0,0 +1,528 @@
+package beachresort.services;
+
+import beachresort.models.BookingEvent;
+import beachresort.models.Payment;
+import beachresort.repositories.AnalyticsRepository;
+import beachresort.repositories.BookingEventRepository;
+import beachresort.repositories.ReportRepository.Granularity;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.management.ObjectName;
+
+/**
+ * Every booking and payment in memory, column by column, for slicing the
+ * owners do by room type, period, status and guest count, which in SQL
+ * would be a full scan of unindexed columns per click.
+ *
+ * The first refresh loads both tables (see BookingColumns, PaymentColumns).
+ * Later ones read only what changed since a watermark and apply it:
+ * bookings from the booking_events log after the last settled event id,
+ * payments by their updated_at stamp and the payment_deletions tombstones.
+ * The booking watermark stops before the first event id that has not
+ * appeared yet (BookingEventRepository.getSettledEventId), so every refresh
+ * re-reads from there, in id order, until the missing event commits or is
+ * given up on. The payment watermark trails by the ten minutes a transaction
+ * may take to commit (AnalyticsRepository.getWatermark). Applying a change
+ * twice leaves the same row, so re-reading costs nothing but the read.
+ *
+ * groupBookings and groupPayments filter and group every row in one pass
+ * (ColumnTable.aggregate) under a read lock; a refresh builds or reads
+ * outside the lock and takes the write lock only to swap or apply. Nothing
+ * refreshes on a timer: callers refresh before they query, as
+ * ReportingService does.
+ */
+public class AnalyticsCache implements AnalyticsCacheMXBean {
+    private static final AnalyticsCache SHARED = createShared();
+
+    public enum BookingDimension {
+        ROOM("Room"),
+        ROOM_TYPE("Room type"),
+        STATUS("Status"),
+        GUESTS("Guests"),
+        CHECK_IN_DAY("Check-in day"),
+        CHECK_IN_WEEK("Check-in week"),
+        CHECK_IN_MONTH("Check-in month");
+
+        private final String title;
+
+        BookingDimension(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    public enum PaymentDimension {
+        TYPE("Payment type"),
+        METHOD("Payment method"),
+        STATUS("Status"),
+        DAY("Day"),
+        WEEK("Week"),
+        MONTH("Month");
+
+        private final String title;
+
+        PaymentDimension(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    // Which bookings to count; criteria left unset match every booking
+    public static final class BookingFilter {
+        private List<String> statuses;
+        private List<String> roomTypes;
+        private LocalDate checkInFrom;
+        private LocalDate checkInTo;
+        private Integer minGuests;
+        private Integer maxGuests;
+
+        public void setStatuses(String... statuses) {
+            this.statuses = Arrays.asList(statuses);
+        }
+
+        public void setRoomTypes(String... roomTypes) {
+            this.roomTypes = Arrays.asList(roomTypes);
+        }
+
+        // Check-ins in [from, to); null leaves that end open
+        public void setCheckIn(LocalDate from, LocalDate to) {
+            this.checkInFrom = from;
+            this.checkInTo = to;
+        }
+
+        // Inclusive; parties over 127 count as 127
+        public void setGuests(int min, int max) {
+            this.minGuests = min;
+            this.maxGuests = max;
+        }
+    }
+
+    // Which payments to count; criteria left unset match every payment
+    public static final class PaymentFilter {
+        private List<String> statuses;
+        private List<String> types;
+        private List<String> methods;
+        private LocalDate paidFrom;
+        private LocalDate paidTo;
+
+        public void setStatuses(String... statuses) {
+            this.statuses = Arrays.asList(statuses);
+        }
+
+        public void setTypes(String... types) {
+            this.types = Arrays.asList(types);
+        }
+
+        public void setMethods(String... methods) {
+            this.methods = Arrays.asList(methods);
+        }
+
+        // Payment dates in [from, to); null leaves that end open. Payments without a date never match.
+        public void setPaymentDate(LocalDate from, LocalDate to) {
+            this.paidFrom = from;
+            this.paidTo = to;
+        }
+    }
+
+    /**
+     * One group of a group-by. The keys follow the dimensions asked for:
+     * Strings for rooms, types, methods and statuses, an Integer for guests,
+     * and the period's first day as a LocalDate (null for no date).
+     */
+    public static final class Group {
+        private final List<Object> keys;
+        private final long rows;
+        private final long amountCents;
+        private final long nights;
+
+        Group(List<Object> keys, long rows, long amountCents, long nights) {
+            this.keys = keys;
+            this.rows = rows;
+            this.amountCents = amountCents;
+            this.nights = nights;
+        }
+
+        public List<Object> getKeys() {
+            return Collections.unmodifiableList(keys);
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        // Total price of the bookings, or amount of the payments
+        public long getAmountCents() {
+            return amountCents;
+        }
+
+        public BigDecimal getAmount() {
+            return BigDecimal.valueOf(amountCents, 2);
+        }
+
+        // Nights booked; 0 for payments
+        public long getNights() {
+            return nights;
+        }
+    }
+
+    private final AnalyticsRepository repository;
+    private final BookingEventRepository eventRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Written under the write lock by refreshes, which also hold this
+    private BookingColumns bookings;
+    private PaymentColumns payments;
+
+    // Refresh state, guarded by this
+    private long bookingWatermark;
+    private Timestamp paymentWatermark;
+
+    // Written by refreshes only; volatile so JMX can read them while one runs
+    private volatile long lastRefreshMillis = -1;
+    private volatile long refreshes;
+    private volatile long failures;
+
+    public AnalyticsCache(AnalyticsRepository repository, BookingEventRepository eventRepository) {
+        this.repository = repository;
+        this.eventRepository = eventRepository;
+    }
+
+    // The cache the reports share
+    public static AnalyticsCache shared() {
+        return SHARED;
+    }
+
+    private static AnalyticsCache createShared() {
+        AnalyticsCache cache = new AnalyticsCache(new AnalyticsRepository(), new BookingEventRepository());
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(cache,
+                    new ObjectName("beachresort.services:type=AnalyticsCache"));
+        } catch (Exception e) {
+            System.err.println("Could not register analytics cache MBean: " + e.getMessage());
+        }
+        return cache;
+    }
+
+    // Loads everything the first time, then applies what changed since the last refresh
+    public synchronized void refresh() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (bookings == null) {
+                load();
+            } else {
+                applyChanges();
+            }
+            lastRefreshMillis = (System.nanoTime() - start) / 1_000_000;
+            refreshes++;
+        } catch (SQLException e) {
+            failures++;
+            throw e;
+        }
+    }
+
+    // Throws the cache away and loads it again; the old one serves queries until the new one is in
+    public synchronized void reload() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            load();
+            lastRefreshMillis = (System.nanoTime() - start) / 1_000_000;
+            refreshes++;
+        } catch (SQLException e) {
+            failures++;
+            throw e;
+        }
+    }
+
+    private void load() throws SQLException {
+        // Watermarks first: whatever commits during the load is read again by the next refresh
+        long settled = eventRepository.getSettledEventId();
+        Timestamp watermark = repository.getWatermark();
+        BookingColumns loadedBookings = new BookingColumns();
+        loadedBookings.setRoomTypes(repository.getRoomTypes());
+        repository.forEachBooking(loadedBookings::put);
+        loadedBookings.trim();
+        PaymentColumns loadedPayments = new PaymentColumns();
+        repository.forEachPayment(loadedPayments::put);
+        loadedPayments.trim();
+
+        lock.writeLock().lock();
+        try {
+            bookings = loadedBookings;
+            payments = loadedPayments;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        bookingWatermark = settled;
+        paymentWatermark = watermark;
+    }
+
+    private void applyChanges() throws SQLException {
+        long settled = eventRepository.getSettledEventId();
+        Timestamp watermark = repository.getWatermark();
+        Map<String, String> roomTypes = repository.getRoomTypes();
+        List<BookingEvent> events = new ArrayList<>();
+        eventRepository.forEachEvent(bookingWatermark, Long.MAX_VALUE, events::add);
+        List<Payment> changed = new ArrayList<>();
+        repository.forEachPaymentChange(paymentWatermark, changed::add);
+        List<Integer> deleted = new ArrayList<>();
+        repository.forEachPaymentDeletion(paymentWatermark, deleted::add);
+
+        lock.writeLock().lock();
+        try {
+            bookings.setRoomTypes(roomTypes);
+            for (BookingEvent event : events) {
+                bookings.apply(event);
+            }
+            for (Payment payment : changed) {
+                payments.put(payment);
+            }
+            for (int paymentId : deleted) {
+                payments.delete(paymentId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        bookingWatermark = Math.max(bookingWatermark, settled);
+        if (watermark.after(paymentWatermark)) {
+            paymentWatermark = watermark;
+        }
+    }
+
+    /**
+     * Counts, nights and total price of the bookings matching the filter,
+     * per combination of the given dimensions; no dimensions gives one
+     * overall group. Only groups with bookings are returned, ordered by key.
+     * Throws IllegalStateException before the first refresh.
+     */
+    public List<Group> groupBookings(BookingFilter filter, BookingDimension... by) {
+        lock.readLock().lock();
+        try {
+            BookingColumns table = loaded(bookings);
+            List<ColumnTable.Predicate> where = new ArrayList<>();
+            where.add(ColumnTable.codeIn(table.status, liveCodes(table.statuses, filter.statuses)));
+            if (filter.roomTypes != null) {
+                where.add(ColumnTable.codeIn(table.roomType, table.roomTypes.accept(filter.roomTypes)));
+            }
+            int firstDay = table.firstDay;
+            int lastDay = table.lastDay;
+            if (filter.checkInFrom != null || filter.checkInTo != null) {
+                int low = filter.checkInFrom == null ? -ColumnTable.MAX_DAY : epochDay(filter.checkInFrom);
+                int high = filter.checkInTo == null ? ColumnTable.MAX_DAY : epochDay(filter.checkInTo) - 1;
+                where.add(ColumnTable.between(table.checkIn, low, high));
+                firstDay = Math.max(firstDay, low);
+                lastDay = Math.min(lastDay, high);
+            }
+            if (filter.minGuests != null) {
+                where.add(ColumnTable.between(table.guests, filter.minGuests, filter.maxGuests));
+            }
+
+            ColumnTable.Key[] keys = new ColumnTable.Key[by.length];
+            for (int i = 0; i < by.length; i++) {
+                switch (by[i]) {
+                    case ROOM:
+                        keys[i] = ColumnTable.codes(table.room, table.rooms);
+                        break;
+                    case ROOM_TYPE:
+                        keys[i] = ColumnTable.codes(table.roomType, table.roomTypes);
+                        break;
+                    case STATUS:
+                        keys[i] = ColumnTable.codes(table.status, table.statuses);
+                        break;
+                    case GUESTS:
+                        keys[i] = ColumnTable.values(table.guests);
+                        break;
+                    case CHECK_IN_DAY:
+                        keys[i] = ColumnTable.periods(table.checkIn, firstDay, lastDay, Granularity.DAY);
+                        break;
+                    case CHECK_IN_WEEK:
+                        keys[i] = ColumnTable.periods(table.checkIn, firstDay, lastDay, Granularity.WEEK);
+                        break;
+                    case CHECK_IN_MONTH:
+                        keys[i] = ColumnTable.periods(table.checkIn, firstDay, lastDay, Granularity.MONTH);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown dimension " + by[i]);
+                }
+            }
+            return groups(ColumnTable.aggregate(table.size, where, keys, table.cents, table.nights), keys);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // As groupBookings, for payments; amounts are summed, nights stay 0
+    public List<Group> groupPayments(PaymentFilter filter, PaymentDimension... by) {
+        lock.readLock().lock();
+        try {
+            PaymentColumns table = loaded(payments);
+            List<ColumnTable.Predicate> where = new ArrayList<>();
+            where.add(ColumnTable.codeIn(table.status, liveCodes(table.statuses, filter.statuses)));
+            if (filter.types != null) {
+                where.add(ColumnTable.codeIn(table.type, table.types.accept(filter.types)));
+            }
+            if (filter.methods != null) {
+                where.add(ColumnTable.codeIn(table.method, table.methods.accept(filter.methods)));
+            }
+            int firstDay = table.firstDay;
+            int lastDay = table.lastDay;
+            if (filter.paidFrom != null || filter.paidTo != null) {
+                int low = filter.paidFrom == null ? -ColumnTable.MAX_DAY : epochDay(filter.paidFrom);
+                int high = filter.paidTo == null ? ColumnTable.MAX_DAY : epochDay(filter.paidTo) - 1;
+                where.add(ColumnTable.between(table.day, low, high));
+                firstDay = Math.max(firstDay, low);
+                lastDay = Math.min(lastDay, high);
+            }
+
+            ColumnTable.Key[] keys = new ColumnTable.Key[by.length];
+            for (int i = 0; i < by.length; i++) {
+                switch (by[i]) {
+                    case TYPE:
+                        keys[i] = ColumnTable.codes(table.type, table.types);
+                        break;
+                    case METHOD:
+                        keys[i] = ColumnTable.codes(table.method, table.methods);
+                        break;
+                    case STATUS:
+                        keys[i] = ColumnTable.codes(table.status, table.statuses);
+                        break;
+                    case DAY:
+                        keys[i] = ColumnTable.periods(table.day, firstDay, lastDay, Granularity.DAY);
+                        break;
+                    case WEEK:
+                        keys[i] = ColumnTable.periods(table.day, firstDay, lastDay, Granularity.WEEK);
+                        break;
+                    case MONTH:
+                        keys[i] = ColumnTable.periods(table.day, firstDay, lastDay, Granularity.MONTH);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown dimension " + by[i]);
+                }
+            }
+            return groups(ColumnTable.aggregate(table.size, where, keys, table.cents, null), keys);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static <T extends ColumnTable> T loaded(T table) {
+        if (table == null) {
+            throw new IllegalStateException("The analytics cache has not been loaded; refresh it first");
+        }
+        return table;
+    }
+
+    // The accepted status codes: the given statuses, or all of them; never the deleted code
+    private static int[] liveCodes(ColumnDictionary statuses, List<String> accepted) {
+        int[] accept;
+        if (accepted == null) {
+            accept = new int[statuses.maxCodes()];
+            Arrays.fill(accept, 1);
+        } else {
+            accept = statuses.accept(accepted);
+        }
+        accept[ColumnTable.DELETED] = 0;
+        return accept;
+    }
+
+    private static int epochDay(LocalDate date) {
+        return (int) Math.max(-ColumnTable.MAX_DAY, Math.min(date.toEpochDay(), ColumnTable.MAX_DAY));
+    }
+
+    // The non-empty groups with their keys decoded, ordered by key
+    private static List<Group> groups(ColumnTable.Totals totals, ColumnTable.Key[] keys) {
+        List<Group> groups = new ArrayList<>();
+        for (int group = 0; group < totals.rows.length; group++) {
+            if (totals.rows[group] == 0) {
+                continue;
+            }
+            Object[] labels = new Object[keys.length];
+            int rest = group;
+            for (int i = keys.length - 1; i >= 0; i--) {
+                labels[i] = keys[i].label(rest % keys[i].cardinality());
+                rest /= keys[i].cardinality();
+            }
+            groups.add(new Group(Arrays.asList(labels), totals.rows[group], totals.cents[group],
+                    totals.nights[group]));
+        }
+        groups.sort(AnalyticsCache::compareKeys);
+        return groups;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareKeys(Group a, Group b) {
+        for (int i = 0; i < a.keys.size(); i++) {
+            Comparable x = (Comparable) a.keys.get(i);
+            Comparable y = (Comparable) b.keys.get(i);
+            int order = x == null ? (y == null ? 0 : -1) : y == null ? 1 : x.compareTo(y);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public long getBookingRows() {
+        lock.readLock().lock();
+        try {
+            return bookings == null ? 0 : bookings.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getPaymentRows() {
+        lock.readLock().lock();
+        try {
+            return payments == null ? 0 : payments.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        lock.readLock().lock();
+        try {
+            return (bookings == null ? 0 : bookings.footprintBytes())
+                    + (payments == null ? 0 : payments.footprintBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    @Override
+    public long getRefreshes() {
+        return refreshes;
+    }
+
+    @Override
+    public long getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,22 @@
+package beachresort.services;
+
+/**
+ * Analytics cache size and freshness published over JMX (JConsole / VisualVM
+ * under beachresort.services:type=AnalyticsCache).
+ */
+public interface AnalyticsCacheMXBean {
+    // Rows held, deleted ones included; 0 before the first load
+    long getBookingRows();
+
+    long getPaymentRows();
+
+    // Heap taken by the columns and dictionaries, spare capacity included
+    long getFootprintBytes();
+
+    // How long the last refresh took, -1 before the first
+    long getLastRefreshMillis();
+
+    long getRefreshes();
+
+    long getFailures();
+}
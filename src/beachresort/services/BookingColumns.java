@@ -0,0 +1,155 @@
+package beachresort.services;
+
+import beachresort.models.Booking;
+import beachresort.models.BookingEvent;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bookings by column: check-in as an epoch day, nights, total price in
+ * cents, and dictionary codes for room, room type and status. Guests are
+ * capped at 127 to fit a byte. The room type is looked up from the rooms
+ * table when a row's room is set, and recoded for every row when the rooms'
+ * types change.
+ *
+ * 23 bytes a booking, before spare capacity.
+ */
+final class BookingColumns extends ColumnTable {
+    final ColumnDictionary rooms = new ColumnDictionary(Short.MAX_VALUE + 1);
+    final ColumnDictionary roomTypes = new ColumnDictionary(1 << 8);
+    final ColumnDictionary statuses = new ColumnDictionary(1 << 8, "(deleted)");
+
+    int[] checkIn = new int[ids.length];
+    short[] nights = new short[ids.length];
+    long[] cents = new long[ids.length];
+    short[] room = new short[ids.length];
+    byte[] roomType = new byte[ids.length];
+    byte[] status = new byte[ids.length];
+    byte[] guests = new byte[ids.length];
+
+    // Range of the check-in days ever stored, NO_DAY aside
+    int firstDay = Integer.MAX_VALUE;
+    int lastDay = Integer.MIN_VALUE;
+
+    private Map<String, String> typeByRoom = new HashMap<>();
+
+    // Adds the booking or overwrites its row
+    void put(Booking booking) {
+        int row = rowFor(booking.getBookingID());
+        setRoom(row, booking.getRoomNumber());
+        setStay(row, booking.getCheckInDate(), booking.getCheckOutDate());
+        guests[row] = guestsByte(booking.getNumberOfGuests());
+        cents[row] = Math.round(booking.getTotalPrice() * 100);
+        status[row] = (byte) statuses.encode(booking.getStatus());
+    }
+
+    /**
+     * Applies one booking_events entry, as BookingEvent.applyTo does to a
+     * Booking: the fields the event carries overwrite the row's, and a
+     * partial event for a booking not held (or deleted) is ignored. Replaying
+     * events that were already applied, in order, leaves the same rows.
+     */
+    void apply(BookingEvent event) {
+        int row = find(event.getBookingId());
+        if (event.getType() == BookingEvent.Type.DELETED) {
+            if (row >= 0) {
+                status[row] = DELETED;
+            }
+            return;
+        }
+        if (row < 0 || status[row] == DELETED) {
+            // Deleted counts as not held: only an event carrying the whole booking brings it back
+            if (event.getRoomNumber() == null) {
+                return;
+            }
+            row = rowFor(event.getBookingId());
+        }
+        if (event.getRoomNumber() != null) {
+            setRoom(row, event.getRoomNumber());
+        }
+        if (event.getCheckInDate() != null || event.getCheckOutDate() != null) {
+            LocalDate currentIn = LocalDate.ofEpochDay(checkIn[row]);
+            LocalDate in = event.getCheckInDate() != null ? event.getCheckInDate() : currentIn;
+            LocalDate out = event.getCheckOutDate() != null ? event.getCheckOutDate()
+                    : currentIn.plusDays(nights[row]);
+            setStay(row, in, out);
+        }
+        if (event.getNumberOfGuests() != null) {
+            guests[row] = guestsByte(event.getNumberOfGuests());
+        }
+        if (event.getTotalPrice() != null) {
+            cents[row] = Math.round(event.getTotalPrice() * 100);
+        }
+        if (event.getStatus() != null) {
+            status[row] = (byte) statuses.encode(event.getStatus());
+        }
+    }
+
+    // Room number -> type from the rooms table; recodes every row if it changed
+    void setRoomTypes(Map<String, String> types) {
+        if (types.equals(typeByRoom)) {
+            return;
+        }
+        typeByRoom = new HashMap<>(types);
+        byte[] typeOfRoom = new byte[rooms.size()];
+        for (int code = 0; code < typeOfRoom.length; code++) {
+            typeOfRoom[code] = (byte) roomTypes.encode(typeByRoom.get(rooms.decode(code)));
+        }
+        for (int row = 0; row < size; row++) {
+            roomType[row] = typeOfRoom[room[row]];
+        }
+    }
+
+    private void setRoom(int row, String roomNumber) {
+        room[row] = (short) rooms.encode(roomNumber);
+        roomType[row] = (byte) roomTypes.encode(typeByRoom.get(roomNumber));
+    }
+
+    private void setStay(int row, LocalDate in, LocalDate out) {
+        if (in == null) {
+            checkIn[row] = NO_DAY;
+            nights[row] = 0;
+            return;
+        }
+        int day = (int) in.toEpochDay();
+        checkIn[row] = day;
+        firstDay = Math.min(firstDay, day);
+        lastDay = Math.max(lastDay, day);
+        long stay = out == null ? 0 : out.toEpochDay() - day;
+        nights[row] = (short) Math.max(0, Math.min(stay, Short.MAX_VALUE));
+    }
+
+    private static byte guestsByte(int guests) {
+        return (byte) Math.max(0, Math.min(guests, Byte.MAX_VALUE));
+    }
+
+    @Override
+    void resizeColumns(int capacity) {
+        checkIn = Arrays.copyOf(checkIn, capacity);
+        nights = Arrays.copyOf(nights, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        room = Arrays.copyOf(room, capacity);
+        roomType = Arrays.copyOf(roomType, capacity);
+        status = Arrays.copyOf(status, capacity);
+        guests = Arrays.copyOf(guests, capacity);
+    }
+
+    @Override
+    void shiftColumns(int row, int length) {
+        System.arraycopy(checkIn, row, checkIn, row + 1, length);
+        System.arraycopy(nights, row, nights, row + 1, length);
+        System.arraycopy(cents, row, cents, row + 1, length);
+        System.arraycopy(room, row, room, row + 1, length);
+        System.arraycopy(roomType, row, roomType, row + 1, length);
+        System.arraycopy(status, row, status, row + 1, length);
+        System.arraycopy(guests, row, guests, row + 1, length);
+    }
+
+    @Override
+    long footprintBytes() {
+        return 23L * ids.length + rooms.footprintBytes() + roomTypes.footprintBytes() + statuses.footprintBytes();
+    }
+}
@@ -0,0 +1,629 @@
+package beachresort.services;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.models.Booking;
+import beachresort.models.Payment;
+import beachresort.models.Room;
+import beachresort.repositories.BookingAvailabilityIndex;
+import beachresort.repositories.BookingEventRepository;
+import beachresort.repositories.PaymentTotalsRepository;
+import beachresort.repositories.RoomNightRepository;
+
+import com.mysql.cj.jdbc.JdbcConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk loading of rooms, bookings and payments, e.g. when migrating another
+ * property into this instance.
+ *
+ * Rows are processed in chunks. Each chunk is validated with a handful of
+ * set-based queries (one IN (...) lookup per referenced table instead of a
+ * SELECT per row), inserted as a single JDBC batch that Connector/J rewrites
+ * into multi-row INSERTs, and committed on its own. If a chunk's batch fails,
+ * it is rolled back and retried row by row so that only the offending rows are
+ * rejected. Rows that other tables derive from (a booking's room_nights, the
+ * payment totals) are written in the same transaction as the chunk, so the import holds no lock
+ * beyond one chunk's rows. Rejected rows go to the {@link RejectSink} with a reason; the load
+ * carries on.
+ */
+public class BulkImportService {
+    public static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+    private final int chunkSize;
+
+    public BulkImportService() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public BulkImportService(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    // One input record, with enough context to report it if it is rejected
+    public static final class ImportRow<T> {
+        private final long lineNumber;
+        private final String raw;
+        private final T value;
+
+        public ImportRow(long lineNumber, String raw, T value) {
+            this.lineNumber = lineNumber;
+            this.raw = raw;
+            this.value = value;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getRaw() {
+            return raw;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+
+    public interface RejectSink {
+        void reject(long lineNumber, String raw, String reason);
+    }
+
+    public static final class ImportReport {
+        private final String entity;
+        private long read;
+        private long inserted;
+        private long rejected;
+        private long chunks;
+        private long chunksRetriedRowByRow;
+        private long elapsedNanos;
+
+        ImportReport(String entity) {
+            this.entity = entity;
+        }
+
+        public String getEntity() {
+            return entity;
+        }
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getChunks() {
+            return chunks;
+        }
+
+        public long getChunksRetriedRowByRow() {
+            return chunksRetriedRowByRow;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : read * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: read %d, inserted %d, rejected %d in %d ms (%.0f rows/s, %d chunks, %d retried row by row)",
+                    entity, read, inserted, rejected, getElapsedMillis(), getRowsPerSecond(), chunks,
+                    chunksRetriedRowByRow);
+        }
+    }
+
+    public ImportReport importRooms(Iterator<ImportRow<Room>> rows, RejectSink rejects) throws SQLException {
+        return run(rows, new RoomLoader(), rejects);
+    }
+
+    public ImportReport importBookings(Iterator<ImportRow<Booking>> rows, RejectSink rejects) throws SQLException {
+        try {
+            ImportReport report = run(rows, new BookingLoader(), rejects);
+            if (report.getInserted() > 0) {
+                // Start the new bookings' histories in the event log in one pass
+                long logged = new BookingEventRepository().recordUntrackedBookings("bulk import");
+                System.out.println("Logged " + logged + " imported bookings as created");
+            }
+            return report;
+        } finally {
+            // The batch inserts bypass BookingRepository, so reload availability from the table
+            BookingAvailabilityIndex.shared().invalidate();
+        }
+    }
+
+    public ImportReport importPayments(Iterator<ImportRow<Payment>> rows, RejectSink rejects) throws SQLException {
+        return run(rows, new PaymentLoader(), rejects);
+    }
+
+    private <T> ImportReport run(Iterator<ImportRow<T>> rows, Loader<T> loader, RejectSink rejects)
+            throws SQLException {
+        ImportReport report = new ImportReport(loader.entity());
+        long start = System.nanoTime();
+
+        List<ImportRow<T>> chunk = new ArrayList<>(chunkSize);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == chunkSize) {
+                loadChunk(chunk, loader, rejects, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            loadChunk(chunk, loader, rejects, report);
+        }
+
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private <T> void loadChunk(List<ImportRow<T>> chunk, Loader<T> loader, RejectSink rejects, ImportReport report)
+            throws SQLException {
+        report.read += chunk.size();
+        report.chunks++;
+
+        // A connection per chunk keeps long imports from pinning one pooled connection
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            List<ImportRow<T>> valid = new ArrayList<>(chunk.size());
+            for (ImportRow<T> row : chunk) {
+                String problem = loader.validateRow(row.getValue());
+                if (problem == null) {
+                    valid.add(row);
+                } else {
+                    reject(row, problem, rejects, report);
+                }
+            }
+
+            Map<ImportRow<T>, String> problems = loader.validateChunk(connection, valid);
+            valid.removeIf(row -> {
+                String problem = problems.get(row);
+                if (problem != null) {
+                    reject(row, problem, rejects, report);
+                    return true;
+                }
+                return false;
+            });
+            if (valid.isEmpty()) {
+                return;
+            }
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = prepareBatchInsert(connection, loader.insertSql())) {
+                try {
+                    for (ImportRow<T> row : valid) {
+                        loader.bind(pstmt, row.getValue());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    loader.written(connection, generatedIds(pstmt));
+                    connection.commit();
+                    report.inserted += valid.size();
+                    for (ImportRow<T> row : valid) {
+                        loader.inserted(row.getValue());
+                    }
+                } catch (SQLException e) {
+                    connection.rollback();
+                    pstmt.clearBatch();
+                    report.chunksRetriedRowByRow++;
+                    insertRowByRow(connection, pstmt, valid, loader, rejects, report);
+                }
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Isolates the rows that made a batch fail; every good row still goes in
+    private <T> void insertRowByRow(Connection connection, PreparedStatement pstmt, List<ImportRow<T>> rows,
+            Loader<T> loader, RejectSink rejects, ImportReport report) throws SQLException {
+        for (ImportRow<T> row : rows) {
+            try {
+                loader.bind(pstmt, row.getValue());
+                pstmt.executeUpdate();
+                loader.written(connection, generatedIds(pstmt));
+                connection.commit();
+                report.inserted++;
+                loader.inserted(row.getValue());
+            } catch (SQLException e) {
+                connection.rollback();
+                reject(row, loader.rejectReason(e), rejects, report);
+            }
+        }
+    }
+
+    private static void reject(ImportRow<?> row, String reason, RejectSink rejects, ImportReport report) {
+        report.rejected++;
+        rejects.reject(row.getLineNumber(), row.getRaw(), reason);
+    }
+
+    // Prepared on the client, so Connector/J can rewrite the batch into
+    // multi-row INSERTs (rewriteBatchedStatements). That is the pool's default
+    // too; asking for it keeps the rewrite if the URL ever changes that.
+    private static PreparedStatement prepareBatchInsert(Connection connection, String sql) throws SQLException {
+        if (connection.isWrapperFor(JdbcConnection.class)) {
+            return connection.unwrap(JdbcConnection.class).clientPrepareStatement(sql,
+                    Statement.RETURN_GENERATED_KEYS);
+        }
+        return connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    // Keys of the rows the last execute inserted, in insert order; empty for tables without one
+    private static List<Integer> generatedIds(PreparedStatement pstmt) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (ResultSet keys = pstmt.getGeneratedKeys()) {
+            while (keys.next()) {
+                ids.add(keys.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    // Values of the given column that exist among the candidates
+    private static Set<String> existing(Connection connection, String selectPrefix, Collection<String> candidates)
+            throws SQLException {
+        Set<String> found = new HashSet<>();
+        if (candidates.isEmpty()) {
+            return found;
+        }
+        StringBuilder query = new StringBuilder(selectPrefix).append(" IN (");
+        for (int i = 0; i < candidates.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(")");
+
+        try (PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
+            int index = 1;
+            for (String candidate : candidates) {
+                pstmt.setString(index++, candidate);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    found.add(rs.getString(1));
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private interface Loader<T> {
+        String entity();
+
+        String insertSql();
+
+        // Checks that need no database access; null when the row is fine
+        String validateRow(T value);
+
+        // Set-based checks against the database for a whole chunk
+        Map<ImportRow<T>, String> validateChunk(Connection connection, List<ImportRow<T>> rows) throws SQLException;
+
+        void bind(PreparedStatement pstmt, T value) throws SQLException;
+
+        // Writes what derives from the rows just inserted, before the chunk commits
+        default void written(Connection connection, List<Integer> ids) throws SQLException {
+        }
+
+        default void inserted(T value) {
+        }
+
+        default String rejectReason(SQLException e) {
+            return "Insert failed: " + e.getMessage();
+        }
+    }
+
+    private static final class RoomLoader implements Loader<Room> {
+        // Room numbers inserted by this run, so later chunks catch duplicates in the file
+        private final Set<String> imported = new HashSet<>();
+
+        @Override
+        public String entity() {
+            return "rooms";
+        }
+
+        @Override
+        public String insertSql() {
+            return "INSERT INTO rooms (room_number, room_type, capacity, price_per_night, status) VALUES (?, ?, ?, ?, ?)";
+        }
+
+        @Override
+        public String validateRow(Room room) {
+            return room.validate() ? null : "Invalid room data";
+        }
+
+        @Override
+        public Map<ImportRow<Room>, String> validateChunk(Connection connection, List<ImportRow<Room>> rows)
+                throws SQLException {
+            Set<String> numbers = new HashSet<>();
+            for (ImportRow<Room> row : rows) {
+                numbers.add(row.getValue().getRoomNumber());
+            }
+            Set<String> taken = existing(connection, "SELECT room_number FROM rooms WHERE room_number", numbers);
+
+            Map<ImportRow<Room>, String> problems = new HashMap<>();
+            Set<String> seenInChunk = new HashSet<>();
+            for (ImportRow<Room> row : rows) {
+                String number = row.getValue().getRoomNumber();
+                if (taken.contains(number) || imported.contains(number)) {
+                    problems.put(row, "Room number already exists");
+                } else if (!seenInChunk.add(number)) {
+                    problems.put(row, "Duplicate room number in import");
+                }
+            }
+            return problems;
+        }
+
+        @Override
+        public void bind(PreparedStatement pstmt, Room room) throws SQLException {
+            pstmt.setString(1, room.getRoomNumber());
+            pstmt.setString(2, room.getRoomType());
+            pstmt.setInt(3, room.getCapacity());
+            pstmt.setDouble(4, room.getPricePerNight());
+            pstmt.setString(5, room.getStatus());
+        }
+
+        @Override
+        public void inserted(Room room) {
+            imported.add(room.getRoomNumber());
+        }
+    }
+
+    private static final class BookingLoader implements Loader<Booking> {
+        @Override
+        public String entity() {
+            return "bookings";
+        }
+
+        @Override
+        public String insertSql() {
+            return "INSERT INTO bookings (user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        }
+
+        @Override
+        public String validateRow(Booking booking) {
+            if (isBlank(booking.getRoomNumber()) || isBlank(booking.getCustomerName()) || isBlank(booking.getStatus())) {
+                return "Missing room number, customer name or status";
+            }
+            if (booking.getCheckInDate() == null || booking.getCheckOutDate() == null
+                    || !booking.getCheckOutDate().isAfter(booking.getCheckInDate())) {
+                return "Check-out date must be after check-in date";
+            }
+            if (booking.getNumberOfGuests() <= 0 || booking.getTotalPrice() < 0) {
+                return "Invalid number of guests or total price";
+            }
+            return null;
+        }
+
+        @Override
+        public Map<ImportRow<Booking>, String> validateChunk(Connection connection, List<ImportRow<Booking>> rows)
+                throws SQLException {
+            Set<String> userIds = new HashSet<>();
+            Set<String> roomNumbers = new HashSet<>();
+            for (ImportRow<Booking> row : rows) {
+                userIds.add(String.valueOf(row.getValue().getUserId()));
+                roomNumbers.add(row.getValue().getRoomNumber());
+            }
+            Set<String> customers = existing(connection,
+                    "SELECT id FROM users WHERE role = 'CUSTOMER' AND id", userIds);
+            Set<String> rooms = existing(connection, "SELECT room_number FROM rooms WHERE room_number", roomNumbers);
+
+            // room_nights' key rejects a clash anyway; catching it here keeps the
+            // chunk's batch from falling back to row by row
+            Map<String, List<Stay>> stays = bookedStays(connection, rows);
+
+            Map<ImportRow<Booking>, String> problems = new HashMap<>();
+            for (ImportRow<Booking> row : rows) {
+                Booking booking = row.getValue();
+                if (!customers.contains(String.valueOf(booking.getUserId()))) {
+                    problems.put(row, "Invalid user ID or user is not a customer");
+                } else if (!rooms.contains(booking.getRoomNumber())) {
+                    problems.put(row, "Unknown room number");
+                } else if (isLive(booking.getStatus())) {
+                    List<Stay> roomStays = stays.computeIfAbsent(booking.getRoomNumber(), room -> new ArrayList<>());
+                    Stay clash = Stay.findOverlap(roomStays, booking.getCheckInDate(), booking.getCheckOutDate());
+                    if (clash == null) {
+                        // Later rows in the chunk must not overlap this one either
+                        roomStays.add(new Stay(booking.getCheckInDate(), booking.getCheckOutDate(), true));
+                    } else if (clash.inImport) {
+                        problems.put(row, "Overlaps an earlier row for this room in the import");
+                    } else {
+                        problems.put(row, "Room is already booked on these dates");
+                    }
+                }
+            }
+            return problems;
+        }
+
+        /**
+         * Live bookings in the chunk's rooms that overlap the chunk's dates, by
+         * room. One query for the chunk, with the same test as BOOKING_CONFLICT;
+         * earlier chunks are committed by now, so it sees their rows too.
+         */
+        private static Map<String, List<Stay>> bookedStays(Connection connection, List<ImportRow<Booking>> rows)
+                throws SQLException {
+            Map<String, List<Stay>> stays = new HashMap<>();
+            Set<String> roomNumbers = new HashSet<>();
+            LocalDate from = null;
+            LocalDate to = null;
+            for (ImportRow<Booking> row : rows) {
+                Booking booking = row.getValue();
+                if (isLive(booking.getStatus())) {
+                    roomNumbers.add(booking.getRoomNumber());
+                    from = from == null || booking.getCheckInDate().isBefore(from) ? booking.getCheckInDate() : from;
+                    to = to == null || booking.getCheckOutDate().isAfter(to) ? booking.getCheckOutDate() : to;
+                }
+            }
+            if (roomNumbers.isEmpty()) {
+                return stays;
+            }
+
+            StringBuilder query = new StringBuilder("SELECT room_number, check_in_date, check_out_date FROM bookings "
+                    + "WHERE check_in_date < ? AND check_out_date > ? AND status NOT IN ('Cancelled', 'No-Show') "
+                    + "AND room_number IN (");
+            for (int i = 0; i < roomNumbers.size(); i++) {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            query.append(")");
+
+            try (PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
+                pstmt.setDate(1, java.sql.Date.valueOf(to));
+                pstmt.setDate(2, java.sql.Date.valueOf(from));
+                int index = 3;
+                for (String roomNumber : roomNumbers) {
+                    pstmt.setString(index++, roomNumber);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        stays.computeIfAbsent(rs.getString(1), room -> new ArrayList<>()).add(
+                                new Stay(rs.getDate(2).toLocalDate(), rs.getDate(3).toLocalDate(), false));
+                    }
+                }
+            }
+            return stays;
+        }
+
+        // The bookings' nights go in with the chunk, so a desk reserving one of them now waits or clashes
+        @Override
+        public void written(Connection connection, List<Integer> ids) throws SQLException {
+            if (!ids.isEmpty()) {
+                RoomNightRepository.bookingsInserted(connection, ids);
+            }
+        }
+
+        @Override
+        public String rejectReason(SQLException e) {
+            if (RoomNightRepository.isNightTaken(e)) {
+                return "Room is already booked on these dates";
+            }
+            return "Insert failed: " + e.getMessage();
+        }
+
+        // Cancelled and no-show bookings hold no nights, so they can clash with nothing
+        private static boolean isLive(String status) {
+            return !"Cancelled".equals(status) && !"No-Show".equals(status);
+        }
+
+        @Override
+        public void bind(PreparedStatement pstmt, Booking booking) throws SQLException {
+            pstmt.setInt(1, booking.getUserId());
+            pstmt.setString(2, booking.getRoomNumber());
+            pstmt.setString(3, booking.getCustomerName());
+            pstmt.setDate(4, java.sql.Date.valueOf(booking.getCheckInDate()));
+            pstmt.setDate(5, java.sql.Date.valueOf(booking.getCheckOutDate()));
+            pstmt.setInt(6, booking.getNumberOfGuests());
+            pstmt.setDouble(7, booking.getTotalPrice());
+            pstmt.setString(8, booking.getStatus());
+        }
+    }
+
+    // Nights [checkIn, checkOut) of one booking in a room
+    private static final class Stay {
+        final LocalDate checkIn;
+        final LocalDate checkOut;
+        // An earlier row of this import rather than a booking already in the table
+        final boolean inImport;
+
+        Stay(LocalDate checkIn, LocalDate checkOut, boolean inImport) {
+            this.checkIn = checkIn;
+            this.checkOut = checkOut;
+            this.inImport = inImport;
+        }
+
+        static Stay findOverlap(List<Stay> stays, LocalDate checkIn, LocalDate checkOut) {
+            for (Stay stay : stays) {
+                if (stay.checkIn.isBefore(checkOut) && stay.checkOut.isAfter(checkIn)) {
+                    return stay;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class PaymentLoader implements Loader<Payment> {
+        @Override
+        public String entity() {
+            return "payments";
+        }
+
+        @Override
+        public String insertSql() {
+            return "INSERT INTO payments " +
+                    "(user_id, payment_type, amount, payment_method, status, description, payment_date) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP))";
+        }
+
+        @Override
+        public String validateRow(Payment payment) {
+            if (isBlank(payment.getUserId()) || !payment.getUserId().trim().matches("\\d+")) {
+                return "User ID must be numeric";
+            }
+            if (payment.getAmount() == null || payment.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                return "Amount must be positive";
+            }
+            return null;
+        }
+
+        @Override
+        public Map<ImportRow<Payment>, String> validateChunk(Connection connection, List<ImportRow<Payment>> rows)
+                throws SQLException {
+            Set<String> userIds = new HashSet<>();
+            for (ImportRow<Payment> row : rows) {
+                userIds.add(row.getValue().getUserId().trim());
+            }
+            Set<String> users = existing(connection, "SELECT id FROM users WHERE id", userIds);
+
+            Map<ImportRow<Payment>, String> problems = new HashMap<>();
+            for (ImportRow<Payment> row : rows) {
+                if (!users.contains(row.getValue().getUserId().trim())) {
+                    problems.put(row, "User does not exist");
+                }
+            }
+            return problems;
+        }
+
+        // The batch inserts bypass PaymentRepository, so add their running totals alongside
+        @Override
+        public void written(Connection connection, List<Integer> ids) throws SQLException {
+            PaymentTotalsRepository.paymentsInserted(connection, ids);
+        }
+
+        @Override
+        public void bind(PreparedStatement pstmt, Payment payment) throws SQLException {
+            pstmt.setString(1, payment.getUserId().trim());
+            pstmt.setString(2, payment.getPaymentType());
+            pstmt.setBigDecimal(3, payment.getAmount());
+            pstmt.setString(4, payment.getPaymentMethod());
+            pstmt.setString(5, payment.getStatus());
+            pstmt.setString(6, payment.getDescription());
+            pstmt.setTimestamp(7, payment.getPaymentDate());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package beachresort.services;
+
+import beachresort.models.Booking;
+import beachresort.models.CheckInOut;
+import beachresort.repositories.BookingRepository.ReservationResult;
+import beachresort.repositories.CheckInOutRepository;
+import beachresort.repositories.UserRoleCache;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Front desk check-in and check-out. Each operation checks the guest's role
+ * once, from the shared role cache, and then makes all of its writes
+ * (booking, stay, room nights, room status) in one transaction through
+ * CheckInOutRepository, so a failure part way leaves nothing behind and the
+ * desk waits for a handful of statements rather than several separate
+ * round trips per write.
+ *
+ * Latency of each kind of operation is kept for the life of the process;
+ * tools.CheckInBenchmark compares it against the old step-by-step flow.
+ */
+public class CheckInService {
+
+    public enum Result {
+        DONE,
+        // The room is booked by someone else for at least one of the nights
+        ROOM_TAKEN,
+        INVALID_USER,
+        UNKNOWN_ROOM,
+        // No such booking or stay, or it is cancelled / already checked out
+        NOT_FOUND,
+        FAILED
+    }
+
+    // Process-wide, like the repositories' statement counters
+    private static final LongAdder WALK_INS = new LongAdder();
+    private static final LongAdder WALK_IN_NANOS = new LongAdder();
+    private static final LongAdder BOOKING_CHECK_INS = new LongAdder();
+    private static final LongAdder BOOKING_CHECK_IN_NANOS = new LongAdder();
+    private static final LongAdder CHECK_OUTS = new LongAdder();
+    private static final LongAdder CHECK_OUT_NANOS = new LongAdder();
+
+    private final CheckInOutRepository checkInOutRepository;
+    private final UserRoleCache roles;
+
+    public CheckInService() {
+        this(new CheckInOutRepository(), UserRoleCache.shared());
+    }
+
+    public CheckInService(CheckInOutRepository checkInOutRepository, UserRoleCache roles) {
+        this.checkInOutRepository = checkInOutRepository;
+        this.roles = roles;
+    }
+
+    /**
+     * Books the room for a guest without a reservation and checks them in.
+     * On DONE the booking's bookingID and the stay's id are set.
+     */
+    public Result walkIn(Booking booking, CheckInOut stay) {
+        long start = System.nanoTime();
+        try {
+            if (!isCustomer(booking.getUserId())) {
+                return Result.INVALID_USER;
+            }
+            ReservationResult result = checkInOutRepository.checkInWalkIn(booking, stay);
+            switch (result) {
+                case RESERVED:
+                    return Result.DONE;
+                case CONFLICT:
+                    return Result.ROOM_TAKEN;
+                case UNKNOWN_ROOM:
+                    return Result.UNKNOWN_ROOM;
+                case INVALID_USER:
+                    return Result.INVALID_USER;
+                default:
+                    return Result.FAILED;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error checking in walk-in guest: " + e.getMessage());
+            return Result.FAILED;
+        } finally {
+            WALK_INS.increment();
+            WALK_IN_NANOS.add(System.nanoTime() - start);
+        }
+    }
+
+    // Checks in the guest of a booking made earlier; the stay's dates and room come from the booking
+    public Result checkInBooking(int bookingId, int userId) {
+        long start = System.nanoTime();
+        try {
+            if (!isCustomer(userId)) {
+                return Result.INVALID_USER;
+            }
+            return checkInOutRepository.checkInBooking(bookingId, userId) != 0 ? Result.DONE : Result.NOT_FOUND;
+        } catch (SQLException e) {
+            System.err.println("Error checking in booking " + bookingId + ": " + e.getMessage());
+            return Result.FAILED;
+        } finally {
+            BOOKING_CHECK_INS.increment();
+            BOOKING_CHECK_IN_NANOS.add(System.nanoTime() - start);
+        }
+    }
+
+    public Result checkOut(int checkInOutId, int userId) {
+        long start = System.nanoTime();
+        try {
+            if (!isCustomer(userId)) {
+                return Result.INVALID_USER;
+            }
+            return checkInOutRepository.checkOut(checkInOutId, userId) ? Result.DONE : Result.NOT_FOUND;
+        } catch (SQLException e) {
+            System.err.println("Error checking out stay " + checkInOutId + ": " + e.getMessage());
+            return Result.FAILED;
+        } finally {
+            CHECK_OUTS.increment();
+            CHECK_OUT_NANOS.add(System.nanoTime() - start);
+        }
+    }
+
+    public static long getWalkIns() {
+        return WALK_INS.sum();
+    }
+
+    public static double getAverageWalkInMillis() {
+        return averageMillis(WALK_IN_NANOS, WALK_INS);
+    }
+
+    public static long getBookingCheckIns() {
+        return BOOKING_CHECK_INS.sum();
+    }
+
+    public static double getAverageBookingCheckInMillis() {
+        return averageMillis(BOOKING_CHECK_IN_NANOS, BOOKING_CHECK_INS);
+    }
+
+    public static long getCheckOuts() {
+        return CHECK_OUTS.sum();
+    }
+
+    public static double getAverageCheckOutMillis() {
+        return averageMillis(CHECK_OUT_NANOS, CHECK_OUTS);
+    }
+
+    private boolean isCustomer(int userId) throws SQLException {
+        return roles.hasRole(userId, "CUSTOMER");
+    }
+
+    private static double averageMillis(LongAdder nanos, LongAdder count) {
+        long n = count.sum();
+        return n == 0 ? 0 : nanos.sum() / 1e6 / n;
+    }
+}
@@ -0,0 +1,90 @@
+package beachresort.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codes for the distinct values of a text column, in order of first sight.
+ * A column keeps the code in a byte or short; once maxCodes - 1 values have
+ * codes, every new one shares a last "(other)" code, so a column with
+ * unexpectedly many distinct values degrades instead of overflowing. null is
+ * encoded like any value, as "(none)".
+ *
+ * Not thread-safe; AnalyticsCache guards it.
+ */
+final class ColumnDictionary {
+    static final String NONE = "(none)";
+    static final String OTHER = "(other)";
+
+    private final int maxCodes;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    // reserved values take the first codes, in order
+    ColumnDictionary(int maxCodes, String... reserved) {
+        this.maxCodes = maxCodes;
+        for (String value : reserved) {
+            encode(value);
+        }
+    }
+
+    int encode(String value) {
+        String key = value == null ? NONE : value;
+        Integer code = codes.get(key);
+        if (code != null) {
+            return code;
+        }
+        if (values.size() == maxCodes - 1) {
+            key = OTHER;
+            code = codes.get(key);
+            if (code != null) {
+                return code;
+            }
+        }
+        code = values.size();
+        codes.put(key, code);
+        values.add(key);
+        return code;
+    }
+
+    String decode(int code) {
+        return values.get(code);
+    }
+
+    // Codes handed out so far; every code is below this
+    int size() {
+        return values.size();
+    }
+
+    int maxCodes() {
+        return maxCodes;
+    }
+
+    /**
+     * 1 for the codes of the given values and 0 for the rest, indexed by
+     * code, for a branch-free membership test in a scan. Values never seen
+     * have no code and so match nothing.
+     */
+    int[] accept(Collection<String> accepted) {
+        int[] accept = new int[maxCodes];
+        for (String value : accepted) {
+            Integer code = codes.get(value == null ? NONE : value);
+            if (code != null) {
+                accept[code] = 1;
+            }
+        }
+        return accept;
+    }
+
+    // Rough heap taken by the map, list and strings
+    long footprintBytes() {
+        long bytes = 0;
+        for (String value : values) {
+            bytes += 96 + 2L * value.length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,336 @@
+package beachresort.services;
+
+import beachresort.repositories.ReportRepository.Granularity;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows held as one primitive array per column, ordered by id, plus the scan
+ * that filters and groups them.
+ *
+ * A scan goes through the rows a BLOCK at a time. Each Predicate clears the
+ * pass flag of the block's rows it rejects; each Key folds its column's
+ * code into the block's group numbers; then the rows' amounts are added to
+ * their groups, multiplied out by the pass flag rather than branched on.
+ * The predicate and key loops are straight loops over contiguous arrays with
+ * no branches, which C2 can unroll and vectorize; the final scatter into
+ * the groups cannot be, but it is a handful of adds per row.
+ *
+ * Rows are never removed, only marked deleted by their owner (AnalyticsCache
+ * gives them status code 0, which no scan accepts), so row numbers stay put.
+ *
+ * Not thread-safe; AnalyticsCache guards it.
+ */
+abstract class ColumnTable {
+    // Status code of a deleted row
+    static final int DELETED = 0;
+    static final int BLOCK = 1024;
+    // Largest product of the group-by columns' cardinalities; the totals take 24 bytes a group
+    static final int MAX_GROUPS = 1 << 20;
+    // Day column value for no date; far enough below any date that range tests cannot overflow
+    static final int NO_DAY = -(1 << 30);
+    // Dates in filters are clamped to this many days either side of 1970
+    static final int MAX_DAY = 1 << 29;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    int[] ids = new int[INITIAL_CAPACITY];
+    int size;
+
+    // A test on one column, applied a block at a time; clears pass[j] for row from + j if it fails
+    interface Predicate {
+        void apply(int from, int length, int[] pass);
+    }
+
+    // A group-by column
+    interface Key {
+        int cardinality();
+
+        // keys[j] = keys[j] * cardinality() + the code of row from + j
+        void accumulate(int from, int length, int[] keys);
+
+        Object label(int code);
+    }
+
+    // Rows, amount and nights per group number
+    static final class Totals {
+        final long[] rows;
+        final long[] cents;
+        final long[] nights;
+
+        Totals(int groups) {
+            rows = new long[groups];
+            cents = new long[groups];
+            nights = new long[groups];
+        }
+    }
+
+    // Row holding id, or -(insertion point) - 1 as Arrays.binarySearch
+    int find(int id) {
+        if (size == 0 || id > ids[size - 1]) {
+            return -size - 1;
+        }
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    // The row of id, added in id order if new; ids mostly arrive in order, so that is usually an append
+    int rowFor(int id) {
+        int row = find(id);
+        if (row >= 0) {
+            return row;
+        }
+        row = -row - 1;
+        if (size == ids.length) {
+            resize(size + Math.max(size >> 1, INITIAL_CAPACITY));
+        }
+        if (row < size) {
+            System.arraycopy(ids, row, ids, row + 1, size - row);
+            shiftColumns(row, size - row);
+        }
+        ids[row] = id;
+        size++;
+        return row;
+    }
+
+    // After a full load: drops most of the capacity growing left spare, keeping a little so the next
+    // refreshes' new rows fit without copying every column
+    void trim() {
+        int capacity = size + Math.max(size >> 6, INITIAL_CAPACITY);
+        if (ids.length > capacity) {
+            resize(capacity);
+        }
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        resizeColumns(capacity);
+    }
+
+    abstract void resizeColumns(int capacity);
+
+    // Moves rows [row, row + length) up one, making room at row
+    abstract void shiftColumns(int row, int length);
+
+    // Heap taken by the columns, spare capacity included
+    abstract long footprintBytes();
+
+    static Predicate codeIn(byte[] column, int[] accept) {
+        return (from, length, pass) -> {
+            for (int j = 0; j < length; j++) {
+                pass[j] &= accept[column[from + j] & 0xFF];
+            }
+        };
+    }
+
+    static Predicate codeIn(short[] column, int[] accept) {
+        return (from, length, pass) -> {
+            for (int j = 0; j < length; j++) {
+                pass[j] &= accept[column[from + j]];
+            }
+        };
+    }
+
+    // low <= value <= high; both are clamped to +-MAX_DAY so the subtractions cannot overflow
+    static Predicate between(int[] column, int low, int high) {
+        int lo = Math.max(low, -MAX_DAY);
+        int hi = Math.min(high, MAX_DAY);
+        return (from, length, pass) -> {
+            for (int j = 0; j < length; j++) {
+                int value = column[from + j];
+                pass[j] &= ~((value - lo) | (hi - value)) >>> 31;
+            }
+        };
+    }
+
+    static Predicate between(byte[] column, int low, int high) {
+        int lo = Math.max(low, Byte.MIN_VALUE);
+        int hi = Math.min(high, Byte.MAX_VALUE);
+        return (from, length, pass) -> {
+            for (int j = 0; j < length; j++) {
+                int value = column[from + j];
+                pass[j] &= ~((value - lo) | (hi - value)) >>> 31;
+            }
+        };
+    }
+
+    // Grouped by dictionary code; codes are dense, so the cardinality is the dictionary's size
+    static Key codes(byte[] column, ColumnDictionary dictionary) {
+        int cardinality = dictionary.size();
+        return new Key() {
+            @Override
+            public int cardinality() {
+                return cardinality;
+            }
+
+            @Override
+            public void accumulate(int from, int length, int[] keys) {
+                for (int j = 0; j < length; j++) {
+                    keys[j] = keys[j] * cardinality + (column[from + j] & 0xFF);
+                }
+            }
+
+            @Override
+            public Object label(int code) {
+                return dictionary.decode(code);
+            }
+        };
+    }
+
+    static Key codes(short[] column, ColumnDictionary dictionary) {
+        int cardinality = dictionary.size();
+        return new Key() {
+            @Override
+            public int cardinality() {
+                return cardinality;
+            }
+
+            @Override
+            public void accumulate(int from, int length, int[] keys) {
+                for (int j = 0; j < length; j++) {
+                    keys[j] = keys[j] * cardinality + column[from + j];
+                }
+            }
+
+            @Override
+            public Object label(int code) {
+                return dictionary.decode(code);
+            }
+        };
+    }
+
+    // Grouped by the value itself, 0 to 127, labelled as an Integer
+    static Key values(byte[] column) {
+        int cardinality = Byte.MAX_VALUE + 1;
+        return new Key() {
+            @Override
+            public int cardinality() {
+                return cardinality;
+            }
+
+            @Override
+            public void accumulate(int from, int length, int[] keys) {
+                for (int j = 0; j < length; j++) {
+                    keys[j] = keys[j] * cardinality + column[from + j];
+                }
+            }
+
+            @Override
+            public Object label(int code) {
+                return code;
+            }
+        };
+    }
+
+    /**
+     * Grouped by the period holding each day, labelled with the period's
+     * first day as a LocalDate (null for rows without a date). Only the days
+     * in [firstDay, lastDay] get periods of their own, so passing the filter's
+     * range keeps the cardinality down; rows outside it land in the no-date
+     * or last period, which is harmless as long as the filter rejects them.
+     */
+    static Key periods(int[] days, int firstDay, int lastDay, Granularity granularity) {
+        int span = (int) Math.max((long) lastDay - firstDay + 1, 0);
+        // periodOf[0] is no date; periodOf[1 + d] is the period of day firstDay + d
+        int[] periodOf = new int[span + 1];
+        Map<LocalDate, Integer> codes = new HashMap<>();
+        LocalDate[] labels = new LocalDate[span + 1];
+        for (int d = 0; d < span; d++) {
+            LocalDate start = periodStart(LocalDate.ofEpochDay(firstDay + d), granularity);
+            Integer code = codes.get(start);
+            if (code == null) {
+                code = codes.size() + 1;
+                codes.put(start, code);
+                labels[code] = start;
+            }
+            periodOf[1 + d] = code;
+        }
+        int cardinality = codes.size() + 1;
+        int offset = span == 0 ? 0 : 1 - firstDay;
+        return new Key() {
+            @Override
+            public int cardinality() {
+                return cardinality;
+            }
+
+            @Override
+            public void accumulate(int from, int length, int[] keys) {
+                for (int j = 0; j < length; j++) {
+                    int index = Math.min(Math.max(days[from + j] + offset, 0), span);
+                    keys[j] = keys[j] * cardinality + periodOf[index];
+                }
+            }
+
+            @Override
+            public Object label(int code) {
+                return labels[code];
+            }
+        };
+    }
+
+    private static LocalDate periodStart(LocalDate day, Granularity granularity) {
+        switch (granularity) {
+            case WEEK:
+                return day.minusDays(day.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+            case MONTH:
+                return day.withDayOfMonth(1);
+            default:
+                return day;
+        }
+    }
+
+    /**
+     * Filters and groups the first size rows. cents is summed per group, and
+     * nights too unless it is null. Throws IllegalArgumentException when the
+     * keys would make more than MAX_GROUPS groups.
+     */
+    static Totals aggregate(int size, List<Predicate> where, Key[] by, long[] cents, short[] nights) {
+        long groups = 1;
+        for (Key key : by) {
+            groups *= key.cardinality();
+            if (groups > MAX_GROUPS) {
+                throw new IllegalArgumentException("Grouping would make over " + MAX_GROUPS
+                        + " groups; narrow the date range or group by fewer columns");
+            }
+        }
+        Totals totals = new Totals((int) groups);
+        int[] pass = new int[BLOCK];
+        int[] keys = new int[BLOCK];
+        for (int from = 0; from < size; from += BLOCK) {
+            int length = Math.min(BLOCK, size - from);
+            Arrays.fill(pass, 0, length, 1);
+            for (Predicate predicate : where) {
+                predicate.apply(from, length, pass);
+            }
+            int passed = 0;
+            for (int j = 0; j < length; j++) {
+                passed += pass[j];
+            }
+            if (passed == 0) {
+                continue;
+            }
+            Arrays.fill(keys, 0, length, 0);
+            for (Key key : by) {
+                key.accumulate(from, length, keys);
+            }
+            long[] rows = totals.rows;
+            long[] sums = totals.cents;
+            for (int j = 0; j < length; j++) {
+                int group = keys[j];
+                rows[group] += pass[j];
+                sums[group] += cents[from + j] & -(long) pass[j];
+            }
+            if (nights != null) {
+                long[] nightSums = totals.nights;
+                for (int j = 0; j < length; j++) {
+                    nightSums[keys[j]] += nights[from + j] & -pass[j];
+                }
+            }
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,120 @@
+package beachresort.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV in UTF-8, with a byte order mark so Excel reads accented
+ * names correctly. Fields are quoted only when they need it. Text starting
+ * with =, +, - or @ gets a leading apostrophe, so a customer name cannot run
+ * as a formula when the file is opened in a spreadsheet.
+ */
+public class CsvTableWriter implements TableWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(256);
+    private char[] chars = new char[256];
+
+    public CsvTableWriter(OutputStream stream) throws IOException {
+        out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        out.write('\uFEFF');
+    }
+
+    @Override
+    public void writeHeader(List<String> columns) throws IOException {
+        writeRow(columns.toArray());
+    }
+
+    @Override
+    public void writeRow(Object[] cells) throws IOException {
+        // One write per row; the writer's per-call locking costs more than the formatting
+        row.setLength(0);
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            appendCell(cells[i]);
+        }
+        row.append("\r\n");
+        if (chars.length < row.length()) {
+            chars = new char[Math.max(row.length(), chars.length * 2)];
+        }
+        row.getChars(0, row.length(), chars, 0);
+        out.write(chars, 0, row.length());
+    }
+
+    private void appendCell(Object cell) {
+        if (cell == null) {
+            return;
+        }
+        if (cell instanceof Integer || cell instanceof Long) {
+            row.append(((Number) cell).longValue());
+        } else if (cell instanceof Double) {
+            // Plain digits; Double.toString would switch to 1.0E7 for large amounts
+            row.append(BigDecimal.valueOf((Double) cell).toPlainString());
+        } else if (cell instanceof BigDecimal) {
+            row.append(((BigDecimal) cell).toPlainString());
+        } else if (cell instanceof Timestamp) {
+            appendTimestamp(((Timestamp) cell).toLocalDateTime());
+        } else {
+            appendText(cell.toString());
+        }
+    }
+
+    // yyyy-MM-dd HH:mm:ss, without the nanoseconds Timestamp.toString() appends
+    private void appendTimestamp(LocalDateTime timestamp) {
+        row.append(timestamp.getYear()).append('-');
+        appendTwoDigits(timestamp.getMonthValue());
+        row.append('-');
+        appendTwoDigits(timestamp.getDayOfMonth());
+        row.append(' ');
+        appendTwoDigits(timestamp.getHour());
+        row.append(':');
+        appendTwoDigits(timestamp.getMinute());
+        row.append(':');
+        appendTwoDigits(timestamp.getSecond());
+    }
+
+    private void appendTwoDigits(int value) {
+        row.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private void appendText(String text) {
+        boolean formula = !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0;
+        boolean quote = formula;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            row.append(text);
+            return;
+        }
+        row.append('"');
+        if (formula) {
+            row.append('\'');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,181 @@
+package beachresort.services;
+
+import beachresort.models.DashboardSnapshot;
+import beachresort.repositories.DashboardRepository;
+import beachresort.repositories.RepositoryExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+/**
+ * Keeps the owner dashboard's figures in memory so the panel never waits on
+ * the database to paint.
+ *
+ * Once started, a daemon thread recomputes the snapshot every
+ * REFRESH_INTERVAL with one query (DashboardRepository.loadSnapshot).
+ * getSnapshot only reads the last one; if that is older than the TTL, e.g.
+ * because refreshes have been failing, it also starts a refresh in the
+ * background. Concurrent refreshes share one query. A failed refresh keeps
+ * the previous snapshot, whose age then shows how stale it is.
+ */
+public class DashboardSnapshotService implements DashboardSnapshotServiceMXBean {
+    private static final long DEFAULT_TTL_MILLIS = 60_000;
+    private static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 30_000;
+
+    private static final DashboardSnapshotService SHARED = createShared();
+
+    private final DashboardRepository repository;
+    private final long ttlMillis;
+    private final long refreshIntervalMillis;
+
+    private volatile DashboardSnapshot snapshot;
+    private CompletableFuture<DashboardSnapshot> refreshing;
+    private ScheduledExecutorService scheduler;
+    private long refreshes;
+    private long failures;
+
+    public DashboardSnapshotService(DashboardRepository repository, long ttlMillis, long refreshIntervalMillis) {
+        this.repository = repository;
+        this.ttlMillis = ttlMillis;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    // The service every dashboard panel shares
+    public static DashboardSnapshotService shared() {
+        return SHARED;
+    }
+
+    private static DashboardSnapshotService createShared() {
+        DashboardSnapshotService service = new DashboardSnapshotService(new DashboardRepository(),
+                DEFAULT_TTL_MILLIS, DEFAULT_REFRESH_INTERVAL_MILLIS);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(service,
+                    new ObjectName("beachresort.services:type=DashboardSnapshot"));
+        } catch (Exception e) {
+            System.err.println("Could not register dashboard snapshot MBean: " + e.getMessage());
+        }
+        return service;
+    }
+
+    /**
+     * Refreshes now and then every refresh interval on a daemon thread until
+     * stop. Calling it again while running does nothing.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runScheduled, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * The last snapshot, or null before the first one is in. Never blocks;
+     * a missing or expired snapshot starts a refresh in the background.
+     */
+    public DashboardSnapshot getSnapshot() {
+        DashboardSnapshot current = snapshot;
+        if (current == null || current.getAgeMillis() > ttlMillis) {
+            refreshInBackground();
+        }
+        return current;
+    }
+
+    /**
+     * Recomputes the snapshot off the calling thread, joining a refresh
+     * already running. Cancelling the returned future does not stop the
+     * refresh, which other callers may be waiting on.
+     */
+    public CompletableFuture<DashboardSnapshot> refreshInBackground() {
+        synchronized (this) {
+            if (refreshing == null) {
+                CompletableFuture<DashboardSnapshot> started = RepositoryExecutor.supply(this::refresh);
+                refreshing = started;
+                started.whenComplete((result, error) -> {
+                    synchronized (this) {
+                        if (refreshing == started) {
+                            refreshing = null;
+                        }
+                    }
+                });
+            }
+            return refreshing.thenApply(result -> result);
+        }
+    }
+
+    // Recomputes the snapshot on the calling thread
+    public DashboardSnapshot refresh() throws SQLException {
+        try {
+            DashboardSnapshot loaded = repository.loadSnapshot();
+            snapshot = loaded;
+            synchronized (this) {
+                refreshes++;
+            }
+            return loaded;
+        } catch (SQLException e) {
+            synchronized (this) {
+                failures++;
+            }
+            throw e;
+        }
+    }
+
+    private void runScheduled() {
+        try {
+            refreshInBackground().join();
+        } catch (RuntimeException e) {
+            // Keep the last snapshot; the next run tries again
+            System.err.println("Dashboard snapshot refresh failed: "
+                    + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+        }
+    }
+
+    @Override
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    @Override
+    public long getRefreshIntervalMillis() {
+        return refreshIntervalMillis;
+    }
+
+    @Override
+    public long getSnapshotAgeMillis() {
+        DashboardSnapshot current = snapshot;
+        return current == null ? -1 : current.getAgeMillis();
+    }
+
+    @Override
+    public double getComputeMillis() {
+        DashboardSnapshot current = snapshot;
+        return current == null ? 0 : current.getComputeMillis();
+    }
+
+    @Override
+    public synchronized long getRefreshes() {
+        return refreshes;
+    }
+
+    @Override
+    public synchronized long getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,21 @@
+package beachresort.services;
+
+/**
+ * Dashboard snapshot freshness published over JMX (JConsole / VisualVM under
+ * beachresort.services:type=DashboardSnapshot).
+ */
+public interface DashboardSnapshotServiceMXBean {
+    long getTtlMillis();
+
+    long getRefreshIntervalMillis();
+
+    // -1 before the first snapshot
+    long getSnapshotAgeMillis();
+
+    // Query time of the current snapshot, 0 before the first
+    double getComputeMillis();
+
+    long getRefreshes();
+
+    long getFailures();
+}
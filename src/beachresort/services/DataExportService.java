@@ -0,0 +1,326 @@
+package beachresort.services;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.models.Absence;
+import beachresort.models.Booking;
+import beachresort.models.CheckInOut;
+import beachresort.models.Payment;
+import beachresort.repositories.AbsenceRepository;
+import beachresort.repositories.BookingRepository;
+import beachresort.repositories.CheckInOutRepository;
+import beachresort.repositories.PaymentRepository;
+import beachresort.repositories.StreamingQuery;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Exports whole tables to CSV or .xlsx in constant memory.
+ *
+ * Rows come from the repositories' forEach methods, which read through a
+ * server-side cursor StreamingQuery.DEFAULT_FETCH_SIZE rows at a time, and
+ * each one goes straight to a buffered TableWriter; nothing is collected.
+ * The file is written next to the target under a temporary name and moved
+ * into place once complete, so a failed or cancelled export never leaves a
+ * half-written file behind.
+ *
+ * Exports are meant to run off the EDT (see ReportingPanel). The caller gets
+ * progress every PROGRESS_INTERVAL rows and can stop the export at any row
+ * through the cancelled flag, which ends it with a CancellationException.
+ */
+public class DataExportService {
+    static final int PROGRESS_INTERVAL = 10_000;
+
+    public enum Dataset {
+        BOOKINGS("Bookings", "bookings"),
+        PAYMENTS("Payments", "payments"),
+        STAYS("Stays", "check_in_out"),
+        ABSENCES("Absences", "absences");
+
+        private final String title;
+        private final String table;
+
+        Dataset(String title, String table) {
+            this.title = title;
+            this.table = table;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    public enum Format {
+        CSV("csv"),
+        XLSX("xlsx");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        // By file extension, CSV unless it is .xlsx
+        public static Format forFile(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".xlsx") ? XLSX : CSV;
+        }
+
+        public TableWriter open(OutputStream stream, String sheetName) throws IOException {
+            return this == XLSX ? new XlsxTableWriter(stream, sheetName) : new CsvTableWriter(stream);
+        }
+    }
+
+    public interface Progress {
+        // estimatedRows is the table's size per the server's statistics, 0 if unknown
+        void rowsWritten(long rows, long estimatedRows);
+    }
+
+    public static final class ExportReport {
+        private final String source;
+        private final Path file;
+        private final long rows;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        ExportReport(String source, Path file, long rows, long bytes, long elapsedMillis) {
+            this.source = source;
+            this.file = file;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %,d rows to %s (%,d KB) in %,d ms, %,.0f rows/s", source, rows,
+                    file.getFileName(), bytes / 1024, elapsedMillis, getRowsPerSecond());
+        }
+    }
+
+    // Feeds every row of an export to onRow, in order; returns the rows fed
+    interface RowSource {
+        long forEachRow(Consumer<Object[]> onRow) throws SQLException;
+    }
+
+    private final BookingRepository bookingRepository;
+    private final PaymentRepository paymentRepository;
+    private final CheckInOutRepository checkInOutRepository;
+    private final AbsenceRepository absenceRepository;
+
+    public DataExportService() {
+        this(new BookingRepository(), new PaymentRepository(), new CheckInOutRepository(), new AbsenceRepository());
+    }
+
+    public DataExportService(BookingRepository bookingRepository, PaymentRepository paymentRepository,
+            CheckInOutRepository checkInOutRepository, AbsenceRepository absenceRepository) {
+        this.bookingRepository = bookingRepository;
+        this.paymentRepository = paymentRepository;
+        this.checkInOutRepository = checkInOutRepository;
+        this.absenceRepository = absenceRepository;
+    }
+
+    public ExportReport export(Dataset dataset, Path file, Progress progress, BooleanSupplier cancelled)
+            throws SQLException, IOException {
+        long estimate = estimateRows(dataset);
+        int fetchSize = StreamingQuery.DEFAULT_FETCH_SIZE;
+        return write(dataset.title, columns(dataset), file, progress, estimate, cancelled, onRow -> {
+            Object[] cells = new Object[columns(dataset).size()];
+            switch (dataset) {
+                case BOOKINGS:
+                    return bookingRepository.forEachBooking(fetchSize, booking -> onRow.accept(cells(booking, cells)));
+                case PAYMENTS:
+                    return paymentRepository.forEachPayment(fetchSize, payment -> onRow.accept(cells(payment, cells)));
+                case STAYS:
+                    return checkInOutRepository.forEachCheckInOut(fetchSize, stay -> onRow.accept(cells(stay, cells)));
+                case ABSENCES:
+                    return absenceRepository.forEachLeaveRequest(fetchSize,
+                            absence -> onRow.accept(cells(absence, cells)));
+                default:
+                    throw new IllegalArgumentException("Unknown dataset " + dataset);
+            }
+        });
+    }
+
+    // Rows from anywhere else, e.g. a generated report; the iterable may produce them as it goes
+    public ExportReport export(String title, List<String> columns, Iterable<Object[]> rows, Path file,
+            Progress progress, BooleanSupplier cancelled) throws SQLException, IOException {
+        return write(title, columns, file, progress, 0, cancelled, onRow -> {
+            long count = 0;
+            for (Object[] row : rows) {
+                onRow.accept(row);
+                count++;
+            }
+            return count;
+        });
+    }
+
+    /**
+     * The shared part of both exports: opens the writer on a temporary file,
+     * feeds it the source's rows with progress and cancellation checks, and
+     * moves the finished file into place.
+     */
+    ExportReport write(String title, List<String> columns, Path file, Progress progress, long estimate,
+            BooleanSupplier cancelled, RowSource source) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Path target = file.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".part");
+        boolean done = false;
+        try {
+            long rows;
+            try (OutputStream stream = Files.newOutputStream(temp);
+                    TableWriter writer = Format.forFile(target).open(stream, sheetName(title))) {
+                writer.writeHeader(columns);
+                long[] written = { 0 };
+                rows = source.forEachRow(cells -> {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("Export of " + title + " cancelled");
+                    }
+                    try {
+                        writer.writeRow(cells);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (++written[0] % PROGRESS_INTERVAL == 0) {
+                        progress.rowsWritten(written[0], estimate);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            done = true;
+            progress.rowsWritten(rows, estimate);
+            return new ExportReport(title, target, rows, Files.size(target), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    public static List<String> columns(Dataset dataset) {
+        switch (dataset) {
+            case BOOKINGS:
+                return Arrays.asList("Booking ID", "User ID", "Room", "Customer", "Check-in", "Check-out", "Guests",
+                        "Total price", "Status");
+            case PAYMENTS:
+                return Arrays.asList("Payment ID", "User ID", "Type", "Amount", "Method", "Status", "Description",
+                        "Payment date");
+            case STAYS:
+                return Arrays.asList("Stay ID", "User ID", "Customer", "Check-in", "Check-out", "Room", "Type",
+                        "Status");
+            case ABSENCES:
+                return Arrays.asList("Absence ID", "User ID", "Leave type", "Start", "End", "Status", "Reason",
+                        "Requested");
+            default:
+                throw new IllegalArgumentException("Unknown dataset " + dataset);
+        }
+    }
+
+    // Row count from the server's table statistics: free, and close enough for a progress bar
+    public long estimateRows(Dataset dataset) {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement("SELECT TABLE_ROWS FROM information_schema.TABLES "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            pstmt.setString(1, dataset.table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+
+    private static Object[] cells(Booking booking, Object[] cells) {
+        cells[0] = booking.getBookingID();
+        cells[1] = booking.getUserId();
+        cells[2] = booking.getRoomNumber();
+        cells[3] = booking.getCustomerName();
+        cells[4] = booking.getCheckInDate();
+        cells[5] = booking.getCheckOutDate();
+        cells[6] = booking.getNumberOfGuests();
+        cells[7] = booking.getTotalPrice();
+        cells[8] = booking.getStatus();
+        return cells;
+    }
+
+    private static Object[] cells(Payment payment, Object[] cells) {
+        cells[0] = payment.getPaymentId();
+        cells[1] = payment.getUserId();
+        cells[2] = payment.getPaymentType();
+        cells[3] = payment.getAmount();
+        cells[4] = payment.getPaymentMethod();
+        cells[5] = payment.getStatus();
+        cells[6] = payment.getDescription();
+        cells[7] = payment.getPaymentDate();
+        return cells;
+    }
+
+    private static Object[] cells(CheckInOut stay, Object[] cells) {
+        cells[0] = stay.getId();
+        cells[1] = stay.getUserId();
+        cells[2] = stay.getCustomerName();
+        cells[3] = stay.getCheckInDate();
+        cells[4] = stay.getCheckOutDate();
+        cells[5] = stay.getRoomNumber();
+        cells[6] = stay.getCheckInType();
+        cells[7] = stay.getStatus();
+        return cells;
+    }
+
+    private static Object[] cells(Absence absence, Object[] cells) {
+        cells[0] = absence.getAbsenceId();
+        cells[1] = absence.getUserId();
+        cells[2] = absence.getLeaveType();
+        cells[3] = absence.getStartDate();
+        cells[4] = absence.getEndDate();
+        cells[5] = absence.getStatus();
+        cells[6] = absence.getReason();
+        cells[7] = absence.getCreatedAt();
+        return cells;
+    }
+
+    // Excel's sheet name rules: at most 31 characters, none of []:*?/\
+    private static String sheetName(String title) {
+        String name = title.replaceAll("[\\[\\]:*?/\\\\]", " ").trim();
+        return name.isEmpty() ? "Sheet" : name.length() > 31 ? name.substring(0, 31) : name;
+    }
+}
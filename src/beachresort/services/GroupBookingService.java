@@ -0,0 +1,243 @@
+package beachresort.services;
+
+import beachresort.models.Booking;
+import beachresort.models.Room;
+import beachresort.repositories.BookingAvailabilityIndex;
+import beachresort.repositories.BookingRepository;
+import beachresort.repositories.BookingRepository.ReservationResult;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Books a block of rooms of one type for a tour group or wedding, all or
+ * none.
+ *
+ * Allocation is one pass of RoomSearchService over the occupancy bitsets:
+ * the first count free rooms by room number, so the group ends up along the
+ * same corridor as far as numbering allows. When there are not enough, the
+ * answer says how many rooms were free for the whole stay and, for each night
+ * that is short, how many were free that night, so the desk can see whether
+ * moving the dates by a day would help.
+ *
+ * The rooms found are then reserved through BookingRepository.reserveBlock
+ * in one batched transaction. If another desk took one of them in between,
+ * the index is reloaded and the allocation tried once more.
+ */
+public class GroupBookingService {
+    private static final String DEFAULT_STATUS = "Pending";
+
+    private final RoomSearchService roomSearch;
+    private final BookingRepository bookingRepository;
+    private final BookingAvailabilityIndex availability;
+    private final RateEngine rates;
+
+    public enum Outcome {
+        BOOKED,
+        // Not enough rooms free; nothing was booked
+        SHORTFALL,
+        INVALID_USER,
+        FAILED
+    }
+
+    /**
+     * The rooms found for a group, or why there were not enough. Rooms are
+     * in room-number order and at most count of them.
+     */
+    public static final class Allocation {
+        private final int requested;
+        private final List<Room> rooms;
+        private final int freeForStay;
+        private final Map<LocalDate, Integer> shortNights;
+        private final long nanos;
+
+        Allocation(int requested, List<Room> rooms, int freeForStay, Map<LocalDate, Integer> shortNights,
+                long nanos) {
+            this.requested = requested;
+            this.rooms = rooms;
+            this.freeForStay = freeForStay;
+            this.shortNights = shortNights;
+            this.nanos = nanos;
+        }
+
+        public boolean isComplete() {
+            return rooms.size() == requested;
+        }
+
+        public int getRequested() {
+            return requested;
+        }
+
+        public List<Room> getRooms() {
+            return Collections.unmodifiableList(rooms);
+        }
+
+        // Rooms of the type free for every night of the stay
+        public int getFreeForStay() {
+            return freeForStay;
+        }
+
+        public int getShortfall() {
+            return Math.max(0, requested - freeForStay);
+        }
+
+        // Nights with fewer than the requested rooms free, and how many were free; empty when complete
+        public Map<LocalDate, Integer> getShortNights() {
+            return Collections.unmodifiableMap(shortNights);
+        }
+
+        public double getMillis() {
+            return nanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            if (isComplete()) {
+                List<String> roomNumbers = new ArrayList<>();
+                for (Room room : rooms) {
+                    roomNumbers.add(room.getRoomNumber());
+                }
+                return String.format("%d rooms: %s (allocated in %.2f ms)", requested, roomNumbers, getMillis());
+            }
+            StringBuilder text = new StringBuilder(String.format("%d of %d rooms free for the whole stay, %d short",
+                    freeForStay, requested, getShortfall()));
+            for (Map.Entry<LocalDate, Integer> night : shortNights.entrySet()) {
+                text.append(String.format("%n  %s: %d free", night.getKey(), night.getValue()));
+            }
+            return text.toString();
+        }
+    }
+
+    public static final class GroupResult {
+        private final Outcome outcome;
+        private final Allocation allocation;
+        private final List<Booking> bookings;
+
+        GroupResult(Outcome outcome, Allocation allocation, List<Booking> bookings) {
+            this.outcome = outcome;
+            this.allocation = allocation;
+            this.bookings = bookings;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        // Null when the user was rejected before any search
+        public Allocation getAllocation() {
+            return allocation;
+        }
+
+        // The bookings made, with their ids; empty unless BOOKED
+        public List<Booking> getBookings() {
+            return Collections.unmodifiableList(bookings);
+        }
+
+        public double getTotalPrice() {
+            double total = 0;
+            for (Booking booking : bookings) {
+                total += booking.getTotalPrice();
+            }
+            return total;
+        }
+    }
+
+    public GroupBookingService() {
+        this(new RoomSearchService(), new BookingRepository(), BookingAvailabilityIndex.shared(),
+                RateEngine.shared());
+    }
+
+    public GroupBookingService(RoomSearchService roomSearch, BookingRepository bookingRepository,
+            BookingAvailabilityIndex availability, RateEngine rates) {
+        this.roomSearch = roomSearch;
+        this.bookingRepository = bookingRepository;
+        this.availability = availability;
+        this.rates = rates;
+    }
+
+    /**
+     * Finds count rooms of the type (any type when null), each holding at
+     * least guestsPerRoom people, free every night of [checkIn, checkOut).
+     * Books nothing.
+     */
+    public Allocation allocate(String roomType, int count, int guestsPerRoom, LocalDate checkIn,
+            LocalDate checkOut) throws SQLException {
+        if (count < 1) {
+            throw new IllegalArgumentException("A group needs at least one room");
+        }
+        long start = System.nanoTime();
+        List<Room> free = roomSearch.findAvailableRooms(roomType, guestsPerRoom, checkIn, checkOut);
+        if (free.size() >= count) {
+            return new Allocation(count, new ArrayList<>(free.subList(0, count)), free.size(),
+                    Collections.emptyMap(), System.nanoTime() - start);
+        }
+
+        // Which nights ran short: count every room of the type, booked or not, night by night
+        List<String> candidates = new ArrayList<>();
+        for (Room room : roomSearch.findRooms(roomType, guestsPerRoom, checkIn)) {
+            candidates.add(room.getRoomNumber());
+        }
+        int[] freePerNight = availability.countFreeRoomsPerNight(candidates, checkIn, checkOut);
+        Map<LocalDate, Integer> shortNights = new LinkedHashMap<>();
+        for (int i = 0; i < freePerNight.length; i++) {
+            if (freePerNight[i] < count) {
+                shortNights.put(checkIn.plusDays(i), freePerNight[i]);
+            }
+        }
+        return new Allocation(count, free, free.size(), shortNights, System.nanoTime() - start);
+    }
+
+    /**
+     * Allocates and books count rooms for the group under one customer
+     * account, each booking named after the group and priced by the rate
+     * engine. Either every room is booked or none is.
+     */
+    public GroupResult bookGroup(int userId, String groupName, String roomType, int count, int guestsPerRoom,
+            LocalDate checkIn, LocalDate checkOut, String performedBy) {
+        if (!bookingRepository.isValidCustomerUser(userId)) {
+            return new GroupResult(Outcome.INVALID_USER, null, Collections.emptyList());
+        }
+        try {
+            Allocation allocation = null;
+            // A second pass only if another desk took one of our rooms in between
+            for (int attempt = 0; attempt < 2; attempt++) {
+                allocation = allocate(roomType, count, guestsPerRoom, checkIn, checkOut);
+                if (!allocation.isComplete()) {
+                    return new GroupResult(Outcome.SHORTFALL, allocation, Collections.emptyList());
+                }
+                List<Booking> bookings = new ArrayList<>(count);
+                for (Room room : allocation.getRooms()) {
+                    bookings.add(new Booking(userId, room.getRoomNumber(), groupName, checkIn, checkOut,
+                            guestsPerRoom, rates.quote(room, checkIn, checkOut), DEFAULT_STATUS));
+                }
+                ReservationResult result = bookingRepository.reserveBlock(bookings, performedBy);
+                switch (result) {
+                    case RESERVED:
+                        return new GroupResult(Outcome.BOOKED, allocation, bookings);
+                    case INVALID_USER:
+                        return new GroupResult(Outcome.INVALID_USER, allocation, Collections.emptyList());
+                    case CONFLICT:
+                    case UNKNOWN_ROOM:
+                        // Only these rooms' view was wrong; re-read them before allocating again
+                        List<String> roomNumbers = new ArrayList<>(count);
+                        for (Room room : allocation.getRooms()) {
+                            roomNumbers.add(room.getRoomNumber());
+                        }
+                        availability.refreshRooms(roomNumbers);
+                        break;
+                    default:
+                        return new GroupResult(Outcome.FAILED, allocation, Collections.emptyList());
+                }
+            }
+            return new GroupResult(Outcome.FAILED, allocation, Collections.emptyList());
+        } catch (SQLException e) {
+            System.err.println("Error booking group " + groupName + ": " + e.getMessage());
+            return new GroupResult(Outcome.FAILED, null, Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package beachresort.services;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.repositories.BookingAvailabilityIndex;
+import beachresort.repositories.PaymentTotalsRepository;
+import beachresort.repositories.ReportRollupRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-of-day audit that puts bookings, stays and room statuses back in line
+ * with what actually happened, whatever steps the front desk skipped. Each
+ * phase is one set-based statement and all of them run in one transaction,
+ * so a failed audit leaves nothing half done.
+ *
+ * Phases, for a business date D:
+ *   overdue stays   Checked In stays due out before D become Overdue
+ *   no-show nights  Pending bookings whose check-in is before D give their
+ *                   room nights back
+ *   room status     every room is Occupied if it is booked for night D or a
+ *                   guest is still in it, otherwise Available; rooms under
+ *                   Maintenance are left for housekeeping to release
+ *   no-shows        those Pending bookings get a NO_SHOW event in the
+ *                   booking log and become No-Show
+ *
+ * The events go in last but one, so the ids they take are not held back
+ * from the log's readers for the length of the room status pass.
+ *
+ * Running it twice for the same date changes nothing the second time, so it
+ * is safe for several front desk machines to schedule it.
+ */
+public class NightAuditJob {
+    private static final LocalTime DEFAULT_RUN_AT = LocalTime.of(2, 0);
+
+    // The phases' SQL, each taking the business date; public so tools.QueryPlanCheck explains these very
+    // statements. Logged before they are marked, while they can still be told apart by their Pending status
+    public static final String LOG_NO_SHOWS =
+            "INSERT INTO booking_events (booking_id, event_type, status, performed_by) "
+            + "SELECT bookingID, 'NO_SHOW', 'No-Show', 'night audit' FROM bookings "
+            + "WHERE status = 'Pending' AND check_in_date < ? ORDER BY bookingID";
+    public static final String RELEASE_NO_SHOW_NIGHTS =
+            "DELETE rn FROM room_nights rn JOIN bookings b ON b.bookingID = rn.booking_id "
+            + "WHERE b.status = 'Pending' AND b.check_in_date < ?";
+    public static final String MARK_NO_SHOWS =
+            "UPDATE bookings SET status = 'No-Show' WHERE status = 'Pending' AND check_in_date < ?";
+    public static final String MARK_OVERDUE_STAYS =
+            "UPDATE check_in_out SET status = 'Overdue' WHERE status = 'Checked In' AND check_out_date < ?";
+    // Only rows whose status actually changes are counted
+    public static final String RECOMPUTE_ROOM_STATUS =
+            "UPDATE rooms r "
+            + "LEFT JOIN (SELECT DISTINCT room_number FROM room_nights WHERE night = ?) booked "
+            + "   ON booked.room_number = r.room_number "
+            + "LEFT JOIN (SELECT DISTINCT room_number FROM check_in_out WHERE status IN ('Checked In', 'Overdue')) staying "
+            + "   ON staying.room_number = r.room_number "
+            + "SET r.status = IF(booked.room_number IS NULL AND staying.room_number IS NULL, 'Available', 'Occupied') "
+            + "WHERE r.status <> 'Maintenance' "
+            + "AND r.status <> IF(booked.room_number IS NULL AND staying.room_number IS NULL, 'Available', 'Occupied')";
+
+    public static final class Phase {
+        private final String name;
+        private final long rows;
+        private final long millis;
+
+        Phase(String name, long rows, long millis) {
+            this.name = name;
+            this.rows = rows;
+            this.millis = millis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    public static final class AuditReport {
+        private final LocalDate businessDate;
+        private final List<Phase> phases;
+        private final long totalMillis;
+
+        AuditReport(LocalDate businessDate, List<Phase> phases, long totalMillis) {
+            this.businessDate = businessDate;
+            this.phases = Collections.unmodifiableList(phases);
+            this.totalMillis = totalMillis;
+        }
+
+        public LocalDate getBusinessDate() {
+            return businessDate;
+        }
+
+        public List<Phase> getPhases() {
+            return phases;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder("Night audit for " + businessDate + "\n");
+            for (Phase phase : phases) {
+                report.append(String.format("  %-22s %8d rows %8d ms%n", phase.name, phase.rows, phase.millis));
+            }
+            report.append(String.format("  %-22s %13s %8d ms", "total (incl. commit)", "", totalMillis));
+            return report.toString();
+        }
+    }
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Audits the given business date: no-shows and overdue stays are anything
+     * due before it, room status is as of its night.
+     */
+    public AuditReport run(LocalDate businessDate) throws SQLException {
+        long start = System.nanoTime();
+        List<Phase> phases = new ArrayList<>();
+        java.sql.Date date = java.sql.Date.valueOf(businessDate);
+
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                phases.add(phase(connection, "overdue stays", MARK_OVERDUE_STAYS, date));
+                phases.add(phase(connection, "no-show nights freed", RELEASE_NO_SHOW_NIGHTS, date));
+                phases.add(phase(connection, "room statuses changed", RECOMPUTE_ROOM_STATUS, date));
+                phases.add(phase(connection, "no-show events", LOG_NO_SHOWS, date));
+                phases.add(phase(connection, "no-show bookings", MARK_NO_SHOWS, date));
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        // Bookings changed status behind BookingRepository's back
+        if (phases.get(phases.size() - 1).getRows() > 0) {
+            BookingAvailabilityIndex.shared().invalidate();
+        }
+        return new AuditReport(businessDate, phases, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Runs the audit for the day just ended every night at 02:00 on a daemon
+     * thread. Failures are logged and the next night's run goes ahead.
+     */
+    public synchronized void start() {
+        start(DEFAULT_RUN_AT);
+    }
+
+    public synchronized void start(LocalTime runAt) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "night-audit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstRun = now.toLocalDate().atTime(runAt);
+        if (!firstRun.isAfter(now)) {
+            firstRun = firstRun.plusDays(1);
+        }
+        scheduler.scheduleAtFixedRate(this::runScheduled, Duration.between(now, firstRun).toMillis(),
+                TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void runScheduled() {
+        try {
+            // Runs after midnight, so today is the first day nobody should still be due in or out
+            System.out.println(run(LocalDate.now()));
+        } catch (SQLException e) {
+            System.err.println("Night audit failed: " + e.getMessage());
+        }
+        try {
+            // The quietest time of day to replay the booking log
+            if (new BookingLedger().snapshotIfDue()) {
+                System.out.println("Took a booking log snapshot");
+            }
+        } catch (SQLException e) {
+            System.err.println("Booking log snapshot failed: " + e.getMessage());
+        }
+        try {
+            // After the audit, so its no-shows and status changes are in the rollups by morning
+            ReportRollupRepository rollups = new ReportRollupRepository();
+            System.out.println(rollups.refreshPending());
+            System.out.println("Report rollups repaired: " + rollups.repairRecent(LocalDate.now()) + " days");
+        } catch (SQLException e) {
+            System.err.println("Report rollup refresh failed: " + e.getMessage());
+        }
+        try {
+            // Flags drift only; repairing it is a decision for whoever reads the log
+            PaymentTotalsRepository.VerifyReport totals = new PaymentTotalsRepository().verify();
+            if (totals.isClean()) {
+                System.out.println(totals);
+            } else {
+                System.err.println("Payment totals drifted; rebuild with tools.PaymentTotalsCommand\n" + totals);
+            }
+        } catch (SQLException e) {
+            System.err.println("Payment totals check failed: " + e.getMessage());
+        }
+        try {
+            // No-shows are marked by now, so their rooms are free to plan with
+            for (RoomAssignmentOptimizer.Result result : RoomAssignmentOptimizer.shared().optimizeAll()) {
+                System.out.println("Room assignment: " + result);
+            }
+        } catch (SQLException e) {
+            System.err.println("Room assignment failed: " + e.getMessage());
+        }
+    }
+
+    private static Phase phase(Connection connection, String name, String sql, java.sql.Date date)
+            throws SQLException {
+        long start = System.nanoTime();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setDate(1, date);
+            long rows = pstmt.executeLargeUpdate();
+            return new Phase(name, rows, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package beachresort.services;
+
+import beachresort.models.Payment;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Payments by column: payment date as an epoch day (NO_DAY when there is
+ * none), amount in cents, and dictionary codes for type, method and status.
+ *
+ * 19 bytes a payment, before spare capacity.
+ */
+final class PaymentColumns extends ColumnTable {
+    final ColumnDictionary types = new ColumnDictionary(1 << 8);
+    final ColumnDictionary methods = new ColumnDictionary(1 << 8);
+    final ColumnDictionary statuses = new ColumnDictionary(1 << 8, "(deleted)");
+
+    int[] day = new int[ids.length];
+    long[] cents = new long[ids.length];
+    byte[] type = new byte[ids.length];
+    byte[] method = new byte[ids.length];
+    byte[] status = new byte[ids.length];
+
+    // Range of the payment days ever stored, NO_DAY aside
+    int firstDay = Integer.MAX_VALUE;
+    int lastDay = Integer.MIN_VALUE;
+
+    // Adds the payment or overwrites its row
+    void put(Payment payment) {
+        int row = rowFor(payment.getPaymentId());
+        if (payment.getPaymentDate() == null) {
+            day[row] = NO_DAY;
+        } else {
+            int paid = (int) payment.getPaymentDate().toLocalDateTime().toLocalDate().toEpochDay();
+            day[row] = paid;
+            firstDay = Math.min(firstDay, paid);
+            lastDay = Math.max(lastDay, paid);
+        }
+        BigDecimal amount = payment.getAmount();
+        cents[row] = amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        type[row] = (byte) types.encode(payment.getPaymentType());
+        method[row] = (byte) methods.encode(payment.getPaymentMethod());
+        status[row] = (byte) statuses.encode(payment.getStatus());
+    }
+
+    void delete(int paymentId) {
+        int row = find(paymentId);
+        if (row >= 0) {
+            status[row] = DELETED;
+        }
+    }
+
+    @Override
+    void resizeColumns(int capacity) {
+        day = Arrays.copyOf(day, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        type = Arrays.copyOf(type, capacity);
+        method = Arrays.copyOf(method, capacity);
+        status = Arrays.copyOf(status, capacity);
+    }
+
+    @Override
+    void shiftColumns(int row, int length) {
+        System.arraycopy(day, row, day, row + 1, length);
+        System.arraycopy(cents, row, cents, row + 1, length);
+        System.arraycopy(type, row, type, row + 1, length);
+        System.arraycopy(method, row, method, row + 1, length);
+        System.arraycopy(status, row, status, row + 1, length);
+    }
+
+    @Override
+    long footprintBytes() {
+        return 19L * ids.length + types.footprintBytes() + methods.footprintBytes() + statuses.footprintBytes();
+    }
+}
@@ -0,0 +1,306 @@
+package beachresort.services;
+
+import beachresort.models.RateRule;
+import beachresort.models.Room;
+import beachresort.repositories.RateRuleRepository;
+import beachresort.repositories.RepositoryExecutor;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prices stays from the rooms' nightly prices and the rate_rules table.
+ *
+ * Prices live per room in rooms.price_per_night, so what varies by room type
+ * and night is the rate factor: 100% plus the adjustments of every rule that
+ * covers that night. For each room type the engine keeps the factor of every
+ * night from a month back to about two years ahead in an int array (in
+ * basis points), with the running total alongside in a long array. A quote is
+ * then the difference of two running totals times the room's price, however
+ * long the stay. Nights outside the window are priced rule by rule.
+ *
+ * Adding, changing or deleting a rule through the engine recomputes only the
+ * nights the rule covers (old and new dates) for the types it names, plus
+ * the running totals after them; the calendar is then swapped in whole, so
+ * quotes never see a half-updated one. Rules edited on another machine are
+ * picked up by a background reload once the calendar is older than MAX_AGE.
+ */
+public class RateEngine {
+    private static final int PAST_NIGHTS = 31;
+    private static final int NIGHTS = 800;
+    private static final int FULL_RATE = 10_000;
+    private static final long MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    // Key of the calendar for types no rule names
+    private static final String ANY_TYPE = "";
+
+    private static final RateEngine SHARED = new RateEngine(new RateRuleRepository());
+
+    // One room type's nights from the calendar's origin
+    private static final class TypeCalendar {
+        // Rate factor per night, in basis points of the room's price
+        final int[] factors;
+        // prefix[i] = factors[0] + ... + factors[i - 1]
+        final long[] prefix;
+
+        TypeCalendar(int[] factors, long[] prefix) {
+            this.factors = factors;
+            this.prefix = prefix;
+        }
+    }
+
+    // Never changed once published
+    private static final class Calendar {
+        final LocalDate origin;
+        final Map<Integer, RateRule> rules;
+        final Map<String, TypeCalendar> types;
+        final long loadedAtNanos;
+
+        Calendar(LocalDate origin, Map<Integer, RateRule> rules, Map<String, TypeCalendar> types,
+                long loadedAtNanos) {
+            this.origin = origin;
+            this.rules = rules;
+            this.types = types;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+
+        TypeCalendar forType(String roomType) {
+            TypeCalendar calendar = roomType == null ? null : types.get(key(roomType));
+            return calendar != null ? calendar : types.get(ANY_TYPE);
+        }
+    }
+
+    private final RateRuleRepository repository;
+
+    private volatile Calendar calendar;
+    private boolean reloading;
+    private long lastRebuildMillis;
+
+    public RateEngine(RateRuleRepository repository) {
+        this.repository = repository;
+    }
+
+    // The engine every panel shares
+    public static RateEngine shared() {
+        return SHARED;
+    }
+
+    /**
+     * Total price of the nights [checkIn, checkOut) in a room of the given
+     * type and price per night, rounded to the centavo.
+     */
+    public double quote(String roomType, double pricePerNight, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        if (!checkOut.isAfter(checkIn)) {
+            return 0;
+        }
+        long factorSum = factorSum(current(), roomType, checkIn, checkOut);
+        long priceCents = Math.round(pricePerNight * 100);
+        return (priceCents * factorSum + FULL_RATE / 2) / FULL_RATE / 100.0;
+    }
+
+    public double quote(Room room, LocalDate checkIn, LocalDate checkOut) throws SQLException {
+        return quote(room.getRoomType(), room.getPricePerNight(), checkIn, checkOut);
+    }
+
+    // Price of the one night in the room, after adjustments
+    public double nightlyRate(Room room, LocalDate night) throws SQLException {
+        return quote(room, night, night.plusDays(1));
+    }
+
+    public List<RateRule> getRules() throws SQLException {
+        return new ArrayList<>(current().rules.values());
+    }
+
+    // Saves the rule (setting its ruleId) and reprices the nights it covers
+    public synchronized void addRule(RateRule rule) throws SQLException {
+        Calendar current = current();
+        repository.addRule(rule);
+        calendar = apply(current, null, rule);
+    }
+
+    public synchronized boolean updateRule(RateRule rule) throws SQLException {
+        Calendar current = current();
+        if (!repository.updateRule(rule)) {
+            return false;
+        }
+        calendar = apply(current, current.rules.get(rule.getRuleId()), rule);
+        return true;
+    }
+
+    public synchronized boolean deleteRule(int ruleId) throws SQLException {
+        Calendar current = current();
+        if (!repository.deleteRule(ruleId)) {
+            return false;
+        }
+        calendar = apply(current, current.rules.get(ruleId), null);
+        return true;
+    }
+
+    /**
+     * Reloads every rule and recomputes the whole calendar from today's
+     * window. Edits wait for it, so none is lost.
+     */
+    public synchronized void rebuild() throws SQLException {
+        long start = System.nanoTime();
+        Map<Integer, RateRule> rules = new LinkedHashMap<>();
+        for (RateRule rule : repository.getAllRules()) {
+            rules.put(rule.getRuleId(), rule);
+        }
+        LocalDate origin = LocalDate.now().minusDays(PAST_NIGHTS);
+        Map<String, TypeCalendar> types = new HashMap<>();
+        types.put(ANY_TYPE, build(origin, rules.values(), ANY_TYPE));
+        for (RateRule rule : rules.values()) {
+            if (rule.getRoomType() != null) {
+                types.computeIfAbsent(key(rule.getRoomType()), type -> build(origin, rules.values(), type));
+            }
+        }
+        calendar = new Calendar(origin, rules, types, System.nanoTime());
+        lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    public synchronized long getLastRebuildMillis() {
+        return lastRebuildMillis;
+    }
+
+    private Calendar current() throws SQLException {
+        Calendar current = calendar;
+        if (current == null) {
+            synchronized (this) {
+                if (calendar == null) {
+                    rebuild();
+                }
+                return calendar;
+            }
+        }
+        if (!current.origin.equals(LocalDate.now().minusDays(PAST_NIGHTS))
+                || System.nanoTime() - current.loadedAtNanos > MAX_AGE_NANOS) {
+            reloadInBackground();
+        }
+        return current;
+    }
+
+    private void reloadInBackground() {
+        synchronized (this) {
+            if (reloading) {
+                return;
+            }
+            reloading = true;
+        }
+        RepositoryExecutor.supply(() -> {
+            rebuild();
+            return null;
+        }).whenComplete((ignored, error) -> {
+            synchronized (this) {
+                reloading = false;
+            }
+            if (error != null) {
+                // Keep quoting from the calendar we have
+                System.err.println("Could not reload rate rules: " + error.getMessage());
+            }
+        });
+    }
+
+    // A copy of the calendar with one rule removed, added or replaced (removed then added)
+    private static Calendar apply(Calendar current, RateRule removed, RateRule added) {
+        Map<Integer, RateRule> rules = new LinkedHashMap<>(current.rules);
+        if (removed != null) {
+            rules.remove(removed.getRuleId());
+        }
+        if (added != null) {
+            rules.put(added.getRuleId(), added);
+        }
+
+        Map<String, TypeCalendar> types = new HashMap<>(current.types);
+        if (added != null && added.getRoomType() != null && !types.containsKey(key(added.getRoomType()))) {
+            types.put(key(added.getRoomType()), build(current.origin, rules.values(), key(added.getRoomType())));
+        }
+        for (Map.Entry<String, TypeCalendar> type : types.entrySet()) {
+            int from = NIGHTS;
+            int to = 0;
+            for (RateRule rule : new RateRule[] { removed, added }) {
+                if (rule != null && names(rule, type.getKey())) {
+                    from = Math.min(from, index(current.origin, rule.getStartDate()));
+                    to = Math.max(to, index(current.origin, rule.getEndDate()));
+                }
+            }
+            if (from < to) {
+                type.setValue(reprice(type.getValue(), current.origin, rules.values(), type.getKey(), from, to));
+            }
+        }
+        return new Calendar(current.origin, rules, types, current.loadedAtNanos);
+    }
+
+    private static TypeCalendar build(LocalDate origin, Collection<RateRule> rules, String type) {
+        TypeCalendar empty = new TypeCalendar(new int[NIGHTS], new long[NIGHTS + 1]);
+        return reprice(empty, origin, rules, type, 0, NIGHTS);
+    }
+
+    // A copy with the factors of nights [from, to) recomputed and the running totals from `from` on
+    private static TypeCalendar reprice(TypeCalendar old, LocalDate origin, Collection<RateRule> rules,
+            String type, int from, int to) {
+        int[] factors = old.factors.clone();
+        long[] prefix = old.prefix.clone();
+        for (int i = from; i < to; i++) {
+            factors[i] = factor(rules, type, origin.plusDays(i));
+        }
+        for (int i = from; i < NIGHTS; i++) {
+            prefix[i + 1] = prefix[i] + factors[i];
+        }
+        return new TypeCalendar(factors, prefix);
+    }
+
+    private static long factorSum(Calendar calendar, String roomType, LocalDate checkIn, LocalDate checkOut) {
+        TypeCalendar nights = calendar.forType(roomType);
+        String type = roomType == null ? ANY_TYPE : key(roomType);
+        LocalDate windowEnd = calendar.origin.plusDays(NIGHTS);
+        int from = index(calendar.origin, checkIn);
+        int to = index(calendar.origin, checkOut);
+        long sum = from < to ? nights.prefix[to] - nights.prefix[from] : 0;
+
+        // Nights outside the window, one by one
+        for (LocalDate night = checkIn; night.isBefore(checkOut) && night.isBefore(calendar.origin);
+                night = night.plusDays(1)) {
+            sum += factor(calendar.rules.values(), type, night);
+        }
+        for (LocalDate night = checkIn.isAfter(windowEnd) ? checkIn : windowEnd; night.isBefore(checkOut);
+                night = night.plusDays(1)) {
+            sum += factor(calendar.rules.values(), type, night);
+        }
+        return sum;
+    }
+
+    private static int factor(Collection<RateRule> rules, String type, LocalDate night) {
+        double percent = 0;
+        for (RateRule rule : rules) {
+            if (names(rule, type) && rule.appliesTo(type, night)) {
+                percent += rule.getAdjustmentPercent();
+            }
+        }
+        // Never below free
+        return (int) Math.max(0, FULL_RATE + Math.round(percent * 100));
+    }
+
+    // Whether the rule prices rooms of the type; rules without a type price every type
+    private static boolean names(RateRule rule, String type) {
+        return rule.getRoomType() == null || key(rule.getRoomType()).equals(type);
+    }
+
+    // The night's position in the window, clamped to [0, NIGHTS]
+    private static int index(LocalDate origin, LocalDate night) {
+        long days = ChronoUnit.DAYS.between(origin, night);
+        return (int) Math.max(0, Math.min(NIGHTS, days));
+    }
+
+    private static String key(String roomType) {
+        return roomType.trim().toLowerCase(Locale.ROOT);
+    }
+}
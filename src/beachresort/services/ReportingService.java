@@ -0,0 +1,156 @@
+package beachresort.services;
+
+import beachresort.models.CancellationStats;
+import beachresort.models.OccupancyStats;
+import beachresort.models.PaymentMethodTotal;
+import beachresort.repositories.ReportRepository;
+import beachresort.repositories.ReportRepository.Granularity;
+import beachresort.repositories.ReportRollupRepository;
+import beachresort.services.AnalyticsCache.BookingDimension;
+import beachresort.services.AnalyticsCache.BookingFilter;
+import beachresort.services.AnalyticsCache.Group;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The owner reports as tables: the queued rollup changes are applied first,
+ * so a report includes every write committed before it was asked for, and
+ * the rows then come from the rollups (and the running payment totals) alone.
+ * The booking mix comes from the AnalyticsCache instead, refreshed the same
+ * way first.
+ */
+public class ReportingService {
+    private final ReportRollupRepository rollupRepository;
+    private final ReportRepository reportRepository;
+    private final AnalyticsCache analyticsCache;
+
+    public enum ReportType {
+        OCCUPANCY("Occupancy, ADR and RevPAR"),
+        PAYMENTS_BY_METHOD("Revenue by payment method"),
+        CANCELLATIONS("Cancellations and no-shows"),
+        BOOKING_MIX("Bookings by room type and status");
+
+        private final String title;
+
+        ReportType(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    // Column names and rows ready for a table; numbers stay numbers, periods are LocalDates
+    public static final class Report {
+        private final ReportType type;
+        private final List<String> columns;
+        private final List<Object[]> rows;
+        private final long elapsedMillis;
+
+        Report(ReportType type, List<String> columns, List<Object[]> rows, long elapsedMillis) {
+            this.type = type;
+            this.columns = columns;
+            this.rows = rows;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public ReportType getType() {
+            return type;
+        }
+
+        public List<String> getColumns() {
+            return Collections.unmodifiableList(columns);
+        }
+
+        public List<Object[]> getRows() {
+            return Collections.unmodifiableList(rows);
+        }
+
+        // Refresh of the rollups included
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    public ReportingService() {
+        this(new ReportRollupRepository(), new ReportRepository(), AnalyticsCache.shared());
+    }
+
+    public ReportingService(ReportRollupRepository rollupRepository, ReportRepository reportRepository,
+            AnalyticsCache analyticsCache) {
+        this.rollupRepository = rollupRepository;
+        this.reportRepository = reportRepository;
+        this.analyticsCache = analyticsCache;
+    }
+
+    // One row per period in [from, to) that has any rollup rows
+    public Report generate(ReportType type, LocalDate from, LocalDate to, Granularity granularity)
+            throws SQLException {
+        long start = System.nanoTime();
+        if (type == ReportType.BOOKING_MIX) {
+            analyticsCache.refresh();
+        } else {
+            rollupRepository.refreshPending();
+        }
+        List<Object[]> rows = new ArrayList<>();
+        List<String> columns;
+        switch (type) {
+            case OCCUPANCY:
+                columns = Arrays.asList("Period", "Room nights", "Sold", "Occupancy %", "Room revenue", "ADR",
+                        "RevPAR", "Check-ins");
+                for (OccupancyStats stats : reportRepository.getOccupancy(from, to, granularity)) {
+                    rows.add(new Object[] { stats.getPeriodStart(), stats.getRoomNightsAvailable(),
+                            stats.getRoomNightsSold(), stats.getOccupancyPercent(), stats.getRoomRevenue(),
+                            stats.getAdr(), stats.getRevPar(), stats.getCheckIns() });
+                }
+                break;
+            case PAYMENTS_BY_METHOD:
+                columns = Arrays.asList("Period", "Payment method", "Payments", "Amount");
+                for (PaymentMethodTotal total : reportRepository.getPaymentsByMethod(from, to, granularity)) {
+                    rows.add(new Object[] { total.getPeriodStart(), total.getPaymentMethod(), total.getPayments(),
+                            total.getAmount() });
+                }
+                break;
+            case CANCELLATIONS:
+                columns = Arrays.asList("Period", "Cancellations", "No-shows", "Lost revenue");
+                for (CancellationStats stats : reportRepository.getCancellations(from, to, granularity)) {
+                    rows.add(new Object[] { stats.getPeriodStart(), stats.getCancellations(), stats.getNoShows(),
+                            stats.getLostRevenue() });
+                }
+                break;
+            case BOOKING_MIX:
+                // Bookings by check-in date, whatever their status
+                columns = Arrays.asList("Period", "Room type", "Status", "Bookings", "Nights", "Total price");
+                BookingFilter filter = new BookingFilter();
+                filter.setCheckIn(from, to);
+                for (Group group : analyticsCache.groupBookings(filter, checkInPeriod(granularity),
+                        BookingDimension.ROOM_TYPE, BookingDimension.STATUS)) {
+                    List<Object> keys = group.getKeys();
+                    rows.add(new Object[] { keys.get(0), keys.get(1), keys.get(2), group.getRows(), group.getNights(),
+                            group.getAmount().doubleValue() });
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown report " + type);
+        }
+        return new Report(type, columns, rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static BookingDimension checkInPeriod(Granularity granularity) {
+        switch (granularity) {
+            case DAY:
+                return BookingDimension.CHECK_IN_DAY;
+            case WEEK:
+                return BookingDimension.CHECK_IN_WEEK;
+            default:
+                return BookingDimension.CHECK_IN_MONTH;
+        }
+    }
+}
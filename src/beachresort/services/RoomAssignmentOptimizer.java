@@ -0,0 +1,709 @@
+package beachresort.services;
+
+import beachresort.models.Booking;
+import beachresort.models.Room;
+import beachresort.models.RoomMove;
+import beachresort.repositories.BookingRepository.ReservationResult;
+import beachresort.repositories.RoomAssignmentRepository;
+import beachresort.repositories.RepositoryExecutor;
+import beachresort.repositories.RoomRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves future bookings between rooms of the same type so that the nights
+ * left free come in runs long enough to sell, instead of the one-night gaps
+ * that rooms picked by hand tend to leave.
+ *
+ * A gap between two stays shorter than the minimum stay is stranded: nobody
+ * can book it. The cost of a layout is its stranded nights, heavily weighted,
+ * plus a quarter of that for every booking moved, plus one per gap. So a
+ * booking only moves to make nights sellable (a chain of up to four moves
+ * per night recovered), and among layouts stranding the same nights the one
+ * with fewer, longer gaps wins. Gaps running past the end of the window are
+ * open and cost nothing.
+ *
+ * A booking may be moved if it is Pending or Confirmed, arrives after today
+ * and at least the minimum stay inside the window, and has no room lock
+ * (RoomAssignmentRepository.lockRoom). Everything else stays where it is.
+ *
+ * solve places the movable bookings best-fit, earliest arrival first, keeps
+ * that or the current layout, whichever is cheaper, and then improves it by
+ * moving single bookings and swapping pairs until nothing helps or the time
+ * budget runs out. Whether a booking fits a room is read from a bitset of
+ * the room's nights in the window; only rooms it fits are costed.
+ *
+ * optimize runs it over a room type's next DEFAULT_HORIZON_DAYS, nightly
+ * after the audit; bookingAdded runs it over a few weeks around a new
+ * booking with a short budget.
+ */
+public class RoomAssignmentOptimizer {
+    public static final int DEFAULT_MIN_STAY = 2;
+    public static final int DEFAULT_HORIZON_DAYS = 90;
+    public static final long FULL_BUDGET_NANOS = TimeUnit.SECONDS.toNanos(2);
+    public static final long INCREMENTAL_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int INCREMENTAL_MARGIN_DAYS = 14;
+    private static final long STRANDED_NIGHT_COST = 1_000;
+    private static final long MOVE_COST = STRANDED_NIGHT_COST / 4;
+    private static final String PERFORMED_BY = "room optimizer";
+
+    private static final RoomAssignmentOptimizer SHARED = new RoomAssignmentOptimizer();
+
+    private final RoomAssignmentRepository assignmentRepository;
+    private final RoomRepository roomRepository;
+    private final RoomSearchService roomSearch;
+    private final int minStay;
+
+    public static final class Result {
+        private final List<RoomMove> moves;
+        private final int bookings;
+        private final int movable;
+        private final long strandedBefore;
+        private final long strandedAfter;
+        private final long gapsBefore;
+        private final long gapsAfter;
+        private final long solveNanos;
+        private final boolean converged;
+        private boolean applied;
+
+        Result(List<RoomMove> moves, int bookings, int movable, long[] before, long[] after, long solveNanos,
+                boolean converged) {
+            this.moves = moves;
+            this.bookings = bookings;
+            this.movable = movable;
+            this.strandedBefore = before[0];
+            this.gapsBefore = before[1];
+            this.strandedAfter = after[0];
+            this.gapsAfter = after[1];
+            this.solveNanos = solveNanos;
+            this.converged = converged;
+        }
+
+        public List<RoomMove> getMoves() {
+            return Collections.unmodifiableList(moves);
+        }
+
+        public int getBookings() {
+            return bookings;
+        }
+
+        public int getMovable() {
+            return movable;
+        }
+
+        public long getStrandedBefore() {
+            return strandedBefore;
+        }
+
+        public long getStrandedAfter() {
+            return strandedAfter;
+        }
+
+        // Stranded nights made sellable by the moves
+        public long getRecoveredNights() {
+            return strandedBefore - strandedAfter;
+        }
+
+        public long getGapsBefore() {
+            return gapsBefore;
+        }
+
+        public long getGapsAfter() {
+            return gapsAfter;
+        }
+
+        public double getSolveMillis() {
+            return solveNanos / 1e6;
+        }
+
+        // False if the time budget ran out before the search stopped finding improvements
+        public boolean isConverged() {
+            return converged;
+        }
+
+        // Whether the moves were written; false for a plan, or if the bookings changed meanwhile
+        public boolean isApplied() {
+            return applied;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d bookings (%d movable): stranded nights %d -> %d, gaps %d -> %d, %d moves%s, "
+                            + "solved in %.1f ms%s", bookings, movable, strandedBefore, strandedAfter, gapsBefore,
+                    gapsAfter, moves.size(), applied ? " made" : "", getSolveMillis(),
+                    converged ? "" : " (time budget reached)");
+        }
+    }
+
+    public RoomAssignmentOptimizer() {
+        this(new RoomAssignmentRepository(), new RoomRepository(), new RoomSearchService(), DEFAULT_MIN_STAY);
+    }
+
+    // The optimizer the panels and the night audit share, so their runs take turns
+    public static RoomAssignmentOptimizer shared() {
+        return SHARED;
+    }
+
+    public RoomAssignmentOptimizer(RoomAssignmentRepository assignmentRepository, RoomRepository roomRepository,
+            RoomSearchService roomSearch, int minStay) {
+        this.assignmentRepository = assignmentRepository;
+        this.roomRepository = roomRepository;
+        this.roomSearch = roomSearch;
+        this.minStay = minStay;
+    }
+
+    /**
+     * Plans the room type's bookings over [from, to) and, if apply is set,
+     * makes the moves in one transaction. Runs one at a time per process, so
+     * two plans never race to move the same bookings.
+     */
+    public synchronized Result optimize(String roomType, LocalDate from, LocalDate to, long budgetNanos,
+            boolean apply, String performedBy) throws SQLException {
+        LocalDate today = LocalDate.now();
+        // Every movable booking arrives after today, so rooms under Maintenance today still count
+        Map<String, Integer> capacities = new LinkedHashMap<>();
+        for (Room room : roomSearch.findRooms(roomType, 0, today.plusDays(1))) {
+            capacities.put(room.getRoomNumber(), room.getCapacity());
+        }
+        List<Booking> bookings = assignmentRepository.getBookings(roomType, from, to);
+        Set<Integer> locked = assignmentRepository.getLockedBookingIds(roomType, from, to);
+        Set<Integer> movable = new LinkedHashSet<>();
+        for (Booking booking : bookings) {
+            if (booking.getCheckInDate().isAfter(today) && !locked.contains(booking.getBookingID())
+                    && ("Pending".equals(booking.getStatus()) || "Confirmed".equals(booking.getStatus()))) {
+                movable.add(booking.getBookingID());
+            }
+        }
+
+        Result result = solve(capacities, bookings, movable, from, to, minStay, budgetNanos);
+        if (apply && !result.moves.isEmpty()) {
+            ReservationResult written = assignmentRepository.moveBookings(result.moves, performedBy);
+            result.applied = written == ReservationResult.RESERVED;
+            if (!result.applied) {
+                System.err.println("Room moves for " + roomType + " not made (" + written + "); bookings changed");
+            }
+        }
+        return result;
+    }
+
+    // Every room type's next DEFAULT_HORIZON_DAYS, with the full time budget each
+    public List<Result> optimizeAll() throws SQLException {
+        Set<String> roomTypes = new LinkedHashSet<>();
+        for (Room room : roomSearch.findRooms(null, 0, LocalDate.now().plusDays(1))) {
+            roomTypes.add(room.getRoomType());
+        }
+        LocalDate today = LocalDate.now();
+        List<Result> results = new ArrayList<>();
+        for (String roomType : roomTypes) {
+            results.add(optimize(roomType, today, today.plusDays(DEFAULT_HORIZON_DAYS), FULL_BUDGET_NANOS, true,
+                    PERFORMED_BY));
+        }
+        return results;
+    }
+
+    /**
+     * Re-plans the few weeks around a booking just made, which may move it
+     * or its neighbours. Returns null if its room no longer exists.
+     */
+    public Result bookingAdded(Booking booking) throws SQLException {
+        Room room = roomRepository.getRoomByNumber(booking.getRoomNumber());
+        if (room == null) {
+            return null;
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate from = booking.getCheckInDate().minusDays(INCREMENTAL_MARGIN_DAYS);
+        return optimize(room.getRoomType(), from.isBefore(today) ? today : from,
+                booking.getCheckOutDate().plusDays(INCREMENTAL_MARGIN_DAYS), INCREMENTAL_BUDGET_NANOS, true,
+                PERFORMED_BY);
+    }
+
+    // bookingAdded off the calling thread, e.g. the Swing one; failures are only logged
+    public void bookingAddedInBackground(Booking booking) {
+        RepositoryExecutor.supply(() -> bookingAdded(booking)).whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println("Could not re-plan rooms around booking " + booking.getBookingID() + ": "
+                        + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Plans without touching the database. capacities lists the rooms that
+     * may be used, in the order ties are broken; bookings in other rooms are
+     * ignored. Only bookings in movableIds that lie at least minStay nights
+     * inside [from, to) and share no night with another booking in their
+     * room are moved.
+     */
+    public static Result solve(Map<String, Integer> capacities, List<Booking> bookings, Set<Integer> movableIds,
+            LocalDate from, LocalDate to, int minStay, long budgetNanos) {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        Layout layout = new Layout(capacities, bookings, movableIds, from, to, minStay);
+        long[] before = layout.totals();
+
+        int[] greedy = layout.greedy(deadline);
+        if (greedy != null) {
+            Layout placed = layout.withRooms(greedy);
+            if (placed.cost() < layout.cost()) {
+                layout = placed;
+            }
+        }
+        boolean converged = layout.improve(deadline);
+
+        return new Result(layout.moves(), layout.count, layout.movable.length, before, layout.totals(),
+                System.nanoTime() - start, converged);
+    }
+
+    /**
+     * The stays of one room type: which room each is in, and per room its
+     * stays by arrival and a bitset of its nights in the window, from which
+     * fits and the gaps either side of a stay are read. Nights are epoch
+     * days; a stay holds [start, end).
+     */
+    private static final class Layout {
+        final String[] roomNumbers;
+        final int[] capacity;
+        final Booking[] bookings;
+        final int count;
+        final int[] start;
+        final int[] end;
+        final int[] guests;
+        final int[] original;
+        final int[] room;
+        // Indexes of the movable stays, earliest arrival first
+        final int[] movable;
+        final boolean[] isMovable;
+        final int lo;
+        final int hi;
+        final int minStay;
+        // Per room, stay index by key(start, index)
+        final List<TreeMap<Long, Integer>> slots;
+        // Per room, bit n set if night lo + n is taken
+        final long[][] taken;
+
+        Layout(Map<String, Integer> capacities, List<Booking> all, Set<Integer> movableIds, LocalDate from,
+                LocalDate to, int minStay) {
+            this.roomNumbers = capacities.keySet().toArray(new String[0]);
+            this.capacity = new int[roomNumbers.length];
+            Map<String, Integer> roomIndex = new LinkedHashMap<>();
+            for (int r = 0; r < roomNumbers.length; r++) {
+                roomIndex.put(roomNumbers[r], r);
+                capacity[r] = capacities.get(roomNumbers[r]);
+            }
+            this.lo = (int) from.toEpochDay();
+            this.hi = (int) to.toEpochDay();
+            this.minStay = minStay;
+
+            List<Booking> kept = new ArrayList<>();
+            for (Booking booking : all) {
+                if (roomIndex.containsKey(booking.getRoomNumber())
+                        && booking.getCheckOutDate().isAfter(booking.getCheckInDate())) {
+                    kept.add(booking);
+                }
+            }
+            this.bookings = kept.toArray(new Booking[0]);
+            this.count = bookings.length;
+            this.start = new int[count];
+            this.end = new int[count];
+            this.guests = new int[count];
+            this.original = new int[count];
+            this.isMovable = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                Booking booking = bookings[i];
+                start[i] = (int) booking.getCheckInDate().toEpochDay();
+                end[i] = (int) booking.getCheckOutDate().toEpochDay();
+                guests[i] = booking.getNumberOfGuests();
+                original[i] = roomIndex.get(booking.getRoomNumber());
+                // Gaps next to a stay this far inside the window are judged on nights the window holds
+                isMovable[i] = movableIds.contains(booking.getBookingID())
+                        && start[i] >= lo + minStay && end[i] <= hi - minStay;
+            }
+            this.room = original.clone();
+            this.slots = new ArrayList<>(roomNumbers.length);
+            this.taken = new long[roomNumbers.length][];
+            place(room);
+            pinOverlaps();
+
+            List<Integer> movableList = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (isMovable[i]) {
+                    movableList.add(i);
+                }
+            }
+            movableList.sort((a, b) -> start[a] != start[b] ? Integer.compare(start[a], start[b])
+                    : end[a] != end[b] ? Integer.compare(end[b], end[a])
+                    : Integer.compare(bookings[a].getBookingID(), bookings[b].getBookingID()));
+            this.movable = new int[movableList.size()];
+            for (int k = 0; k < movable.length; k++) {
+                movable[k] = movableList.get(k);
+            }
+        }
+
+        private Layout(Layout from, int[] rooms) {
+            this.roomNumbers = from.roomNumbers;
+            this.capacity = from.capacity;
+            this.bookings = from.bookings;
+            this.count = from.count;
+            this.start = from.start;
+            this.end = from.end;
+            this.guests = from.guests;
+            this.original = from.original;
+            this.movable = from.movable;
+            this.isMovable = from.isMovable;
+            this.lo = from.lo;
+            this.hi = from.hi;
+            this.minStay = from.minStay;
+            this.room = rooms.clone();
+            this.slots = new ArrayList<>(roomNumbers.length);
+            this.taken = new long[roomNumbers.length][];
+            place(room);
+        }
+
+        Layout withRooms(int[] rooms) {
+            return new Layout(this, rooms);
+        }
+
+        // room[i] < 0 leaves stay i out
+        private void place(int[] rooms) {
+            int words = (Math.max(hi - lo, 0) + 63) / 64;
+            for (int r = 0; r < roomNumbers.length; r++) {
+                slots.add(new TreeMap<>());
+                taken[r] = new long[words];
+            }
+            for (int i = 0; i < count; i++) {
+                if (rooms[i] >= 0) {
+                    slots.get(rooms[i]).put(key(start[i], i), i);
+                    mark(rooms[i], i, true);
+                }
+            }
+        }
+
+        // Stays sharing a night with another in their room, left over from before room_nights, stay put
+        private void pinOverlaps() {
+            for (TreeMap<Long, Integer> roomSlots : slots) {
+                int latest = -1;
+                for (int i : roomSlots.values()) {
+                    if (latest >= 0 && start[i] < end[latest]) {
+                        isMovable[i] = false;
+                        isMovable[latest] = false;
+                    }
+                    if (latest < 0 || end[i] > end[latest]) {
+                        latest = i;
+                    }
+                }
+            }
+        }
+
+        private static long key(int night, int index) {
+            return ((long) night << 32) | index;
+        }
+
+        private void mark(int r, int i, boolean booked) {
+            long[] nights = taken[r];
+            for (int n = Math.max(start[i], lo) - lo; n < Math.min(end[i], hi) - lo; n++) {
+                if (booked) {
+                    nights[n >> 6] |= 1L << n;
+                } else {
+                    nights[n >> 6] &= ~(1L << n);
+                }
+            }
+        }
+
+        // Whether room r has none of the window's nights in [a, b) taken
+        private boolean isFree(int r, int a, int b) {
+            long[] nights = taken[r];
+            int first = Math.max(a, lo) - lo;
+            int last = Math.min(b, hi) - lo;
+            if (first >= last) {
+                return true;
+            }
+            int firstWord = first >> 6;
+            int lastWord = (last - 1) >> 6;
+            for (int w = firstWord; w <= lastWord; w++) {
+                long mask = -1L;
+                if (w == firstWord) {
+                    mask &= -1L << first;
+                }
+                if (w == lastWord) {
+                    mask &= -1L >>> (63 - ((last - 1) & 63));
+                }
+                if ((nights[w] & mask) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Cost of a free run [a, b): clipped to the window, open if it runs past its end
+        long gapCost(int a, int b) {
+            if (b >= hi) {
+                return 0;
+            }
+            int nights = b - Math.max(a, lo);
+            if (nights <= 0) {
+                return 0;
+            }
+            return nights < minStay ? nights * STRANDED_NIGHT_COST + 1 : 1;
+        }
+
+        long moveCost(int i, int r) {
+            return r == original[i] ? 0 : MOVE_COST;
+        }
+
+        // Night after the last one taken in room r before night s, or the window's start
+        int prevEnd(int r, int s) {
+            int n = Math.min(s, hi) - lo - 1;
+            if (n < 0) {
+                return lo;
+            }
+            long[] nights = taken[r];
+            int w = n >> 6;
+            long word = nights[w] & (-1L >>> (63 - (n & 63)));
+            while (word == 0) {
+                if (--w < 0) {
+                    return lo;
+                }
+                word = nights[w];
+            }
+            return lo + (w << 6) + 64 - Long.numberOfLeadingZeros(word);
+        }
+
+        // First night taken in room r at or after night s, or the window's end
+        int nextStart(int r, int s) {
+            int n = Math.max(s, lo) - lo;
+            if (n >= hi - lo) {
+                return hi;
+            }
+            long[] nights = taken[r];
+            int w = n >> 6;
+            long word = nights[w] & (-1L << n);
+            while (word == 0) {
+                if (++w >= nights.length) {
+                    return hi;
+                }
+                word = nights[w];
+            }
+            return lo + (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        // Movable stays lie inside the window, so the bitset answers for every night they hold
+        boolean fits(int r, int i) {
+            return capacity[r] >= guests[i] && isFree(r, start[i], end[i]);
+        }
+
+        // Change in cost from putting stay i into room r, which it fits
+        long insertDelta(int r, int i) {
+            int a = prevEnd(r, start[i]);
+            int b = nextStart(r, end[i]);
+            return gapCost(a, start[i]) + gapCost(end[i], b) - gapCost(a, b) + moveCost(i, r);
+        }
+
+        // Change in cost from taking stay i out of its room
+        long removeDelta(int i) {
+            int r = room[i];
+            int a = prevEnd(r, start[i]);
+            int b = nextStart(r, end[i]);
+            return gapCost(a, b) - gapCost(a, start[i]) - gapCost(end[i], b) - moveCost(i, r);
+        }
+
+        void remove(int i) {
+            slots.get(room[i]).remove(key(start[i], i));
+            mark(room[i], i, false);
+            room[i] = -1;
+        }
+
+        void insert(int r, int i) {
+            slots.get(r).put(key(start[i], i), i);
+            mark(r, i, true);
+            room[i] = r;
+        }
+
+        long cost() {
+            long[] totals = totals();
+            long moved = 0;
+            for (int i : movable) {
+                moved += moveCost(i, room[i]);
+            }
+            return totals[0] * STRANDED_NIGHT_COST + totals[1] + moved;
+        }
+
+        // { stranded nights, gaps } over every room
+        long[] totals() {
+            long stranded = 0;
+            long gaps = 0;
+            for (TreeMap<Long, Integer> roomSlots : slots) {
+                int free = lo;
+                for (int i : roomSlots.values()) {
+                    long gap = gapCost(free, start[i]);
+                    if (gap > 0) {
+                        gaps++;
+                        stranded += gap / STRANDED_NIGHT_COST;
+                    }
+                    free = Math.max(free, end[i]);
+                }
+            }
+            return new long[] { stranded, gaps };
+        }
+
+        /**
+         * Rooms for every stay with the movable ones placed best-fit from
+         * scratch, earliest arrival first; null if one did not fit anywhere
+         * or time ran out.
+         */
+        int[] greedy(long deadline) {
+            Layout greedy = withRooms(room);
+            for (int i : movable) {
+                greedy.remove(i);
+            }
+            for (int i : movable) {
+                if (System.nanoTime() > deadline) {
+                    return null;
+                }
+                int best = -1;
+                long bestDelta = Long.MAX_VALUE;
+                for (int r = 0; r < roomNumbers.length; r++) {
+                    if (greedy.fits(r, i)) {
+                        long delta = greedy.insertDelta(r, i);
+                        if (delta < bestDelta) {
+                            best = r;
+                            bestDelta = delta;
+                        }
+                    }
+                }
+                if (best < 0) {
+                    return null;
+                }
+                greedy.insert(best, i);
+            }
+            return greedy.room;
+        }
+
+        /**
+         * Moves and swaps stays while that lowers the cost. Returns false if
+         * it stopped because the deadline passed.
+         */
+        boolean improve(long deadline) {
+            while (true) {
+                boolean moved = false;
+                for (int i : movable) {
+                    if (System.nanoTime() > deadline) {
+                        return false;
+                    }
+                    moved |= relocate(i);
+                }
+                if (moved) {
+                    continue;
+                }
+                for (int i : movable) {
+                    if (System.nanoTime() > deadline) {
+                        return false;
+                    }
+                    moved |= swap(i);
+                }
+                if (!moved) {
+                    return true;
+                }
+            }
+        }
+
+        // Moves stay i to the room that lowers the cost most, if any; its own room first
+        private boolean relocate(int i) {
+            int from = room[i];
+            long removed = removeDelta(i);
+            int best = -1;
+            long bestDelta = 0;
+            int home = original[i];
+            if (home != from && fits(home, i)) {
+                long delta = removed + insertDelta(home, i);
+                if (delta < bestDelta) {
+                    best = home;
+                    bestDelta = delta;
+                }
+            }
+            for (int r = 0; r < roomNumbers.length; r++) {
+                if (r != from && r != home && fits(r, i)) {
+                    long delta = removed + insertDelta(r, i);
+                    if (delta < bestDelta) {
+                        best = r;
+                        bestDelta = delta;
+                    }
+                }
+            }
+            if (best < 0) {
+                return false;
+            }
+            remove(i);
+            insert(best, i);
+            return true;
+        }
+
+        // Trades rooms between stay i and a stay that is alone in its way in another room, if that lowers the cost
+        private boolean swap(int i) {
+            int r1 = room[i];
+            for (int r2 = 0; r2 < roomNumbers.length; r2++) {
+                if (r2 == r1 || capacity[r2] < guests[i]) {
+                    continue;
+                }
+                int j = onlyOverlap(r2, i);
+                if (j < 0 || !isMovable[j] || capacity[r1] < guests[j]
+                        || (start[j] == start[i] && end[j] == end[i])) {
+                    continue;
+                }
+                long delta = removeDelta(i) + removeDelta(j);
+                remove(i);
+                remove(j);
+                if (fits(r1, j) && fits(r2, i)) {
+                    delta += insertDelta(r1, j);
+                    insert(r1, j);
+                    delta += insertDelta(r2, i);
+                    insert(r2, i);
+                    if (delta < 0) {
+                        return true;
+                    }
+                    remove(i);
+                    remove(j);
+                }
+                insert(r1, i);
+                insert(r2, j);
+            }
+            return false;
+        }
+
+        // The one stay in room r overlapping stay i's nights, or -1 if none or several
+        private int onlyOverlap(int r, int i) {
+            TreeMap<Long, Integer> roomSlots = slots.get(r);
+            int found = -1;
+            Map.Entry<Long, Integer> prev = roomSlots.lowerEntry(key(start[i], 0));
+            if (prev != null && end[prev.getValue()] > start[i]) {
+                found = prev.getValue();
+            }
+            for (int j : roomSlots.subMap(key(start[i], 0), key(end[i], 0)).values()) {
+                if (found >= 0) {
+                    return -1;
+                }
+                found = j;
+            }
+            return found;
+        }
+
+        List<RoomMove> moves() {
+            List<RoomMove> moves = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (room[i] != original[i]) {
+                    moves.add(new RoomMove(bookings[i], roomNumbers[room[i]]));
+                }
+            }
+            return moves;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package beachresort.services;
+
+import beachresort.models.Room;
+import beachresort.repositories.BookingAvailabilityIndex;
+import beachresort.repositories.RoomRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers "which rooms of this type can take this many guests from one date
+ * to another?" by date rather than by the rooms.status column, which only
+ * says what a room is doing right now.
+ *
+ * Room details are read once and kept until RoomRepository writes a room;
+ * the nights themselves come from the occupancy bitsets kept by
+ * {@link BookingAvailabilityIndex}. A room under Maintenance is left out of
+ * stays that start today, since it cannot be handed over yet.
+ */
+public class RoomSearchService {
+    private static final Object ROOMS_LOCK = new Object();
+    private static List<Room> rooms;
+    private static long roomsVersion = -1;
+
+    private final RoomRepository roomRepository;
+    private final BookingAvailabilityIndex availability;
+
+    public RoomSearchService() {
+        this(new RoomRepository(), BookingAvailabilityIndex.shared());
+    }
+
+    public RoomSearchService(RoomRepository roomRepository, BookingAvailabilityIndex availability) {
+        this.roomRepository = roomRepository;
+        this.availability = availability;
+    }
+
+    /**
+     * Rooms of the given type (any type when null) that hold at least guests
+     * people and are free every night of [checkIn, checkOut), by room number.
+     */
+    public List<Room> findAvailableRooms(String roomType, int guests, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("Check-out must be after check-in");
+        }
+        Map<String, Room> candidates = new LinkedHashMap<>();
+        for (Room room : findRooms(roomType, guests, checkIn)) {
+            candidates.put(room.getRoomNumber(), room);
+        }
+
+        List<Room> available = new ArrayList<>();
+        for (String roomNumber : availability.findFreeRooms(candidates.keySet(), checkIn, checkOut)) {
+            available.add(candidates.get(roomNumber));
+        }
+        return available;
+    }
+
+    // The rooms findAvailableRooms would consider for a stay from checkIn, booked or not
+    public List<Room> findRooms(String roomType, int guests, LocalDate checkIn) {
+        boolean startsToday = !checkIn.isAfter(LocalDate.now());
+        List<Room> matching = new ArrayList<>();
+        for (Room room : rooms()) {
+            if ((roomType == null || roomType.equalsIgnoreCase(room.getRoomType()))
+                    && room.getCapacity() >= guests
+                    && !(startsToday && "Maintenance".equalsIgnoreCase(room.getStatus()))) {
+                matching.add(room);
+            }
+        }
+        return matching;
+    }
+
+    public List<String> findAvailableRoomNumbers(String roomType, int guests, LocalDate checkIn, LocalDate checkOut)
+            throws SQLException {
+        List<String> roomNumbers = new ArrayList<>();
+        for (Room room : findAvailableRooms(roomType, guests, checkIn, checkOut)) {
+            roomNumbers.add(room.getRoomNumber());
+        }
+        return roomNumbers;
+    }
+
+    private List<Room> rooms() {
+        synchronized (ROOMS_LOCK) {
+            long version = RoomRepository.getRoomsVersion();
+            if (rooms == null || version != roomsVersion) {
+                List<Room> loaded = roomRepository.getAllRooms();
+                loaded.sort(Comparator.comparing(Room::getRoomNumber));
+                rooms = loaded;
+                // getAllRooms returns nothing on a database error; try again next time
+                roomsVersion = loaded.isEmpty() ? -1 : version;
+            }
+            return rooms;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package beachresort.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a table to a file one row at a time, holding no more than its
+ * output buffer, so exports of any size run in constant memory. Cells may be
+ * null, String, Number (int, long, double, BigDecimal), Boolean, LocalDate,
+ * java.util.Date (java.sql.Date, Timestamp) or anything else, which is
+ * written as its toString(). close() finishes the file.
+ */
+public interface TableWriter extends Closeable {
+
+    // Once, before the first row
+    void writeHeader(List<String> columns) throws IOException;
+
+    // The array may be reused by the caller once this returns
+    void writeRow(Object[] cells) throws IOException;
+}
@@ -0,0 +1,335 @@
+package beachresort.services;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * An .xlsx workbook written as it goes, with nothing but java.util.zip.
+ *
+ * Each row is turned into sheet XML and deflated straight into the file.
+ * Short text goes through the shared string table, so a status or payment
+ * method repeated on every row is stored once; the table is held until the
+ * end, so it takes only the first MAX_SHARED_STRINGS distinct strings and
+ * later ones are written inline in the sheet. A sheet holds at most
+ * Excel's 1,048,576 rows; after that the rows continue on a new sheet under
+ * the same header. The workbook parts that list the sheets are written last,
+ * once the sheet count is known. Dates and timestamps are stored as Excel
+ * serial numbers with a date format, so they sort and filter as dates.
+ */
+public class XlsxTableWriter implements TableWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Rows per sheet, header included
+    private static final int MAX_SHEET_ROWS = 1_048_576;
+    private static final int MAX_CELL_CHARS = 32_767;
+    // Bounds on the shared string table, which is held until the end
+    private static final int MAX_SHARED_STRINGS = 1 << 14;
+    private static final int MAX_SHARED_STRING_CHARS = 64;
+    // Day 0 of Excel's 1900 date system, as it counts with its leap year bug
+    private static final long EXCEL_EPOCH_DAY = LocalDate.of(1899, 12, 30).toEpochDay();
+
+    private static final int STYLE_DATE = 1;
+    private static final int STYLE_TIMESTAMP = 2;
+    private static final int STYLE_HEADER = 3;
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PACKAGE_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final String sheetName;
+    private final StringBuilder row = new StringBuilder(1024);
+    private char[] chars = new char[1024];
+    // Text -> index, in index order
+    private final Map<String, Integer> sharedStrings = new LinkedHashMap<>();
+    private List<String> header;
+    private int sheets;
+    private int sheetRows;
+
+    // sheetName: up to 31 characters, none of []:*?/\
+    public XlsxTableWriter(OutputStream stream, String sheetName) {
+        zip = new ZipOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE), StandardCharsets.UTF_8);
+        // Deflating is most of the cost; the fastest level still shrinks sheet XML about tenfold
+        zip.setLevel(Deflater.BEST_SPEED);
+        out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.sheetName = sheetName;
+    }
+
+    @Override
+    public void writeHeader(List<String> columns) throws IOException {
+        header = columns;
+        startSheet();
+    }
+
+    @Override
+    public void writeRow(Object[] cells) throws IOException {
+        if (sheets == 0 || sheetRows == MAX_SHEET_ROWS) {
+            endSheet();
+            startSheet();
+        }
+        row.setLength(0);
+        row.append("<row>");
+        for (Object cell : cells) {
+            appendCell(cell);
+        }
+        row.append("</row>\n");
+        writeBufferedRow();
+        sheetRows++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (sheets == 0) {
+                startSheet();
+            }
+            endSheet();
+            writePart("xl/styles.xml", styles());
+            writeSharedStrings();
+            writePart("xl/workbook.xml", workbook());
+            writePart("xl/_rels/workbook.xml.rels", workbookRels());
+            writePart("_rels/.rels", XML_DECLARATION + "<Relationships xmlns=\"" + PACKAGE_REL_NS + "\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+            writePart("[Content_Types].xml", contentTypes());
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void startSheet() throws IOException {
+        sheets++;
+        sheetRows = 0;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheets + ".xml"));
+        out.write(XML_DECLARATION);
+        out.write("<worksheet xmlns=\"" + MAIN_NS + "\">");
+        if (header != null) {
+            // Keep the header in view while scrolling
+            out.write("<sheetViews><sheetView workbookViewId=\"0\"><pane ySplit=\"1\" topLeftCell=\"A2\" "
+                    + "activePane=\"bottomLeft\" state=\"frozen\"/></sheetView></sheetViews>");
+        }
+        out.write("<sheetData>\n");
+        if (header != null) {
+            row.setLength(0);
+            row.append("<row>");
+            for (String column : header) {
+                row.append("<c t=\"inlineStr\" s=\"").append(STYLE_HEADER).append("\"><is><t>");
+                appendEscaped(column);
+                row.append("</t></is></c>");
+            }
+            row.append("</row>\n");
+            writeBufferedRow();
+            sheetRows++;
+        }
+    }
+
+    private void endSheet() throws IOException {
+        if (sheets == 0) {
+            return;
+        }
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+    }
+
+    // One write per row; the writer's per-call locking costs more than the XML
+    private void writeBufferedRow() throws IOException {
+        if (chars.length < row.length()) {
+            chars = new char[Math.max(row.length(), chars.length * 2)];
+        }
+        row.getChars(0, row.length(), chars, 0);
+        out.write(chars, 0, row.length());
+    }
+
+    private void appendCell(Object cell) {
+        if (cell == null) {
+            // Cells carry no reference, so an empty one keeps the next in its column
+            row.append("<c/>");
+        } else if (cell instanceof Integer || cell instanceof Long) {
+            row.append("<c><v>").append(((Number) cell).longValue()).append("</v></c>");
+        } else if (cell instanceof BigDecimal) {
+            row.append("<c><v>").append(((BigDecimal) cell).toPlainString()).append("</v></c>");
+        } else if (cell instanceof Double && Double.isFinite((Double) cell)) {
+            row.append("<c><v>").append((double) (Double) cell).append("</v></c>");
+        } else if (cell instanceof Boolean) {
+            row.append((Boolean) cell ? "<c t=\"b\"><v>1</v></c>" : "<c t=\"b\"><v>0</v></c>");
+        } else if (cell instanceof LocalDate) {
+            appendDate((LocalDate) cell);
+        } else if (cell instanceof java.sql.Date) {
+            appendDate(((java.sql.Date) cell).toLocalDate());
+        } else if (cell instanceof LocalDateTime) {
+            appendTimestamp((LocalDateTime) cell);
+        } else if (cell instanceof Timestamp) {
+            appendTimestamp(((Timestamp) cell).toLocalDateTime());
+        } else if (cell instanceof java.util.Date) {
+            appendTimestamp(new Timestamp(((java.util.Date) cell).getTime()).toLocalDateTime());
+        } else {
+            String text = cell.toString();
+            Integer shared = sharedString(text);
+            if (shared != null) {
+                row.append("<c t=\"s\"><v>").append((int) shared).append("</v></c>");
+                return;
+            }
+            row.append(text.isEmpty() || (text.charAt(0) > ' ' && text.charAt(text.length() - 1) > ' ')
+                    ? "<c t=\"inlineStr\"><is><t>"
+                    : "<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+            appendEscaped(text.length() > MAX_CELL_CHARS ? text.substring(0, MAX_CELL_CHARS) : text);
+            row.append("</t></is></c>");
+        }
+    }
+
+    // The string's index in the shared string table, adding it while there is room; null to write it inline
+    private Integer sharedString(String text) {
+        if (text.length() > MAX_SHARED_STRING_CHARS) {
+            return null;
+        }
+        Integer index = sharedStrings.get(text);
+        if (index == null && sharedStrings.size() < MAX_SHARED_STRINGS) {
+            index = sharedStrings.size();
+            sharedStrings.put(text, index);
+        }
+        return index;
+    }
+
+    private void appendDate(LocalDate date) {
+        row.append("<c s=\"").append(STYLE_DATE).append("\"><v>").append(date.toEpochDay() - EXCEL_EPOCH_DAY)
+                .append("</v></c>");
+    }
+
+    private void appendTimestamp(LocalDateTime timestamp) {
+        double serial = timestamp.toLocalDate().toEpochDay() - EXCEL_EPOCH_DAY
+                + timestamp.toLocalTime().toSecondOfDay() / 86_400.0;
+        row.append("<c s=\"").append(STYLE_TIMESTAMP).append("\"><v>").append(serial).append("</v></c>");
+    }
+
+    // Escapes markup and drops the control characters XML 1.0 cannot hold; appends to the row buffer
+    private void appendEscaped(String text) {
+        int plainFrom = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement;
+            if (c == '&') {
+                replacement = "&amp;";
+            } else if (c == '<') {
+                replacement = "&lt;";
+            } else if (c == '>') {
+                replacement = "&gt;";
+            } else if ((c < ' ' && c != '\t' && c != '\n' && c != '\r') || c == '\uFFFE' || c == '\uFFFF') {
+                replacement = "";
+            } else {
+                continue;
+            }
+            row.append(text, plainFrom, i).append(replacement);
+            plainFrom = i + 1;
+        }
+        row.append(text, plainFrom, text.length());
+    }
+
+    private void writeSharedStrings() throws IOException {
+        zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+        out.write(XML_DECLARATION);
+        out.write("<sst xmlns=\"" + MAIN_NS + "\" uniqueCount=\"" + sharedStrings.size() + "\">");
+        // In index order, which is insertion order
+        for (String text : sharedStrings.keySet()) {
+            row.setLength(0);
+            row.append(text.isEmpty() || (text.charAt(0) > ' ' && text.charAt(text.length() - 1) > ' ')
+                    ? "<si><t>" : "<si><t xml:space=\"preserve\">");
+            appendEscaped(text);
+            row.append("</t></si>");
+            writeBufferedRow();
+        }
+        out.write("</sst>");
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private void writePart(String name, String xml) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        out.write(xml);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private String workbook() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS)
+                .append("\"><sheets>");
+        for (int i = 1; i <= sheets; i++) {
+            String name = i == 1 ? sheetName : sheetName + " " + i;
+            xml.append("<sheet name=\"").append(name.replace("&", "&amp;").replace("<", "&lt;"))
+                    .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        return xml.append("</sheets></workbook>").toString();
+    }
+
+    private String workbookRels() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"").append(PACKAGE_REL_NS).append("\">");
+        for (int i = 1; i <= sheets; i++) {
+            xml.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(REL_NS)
+                    .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        xml.append("<Relationship Id=\"rId").append(sheets + 1).append("\" Type=\"").append(REL_NS)
+                .append("/styles\" Target=\"styles.xml\"/>");
+        xml.append("<Relationship Id=\"rId").append(sheets + 2).append("\" Type=\"").append(REL_NS)
+                .append("/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+        return xml.append("</Relationships>").toString();
+    }
+
+    private String contentTypes() {
+        String spreadsheetml = "application/vnd.openxmlformats-officedocument.spreadsheetml";
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"").append(spreadsheetml)
+                .append(".sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"").append(spreadsheetml)
+                .append(".styles+xml\"/>")
+                .append("<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"").append(spreadsheetml)
+                .append(".sharedStrings+xml\"/>");
+        for (int i = 1; i <= sheets; i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i).append(".xml\" ContentType=\"")
+                    .append(spreadsheetml).append(".worksheet+xml\"/>");
+        }
+        return xml.append("</Types>").toString();
+    }
+
+    // Styles 0 plain, 1 date, 2 timestamp, 3 bold header
+    private static String styles() {
+        String xf = "<xf numFmtId=\"%d\" fontId=\"%d\" fillId=\"0\" borderId=\"0\" xfId=\"0\"%s/>";
+        return XML_DECLARATION + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+                + "<numFmts count=\"2\"><numFmt numFmtId=\"164\" formatCode=\"yyyy-mm-dd\"/>"
+                + "<numFmt numFmtId=\"165\" formatCode=\"yyyy-mm-dd hh:mm:ss\"/></numFmts>"
+                + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+                + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"4\">"
+                + String.format(xf, 0, 0, "")
+                + String.format(xf, 164, 0, " applyNumberFormat=\"1\"")
+                + String.format(xf, 165, 0, " applyNumberFormat=\"1\"")
+                + String.format(xf, 0, 1, " applyFont=\"1\"")
+                + "</cellXfs>"
+                + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+                + "</styleSheet>";
+    }
+}
@@ -0,0 +1,265 @@
+package beachresort.tools;
+
+import beachresort.models.Booking;
+import beachresort.models.BookingEvent;
+import beachresort.models.Payment;
+import beachresort.repositories.AnalyticsRepository;
+import beachresort.repositories.BookingEventRepository;
+import beachresort.services.AnalyticsCache;
+import beachresort.services.AnalyticsCache.BookingDimension;
+import beachresort.services.AnalyticsCache.BookingFilter;
+import beachresort.services.AnalyticsCache.Group;
+import beachresort.services.AnalyticsCache.PaymentDimension;
+import beachresort.services.AnalyticsCache.PaymentFilter;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Times AnalyticsCache on generated data: the full load, its memory, a set
+ * of group-bys (best of a few rounds, after warm-up) and one incremental
+ * refresh.
+ *
+ * The rows come from in-memory stand-ins for AnalyticsRepository and
+ * BookingEventRepository, so the load time is the cache's own, without
+ * MySQL. Bookings spread over four years, 200 rooms of four types and five
+ * statuses; payments over the same years, four methods, two types and three
+ * statuses.
+ *
+ * Usage:
+ *   java -Xmx1g -cp out beachresort.tools.AnalyticsBenchmark [rows]
+ *
+ * 10,000,000 bookings and 10,000,000 payments, one core of a cloud VM:
+ *   load       ~14 s, most of it making the rows; 417 MB of columns
+ *              (21.3 bytes a row), which is also what the heap grew by
+ *   group-bys  ~45-105 ms each over 10M rows
+ *   refresh    ~80 ms for 10,000 booking events, 10,000 payment changes
+ *              and 1,000 deletions
+ * The group-bys are bound by memory bandwidth: on the same VM a bare loop
+ * summing the 80 MB amount column takes ~16 ms.
+ */
+public class AnalyticsBenchmark {
+    private static final int DEFAULT_ROWS = 10_000_000;
+    private static final int ROUNDS = 5;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROOMS = 200;
+    private static final int CHANGES = 10_000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2022, 1, 1);
+    private static final int DAYS = 4 * 365;
+
+    private static final String[] ROOM_TYPES = { "Standard", "Deluxe", "Suite", "Family" };
+    private static final String[] BOOKING_STATUSES = { "Confirmed", "Confirmed", "Confirmed", "Checked In",
+            "Checked Out", "Cancelled", "Pending" };
+    private static final String[] METHODS = { "Cash", "Credit Card", "Bank Transfer", "Online Payment" };
+    private static final String[] PAYMENT_TYPES = { "Room charge", "Deposit" };
+    private static final String[] PAYMENT_STATUSES = { "Completed", "Completed", "Pending", "Failed" };
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        GeneratedData data = new GeneratedData(rows);
+        GeneratedEvents events = new GeneratedEvents();
+        AnalyticsCache cache = new AnalyticsCache(data, events);
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        cache.refresh();
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        long heapAfter = usedHeap();
+        System.out.printf("Loaded %,d bookings and %,d payments in %,d ms (%,.0f rows/s)%n", cache.getBookingRows(),
+                cache.getPaymentRows(), loadMillis, (cache.getBookingRows() + cache.getPaymentRows()) * 1000.0
+                        / Math.max(loadMillis, 1));
+        System.out.printf("Footprint %,d KB by the columns' count (%.1f bytes a row), heap grew %,d KB%n",
+                cache.getFootprintBytes() / 1024,
+                (double) cache.getFootprintBytes() / (cache.getBookingRows() + cache.getPaymentRows()),
+                (heapAfter - heapBefore) / 1024);
+        System.out.println();
+
+        BookingFilter everyBooking = new BookingFilter();
+        BookingFilter lastYear = new BookingFilter();
+        lastYear.setCheckIn(FIRST_DAY.plusYears(3), FIRST_DAY.plusYears(4));
+        BookingFilter confirmedSuites = new BookingFilter();
+        confirmedSuites.setStatuses("Confirmed");
+        confirmedSuites.setRoomTypes("Suite");
+        PaymentFilter everyPayment = new PaymentFilter();
+        PaymentFilter completedLastYear = new PaymentFilter();
+        completedLastYear.setStatuses("Completed");
+        completedLastYear.setPaymentDate(FIRST_DAY.plusYears(3), FIRST_DAY.plusYears(4));
+
+        time("bookings by room type", () -> cache.groupBookings(everyBooking, BookingDimension.ROOM_TYPE));
+        time("bookings by room", () -> cache.groupBookings(everyBooking, BookingDimension.ROOM));
+        time("bookings in a year by month, room type, status", () -> cache.groupBookings(lastYear,
+                BookingDimension.CHECK_IN_MONTH, BookingDimension.ROOM_TYPE, BookingDimension.STATUS));
+        time("confirmed suites by guests", () -> cache.groupBookings(confirmedSuites, BookingDimension.GUESTS));
+        time("bookings by check-in day", () -> cache.groupBookings(everyBooking, BookingDimension.CHECK_IN_DAY));
+        time("payments by method, status", () -> cache.groupPayments(everyPayment, PaymentDimension.METHOD,
+                PaymentDimension.STATUS));
+        time("completed payments in a year by week", () -> cache.groupPayments(completedLastYear,
+                PaymentDimension.WEEK));
+        time("payments overall", () -> cache.groupPayments(everyPayment));
+        System.out.println();
+
+        Random random = new Random(7);
+        events.generate(rows, random);
+        data.generateChanges(random);
+        start = System.nanoTime();
+        cache.refresh();
+        System.out.printf("Refresh of %,d booking events, %,d payment changes and %,d deletions: %.1f ms%n",
+                events.events.size(), data.changed.size(), data.deleted.size(), (System.nanoTime() - start) / 1e6);
+        List<Group> overall = cache.groupBookings(everyBooking);
+        System.out.printf("Bookings now %,d of %,d rows%n", overall.isEmpty() ? 0 : overall.get(0).getRows(),
+                cache.getBookingRows());
+    }
+
+    private static void time(String name, Supplier<List<Group>> query) {
+        List<Group> groups = null;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            groups = query.get();
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            groups = query.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-48s %7.1f ms  %,7d groups%n", name, best / 1e6, groups.size());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String room(int number) {
+        return String.format("R%03d", number);
+    }
+
+    // Rows made as they are read, never held, like the cursor behind the real repository
+    private static final class GeneratedData extends AnalyticsRepository {
+        private final int rows;
+        private final List<Payment> changed = new ArrayList<>();
+        private final List<Integer> deleted = new ArrayList<>();
+
+        GeneratedData(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public long forEachBooking(Consumer<? super Booking> action) {
+            Random random = new Random(42);
+            for (int id = 1; id <= rows; id++) {
+                action.accept(booking(id, random));
+            }
+            return rows;
+        }
+
+        @Override
+        public long forEachPayment(Consumer<? super Payment> action) {
+            Random random = new Random(43);
+            for (int id = 1; id <= rows; id++) {
+                action.accept(payment(id, random));
+            }
+            return rows;
+        }
+
+        @Override
+        public long forEachPaymentChange(Timestamp since, Consumer<? super Payment> action) {
+            changed.forEach(action);
+            return changed.size();
+        }
+
+        @Override
+        public long forEachPaymentDeletion(Timestamp since, Consumer<Integer> action) {
+            deleted.forEach(action);
+            return deleted.size();
+        }
+
+        @Override
+        public Timestamp getWatermark() {
+            return new Timestamp(System.currentTimeMillis() - 60_000);
+        }
+
+        @Override
+        public Map<String, String> getRoomTypes() {
+            Map<String, String> types = new HashMap<>();
+            for (int number = 0; number < ROOMS; number++) {
+                types.put(room(number), ROOM_TYPES[number % ROOM_TYPES.length]);
+            }
+            return types;
+        }
+
+        // Updates to existing payments, new ones, and a tenth as many deletions
+        void generateChanges(Random random) {
+            for (int i = 0; i < CHANGES; i++) {
+                int id = i % 2 == 0 ? 1 + random.nextInt(rows) : rows + i;
+                changed.add(payment(id, random));
+            }
+            for (int i = 0; i < CHANGES / 10; i++) {
+                deleted.add(1 + random.nextInt(rows));
+            }
+        }
+
+        private static Booking booking(int id, Random random) {
+            LocalDate checkIn = FIRST_DAY.plusDays(random.nextInt(DAYS));
+            int nights = 1 + random.nextInt(7);
+            return new Booking(id, 0, room(random.nextInt(ROOMS)), null, checkIn, checkIn.plusDays(nights),
+                    1 + random.nextInt(6), nights * (80 + random.nextInt(400)),
+                    BOOKING_STATUSES[random.nextInt(BOOKING_STATUSES.length)]);
+        }
+
+        private static Payment payment(int id, Random random) {
+            Timestamp paid = Timestamp.valueOf(FIRST_DAY.plusDays(random.nextInt(DAYS)).atTime(random.nextInt(24),
+                    random.nextInt(60)));
+            Payment payment = new Payment(null, PAYMENT_TYPES[random.nextInt(PAYMENT_TYPES.length)],
+                    BigDecimal.valueOf(1_000 + random.nextInt(200_000), 2), METHODS[random.nextInt(METHODS.length)],
+                    PAYMENT_STATUSES[random.nextInt(PAYMENT_STATUSES.length)], null, paid);
+            payment.setPaymentId(id);
+            return payment;
+        }
+    }
+
+    // An empty log until generate, then status changes, new bookings and deletions
+    private static final class GeneratedEvents extends BookingEventRepository {
+        private final List<BookingEvent> events = new ArrayList<>();
+
+        void generate(int rows, Random random) {
+            for (int i = 0; i < CHANGES; i++) {
+                long eventId = i + 1;
+                int kind = random.nextInt(10);
+                if (kind < 6) {
+                    BookingEvent event = new BookingEvent(eventId, 1 + random.nextInt(rows),
+                            BookingEvent.Type.CANCELLED, "benchmark", null);
+                    event.setStatus("Cancelled");
+                    events.add(event);
+                } else if (kind < 9) {
+                    events.add(BookingEvent.of(eventId, BookingEvent.Type.CREATED,
+                            GeneratedData.booking(rows + i + 1, random), "benchmark", null));
+                } else {
+                    events.add(new BookingEvent(eventId, 1 + random.nextInt(rows), BookingEvent.Type.DELETED,
+                            "benchmark", null));
+                }
+            }
+        }
+
+        @Override
+        public long getSettledEventId() {
+            return 0;
+        }
+
+        @Override
+        public long forEachEvent(long afterEventId, long upToEventId, Consumer<? super BookingEvent> action) {
+            events.forEach(action);
+            return events.size();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrator;
+import beachresort.models.AuditLog;
+import beachresort.models.BookingEvent;
+import beachresort.repositories.BookingEventRepository;
+import beachresort.services.BookingLedger;
+
+import java.util.List;
+
+/**
+ * Command-line access to the booking event log.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.BookingLedgerCommand history <bookingID>
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.BookingLedgerCommand restore <bookingID> <eventID> [who]
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.BookingLedgerCommand snapshot
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.BookingLedgerCommand verify
+ *
+ * history lists a booking's events with their ids; restore puts the booking
+ * back the way it was right after one of them. snapshot takes a snapshot now
+ * rather than waiting for the night audit. verify replays the log and lists
+ * bookings whose row no longer matches it; exits with status 1 if there are any.
+ * Runs against the configured database.
+ */
+public class BookingLedgerCommand {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        SchemaMigrator.migrate();
+        BookingLedger ledger = new BookingLedger();
+
+        switch (args[0]) {
+            case "history": {
+                int bookingId = Integer.parseInt(args[1]);
+                List<BookingEvent> events = new BookingEventRepository().getEvents(bookingId);
+                List<AuditLog> trail = ledger.getAuditTrail(bookingId);
+                for (int i = 0; i < events.size(); i++) {
+                    System.out.println("#" + events.get(i).getEventId() + " " + trail.get(i).getFormattedLogEntry());
+                    System.out.println("    " + trail.get(i).getNewDetails());
+                }
+                if (events.isEmpty()) {
+                    System.out.println("No events for booking " + bookingId);
+                }
+                break;
+            }
+            case "restore": {
+                int bookingId = Integer.parseInt(args[1]);
+                long eventId = Long.parseLong(args[2]);
+                String performedBy = args.length > 3 ? args[3] : "ledger restore";
+                if (ledger.restoreBooking(bookingId, eventId, performedBy)) {
+                    System.out.println("Restored booking " + bookingId + " as of event " + eventId);
+                } else {
+                    System.out.println("Booking " + bookingId + " not restored");
+                    System.exit(1);
+                }
+                break;
+            }
+            case "snapshot": {
+                long start = System.nanoTime();
+                BookingLedger.Projection projection = ledger.snapshot();
+                System.out.printf("Snapshot of %d bookings at event %d (%d events replayed) in %d ms%n",
+                        projection.size(), projection.getLastEventId(), projection.getEventsApplied(),
+                        (System.nanoTime() - start) / 1_000_000);
+                break;
+            }
+            case "verify": {
+                List<Integer> differing = ledger.verify();
+                if (differing.isEmpty()) {
+                    System.out.println("bookings matches the event log");
+                } else {
+                    System.out.println(differing.size() + " bookings differ from the event log: " + differing);
+                    System.exit(1);
+                }
+                break;
+            }
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: BookingLedgerCommand history <bookingID> | restore <bookingID> <eventID> [who]"
+                + " | snapshot | verify");
+    }
+}
@@ -0,0 +1,179 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrator;
+import beachresort.models.Booking;
+import beachresort.models.BookingEvent;
+import beachresort.repositories.BookingEventRepository;
+import beachresort.services.BookingLedger;
+import beachresort.services.BookingLedger.Projection;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times rebuilding every booking from the event log, from scratch and from a
+ * snapshot.
+ *
+ * By default it generates a synthetic log in memory (created, modified,
+ * confirmed, checked-in, checked-out, cancelled and deleted events, five per
+ * booking on average) and reports, best of a few rounds: the full replay,
+ * the size and cost of a snapshot taken 90% of the way through, and the
+ * replay from that snapshot. That isolates the projection from the database.
+ *
+ * With --db it replays the configured database's booking_events instead,
+ * once from the start and once from the newest snapshot, which includes
+ * streaming the rows from MySQL.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.BookingReplayBenchmark [events]
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.BookingReplayBenchmark --db
+ */
+public class BookingReplayBenchmark {
+    private static final int DEFAULT_EVENTS = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static final int ROOMS = 200;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "--db".equals(args[0])) {
+            replayDatabase();
+            return;
+        }
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS;
+
+        long start = System.nanoTime();
+        List<BookingEvent> log = generate(events, new Random(42));
+        System.out.printf("Generated %d events in %d ms%n", log.size(), (System.nanoTime() - start) / 1_000_000);
+        int snapshotAt = log.size() * 9 / 10;
+
+        long fullBest = Long.MAX_VALUE;
+        long encodeBest = Long.MAX_VALUE;
+        long tailBest = Long.MAX_VALUE;
+        int bookings = 0;
+        int snapshotBytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            Projection full = replay(new Projection(), log, 0, log.size());
+            fullBest = Math.min(fullBest, System.nanoTime() - start);
+            bookings = full.size();
+
+            Projection partial = replay(new Projection(), log, 0, snapshotAt);
+            start = System.nanoTime();
+            byte[] state = partial.encode();
+            encodeBest = Math.min(encodeBest, System.nanoTime() - start);
+            snapshotBytes = state.length;
+
+            start = System.nanoTime();
+            Projection fromSnapshot = replay(Projection.decode(state, partial.getLastEventId()), log, snapshotAt,
+                    log.size());
+            tailBest = Math.min(tailBest, System.nanoTime() - start);
+
+            if (fromSnapshot.size() != full.size()) {
+                throw new IllegalStateException("Replay from the snapshot gave " + fromSnapshot.size()
+                        + " bookings, the full replay " + full.size());
+            }
+        }
+
+        System.out.printf("Full replay:          %,d events -> %,d bookings in %.1f ms (%,.0f events/s)%n",
+                log.size(), bookings, fullBest / 1e6, log.size() / (fullBest / 1e9));
+        System.out.printf("Snapshot at %,d:   %,d bytes, encoded in %.1f ms%n", snapshotAt, snapshotBytes,
+                encodeBest / 1e6);
+        System.out.printf("Snapshot + tail:      decode and %,d events in %.1f ms%n", log.size() - snapshotAt,
+                tailBest / 1e6);
+    }
+
+    private static Projection replay(Projection projection, List<BookingEvent> log, int from, int to) {
+        for (int i = from; i < to; i++) {
+            projection.apply(log.get(i));
+        }
+        return projection;
+    }
+
+    private static void replayDatabase() throws Exception {
+        SchemaMigrator.migrate();
+        BookingEventRepository eventRepository = new BookingEventRepository();
+        System.out.printf("booking_events holds %,d events%n", eventRepository.countEvents());
+
+        long start = System.nanoTime();
+        Projection full = new Projection();
+        eventRepository.forEachEvent(0, Long.MAX_VALUE, full::apply);
+        long fullNanos = System.nanoTime() - start;
+        System.out.printf("Full replay:          %,d events -> %,d bookings in %.1f ms%n",
+                full.getEventsApplied(), full.size(), fullNanos / 1e6);
+
+        BookingEventRepository.Snapshot snapshot = eventRepository.getLatestSnapshot(Long.MAX_VALUE);
+        if (snapshot == null) {
+            System.out.println("No snapshot yet; run BookingLedgerCommand snapshot first");
+            return;
+        }
+        start = System.nanoTime();
+        Projection fromSnapshot = new BookingLedger().replay(Long.MAX_VALUE);
+        System.out.printf("Snapshot + tail:      snapshot at event %d and %,d events -> %,d bookings in %.1f ms%n",
+                snapshot.getLastEventId(), fromSnapshot.getEventsApplied(), fromSnapshot.size(),
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    // A log shaped like the front desk's: most bookings confirmed and stayed in, some edited, cancelled or deleted
+    private static List<BookingEvent> generate(int events, Random random) {
+        List<BookingEvent> log = new ArrayList<>(events);
+        List<Booking> open = new ArrayList<>();
+        LocalDateTime recordedAt = FIRST_DAY.atStartOfDay();
+        int nextBookingId = 1;
+        int nextStayId = 1;
+        while (log.size() < events) {
+            long eventId = log.size() + 1;
+            recordedAt = recordedAt.plusSeconds(30);
+            int roll = random.nextInt(100);
+            if (open.isEmpty() || roll < 22) {
+                LocalDate checkIn = FIRST_DAY.plusDays(random.nextInt(3 * 365));
+                Booking booking = new Booking(nextBookingId++, 1 + random.nextInt(5_000),
+                        String.format("R%03d", 1 + random.nextInt(ROOMS)), "Guest " + random.nextInt(100_000),
+                        checkIn, checkIn.plusDays(1 + random.nextInt(7)), 1 + random.nextInt(4),
+                        1_000 + random.nextInt(20_000), "Pending");
+                open.add(booking);
+                log.add(BookingEvent.of(eventId, BookingEvent.Type.CREATED, booking, "front desk", recordedAt));
+                continue;
+            }
+
+            int index = random.nextInt(open.size());
+            Booking booking = open.get(index);
+            BookingEvent event;
+            if (roll < 40) {
+                booking.setCheckOutDate(booking.getCheckOutDate().plusDays(1));
+                event = BookingEvent.of(eventId, BookingEvent.Type.MODIFIED, booking, "front desk", recordedAt);
+            } else if (roll < 60) {
+                event = statusEvent(eventId, booking, BookingEvent.Type.CONFIRMED, "Confirmed", recordedAt);
+            } else if (roll < 78) {
+                event = statusEvent(eventId, booking, BookingEvent.Type.CHECKED_IN, "Confirmed", recordedAt);
+                event.setStayId(nextStayId++);
+            } else if (roll < 94) {
+                event = new BookingEvent(eventId, booking.getBookingID(), BookingEvent.Type.CHECKED_OUT, null,
+                        recordedAt);
+                // Done with; later events go to other bookings
+                open.set(index, open.get(open.size() - 1));
+                open.remove(open.size() - 1);
+            } else if (roll < 98) {
+                booking.setStatus("Cancelled");
+                event = BookingEvent.of(eventId, BookingEvent.Type.CANCELLED, booking, "front desk", recordedAt);
+            } else {
+                event = new BookingEvent(eventId, booking.getBookingID(), BookingEvent.Type.DELETED, "front desk",
+                        recordedAt);
+                open.set(index, open.get(open.size() - 1));
+                open.remove(open.size() - 1);
+            }
+            log.add(event);
+        }
+        return log;
+    }
+
+    private static BookingEvent statusEvent(long eventId, Booking booking, BookingEvent.Type type, String status,
+            LocalDateTime recordedAt) {
+        booking.setStatus(status);
+        BookingEvent event = new BookingEvent(eventId, booking.getBookingID(), type, null, recordedAt);
+        event.setStatus(status);
+        return event;
+    }
+}
@@ -0,0 +1,268 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrator;
+import beachresort.models.Booking;
+import beachresort.models.Payment;
+import beachresort.models.Room;
+import beachresort.services.BulkImportService;
+import beachresort.services.BulkImportService.ImportReport;
+import beachresort.services.BulkImportService.ImportRow;
+import beachresort.services.BulkImportService.RejectSink;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Loads rooms, bookings or payments from a CSV file into the configured
+ * database through {@link BulkImportService}. The file is read as it is
+ * imported, so memory use does not grow with its size. Rows that cannot be
+ * parsed or fail validation are written to the reject file with the line
+ * number and reason; the rest of the file is still loaded.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.BulkImportCommand \
+ *       rooms|bookings|payments file.csv [rejects.csv]
+ *
+ * The first line is a header naming the columns (any order):
+ *   rooms:    room_number, room_type, capacity, price_per_night, status
+ *   bookings: user_id, room_number, customer_name, check_in_date, check_out_date,
+ *             number_of_guests, total_price, status
+ *   payments: user_id, payment_type, amount, payment_method, status, description,
+ *             payment_date (optional, yyyy-MM-dd HH:mm:ss)
+ * Dates are yyyy-MM-dd. Fields may be double-quoted; quoted fields cannot span lines.
+ */
+public class BulkImportCommand {
+
+    private interface RowParser<T> {
+        T parse(Map<String, String> fields);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BulkImportCommand rooms|bookings|payments <file.csv> [rejects.csv]");
+            System.exit(2);
+        }
+        String entity = args[0];
+        Path input = Paths.get(args[1]);
+        Path rejectsPath = Paths.get(args.length > 2 ? args[2] : args[1] + ".rejects.csv");
+
+        SchemaMigrator.migrate();
+        BulkImportService service = new BulkImportService();
+
+        ImportReport report;
+        long unparseable;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+                BufferedWriter rejectWriter = Files.newBufferedWriter(rejectsPath, StandardCharsets.UTF_8)) {
+            rejectWriter.write("line,reason,row");
+            rejectWriter.newLine();
+            RejectSink rejects = (lineNumber, raw, reason) -> {
+                try {
+                    rejectWriter.write(lineNumber + "," + quote(reason) + "," + quote(raw));
+                    rejectWriter.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+
+            switch (entity) {
+                case "rooms": {
+                    CsvRows<Room> rows = new CsvRows<>(reader, BulkImportCommand::parseRoom, rejects);
+                    report = service.importRooms(rows, rejects);
+                    unparseable = rows.unparseable;
+                    break;
+                }
+                case "bookings": {
+                    CsvRows<Booking> rows = new CsvRows<>(reader, BulkImportCommand::parseBooking, rejects);
+                    report = service.importBookings(rows, rejects);
+                    unparseable = rows.unparseable;
+                    break;
+                }
+                case "payments": {
+                    CsvRows<Payment> rows = new CsvRows<>(reader, BulkImportCommand::parsePayment, rejects);
+                    report = service.importPayments(rows, rejects);
+                    unparseable = rows.unparseable;
+                    break;
+                }
+                default:
+                    System.err.println("Unknown entity: " + entity);
+                    System.exit(2);
+                    return;
+            }
+        }
+
+        System.out.println(report);
+        if (unparseable > 0) {
+            System.out.println(unparseable + " further lines could not be parsed");
+        }
+        if (report.getRejected() + unparseable > 0) {
+            System.out.println("Rejected rows written to " + rejectsPath);
+        }
+    }
+
+    private static Room parseRoom(Map<String, String> fields) {
+        return new Room(
+                required(fields, "room_number"),
+                required(fields, "room_type"),
+                Integer.parseInt(required(fields, "capacity")),
+                Double.parseDouble(required(fields, "price_per_night")),
+                required(fields, "status"),
+                null, null);
+    }
+
+    private static Booking parseBooking(Map<String, String> fields) {
+        return new Booking(
+                Integer.parseInt(required(fields, "user_id")),
+                required(fields, "room_number"),
+                required(fields, "customer_name"),
+                LocalDate.parse(required(fields, "check_in_date")),
+                LocalDate.parse(required(fields, "check_out_date")),
+                Integer.parseInt(required(fields, "number_of_guests")),
+                Double.parseDouble(required(fields, "total_price")),
+                required(fields, "status"));
+    }
+
+    private static Payment parsePayment(Map<String, String> fields) {
+        String paymentDate = fields.get("payment_date");
+        return new Payment(
+                required(fields, "user_id"),
+                required(fields, "payment_type"),
+                new BigDecimal(required(fields, "amount")),
+                required(fields, "payment_method"),
+                required(fields, "status"),
+                fields.getOrDefault("description", ""),
+                paymentDate == null || paymentDate.isEmpty()
+                        ? null
+                        : Timestamp.valueOf(LocalDateTime.parse(paymentDate.replace(' ', 'T'))));
+    }
+
+    private static String required(Map<String, String> fields, String column) {
+        String value = fields.get(column);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + column);
+        }
+        return value;
+    }
+
+    // Splits one CSV record; "" inside a quoted field is a literal quote
+    static List<String> splitLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static String quote(String value) {
+        return "\"" + (value == null ? "" : value.replace("\"", "\"\"")) + "\"";
+    }
+
+    // Parses records lazily as the import pulls them; unparseable lines go
+    // straight to the reject sink and are skipped
+    private static final class CsvRows<T> implements Iterator<ImportRow<T>> {
+        private final BufferedReader reader;
+        private final RowParser<T> parser;
+        private final RejectSink rejects;
+        private final List<String> header;
+        private long lineNumber = 1;
+        private long unparseable;
+        private ImportRow<T> next;
+
+        CsvRows(BufferedReader reader, RowParser<T> parser, RejectSink rejects) throws IOException {
+            this.reader = reader;
+            this.parser = parser;
+            this.rejects = rejects;
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IOException("Empty file: no header row");
+            }
+            this.header = new ArrayList<>();
+            for (String column : splitLine(headerLine.replace("\uFEFF", ""))) {
+                header.add(column.toLowerCase());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                String line;
+                try {
+                    line = reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (line == null) {
+                    return false;
+                }
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    List<String> values = splitLine(line);
+                    if (values.size() != header.size()) {
+                        throw new IllegalArgumentException("Expected " + header.size() + " fields, found "
+                                + values.size());
+                    }
+                    Map<String, String> fields = new HashMap<>();
+                    for (int i = 0; i < header.size(); i++) {
+                        fields.put(header.get(i), values.get(i));
+                    }
+                    next = new ImportRow<>(lineNumber, line, parser.parse(fields));
+                } catch (RuntimeException e) {
+                    unparseable++;
+                    rejects.reject(lineNumber, line, "Parse error: " + e.getMessage());
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public ImportRow<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ImportRow<T> row = next;
+            next = null;
+            return row;
+        }
+    }
+}
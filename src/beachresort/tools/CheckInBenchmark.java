@@ -0,0 +1,178 @@
+package beachresort.tools;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.database.SchemaMigrator;
+import beachresort.models.Booking;
+import beachresort.models.CheckInOut;
+import beachresort.repositories.BookingRepository;
+import beachresort.repositories.CheckInOutRepository;
+import beachresort.repositories.RoomRepository;
+import beachresort.services.CheckInService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Times walk-in check-ins done the old way (validate, reserveBooking,
+ * addCheckInOut, updateRoomStatusBasedOnCurrent, each on its own) against
+ * CheckInService.walkIn, which does the same work in one transaction.
+ * Reports mean, median and 95th percentile latency, and the statements
+ * each check-in sent to the server (from the global Questions counter, so
+ * run it against an otherwise idle database).
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.CheckInBenchmark [check-ins] [rooms]
+ *
+ * Runs against the configured database. It only touches its own rooms
+ * (ZC01, ZC02, ...) and their bookings and stays, and removes them afterwards.
+ */
+public class CheckInBenchmark {
+    private static final int DEFAULT_CHECK_INS = 500;
+    private static final int DEFAULT_ROOMS = 10;
+    private static final int WARM_UP = 20;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2031, 1, 1);
+
+    private interface WalkIn {
+        boolean checkIn(Booking booking, CheckInOut stay) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int checkIns = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHECK_INS;
+        int rooms = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROOMS;
+
+        SchemaMigrator.migrate();
+        int customerId = benchmarkCustomer();
+        try {
+            createRooms(rooms);
+            clear();
+
+            BookingRepository bookingRepository = new BookingRepository();
+            CheckInOutRepository checkInOutRepository = new CheckInOutRepository();
+            RoomRepository roomRepository = new RoomRepository();
+            run("step by step", checkIns, rooms, customerId, (booking, stay) -> {
+                if (!checkInOutRepository.isValidCustomerUser(stay.getUserId())) {
+                    return false;
+                }
+                if (bookingRepository.reserveBooking(booking, "benchmark")
+                        != BookingRepository.ReservationResult.RESERVED) {
+                    return false;
+                }
+                checkInOutRepository.addCheckInOut(stay);
+                roomRepository.updateRoomStatusBasedOnCurrent(stay.getRoomNumber(), booking.getStatus());
+                return true;
+            });
+
+            clear();
+            CheckInService checkInService = new CheckInService();
+            run("CheckInService", checkIns, rooms, customerId,
+                    (booking, stay) -> checkInService.walkIn(booking, stay) == CheckInService.Result.DONE);
+        } finally {
+            clear();
+            dropRooms();
+        }
+    }
+
+    private static void run(String name, int checkIns, int rooms, int customerId, WalkIn walkIn)
+            throws SQLException {
+        // Warm the statement caches and the role cache on nights the timed run does not use
+        for (int i = 0; i < WARM_UP; i++) {
+            walkIn(walkIn, customerId, i % rooms, FIRST_DAY.minusDays(1 + i / rooms));
+        }
+
+        long[] nanos = new long[checkIns];
+        int failed = 0;
+        long questionsBefore = questions();
+        for (int i = 0; i < checkIns; i++) {
+            long start = System.nanoTime();
+            if (!walkIn(walkIn, customerId, i % rooms, FIRST_DAY.plusDays(i / rooms))) {
+                failed++;
+            }
+            nanos[i] = System.nanoTime() - start;
+        }
+        // Less the SHOW STATUS that read the counter the first time
+        long statements = questions() - questionsBefore - 1;
+
+        Arrays.sort(nanos);
+        long total = 0;
+        for (long n : nanos) {
+            total += n;
+        }
+        System.out.printf("%-14s %d check-ins: mean %.2f ms, p50 %.2f ms, p95 %.2f ms, %.1f statements each, %d failed%n",
+                name, checkIns, total / 1e6 / checkIns, nanos[checkIns / 2] / 1e6,
+                nanos[(int) (checkIns * 0.95)] / 1e6, (double) statements / checkIns, failed);
+    }
+
+    private static boolean walkIn(WalkIn walkIn, int customerId, int room, LocalDate night) throws SQLException {
+        String roomNumber = String.format("ZC%02d", room + 1);
+        Booking booking = new Booking(customerId, roomNumber, "Benchmark Guest", night, night.plusDays(1), 1,
+                1000, "Confirmed");
+        CheckInOut stay = new CheckInOut(customerId, "Benchmark Guest", night, night.plusDays(1), roomNumber,
+                "Walk-In", "Checked In");
+        return walkIn.checkIn(booking, stay);
+    }
+
+    private static long questions() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SHOW GLOBAL STATUS LIKE 'Questions'")) {
+            rs.next();
+            return rs.getLong(2);
+        }
+    }
+
+    private static void createRooms(int rooms) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT IGNORE INTO rooms (room_number, room_type, capacity, price_per_night, status) "
+                                + "VALUES (?, 'Standard', 2, 1000, 'Available')")) {
+            for (int i = 1; i <= rooms; i++) {
+                pstmt.setString(1, String.format("ZC%02d", i));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void clear() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement()) {
+            // The benchmark's own history goes too, so it leaves nothing in the booking log
+            stmt.executeUpdate("DELETE e FROM booking_events e JOIN bookings b ON b.bookingID = e.booking_id "
+                    + "WHERE b.room_number LIKE 'ZC%'");
+            stmt.executeUpdate("DELETE FROM room_nights WHERE room_number LIKE 'ZC%'");
+            stmt.executeUpdate("DELETE FROM check_in_out WHERE room_number LIKE 'ZC%'");
+            stmt.executeUpdate("DELETE FROM bookings WHERE room_number LIKE 'ZC%'");
+        }
+    }
+
+    private static void dropRooms() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM rooms WHERE room_number LIKE 'ZC%'");
+        }
+    }
+
+    // The bookings and check_in_out triggers only accept customers, so check in as one
+    private static int benchmarkCustomer() throws SQLException {
+        String find = "SELECT id FROM users WHERE username = 'check_in_bench'";
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(find)) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+            stmt.executeUpdate("INSERT INTO users (username, password, email, full_name, role) "
+                    + "VALUES ('check_in_bench', 'secret', 'checkin@example.com', 'Check-in Bench', 'CUSTOMER')");
+            try (ResultSet rs = stmt.executeQuery(find)) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
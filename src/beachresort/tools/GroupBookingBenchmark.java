@@ -0,0 +1,236 @@
+package beachresort.tools;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.database.SchemaMigrator;
+import beachresort.models.Room;
+import beachresort.repositories.BookingAvailabilityIndex;
+import beachresort.repositories.BookingRepository;
+import beachresort.repositories.RoomRepository;
+import beachresort.services.GroupBookingService;
+import beachresort.services.GroupBookingService.Allocation;
+import beachresort.services.GroupBookingService.GroupResult;
+import beachresort.services.RateEngine;
+import beachresort.services.RoomSearchService;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Times group allocation and block booking on a 500-room property.
+ *
+ * It creates its own rooms (ZG001, ZG002, ...), fills about 70% of their
+ * nights over a four-month window with ordinary bookings, and then:
+ *   - allocates a few hundred random groups of 10-40 rooms for 2-5 nights
+ *     and reports the median and slowest allocation, and how many came up
+ *     short;
+ *   - books a number of groups through GroupBookingService.bookGroup and
+ *     reports the time per group, i.e. allocation plus the batched
+ *     transaction.
+ * The service is given a room list restricted to the benchmark's rooms, so
+ * it never books a real one.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.GroupBookingBenchmark [rooms] [allocations] [groups]
+ *
+ * Runs against the configured database and removes its rooms, bookings,
+ * nights and events afterwards.
+ */
+public class GroupBookingBenchmark {
+    private static final int DEFAULT_ROOMS = 500;
+    private static final int DEFAULT_ALLOCATIONS = 500;
+    private static final int DEFAULT_GROUPS = 20;
+    private static final int WINDOW_DAYS = 120;
+    private static final double OCCUPANCY = 0.7;
+    // Well inside the availability index's bitset window
+    private static final LocalDate FIRST_DAY = LocalDate.now().plusDays(200);
+
+    public static void main(String[] args) throws Exception {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROOMS;
+        int allocations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ALLOCATIONS;
+        int groups = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_GROUPS;
+
+        SchemaMigrator.migrate();
+        int customerId = benchmarkCustomer();
+        List<String> roomNumbers = new ArrayList<>();
+        for (int i = 1; i <= rooms; i++) {
+            roomNumbers.add(String.format("ZG%03d", i));
+        }
+
+        try {
+            clear();
+            createRooms(roomNumbers);
+            long start = System.nanoTime();
+            int seeded = seedBookings(roomNumbers, customerId, new Random(7));
+            BookingAvailabilityIndex.shared().rebuild();
+            System.out.printf("Seeded %d bookings over %d rooms in %d ms%n", seeded, rooms,
+                    (System.nanoTime() - start) / 1_000_000);
+
+            GroupBookingService service = new GroupBookingService(new RoomSearchService(benchmarkRooms(),
+                    BookingAvailabilityIndex.shared()), new BookingRepository(), BookingAvailabilityIndex.shared(),
+                    RateEngine.shared());
+
+            timeAllocations(service, allocations, new Random(11));
+            timeBookings(service, customerId, groups, new Random(13));
+        } finally {
+            clear();
+            BookingAvailabilityIndex.shared().invalidate();
+        }
+    }
+
+    private static void timeAllocations(GroupBookingService service, int allocations, Random random)
+            throws SQLException {
+        // Warm up the room list and the JIT before timing
+        for (int i = 0; i < 50; i++) {
+            randomAllocation(service, random);
+        }
+        long[] nanos = new long[allocations];
+        int shortfalls = 0;
+        for (int i = 0; i < allocations; i++) {
+            long start = System.nanoTime();
+            Allocation allocation = randomAllocation(service, random);
+            nanos[i] = System.nanoTime() - start;
+            if (!allocation.isComplete()) {
+                shortfalls++;
+            }
+        }
+        Arrays.sort(nanos);
+        System.out.printf("allocate: %d groups of 10-40 rooms, median %.3f ms, p95 %.3f ms, max %.3f ms, "
+                        + "%d short%n", allocations, nanos[allocations / 2] / 1e6,
+                nanos[allocations * 95 / 100] / 1e6, nanos[allocations - 1] / 1e6, shortfalls);
+    }
+
+    private static Allocation randomAllocation(GroupBookingService service, Random random) throws SQLException {
+        LocalDate checkIn = FIRST_DAY.plusDays(random.nextInt(WINDOW_DAYS - 5));
+        return service.allocate("Standard", 10 + random.nextInt(31), 2, checkIn,
+                checkIn.plusDays(2 + random.nextInt(4)));
+    }
+
+    private static void timeBookings(GroupBookingService service, int customerId, int groups, Random random) {
+        Map<GroupBookingService.Outcome, Integer> outcomes = new EnumMap<>(GroupBookingService.Outcome.class);
+        int roomsBooked = 0;
+        long totalNanos = 0;
+        long slowest = 0;
+        for (int i = 0; i < groups; i++) {
+            LocalDate checkIn = FIRST_DAY.plusDays(random.nextInt(WINDOW_DAYS - 5));
+            long start = System.nanoTime();
+            GroupResult result = service.bookGroup(customerId, "Bench Group " + i, "Standard",
+                    10 + random.nextInt(31), 2, checkIn, checkIn.plusDays(2 + random.nextInt(4)), "benchmark");
+            long nanos = System.nanoTime() - start;
+            totalNanos += nanos;
+            slowest = Math.max(slowest, nanos);
+            outcomes.merge(result.getOutcome(), 1, Integer::sum);
+            roomsBooked += result.getBookings().size();
+        }
+        System.out.printf("bookGroup: %d groups, %d rooms booked, mean %.1f ms, max %.1f ms, outcomes %s%n",
+                groups, roomsBooked, totalNanos / 1e6 / groups, slowest / 1e6, outcomes);
+    }
+
+    // The room list the service sees: the benchmark's rooms only. RoomSearchService caches
+    // its room list process-wide, and the benchmark's search is the first in the process.
+    private static RoomRepository benchmarkRooms() {
+        return new RoomRepository() {
+            @Override
+            public List<Room> getAllRooms() {
+                List<Room> rooms = new ArrayList<>();
+                for (Room room : super.getAllRooms()) {
+                    if (room.getRoomNumber().startsWith("ZG")) {
+                        rooms.add(room);
+                    }
+                }
+                return rooms;
+            }
+        };
+    }
+
+    private static void createRooms(List<String> roomNumbers) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT IGNORE INTO rooms (room_number, room_type, capacity, price_per_night, status) "
+                                + "VALUES (?, 'Standard', 2, 1000, 'Available')")) {
+            for (String roomNumber : roomNumbers) {
+                pstmt.setString(1, roomNumber);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Back-to-back stays and gaps per room until about OCCUPANCY of the window is booked
+    private static int seedBookings(List<String> roomNumbers, int customerId, Random random) throws SQLException {
+        int seeded = 0;
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO bookings (user_id, room_number, customer_name, check_in_date, check_out_date, "
+                            + "number_of_guests, total_price, status) VALUES (?, ?, 'Bench Guest', ?, ?, 2, 1000, 'Confirmed')")) {
+                for (String roomNumber : roomNumbers) {
+                    int day = 0;
+                    while (day < WINDOW_DAYS) {
+                        // Stays average 3.5 nights, gaps 3.5 * (1 - OCCUPANCY) / OCCUPANCY
+                        int nights = 1 + random.nextInt(6);
+                        int gap = random.nextInt(1 + (int) Math.round(7 * (1 - OCCUPANCY) / OCCUPANCY));
+                        day += gap;
+                        int end = Math.min(day + nights, WINDOW_DAYS);
+                        if (end > day) {
+                            pstmt.setInt(1, customerId);
+                            pstmt.setString(2, roomNumber);
+                            pstmt.setDate(3, Date.valueOf(FIRST_DAY.plusDays(day)));
+                            pstmt.setDate(4, Date.valueOf(FIRST_DAY.plusDays(end)));
+                            pstmt.addBatch();
+                            seeded++;
+                        }
+                        day = end;
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("INSERT INTO room_nights (room_number, night, booking_id, state) "
+                        + "SELECT b.room_number, DATE_ADD(b.check_in_date, INTERVAL o.n DAY), b.bookingID, b.status "
+                        + "FROM bookings b JOIN night_offsets o ON o.n < DATEDIFF(b.check_out_date, b.check_in_date) "
+                        + "WHERE b.room_number LIKE 'ZG%'");
+            }
+        }
+        return seeded;
+    }
+
+    private static void clear() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE e FROM booking_events e JOIN bookings b ON b.bookingID = e.booking_id "
+                    + "WHERE b.room_number LIKE 'ZG%'");
+            stmt.executeUpdate("DELETE FROM room_nights WHERE room_number LIKE 'ZG%'");
+            stmt.executeUpdate("DELETE FROM bookings WHERE room_number LIKE 'ZG%'");
+            stmt.executeUpdate("DELETE FROM rooms WHERE room_number LIKE 'ZG%'");
+        }
+    }
+
+    // The bookings triggers only accept customers, so book as one
+    private static int benchmarkCustomer() throws SQLException {
+        String find = "SELECT id FROM users WHERE username = 'group_bench'";
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(find)) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+            stmt.executeUpdate("INSERT INTO users (username, password, email, full_name, role) "
+                    + "VALUES ('group_bench', 'secret', 'group.bench@example.com', 'Group Bench', 'CUSTOMER')");
+            try (ResultSet rs = stmt.executeQuery(find)) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
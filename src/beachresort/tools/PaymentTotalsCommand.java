@@ -0,0 +1,62 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrator;
+import beachresort.repositories.PaymentTotalsRepository;
+
+/**
+ * Checks and repairs the running payment totals from the command line.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.PaymentTotalsCommand show
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.PaymentTotalsCommand verify
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.PaymentTotalsCommand rebuild
+ *
+ * show prints the per-status totals the dashboard and payment pages read.
+ * verify recomputes every total from payments, as the night audit does, lists
+ * the ones that drifted and exits with status 1 if any did. rebuild
+ * regenerates the totals from payments, e.g. after payments were edited by
+ * hand. Runs against the configured database.
+ */
+public class PaymentTotalsCommand {
+    private static final String[] STATUSES = { "Pending", "Completed", "Failed" };
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        SchemaMigrator.migrate();
+        PaymentTotalsRepository totals = new PaymentTotalsRepository();
+
+        switch (args[0]) {
+            case "show":
+                for (String status : STATUSES) {
+                    PaymentTotalsRepository.Total total = totals.getTotal(status);
+                    System.out.printf("%-10s %10d payments %16s%n", status, total.getPayments(), total.getAmount());
+                }
+                PaymentTotalsRepository.Total all = totals.getGrandTotal();
+                System.out.printf("%-10s %10d payments %16s%n", "all", all.getPayments(), all.getAmount());
+                break;
+            case "verify": {
+                PaymentTotalsRepository.VerifyReport report = totals.verify();
+                System.out.println(report);
+                if (!report.isClean()) {
+                    System.exit(1);
+                }
+                break;
+            }
+            case "rebuild": {
+                long start = System.nanoTime();
+                long rows = totals.rebuild();
+                System.out.printf("Rebuilt %d daily totals in %d ms%n", rows, (System.nanoTime() - start) / 1_000_000);
+                break;
+            }
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: PaymentTotalsCommand show | verify | rebuild");
+    }
+}
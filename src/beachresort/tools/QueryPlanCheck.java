@@ -0,0 +1,536 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrations;
+import beachresort.database.SchemaMigrator;
+import beachresort.repositories.BookingRepository;
+import beachresort.repositories.NamedQuery;
+import beachresort.repositories.PaymentRepository;
+import beachresort.repositories.ReportRepository;
+import beachresort.repositories.ReportRepository.Granularity;
+import beachresort.services.NightAuditJob;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Plan regression check for the repository SQL. Migrates and seeds a scratch
+ * MySQL database, runs EXPLAIN for every NamedQuery entry and for the SQL the
+ * repositories build at run time, and exits with status 1 if any of them
+ * falls back to a full table or index scan.
+ *
+ * The catalog is walked through NamedQuery.values(), so a query added there
+ * without sample parameters here fails the check rather than going unchecked,
+ * as does one whose parameter count no longer matches its placeholders.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.QueryPlanCheck \
+ *       jdbc:mysql://localhost:3306/beach_resort_plan_check root [password] [rows]
+ *
+ * Point it at a throwaway schema; seeding only happens when bookings is empty.
+ */
+public class QueryPlanCheck {
+    private static final int DEFAULT_ROWS = 50_000;
+    private static final int CUSTOMERS = 2_000;
+    private static final int ROOMS = 200;
+    private static final int BATCH_SIZE = 1_000;
+
+    private static final String[] BOOKING_STATUSES = { "Confirmed", "Confirmed", "Confirmed", "Cancelled", "Pending" };
+    private static final String[] ROOM_TYPES = { "Standard", "Deluxe", "Suite", "Family" };
+    private static final String[] PAYMENT_METHODS = { "Cash", "Credit Card", "Bank Transfer", "Online Payment" };
+
+    // Sample parameters for every catalog entry
+    private final Map<NamedQuery, PlannedQuery> catalog = new EnumMap<>(NamedQuery.class);
+    // SQL built per call, so not in the catalog
+    private final List<PlannedQuery> builtQueries = new ArrayList<>();
+
+    private QueryPlanCheck() {
+        Date day = Date.valueOf(LocalDate.of(2024, 6, 1));
+        Date nextDay = Date.valueOf(LocalDate.of(2024, 6, 3));
+        Timestamp dayStart = new Timestamp(day.getTime());
+        Timestamp nextDayStart = new Timestamp(nextDay.getTime());
+        // The last minute's changes
+        Timestamp recently = new Timestamp(System.currentTimeMillis() - 60_000);
+        BigDecimal amount = new BigDecimal("150.00");
+
+        // Users
+        indexed(NamedQuery.USER_ROLE, 42);
+
+        // Rooms
+        indexed(NamedQuery.ROOM_INSERT, "R999", "Suite", 4, 3500, "Available");
+        indexed(NamedQuery.ROOM_UPDATE, "Suite", 4, 3500, "Available", "R042");
+        indexed(NamedQuery.ROOM_DELETE, "R042");
+        indexed(NamedQuery.ROOM_STATUS_UPDATE, "Occupied", "R042");
+        indexed(NamedQuery.ROOM_STATUS_FOR_STAY, "Maintenance", 42);
+        scan(NamedQuery.ALL_ROOMS);
+        indexed(NamedQuery.ROOM_BY_NUMBER, "R042");
+        indexed(NamedQuery.ROOM_EXISTS, "R042");
+        indexed(NamedQuery.AVAILABLE_ROOMS_BY_TYPE, "Suite");
+        scan(NamedQuery.ROOM_COUNT);
+
+        // Bookings
+        indexed(NamedQuery.BOOKING_INSERT, 42, "R042", "Guest", day, nextDay, 2, 4500.0, "Confirmed");
+        indexed(NamedQuery.BOOKING_UPDATE, 42, "Guest", day, nextDay, "Confirmed", 42);
+        indexed(NamedQuery.BOOKING_STATUS_UPDATE, "Confirmed", 42);
+        indexed(NamedQuery.BOOKING_CHECK_IN, 42);
+        indexed(NamedQuery.BOOKING_DELETE, 42);
+        indexed(NamedQuery.BOOKING_BY_ID, 42);
+        indexed(NamedQuery.BOOKINGS_BY_USER, 42);
+        indexed(NamedQuery.BOOKINGS_FOR_ROOM, "R042");
+        indexed(NamedQuery.PENDING_BOOKING_IDS);
+        scan(NamedQuery.ALL_BOOKINGS);
+        indexed(NamedQuery.BOOKINGS_HOLDING_NIGHTS_SINCE, day);
+        indexed(NamedQuery.ROOM_LOCK, "R042");
+        indexed(NamedQuery.BOOKING_CONFLICT, "R042", nextDay, day);
+        indexed(NamedQuery.BOOKING_RESTORE, 42, 42, "R042", "Guest", day, nextDay, 2, 4500.0, "Confirmed");
+
+        // Room nights
+        indexed(NamedQuery.ROOM_NIGHTS_INSERT_BOOKING, 42);
+        indexed(NamedQuery.ROOM_NIGHTS_INSERT_NEW_BOOKING, "Confirmed", 42);
+        indexed(NamedQuery.ROOM_NIGHTS_DELETE_BOOKING, 42);
+        indexed(NamedQuery.ROOM_NIGHTS_BOOKING_STATE, "Cancelled", 42);
+        indexed(NamedQuery.ROOM_NIGHTS_APPLY_STAYS, 42);
+        indexed(NamedQuery.ROOM_NIGHTS_STAY_STATE, "Checked In", "R042", day, nextDay);
+        indexed(NamedQuery.ROOM_NIGHTS_CHECK_OUT, 42);
+        indexed(NamedQuery.ROOM_NIGHTS_TAKEN, "R042", day, nextDay);
+        indexed(NamedQuery.ROOM_NIGHTS_STAYS_FOR_ROOM, "R042", day);
+        indexed(NamedQuery.ROOM_NIGHTS_PER_NIGHT, day, nextDay);
+
+        // Booking events
+        indexed(NamedQuery.BOOKING_EVENT_FROM_ROW, "MODIFIED", "plan check", 42);
+        indexed(NamedQuery.BOOKING_EVENT_INSERT, 42, "CANCELLED", "Cancelled", 42, "plan check");
+        indexed(NamedQuery.BOOKING_EVENT_CHECK_OUT, "plan check", 42);
+        indexed(NamedQuery.BOOKING_EVENTS_RECORD_UNTRACKED, "plan check", 20_000L, 25_000L);
+        indexed(NamedQuery.BOOKING_ID_RANGE);
+        indexed(NamedQuery.BOOKING_EVENTS_FOR_BOOKING, 42, Long.MAX_VALUE);
+        indexed(NamedQuery.BOOKING_EVENTS_RANGE, 25_000, Long.MAX_VALUE);
+        // Walks the primary key back from the newest event and stops at the first one past the allowance
+        scan(NamedQuery.BOOKING_EVENTS_GAP_HORIZON);
+        indexed(NamedQuery.BOOKING_EVENT_IDS_AFTER, 25_000L);
+        indexed(NamedQuery.BOOKING_SNAPSHOT_LATEST, Long.MAX_VALUE);
+        indexed(NamedQuery.BOOKING_SNAPSHOT_INSERT, 25_000L, 25_000, new byte[0]);
+        indexed(NamedQuery.BOOKING_SNAPSHOT_PRUNE, 25_000L);
+
+        // Room assignment
+        indexed(NamedQuery.ROOM_ASSIGNMENT_BOOKINGS, "Suite", day, nextDay);
+        indexed(NamedQuery.ROOM_ASSIGNMENT_LOCKED, "Suite", day, nextDay);
+        indexed(NamedQuery.BOOKING_ROW_LOCK, 42);
+        indexed(NamedQuery.ROOM_LOCK_INSERT, 42, "plan check");
+        indexed(NamedQuery.ROOM_LOCK_DELETE, 42);
+        indexed(NamedQuery.BOOKING_ROOM_UPDATE, "R043", 42);
+
+        // Check-in/check-out
+        indexed(NamedQuery.CHECK_IN_OUT_INSERT, 42, "Guest", day, nextDay, "R042", "Walk-in", "Checked In");
+        indexed(NamedQuery.CHECK_IN_OUT_INSERT_FROM_BOOKING, 42, 42);
+        indexed(NamedQuery.CHECK_OUT, 42, 42);
+        indexed(NamedQuery.CHECK_IN_OUT_STATUS_UPDATE, "Checked Out", 42, 42);
+        indexed(NamedQuery.CHECK_IN_OUT_STATUS, 42);
+        indexed(NamedQuery.CHECK_IN_OUT_BY_ID, 42);
+        indexed(NamedQuery.CHECK_IN_OUTS_BY_USER, 42);
+        scan(NamedQuery.ALL_CHECK_IN_OUTS);
+
+        // Payments
+        indexed(NamedQuery.PAYMENT_INSERT, "42", "Booking", amount, "Cash", "Completed", "plan check", dayStart);
+        indexed(NamedQuery.PAYMENT_UPDATE, "42", "Booking", amount, "Cash", "Completed", "plan check", 42);
+        indexed(NamedQuery.PAYMENT_DELETE, 42);
+        indexed(NamedQuery.PAYMENT_DELETION_INSERT, 42);
+        indexed(NamedQuery.PAYMENT_BY_ID, 42);
+        indexed(NamedQuery.PAYMENTS_BY_USER, "42");
+        scan(NamedQuery.ALL_PAYMENTS);
+        indexed(NamedQuery.PAYMENT_TOTALS_KEY, 42);
+        indexed(NamedQuery.PAYMENT_TOTALS_APPLY, dayStart, "Cash", "Completed", 1, amount);
+        indexed(NamedQuery.PAYMENT_STATUS_TOTALS_APPLY, "Completed", 3, 1, amount);
+        indexed(NamedQuery.PAYMENT_STATUS_TOTAL, "Pending");
+        // A few rows per status
+        scan(NamedQuery.PAYMENT_GRAND_TOTAL);
+
+        // Dashboard; counts every room and staff member by design
+        scan(NamedQuery.DASHBOARD_SNAPSHOT);
+
+        // Reporting rollups
+        // Oldest entries first, by the primary key, up to the batch size
+        scan(NamedQuery.REPORT_PENDING, 100);
+        indexed(NamedQuery.REPORT_PENDING_DELETE, 1L, 100L);
+        // Counts the rooms once per refresh; the nights and check-ins are read by day
+        scan(NamedQuery.REPORT_STAYS_REFRESH, day, 2, day, nextDay, day, nextDay);
+        indexed(NamedQuery.REPORT_CANCELLATIONS_CLEAR, day, nextDay);
+        indexed(NamedQuery.REPORT_CANCELLATIONS_REFRESH, dayStart, nextDayStart);
+
+        // Analytics cache; the full loads read every row by design
+        scan(NamedQuery.ANALYTICS_BOOKINGS);
+        scan(NamedQuery.ANALYTICS_PAYMENTS);
+        indexed(NamedQuery.ANALYTICS_PAYMENTS_CHANGED, recently);
+        indexed(NamedQuery.ANALYTICS_PAYMENTS_DELETED, recently);
+        indexed(NamedQuery.ANALYTICS_WATERMARK);
+        scan(NamedQuery.ANALYTICS_ROOM_TYPES);
+
+        // Rate rules; a handful of rows, read whole by RateEngine
+        indexed(NamedQuery.RATE_RULE_INSERT, "Summer", "Suite", day, nextDay, 127, new BigDecimal("10.00"));
+        indexed(NamedQuery.RATE_RULE_UPDATE, "Summer", "Suite", day, nextDay, 127, new BigDecimal("10.00"), 42);
+        indexed(NamedQuery.RATE_RULE_DELETE, 42);
+        scan(NamedQuery.ALL_RATE_RULES);
+
+        // Absences
+        indexed(NamedQuery.ABSENCE_INSERT, 40, "Vacation", day, nextDay, "Pending", "plan check");
+        indexed(NamedQuery.ABSENCE_STATUS_UPDATE, "Approved", 42);
+        indexed(NamedQuery.ABSENCE_BY_ID, 42);
+        indexed(NamedQuery.ABSENCES_BY_USER, 42);
+        indexed(NamedQuery.PENDING_ABSENCES);
+        scan(NamedQuery.ALL_ABSENCES);
+
+        // Built per call: from the repositories' own builders where they have one
+        built("BookingRepository.getBookingsPage", (status, params) ->
+                BookingRepository.pageQuery(status, true, 25_000, 100, params));
+        built("BookingRepository.skipBookings", (status, params) ->
+                BookingRepository.skipQuery(status, true, 25_000, 100, params));
+        List<Object> countParams = new ArrayList<>();
+        indexed("BookingRepository.countBookings (status)", BookingRepository.countQuery("Pending", countParams),
+                countParams.toArray());
+        PaymentRepository.PageKey paymentKey = new PaymentRepository.PageKey(dayStart, 25_000);
+        built("PaymentRepository.getPaymentsPage", (status, params) ->
+                PaymentRepository.pageQuery(status, true, paymentKey, 100, params));
+        built("PaymentRepository.skipPayments", (status, params) ->
+                PaymentRepository.skipQuery(status, true, paymentKey, 100, params));
+        // A key on an undated payment: the rest of the undated tail newest first, oldest first the rest
+        // of the undated head and then every dated payment
+        PaymentRepository.PageKey undatedKey = new PaymentRepository.PageKey(null, 25_000);
+        built("PaymentRepository.getPaymentsPage (undated key)", (status, params) ->
+                PaymentRepository.pageQuery(status, true, undatedKey, 100, params));
+        built("PaymentRepository.getPaymentsPage (undated key, oldest first)", (status, params) ->
+                PaymentRepository.pageQuery(status, false, undatedKey, 100, params));
+        indexed("ReportRepository.getOccupancy", ReportRepository.occupancyQuery(Granularity.MONTH), day, nextDay);
+        indexed("ReportRepository.getPaymentsByMethod", ReportRepository.paymentsByMethodQuery(Granularity.MONTH),
+                day, nextDay);
+        indexed("ReportRepository.getCancellations", ReportRepository.cancellationsQuery(Granularity.MONTH),
+                day, nextDay);
+
+        indexed("BookingRepository.lockRooms (lock)", BookingRepository.blockLockQuery(2), "R042", "R043");
+        indexed("BookingRepository.lockRooms (conflict)", BookingRepository.blockConflictQuery(2),
+                "R042", "R043", nextDay, day);
+        // The night audit's phases as the job runs them; the room status pass visits every room by design
+        indexed("NightAuditJob no-show events", NightAuditJob.LOG_NO_SHOWS, day);
+        indexed("NightAuditJob no-show nights", NightAuditJob.RELEASE_NO_SHOW_NIGHTS, day);
+        indexed("NightAuditJob no-show bookings", NightAuditJob.MARK_NO_SHOWS, day);
+        indexed("NightAuditJob overdue stays", NightAuditJob.MARK_OVERDUE_STAYS, day);
+        scanning("NightAuditJob room status", NightAuditJob.RECOMPUTE_ROOM_STATUS, "r", day);
+
+        // ... and copied here where the SQL lives in a trigger
+        indexed("user role trigger", "SELECT 1 FROM users WHERE id = ? AND role = 'CUSTOMER'", 42);
+    }
+
+    // Builds SQL for a status filter, appending its parameters
+    private interface QueryBuilder {
+        String build(String statusFilter, List<Object> params);
+    }
+
+    private void indexed(NamedQuery query, Object... params) {
+        catalog.put(query, new PlannedQuery(query.name(), query.getSql(), false, params));
+    }
+
+    private void scan(NamedQuery query, Object... params) {
+        catalog.put(query, new PlannedQuery(query.name(), query.getSql(), true, params));
+    }
+
+    private void indexed(String name, String sql, Object... params) {
+        builtQueries.add(new PlannedQuery(name, sql, false, params));
+    }
+
+    // A statement that visits all of one table on purpose (named as EXPLAIN shows it, by its alias if it
+    // has one); every other table must be reached by index
+    private void scanning(String name, String sql, String scannedTable, Object... params) {
+        builtQueries.add(new PlannedQuery(name, sql, false, params).scanning(scannedTable));
+    }
+
+    // The query unfiltered and filtered by status, which take different indexes
+    private void built(String name, QueryBuilder builder) {
+        List<Object> params = new ArrayList<>();
+        indexed(name, builder.build(null, params), params.toArray());
+        params = new ArrayList<>();
+        indexed(name + " (status)", builder.build("Pending", params), params.toArray());
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: QueryPlanCheck <jdbc-url> <username> [password] [rows]");
+            System.exit(2);
+        }
+        String password = args.length > 2 ? args[2] : "";
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_ROWS;
+
+        int failures;
+        try (Connection connection = DriverManager.getConnection(args[0], args[1], password)) {
+            SchemaMigrator.migrate(connection, SchemaMigrations.all());
+            seedIfEmpty(connection, rows);
+            analyze(connection);
+            failures = new QueryPlanCheck().run(connection);
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private int run(Connection connection) throws SQLException {
+        int failures = 0;
+        int checked = 0;
+        for (NamedQuery query : NamedQuery.values()) {
+            PlannedQuery planned = catalog.get(query);
+            if (planned == null) {
+                System.out.println("FAIL  " + query.name() + ": no sample parameters in QueryPlanCheck");
+                failures++;
+                continue;
+            }
+            int placeholders = placeholders(query.getSql());
+            if (placeholders != planned.params.length) {
+                System.out.println("FAIL  " + query.name() + ": " + planned.params.length + " sample parameters for "
+                        + placeholders + " placeholders");
+                failures++;
+                continue;
+            }
+            failures += check(connection, planned);
+            checked++;
+        }
+        for (PlannedQuery planned : builtQueries) {
+            failures += check(connection, planned);
+            checked++;
+        }
+        System.out.println(checked + " of " + (NamedQuery.values().length + builtQueries.size())
+                + " queries checked, " + failures + " failed");
+        return failures;
+    }
+
+    // 1 if the query regressed to a full scan it is not allowed, else 0
+    private static int check(Connection connection, PlannedQuery query) throws SQLException {
+        String problem = explain(connection, query);
+        if (problem == null) {
+            System.out.println("ok    " + query.name);
+        } else if (query.scanAllowed) {
+            System.out.println("scan  " + query.name + " (" + problem + ", expected)");
+        } else {
+            System.out.println("FAIL  " + query.name + ": " + problem);
+            System.out.println("      " + query.sql);
+            return 1;
+        }
+        return 0;
+    }
+
+    // None of the SQL has a question mark inside a literal
+    private static int placeholders(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Returns a description of the first full scan in the plan, or null if every
+    // table is reached through an index
+    private static String explain(Connection connection, PlannedQuery query) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("EXPLAIN " + query.sql)) {
+            for (int i = 0; i < query.params.length; i++) {
+                pstmt.setObject(i + 1, query.params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString("table");
+                    String type = rs.getString("type");
+                    if (table == null || type == null) {
+                        continue; // e.g. "Select tables optimized away"
+                    }
+                    if ("INSERT".equals(rs.getString("select_type")) || table.startsWith("<")) {
+                        // The table inserted into, or a derived table already accounted for by its own rows
+                        continue;
+                    }
+                    if (table.equals(query.scannedTable)) {
+                        continue;
+                    }
+                    if ("ALL".equals(type) || "index".equals(type)) {
+                        return "type=" + type + " on " + table + ", key=" + rs.getString("key")
+                                + ", rows=" + rs.getLong("rows");
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void analyze(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ANALYZE TABLE users, rooms, bookings, room_nights, check_in_out, payments, absences, "
+                    + "booking_events, room_locks, payment_totals, payment_status_totals");
+        }
+    }
+
+    // Every 20th seeded user is staff, which the V4 triggers refuse on bookings and stays
+    private static int randomCustomer(Random random) {
+        int id = 1 + random.nextInt(CUSTOMERS);
+        return id % 20 == 0 ? id - 1 : id;
+    }
+
+    private static void seedIfEmpty(Connection connection, int rows) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM bookings")) {
+            if (rs.next() && rs.getLong(1) > 0) {
+                System.out.println("bookings already has data, skipping seed");
+                return;
+            }
+        }
+
+        System.out.println("Seeding " + rows + " rows per table...");
+        long start = System.nanoTime();
+        Random random = new Random(7);
+        LocalDate firstDay = LocalDate.of(2022, 1, 1);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            String insertUser = "INSERT INTO users (username, password, email, full_name, role) VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = connection.prepareStatement(insertUser)) {
+                for (int i = 1; i <= CUSTOMERS; i++) {
+                    pstmt.setString(1, "plancheck" + i);
+                    pstmt.setString(2, "secret");
+                    pstmt.setString(3, "plancheck" + i + "@example.com");
+                    pstmt.setString(4, "Plan Check " + i);
+                    pstmt.setString(5, i % 20 == 0 ? "STAFF" : "CUSTOMER");
+                    addToBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            String insertRoom = "INSERT INTO rooms (room_number, room_type, capacity, price_per_night, status) VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = connection.prepareStatement(insertRoom)) {
+                for (int i = 1; i <= ROOMS; i++) {
+                    pstmt.setString(1, String.format("R%03d", i));
+                    pstmt.setString(2, ROOM_TYPES[i % ROOM_TYPES.length]);
+                    pstmt.setInt(3, 2 + i % 4);
+                    pstmt.setInt(4, 1500 + (i % 4) * 1000);
+                    pstmt.setString(5, i % 10 == 0 ? "Maintenance" : "Available");
+                    addToBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            String insertBooking = "INSERT INTO bookings (user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = connection.prepareStatement(insertBooking)) {
+                for (int i = 1; i <= rows; i++) {
+                    LocalDate checkIn = firstDay.plusDays(random.nextInt(1000));
+                    pstmt.setInt(1, randomCustomer(random));
+                    pstmt.setString(2, String.format("R%03d", 1 + random.nextInt(ROOMS)));
+                    pstmt.setString(3, "Guest " + i);
+                    pstmt.setDate(4, Date.valueOf(checkIn));
+                    pstmt.setDate(5, Date.valueOf(checkIn.plusDays(1 + random.nextInt(7))));
+                    pstmt.setInt(6, 1 + random.nextInt(4));
+                    pstmt.setDouble(7, 1500 + random.nextInt(20000));
+                    pstmt.setString(8, BOOKING_STATUSES[random.nextInt(BOOKING_STATUSES.length)]);
+                    addToBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            String insertStay = "INSERT INTO check_in_out (user_id, customer_name, check_in_date, check_out_date, room_number, check_in_type, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = connection.prepareStatement(insertStay)) {
+                for (int i = 1; i <= rows; i++) {
+                    LocalDate checkIn = firstDay.plusDays(random.nextInt(1000));
+                    pstmt.setInt(1, randomCustomer(random));
+                    pstmt.setString(2, "Guest " + i);
+                    pstmt.setDate(3, Date.valueOf(checkIn));
+                    pstmt.setDate(4, Date.valueOf(checkIn.plusDays(1 + random.nextInt(7))));
+                    pstmt.setString(5, String.format("R%03d", 1 + random.nextInt(ROOMS)));
+                    pstmt.setString(6, random.nextBoolean() ? "Walk-in" : "Reservation");
+                    pstmt.setString(7, random.nextInt(20) == 0 ? "Checked In" : "Checked Out");
+                    addToBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            String insertPayment = "INSERT INTO payments (user_id, payment_type, amount, payment_method, status, description, payment_date) VALUES (?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = connection.prepareStatement(insertPayment)) {
+                for (int i = 1; i <= rows; i++) {
+                    pstmt.setString(1, String.valueOf(1 + random.nextInt(CUSTOMERS)));
+                    pstmt.setString(2, "Booking");
+                    pstmt.setInt(3, 1500 + random.nextInt(20000));
+                    pstmt.setString(4, PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+                    pstmt.setString(5, random.nextInt(10) == 0 ? "Pending" : "Completed");
+                    pstmt.setString(6, "Seeded payment " + i);
+                    if (i % 50 == 0) {
+                        pstmt.setNull(7, Types.TIMESTAMP); // payment_date is nullable; paging has to cope
+                    } else {
+                        pstmt.setTimestamp(7, Timestamp.valueOf(firstDay.plusDays(random.nextInt(1000)).atStartOfDay()));
+                    }
+                    addToBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            String insertAbsence = "INSERT INTO absences (user_id, leave_type, start_date, end_date, status, reason) VALUES (?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = connection.prepareStatement(insertAbsence)) {
+                for (int i = 1; i <= rows / 10; i++) {
+                    LocalDate startDate = firstDay.plusDays(random.nextInt(1000));
+                    pstmt.setInt(1, 20 * (1 + random.nextInt(CUSTOMERS / 20)));
+                    pstmt.setString(2, "Vacation");
+                    pstmt.setDate(3, Date.valueOf(startDate));
+                    pstmt.setDate(4, Date.valueOf(startDate.plusDays(1 + random.nextInt(5))));
+                    pstmt.setString(5, random.nextInt(20) == 0 ? "Pending" : "Approved");
+                    pstmt.setString(6, "Seeded absence");
+                    addToBatch(pstmt, i);
+                }
+                pstmt.executeBatch();
+            }
+
+            // Seeded bookings overlap at random; the earliest one keeps each night
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("INSERT IGNORE INTO room_nights (room_number, night, booking_id, state) "
+                        + "SELECT b.room_number, DATE_ADD(b.check_in_date, INTERVAL o.n DAY), b.bookingID, b.status "
+                        + "FROM bookings b JOIN night_offsets o ON o.n < DATEDIFF(b.check_out_date, b.check_in_date) "
+                        + "WHERE b.status <> 'Cancelled' ORDER BY b.bookingID");
+            }
+
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        System.out.println("Seeded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private static void addToBatch(PreparedStatement pstmt, int row) throws SQLException {
+        pstmt.addBatch();
+        if (row % BATCH_SIZE == 0) {
+            pstmt.executeBatch();
+        }
+    }
+
+    private static class PlannedQuery {
+        final String name;
+        final String sql;
+        final boolean scanAllowed;
+        final Object[] params;
+        // The one table allowed a full scan, if any
+        String scannedTable;
+
+        PlannedQuery(String name, String sql, boolean scanAllowed, Object... params) {
+            this.name = name;
+            this.sql = sql;
+            this.scanAllowed = scanAllowed;
+            this.params = params;
+        }
+
+        PlannedQuery scanning(String table) {
+            scannedTable = table;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrator;
+import beachresort.repositories.ReportRollupRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Maintenance of the report rollups from the command line.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.ReportRollupCommand status
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.ReportRollupCommand refresh
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.ReportRollupCommand rebuild <from> <to>
+ *
+ * status prints how many changes are queued; refresh applies them, as every
+ * report and the night audit do. rebuild recomputes the days [from, to)
+ * (yyyy-MM-dd) whether queued or not, e.g. after restoring a backup taken
+ * with triggers off. Runs against the configured database.
+ */
+public class ReportRollupCommand {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        SchemaMigrator.migrate();
+        ReportRollupRepository rollups = new ReportRollupRepository();
+
+        switch (args[0]) {
+            case "status":
+                System.out.println(rollups.countPending() + " queued changes");
+                break;
+            case "refresh":
+                System.out.println(rollups.refreshPending());
+                break;
+            case "rebuild": {
+                LocalDate from = LocalDate.parse(args[1]);
+                LocalDate to = LocalDate.parse(args[2]);
+                long start = System.nanoTime();
+                long days = rollups.rebuild(from, to);
+                System.out.printf("Recomputed %d days in %d ms%n", days, (System.nanoTime() - start) / 1_000_000);
+                break;
+            }
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: ReportRollupCommand status | refresh | rebuild <from> <to>");
+    }
+}
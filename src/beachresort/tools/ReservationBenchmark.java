@@ -0,0 +1,230 @@
+package beachresort.tools;
+
+import beachresort.database.DatabaseConnection;
+import beachresort.database.SchemaMigrator;
+import beachresort.models.Booking;
+import beachresort.repositories.BookingRepository;
+import beachresort.repositories.BookingRepository.ReservationResult;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers a handful of rooms with overlapping booking attempts from many
+ * threads at once and then counts double bookings, i.e. pairs of bookings
+ * for the same room whose nights overlap.
+ *
+ * It runs twice: first with a plain check-then-insert (what addBooking used
+ * to amount to), which is expected to let some double bookings through, and
+ * then through BookingRepository.reserveBooking, which must let none through.
+ * Throughput is reported for both.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.ReservationBenchmark \
+ *       [threads] [rooms] [attempts-per-thread]
+ *
+ * Runs against the configured database. It only touches its own rooms
+ * (ZB01, ZB02, ...) and their bookings, and removes them afterwards.
+ */
+public class ReservationBenchmark {
+    private static final int DEFAULT_THREADS = 16;
+    private static final int DEFAULT_ROOMS = 4;
+    private static final int DEFAULT_ATTEMPTS = 200;
+    private static final int WINDOW_DAYS = 60;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    private interface Attempt {
+        ReservationResult reserve(Booking booking) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+        int rooms = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROOMS;
+        int attempts = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ATTEMPTS;
+
+        SchemaMigrator.migrate();
+        int customerId = benchmarkCustomer();
+        List<String> roomNumbers = new ArrayList<>();
+        for (int i = 1; i <= rooms; i++) {
+            roomNumbers.add(String.format("ZB%02d", i));
+        }
+
+        try {
+            createRooms(roomNumbers);
+
+            clearBookings();
+            run("check-then-insert", threads, attempts, roomNumbers, customerId, ReservationBenchmark::naiveReserve);
+            long naiveDoubles = countDoubleBookings();
+
+            clearBookings();
+            BookingRepository repository = new BookingRepository();
+            run("reserveBooking", threads, attempts, roomNumbers, customerId,
+                    booking -> repository.reserveBooking(booking, "benchmark"));
+            long doubles = countDoubleBookings();
+
+            System.out.printf("double bookings: check-then-insert %d, reserveBooking %d%n", naiveDoubles, doubles);
+            if (doubles > 0) {
+                System.out.println("FAIL: reserveBooking let double bookings through");
+                System.exit(1);
+            }
+        } finally {
+            clearBookings();
+            dropRooms();
+        }
+    }
+
+    private static void run(String name, int threads, int attempts, List<String> roomNumbers, int customerId,
+            Attempt attempt) throws InterruptedException {
+        AtomicLong reserved = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            long seed = 31L * t + name.hashCode();
+            Thread worker = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < attempts; i++) {
+                    LocalDate checkIn = FIRST_DAY.plusDays(random.nextInt(WINDOW_DAYS));
+                    Booking booking = new Booking(customerId,
+                            roomNumbers.get(random.nextInt(roomNumbers.size())), "Benchmark Guest",
+                            checkIn, checkIn.plusDays(1 + random.nextInt(3)), 2, 1000, "Confirmed");
+                    try {
+                        ReservationResult result = attempt.reserve(booking);
+                        if (result == ReservationResult.RESERVED) {
+                            reserved.incrementAndGet();
+                        } else if (result == ReservationResult.CONFLICT) {
+                            conflicts.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (SQLException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }, "reservation-bench-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        long total = (long) threads * attempts;
+        System.out.printf("%-18s %d attempts in %.2f s: %.0f attempts/s, %d reserved, %d conflicts, %d failed%n",
+                name, total, seconds, total / seconds, reserved.get(), conflicts.get(), failed.get());
+    }
+
+    // The race reserveBooking closes: nothing stops another desk inserting between the two statements
+    private static ReservationResult naiveReserve(Booking booking) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            try (PreparedStatement check = connection.prepareStatement(
+                    "SELECT bookingID FROM bookings WHERE room_number = ? AND check_in_date < ? AND check_out_date > ? LIMIT 1")) {
+                check.setString(1, booking.getRoomNumber());
+                check.setDate(2, Date.valueOf(booking.getCheckOutDate()));
+                check.setDate(3, Date.valueOf(booking.getCheckInDate()));
+                try (ResultSet rs = check.executeQuery()) {
+                    if (rs.next()) {
+                        return ReservationResult.CONFLICT;
+                    }
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO bookings (user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                insert.setInt(1, booking.getUserId());
+                insert.setString(2, booking.getRoomNumber());
+                insert.setString(3, booking.getCustomerName());
+                insert.setDate(4, Date.valueOf(booking.getCheckInDate()));
+                insert.setDate(5, Date.valueOf(booking.getCheckOutDate()));
+                insert.setInt(6, booking.getNumberOfGuests());
+                insert.setDouble(7, booking.getTotalPrice());
+                insert.setString(8, booking.getStatus());
+                insert.executeUpdate();
+            }
+            return ReservationResult.RESERVED;
+        }
+    }
+
+    private static long countDoubleBookings() throws SQLException {
+        String query = "SELECT COUNT(*) FROM bookings a JOIN bookings b "
+                + "ON a.room_number = b.room_number AND a.bookingID < b.bookingID "
+                + "AND a.check_in_date < b.check_out_date AND b.check_in_date < a.check_out_date "
+                + "WHERE a.room_number LIKE 'ZB%' AND a.status <> 'Cancelled' AND b.status <> 'Cancelled'";
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void createRooms(List<String> roomNumbers) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT IGNORE INTO rooms (room_number, room_type, capacity, price_per_night, status) "
+                                + "VALUES (?, 'Standard', 2, 1000, 'Available')")) {
+            for (String roomNumber : roomNumbers) {
+                pstmt.setString(1, roomNumber);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void clearBookings() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement()) {
+            // Their events first, while the join can still find them
+            stmt.executeUpdate("DELETE e FROM booking_events e JOIN bookings b ON b.bookingID = e.booking_id "
+                    + "WHERE b.room_number LIKE 'ZB%'");
+            stmt.executeUpdate("DELETE FROM bookings WHERE room_number LIKE 'ZB%'");
+            stmt.executeUpdate("DELETE FROM room_nights WHERE room_number LIKE 'ZB%'");
+        }
+    }
+
+    private static void dropRooms() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM rooms WHERE room_number LIKE 'ZB%'");
+        }
+    }
+
+    // The bookings triggers only accept customers, so book as one
+    private static int benchmarkCustomer() throws SQLException {
+        String find = "SELECT id FROM users WHERE username = 'reservation_bench'";
+        try (Connection connection = DatabaseConnection.getConnection();
+                Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(find)) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+            stmt.executeUpdate("INSERT INTO users (username, password, email, full_name, role) "
+                    + "VALUES ('reservation_bench', 'secret', 'bench@example.com', 'Reservation Bench', 'CUSTOMER')");
+            try (ResultSet rs = stmt.executeQuery(find)) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package beachresort.tools;
+
+import beachresort.models.Booking;
+import beachresort.models.RoomMove;
+import beachresort.services.RoomAssignmentOptimizer;
+import beachresort.services.RoomAssignmentOptimizer.Result;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures RoomAssignmentOptimizer on synthetic 90-day calendars, in memory.
+ *
+ * Each calendar is filled the way a front desk fills it by hand: booking
+ * requests of 1-7 nights arrive in random order and each goes into a random
+ * room that is free for it, until about 80% of the nights are taken or
+ * requests keep failing. One booking in ten is locked to its room. Then:
+ *   - full solve, at a few time budgets: solve time, stranded nights (free
+ *     runs shorter than the two-night minimum stay) before and after, and
+ *     the sellable nights recovered;
+ *   - incremental: starting from the layout of the longest full solve, as
+ *     the nightly run leaves it, more requests arrive one at a time, each
+ *     placed by hand and followed by a solve over the weeks around it.
+ *     Reports the time and moves per solve and the stranded nights at the
+ *     end, against the same arrivals placed by hand with no solve.
+ * Every layout is checked for double-booked rooms; exits with status 1 if
+ * there are any.
+ *
+ * Usage:
+ *   java -cp out beachresort.tools.RoomAssignmentBenchmark [rooms,rooms,...] [arrivals]
+ */
+public class RoomAssignmentBenchmark {
+    private static final int DAYS = 90;
+    private static final double TARGET_OCCUPANCY = 0.8;
+    private static final int INCREMENTAL_MARGIN_DAYS = 14;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+    private static final LocalDate LAST_DAY = FIRST_DAY.plusDays(DAYS);
+    private static final long[] BUDGETS_MILLIS = { 100, 1_000, 5_000 };
+    // Share of requests by length in nights, 1 to 7
+    private static final int[] NIGHTS_WEIGHTS = { 20, 25, 20, 12, 8, 5, 10 };
+
+    public static void main(String[] args) {
+        String[] sizes = (args.length > 0 ? args[0] : "100,500").split(",");
+        int arrivals = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        boolean valid = true;
+
+        for (String size : sizes) {
+            int rooms = Integer.parseInt(size.trim());
+            Calendar calendar = new Calendar(rooms, new Random(rooms));
+            calendar.fill(TARGET_OCCUPANCY);
+            System.out.printf("%d rooms x %d nights: %d bookings, %.0f%% of nights booked, %d locked%n", rooms, DAYS,
+                    calendar.bookings.size(), 100.0 * calendar.bookedNights() / (rooms * DAYS),
+                    calendar.locked.size());
+
+            // Untimed, so the JIT has compiled the solver before the first timed run
+            RoomAssignmentOptimizer.solve(calendar.capacities, calendar.bookings, calendar.movable(), FIRST_DAY,
+                    LAST_DAY, RoomAssignmentOptimizer.DEFAULT_MIN_STAY, TimeUnit.SECONDS.toNanos(1));
+
+            Calendar solved = null;
+            for (long budget : BUDGETS_MILLIS) {
+                Result result = RoomAssignmentOptimizer.solve(calendar.capacities, calendar.bookings,
+                        calendar.movable(), FIRST_DAY, LAST_DAY, RoomAssignmentOptimizer.DEFAULT_MIN_STAY,
+                        TimeUnit.MILLISECONDS.toNanos(budget));
+                solved = calendar.copy();
+                solved.apply(result.getMoves());
+                valid &= solved.check();
+                System.out.printf("  full, %5d ms budget: %8.1f ms, stranded %4d -> %4d (%d nights recovered), "
+                                + "gaps %5d -> %5d, %4d moves%s%n", budget, result.getSolveMillis(),
+                        result.getStrandedBefore(), result.getStrandedAfter(), result.getRecoveredNights(),
+                        result.getGapsBefore(), result.getGapsAfter(), result.getMoves().size(),
+                        result.isConverged() ? "" : ", budget reached");
+            }
+
+            valid &= incremental(solved, arrivals, new Random(rooms + 1));
+        }
+        if (!valid) {
+            System.out.println("FAIL: a room is double booked");
+            System.exit(1);
+        }
+    }
+
+    private static boolean incremental(Calendar start, int arrivals, Random random) {
+        Calendar optimized = start.copy();
+        Calendar byHand = start.copy();
+        // Both see the same requests; each places a request into a random room free in its own layout
+        Random byHandRandom = new Random(random.nextLong());
+        long totalNanos = 0;
+        long slowest = 0;
+        int placed = 0;
+        int moves = 0;
+        for (int a = 0; a < arrivals; a++) {
+            int checkIn = random.nextInt(DAYS - 1);
+            int nights = Math.min(randomNights(random), DAYS - checkIn);
+            byHand.book(checkIn, nights, byHandRandom);
+            Booking booking = optimized.book(checkIn, nights, random);
+            if (booking == null) {
+                continue;
+            }
+            placed++;
+            LocalDate from = booking.getCheckInDate().minusDays(INCREMENTAL_MARGIN_DAYS);
+            LocalDate to = booking.getCheckOutDate().plusDays(INCREMENTAL_MARGIN_DAYS);
+            Result result = RoomAssignmentOptimizer.solve(optimized.capacities, optimized.bookingsIn(from, to),
+                    optimized.movable(), from.isBefore(FIRST_DAY) ? FIRST_DAY : from, to,
+                    RoomAssignmentOptimizer.DEFAULT_MIN_STAY, RoomAssignmentOptimizer.INCREMENTAL_BUDGET_NANOS);
+            optimized.apply(result.getMoves());
+            moves += result.getMoves().size();
+            long nanos = (long) (result.getSolveMillis() * 1e6);
+            totalNanos += nanos;
+            slowest = Math.max(slowest, nanos);
+        }
+        System.out.printf("  incremental, %d arrivals (%d placed): %.2f ms mean, %.1f ms max per solve, "
+                        + "%.1f moves per solve; stranded nights %d at the start, at the end %d by hand, "
+                        + "%d optimized%n", arrivals, placed, placed == 0 ? 0 : totalNanos / 1e6 / placed,
+                slowest / 1e6, placed == 0 ? 0 : (double) moves / placed, start.strandedNights(),
+                byHand.strandedNights(), optimized.strandedNights());
+        return optimized.check() && byHand.check();
+    }
+
+    private static int randomNights(Random random) {
+        int roll = random.nextInt(100);
+        for (int n = 0; n < NIGHTS_WEIGHTS.length; n++) {
+            roll -= NIGHTS_WEIGHTS[n];
+            if (roll < 0) {
+                return n + 1;
+            }
+        }
+        return NIGHTS_WEIGHTS.length;
+    }
+
+    // One room type's bookings, with a night-by-night view per room for placing new ones
+    private static final class Calendar {
+        final Map<String, Integer> capacities = new LinkedHashMap<>();
+        final List<Booking> bookings = new ArrayList<>();
+        final Set<Integer> locked = new HashSet<>();
+        final Map<Integer, Booking> byId = new HashMap<>();
+        final Map<String, boolean[]> nights = new HashMap<>();
+        private final Random random;
+        int nextBookingId = 1;
+
+        Calendar(int rooms, Random random) {
+            for (int r = 1; r <= rooms; r++) {
+                String roomNumber = String.format("R%03d", r);
+                capacities.put(roomNumber, 2);
+                nights.put(roomNumber, new boolean[DAYS]);
+            }
+            this.random = random;
+        }
+
+        void fill(double occupancy) {
+            int failures = 0;
+            while (bookedNights() < occupancy * capacities.size() * DAYS && failures < 2_000) {
+                int checkIn = random.nextInt(DAYS - 1);
+                int nights = Math.min(randomNights(random), DAYS - checkIn);
+                Booking booking = book(checkIn, nights, random);
+                if (booking == null) {
+                    failures++;
+                } else {
+                    failures = 0;
+                    if (random.nextInt(10) == 0) {
+                        locked.add(booking.getBookingID());
+                    }
+                }
+            }
+        }
+
+        // Into a random room free for the nights, as a clerk would pick from the list; null if none is
+        Booking book(int checkIn, int nightCount, Random random) {
+            List<String> free = new ArrayList<>();
+            for (Map.Entry<String, boolean[]> room : nights.entrySet()) {
+                if (isFree(room.getValue(), checkIn, checkIn + nightCount)) {
+                    free.add(room.getKey());
+                }
+            }
+            if (free.isEmpty()) {
+                return null;
+            }
+            free.sort(null);
+            String roomNumber = free.get(random.nextInt(free.size()));
+            Booking booking = new Booking(nextBookingId++, 1, roomNumber, "Guest", FIRST_DAY.plusDays(checkIn),
+                    FIRST_DAY.plusDays(checkIn + nightCount), 2, 1000, "Confirmed");
+            add(booking);
+            return booking;
+        }
+
+        Set<Integer> movable() {
+            Set<Integer> movable = new HashSet<>();
+            for (Booking booking : bookings) {
+                if (!locked.contains(booking.getBookingID())) {
+                    movable.add(booking.getBookingID());
+                }
+            }
+            return movable;
+        }
+
+        List<Booking> bookingsIn(LocalDate from, LocalDate to) {
+            List<Booking> overlapping = new ArrayList<>();
+            for (Booking booking : bookings) {
+                if (booking.getCheckInDate().isBefore(to) && booking.getCheckOutDate().isAfter(from)) {
+                    overlapping.add(booking);
+                }
+            }
+            return overlapping;
+        }
+
+        // The moves may have been planned on a copy, so bookings are found by id
+        void apply(List<RoomMove> moves) {
+            for (RoomMove move : moves) {
+                mark(byId.get(move.getBookingId()), false);
+            }
+            for (RoomMove move : moves) {
+                Booking booking = byId.get(move.getBookingId());
+                booking.setRoomNumber(move.getToRoom());
+                mark(booking, true);
+            }
+        }
+
+        Calendar copy() {
+            Calendar copy = new Calendar(0, random);
+            for (String roomNumber : capacities.keySet()) {
+                copy.capacities.put(roomNumber, capacities.get(roomNumber));
+                copy.nights.put(roomNumber, nights.get(roomNumber).clone());
+            }
+            for (Booking booking : bookings) {
+                Booking copied = new Booking(booking.getBookingID(), booking.getUserId(), booking.getRoomNumber(),
+                        booking.getCustomerName(), booking.getCheckInDate(), booking.getCheckOutDate(),
+                        booking.getNumberOfGuests(), booking.getTotalPrice(), booking.getStatus());
+                copy.bookings.add(copied);
+                copy.byId.put(copied.getBookingID(), copied);
+            }
+            copy.locked.addAll(locked);
+            copy.nextBookingId = nextBookingId;
+            return copy;
+        }
+
+        long bookedNights() {
+            long booked = 0;
+            for (boolean[] roomNights : nights.values()) {
+                for (boolean night : roomNights) {
+                    if (night) {
+                        booked++;
+                    }
+                }
+            }
+            return booked;
+        }
+
+        // Free nights in runs shorter than the minimum stay, not counting runs that reach the last day
+        long strandedNights() {
+            long stranded = 0;
+            for (boolean[] roomNights : nights.values()) {
+                int run = 0;
+                for (int day = 0; day < DAYS; day++) {
+                    if (roomNights[day]) {
+                        if (run > 0 && run < RoomAssignmentOptimizer.DEFAULT_MIN_STAY) {
+                            stranded += run;
+                        }
+                        run = 0;
+                    } else {
+                        run++;
+                    }
+                }
+            }
+            return stranded;
+        }
+
+        // No two bookings share a room-night
+        boolean check() {
+            Map<String, boolean[]> taken = new HashMap<>();
+            for (Booking booking : bookings) {
+                boolean[] roomNights = taken.computeIfAbsent(booking.getRoomNumber(), room -> new boolean[DAYS]);
+                for (int day = dayOf(booking.getCheckInDate()); day < dayOf(booking.getCheckOutDate()); day++) {
+                    if (roomNights[day]) {
+                        return false;
+                    }
+                    roomNights[day] = true;
+                }
+            }
+            return true;
+        }
+
+        private void add(Booking booking) {
+            bookings.add(booking);
+            byId.put(booking.getBookingID(), booking);
+            mark(booking, true);
+        }
+
+        private void mark(Booking booking, boolean booked) {
+            boolean[] roomNights = nights.get(booking.getRoomNumber());
+            for (int day = dayOf(booking.getCheckInDate()); day < dayOf(booking.getCheckOutDate()); day++) {
+                roomNights[day] = booked;
+            }
+        }
+
+        private static boolean isFree(boolean[] roomNights, int from, int to) {
+            for (int day = from; day < to; day++) {
+                if (roomNights[day]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int dayOf(LocalDate date) {
+            return (int) (date.toEpochDay() - FIRST_DAY.toEpochDay());
+        }
+    }
+}
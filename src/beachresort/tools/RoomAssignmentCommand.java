@@ -0,0 +1,77 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrator;
+import beachresort.models.RoomMove;
+import beachresort.repositories.RoomAssignmentRepository;
+import beachresort.services.RoomAssignmentOptimizer;
+
+import java.time.LocalDate;
+
+/**
+ * Command-line access to the room assignment optimizer and room locks.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.RoomAssignmentCommand plan <roomType> [days]
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.RoomAssignmentCommand optimize <roomType> [days]
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.RoomAssignmentCommand lock <bookingID> [who]
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.RoomAssignmentCommand unlock <bookingID>
+ *
+ * plan prints the moves the optimizer would make over the room type's next
+ * days (default 90) without making them; optimize makes them, as the night
+ * audit does. lock keeps a booking in its room, e.g. when the guest asked for
+ * it; unlock lets the optimizer move it again. Runs against the configured
+ * database.
+ */
+public class RoomAssignmentCommand {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            usage();
+            return;
+        }
+        SchemaMigrator.migrate();
+        RoomAssignmentRepository repository = new RoomAssignmentRepository();
+
+        switch (args[0]) {
+            case "plan":
+            case "optimize": {
+                boolean apply = "optimize".equals(args[0]);
+                int days = args.length > 2 ? Integer.parseInt(args[2])
+                        : RoomAssignmentOptimizer.DEFAULT_HORIZON_DAYS;
+                LocalDate today = LocalDate.now();
+                RoomAssignmentOptimizer.Result result = RoomAssignmentOptimizer.shared().optimize(args[1], today,
+                        today.plusDays(days), RoomAssignmentOptimizer.FULL_BUDGET_NANOS, apply, "room command");
+                for (RoomMove move : result.getMoves()) {
+                    System.out.println(move);
+                }
+                System.out.println(result);
+                if (apply && !result.getMoves().isEmpty() && !result.isApplied()) {
+                    System.exit(1);
+                }
+                break;
+            }
+            case "lock": {
+                int bookingId = Integer.parseInt(args[1]);
+                String lockedBy = args.length > 2 ? args[2] : "room command";
+                System.out.println(repository.lockRoom(bookingId, lockedBy)
+                        ? "Booking " + bookingId + " locked to its room"
+                        : "Booking " + bookingId + " was already locked");
+                break;
+            }
+            case "unlock": {
+                int bookingId = Integer.parseInt(args[1]);
+                System.out.println(repository.unlockRoom(bookingId)
+                        ? "Booking " + bookingId + " unlocked"
+                        : "Booking " + bookingId + " was not locked");
+                break;
+            }
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: RoomAssignmentCommand plan <roomType> [days] | optimize <roomType> [days]"
+                + " | lock <bookingID> [who] | unlock <bookingID>");
+    }
+}
@@ -0,0 +1,42 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrator;
+import beachresort.repositories.RoomNightRepository;
+import beachresort.repositories.RoomNightRepository.RebuildReport;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Rebuilds the room_nights inventory from bookings and check_in_out, for when
+ * the two have drifted apart (rows edited by hand, a failed bulk import).
+ * Prints how many nights were written, how many were claimed by more than one
+ * booking, and the booked rooms for the next two weeks as a sanity check.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.RoomNightsRepair
+ *
+ * Runs against the configured database.
+ */
+public class RoomNightsRepair {
+    private static final int PREVIEW_NIGHTS = 14;
+
+    public static void main(String[] args) throws Exception {
+        SchemaMigrator.migrate();
+        RoomNightRepository roomNights = new RoomNightRepository();
+
+        RebuildReport report = roomNights.rebuild();
+        System.out.println(report);
+        if (report.getClashingNights() > 0) {
+            System.out.println("Some bookings overlap; each clashing night went to the earliest booking");
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate end = today.plusDays(PREVIEW_NIGHTS);
+        for (Map.Entry<LocalDate, Integer> night : roomNights.getBookedRoomsPerNight(today, end).entrySet()) {
+            System.out.printf("%s  %3d rooms booked%n", night.getKey(), night.getValue());
+        }
+        System.out.printf("occupancy over the next %d nights: %.1f%%%n", PREVIEW_NIGHTS,
+                100 * roomNights.getOccupancyRate(today, end));
+    }
+}
@@ -0,0 +1,196 @@
+package beachresort.tools;
+
+import beachresort.database.SchemaMigrations;
+import beachresort.database.SchemaMigrator;
+import beachresort.models.Booking;
+import beachresort.repositories.RowMapper;
+import beachresort.repositories.RowMappers;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Compares the old label-based booking mapping (rs.getInt("bookingID") etc.)
+ * with RowMappers.BOOKING, which resolves column positions once per result set.
+ *
+ * The query result is fetched into a scrollable, client-side result set once
+ * and then mapped repeatedly from the first row, so the timings cover only the
+ * mapping and not the network or the server.
+ *
+ * Usage:
+ *   java -cp out:mysql-connector-j.jar beachresort.tools.RowMapperBenchmark \
+ *       jdbc:mysql://localhost:3306/beach_resort_bench root [password] [rows] [rounds]
+ *
+ * Point it at a throwaway schema; bookings is topped up to the requested row count.
+ */
+public class RowMapperBenchmark {
+    private static final int DEFAULT_ROWS = 100_000;
+    private static final int DEFAULT_ROUNDS = 10;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int BATCH_SIZE = 1_000;
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: RowMapperBenchmark <jdbc-url> <username> [password] [rows] [rounds]");
+            System.exit(2);
+        }
+        String password = args.length > 2 ? args[2] : "";
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_ROWS;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_ROUNDS;
+
+        try (Connection connection = DriverManager.getConnection(args[0], args[1], password)) {
+            SchemaMigrator.migrate(connection, SchemaMigrations.all());
+            seedBookings(connection, rows);
+
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT * FROM bookings LIMIT ?",
+                    ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setInt(1, rows);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                        mapByLabel(rs);
+                        mapByIndex(rs);
+                    }
+
+                    long labelNanos = 0;
+                    long indexNanos = 0;
+                    long mapped = 0;
+                    // Alternate the two so drift (GC, frequency scaling) hits both alike
+                    for (int i = 0; i < rounds; i++) {
+                        long start = System.nanoTime();
+                        mapped = mapByLabel(rs);
+                        labelNanos += System.nanoTime() - start;
+
+                        start = System.nanoTime();
+                        mapByIndex(rs);
+                        indexNanos += System.nanoTime() - start;
+                    }
+
+                    report("by label", labelNanos, mapped, rounds);
+                    report("by index", indexNanos, mapped, rounds);
+                    System.out.printf("index-based mapping takes %.0f%% of the label-based time%n",
+                            100.0 * indexNanos / labelNanos);
+                }
+            }
+        }
+    }
+
+    private static long mapByLabel(ResultSet rs) throws SQLException {
+        rs.beforeFirst();
+        long count = 0;
+        long checksum = 0;
+        while (rs.next()) {
+            Booking booking = mapBookingByLabel(rs);
+            checksum += booking.getBookingID();
+            count++;
+        }
+        consume(checksum);
+        return count;
+    }
+
+    private static long mapByIndex(ResultSet rs) throws SQLException {
+        rs.beforeFirst();
+        RowMapper<Booking> mapper = RowMappers.BOOKING.bind(rs);
+        long count = 0;
+        long checksum = 0;
+        while (rs.next()) {
+            Booking booking = mapper.map(rs);
+            checksum += booking.getBookingID();
+            count++;
+        }
+        consume(checksum);
+        return count;
+    }
+
+    // The mapping the repositories used before RowMappers
+    private static Booking mapBookingByLabel(ResultSet rs) throws SQLException {
+        return new Booking(
+                rs.getInt("bookingID"),
+                rs.getInt("user_id"),
+                rs.getString("room_number"),
+                rs.getString("customer_name"),
+                rs.getDate("check_in_date").toLocalDate(),
+                rs.getDate("check_out_date").toLocalDate(),
+                rs.getInt("number_of_guests"),
+                rs.getDouble("total_price"),
+                rs.getString("status"));
+    }
+
+    // Keeps the JIT from discarding the mapped objects
+    private static void consume(long checksum) {
+        sink += checksum;
+    }
+
+    private static void report(String name, long nanos, long rows, int rounds) {
+        double nanosPerRow = (double) nanos / (rows * rounds);
+        System.out.printf("%-9s %8.1f ns/row  %,12.0f rows/s  (%d rows x %d rounds)%n",
+                name, nanosPerRow, 1_000_000_000.0 / nanosPerRow, rows, rounds);
+    }
+
+    private static void seedBookings(Connection connection, int rows) throws SQLException {
+        long existing;
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM bookings")) {
+            rs.next();
+            existing = rs.getLong(1);
+        }
+        if (existing >= rows) {
+            return;
+        }
+
+        int customerId = benchmarkCustomer(connection);
+        System.out.println("Seeding " + (rows - existing) + " bookings...");
+        Random random = new Random(11);
+        LocalDate firstDay = LocalDate.of(2022, 1, 1);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        String insertBooking = "INSERT INTO bookings (user_id, room_number, customer_name, check_in_date, check_out_date, number_of_guests, total_price, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(insertBooking)) {
+            for (long i = existing + 1; i <= rows; i++) {
+                LocalDate checkIn = firstDay.plusDays(random.nextInt(1000));
+                pstmt.setInt(1, customerId);
+                pstmt.setString(2, String.format("R%03d", 1 + random.nextInt(200)));
+                pstmt.setString(3, "Guest " + i);
+                pstmt.setDate(4, Date.valueOf(checkIn));
+                pstmt.setDate(5, Date.valueOf(checkIn.plusDays(1 + random.nextInt(7))));
+                pstmt.setInt(6, 1 + random.nextInt(4));
+                pstmt.setDouble(7, 1500 + random.nextInt(20000));
+                pstmt.setString(8, "Confirmed");
+                pstmt.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // The bookings triggers only accept customers, so seed against one
+    private static int benchmarkCustomer(Connection connection) throws SQLException {
+        String find = "SELECT id FROM users WHERE username = 'rowmapper_bench'";
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(find)) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+            stmt.executeUpdate("INSERT INTO users (username, password, email, full_name, role) "
+                    + "VALUES ('rowmapper_bench', 'secret', 'bench@example.com', 'Row Mapper Bench', 'CUSTOMER')");
+            try (ResultSet rs = stmt.executeQuery(find)) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
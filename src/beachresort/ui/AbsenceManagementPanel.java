@@ -2,6 +2,7 @@ package beachresort.ui;
 
 import beachresort.models.Absence;
 import beachresort.models.Person;
+import beachresort.repositories.AsyncRepository;
 import beachresort.repositories.StaffRepository;
 import beachresort.repositories.AbsenceRepository;
 
@@ -12,17 +13,19 @@ import java.sql.Date;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.List;
 
 public class AbsenceManagementPanel extends JPanel {
     private AbsenceRepository absenceRepository;
     private StaffRepository staffRepository;
+    private AsyncRepository<AbsenceRepository> asyncAbsences;
+    private final PanelTasks tasks = new PanelTasks(this);
     private JTable absenceTable;
     private DefaultTableModel tableModel;
 
     public AbsenceManagementPanel(Person person) {
         absenceRepository = new AbsenceRepository();
         staffRepository = new StaffRepository();
+        asyncAbsences = AsyncRepository.of(absenceRepository);
         setLayout(new BorderLayout());
         setBorder(BorderFactory.createTitledBorder("Absence Management"));
 
@@ -82,6 +85,7 @@ public class AbsenceManagementPanel extends JPanel {
         absenceTable = new JTable(tableModel);
         JScrollPane scrollPane = new JScrollPane(absenceTable);
         add(scrollPane, BorderLayout.CENTER);
+        add(tasks.getIndicator(), BorderLayout.SOUTH);
 
         // Load existing absences for the user
         loadAbsences(person.getId());
@@ -119,19 +123,26 @@ public class AbsenceManagementPanel extends JPanel {
                         "Pending", // Default status
                         reason);
 
-                // Add absence to the repository
-                if (absenceRepository.addAbsence(absence)) {
-                    JOptionPane.showMessageDialog(this, "Absence requested successfully.");
-                    // Clear fields after successful submission
-                    leaveTypeCombo.setSelectedIndex(0);
-                    startDateField.setText("");
-                    endDateField.setText("");
-                    absenceReasonField.setText("");
-                    // Reload the absence list
-                    loadAbsences(person.getId());
-                } else {
-                    JOptionPane.showMessageDialog(this, "Failed to request absence. Please try again.");
-                }
+                // Add absence to the repository off the EDT
+                requestAbsenceButton.setEnabled(false);
+                tasks.run(asyncAbsences.call(absences -> absences.addAbsence(absence)), added -> {
+                    requestAbsenceButton.setEnabled(true);
+                    if (added) {
+                        JOptionPane.showMessageDialog(this, "Absence requested successfully.");
+                        // Clear fields after successful submission
+                        leaveTypeCombo.setSelectedIndex(0);
+                        startDateField.setText("");
+                        endDateField.setText("");
+                        absenceReasonField.setText("");
+                        // Reload the absence list
+                        loadAbsences(person.getId());
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Failed to request absence. Please try again.");
+                    }
+                }, error -> {
+                    requestAbsenceButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, "Error requesting absence: " + error.getMessage());
+                });
             } catch (DateTimeParseException ex) {
                 JOptionPane.showMessageDialog(this, "Invalid date format. Please use YYYY-MM-DD.");
             } catch (Exception ex) {
@@ -142,19 +153,20 @@ public class AbsenceManagementPanel extends JPanel {
 
     
     private void loadAbsences(int userId) {
-        // Clear the existing table data
-        tableModel.setRowCount(0);
-        // Fetch absences for the user
-        List<Absence> absences = absenceRepository.getAbsencesByUserId(userId);
-        for (Absence absence : absences) {
-            tableModel.addRow(new Object[]{
-                absence.getAbsenceId(),
-                absence.getLeaveType(),
-                absence.getStartDate(),
-                absence.getEndDate(),
-                absence.getStatus(),
-                absence.getReason()
-            });
-        }
+        // Fetch absences for the user off the EDT, then fill the table
+        tasks.run(asyncAbsences.call(absences -> absences.getAbsencesByUserId(userId)), absences -> {
+            // Clear the existing table data
+            tableModel.setRowCount(0);
+            for (Absence absence : absences) {
+                tableModel.addRow(new Object[]{
+                    absence.getAbsenceId(),
+                    absence.getLeaveType(),
+                    absence.getStartDate(),
+                    absence.getEndDate(),
+                    absence.getStatus(),
+                    absence.getReason()
+                });
+            }
+        });
     }
 }
\ No newline at end of file
@@ -3,17 +3,25 @@ package beachresort.ui;
 import beachresort.models.Booking;
 import beachresort.models.CheckInOut;
 import beachresort.models.Room;
+import beachresort.repositories.AsyncRepository;
 import beachresort.repositories.BookingRepository;
 import beachresort.repositories.CheckInOutRepository;
+import beachresort.repositories.RepositoryExecutor;
 import beachresort.repositories.RoomRepository;
+import beachresort.repositories.UncheckedSQLException;
+import beachresort.services.CheckInService;
+import beachresort.services.RoomSearchService;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class CheckInOutPanel extends JPanel {
     private JTable checkInOutTable;
@@ -21,6 +29,12 @@ public class CheckInOutPanel extends JPanel {
     private BookingRepository bookingRepository; // Repository for managing bookings
     private RoomRepository roomRepository; // Repository for managing rooms
     private CheckInOutRepository checkInOutRepository; // Repository for managing check-ins/outs
+    private RoomSearchService roomSearchService;
+    private CheckInService checkInService;
+    private AsyncRepository<BookingRepository> asyncBookings;
+    private AsyncRepository<CheckInOutRepository> asyncCheckInOuts;
+    private AsyncRepository<RoomRepository> asyncRooms;
+    private final PanelTasks tasks = new PanelTasks(this);
 
     public CheckInOutPanel() {
         setLayout(new BorderLayout());
@@ -29,6 +43,11 @@ public class CheckInOutPanel extends JPanel {
         bookingRepository = new BookingRepository();
         roomRepository = new RoomRepository();
         checkInOutRepository = new CheckInOutRepository();
+        roomSearchService = new RoomSearchService();
+        checkInService = new CheckInService();
+        asyncBookings = AsyncRepository.of(bookingRepository);
+        asyncCheckInOuts = AsyncRepository.of(checkInOutRepository);
+        asyncRooms = AsyncRepository.of(roomRepository);
 
         // Title
         JLabel titleLabel = new JLabel("Check In / Checkout", SwingConstants.CENTER);
@@ -56,6 +75,7 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
         buttonPanel.add(checkInByWalkIn);
         buttonPanel.add(checkInByBooking);
         buttonPanel.add(checkOutButton);
+        buttonPanel.add(tasks.getIndicator());
         add(buttonPanel, BorderLayout.SOUTH);
 
         // Load initial check-in/out records
@@ -63,24 +83,24 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
     }
 
     private void loadCheckInOuts() {
-        // Clear existing rows
-        tableModel.setRowCount(0);
-
-        // Fetch check-in/out records from the repository
-        List<CheckInOut> checkInOuts = checkInOutRepository.getAllCheckInOuts();
-        for (CheckInOut checkInOut : checkInOuts) {
-            Object[] rowData = {
-                    checkInOut.getId(),
-                    checkInOut.getUserId(),
-                    checkInOut.getCustomerName(),
-                    checkInOut.getCheckInDate(),
-                    checkInOut.getCheckOutDate(),
-                    checkInOut.getRoomNumber(),
-                    checkInOut.getCheckInType(),
-                    checkInOut.getStatus()
-            };
-            tableModel.addRow(rowData);
-        }
+        // Fetch check-in/out records off the EDT, then fill the table
+        tasks.run(asyncCheckInOuts.call(CheckInOutRepository::getAllCheckInOuts), checkInOuts -> {
+            // Clear existing rows
+            tableModel.setRowCount(0);
+            for (CheckInOut checkInOut : checkInOuts) {
+                Object[] rowData = {
+                        checkInOut.getId(),
+                        checkInOut.getUserId(),
+                        checkInOut.getCustomerName(),
+                        checkInOut.getCheckInDate(),
+                        checkInOut.getCheckOutDate(),
+                        checkInOut.getRoomNumber(),
+                        checkInOut.getCheckInType(),
+                        checkInOut.getStatus()
+                };
+                tableModel.addRow(rowData);
+            }
+        });
     }
     
     
@@ -164,11 +184,16 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
         availableRoomsCombo.addActionListener(actionEvent -> {
             String selectedRoomNumber = (String) availableRoomsCombo.getSelectedItem();
             if (selectedRoomNumber != null) {
-                Room selectedRoom = roomRepository.getRoomByNumber(selectedRoomNumber); // Fetch room details
-                if (selectedRoom != null) {
-                    capacityField.setText(String.valueOf(selectedRoom.getCapacity()));
-                    priceField.setText(String.valueOf(selectedRoom.getPricePerNight()));
-                }
+                // Fetch room details in the background
+                tasks.run(asyncRooms.call(rooms -> rooms.getRoomByNumber(selectedRoomNumber)), selectedRoom -> {
+                    // Ignore a late answer if the user has already picked another room
+                    if (selectedRoom != null && selectedRoomNumber.equals(availableRoomsCombo.getSelectedItem())) {
+                        capacityField.setText(String.valueOf(selectedRoom.getCapacity()));
+                        // Tonight's rate, with any seasonal or weekend adjustment
+                        LocalDate tonight = LocalDate.now();
+                        priceField.setText(StayQuotes.quoteText(selectedRoom, tonight, tonight.plusDays(1)));
+                    }
+                });
             }
         });
 
@@ -216,15 +241,6 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
 
             String selectedRoomNumber = (String) availableRoomsCombo.getSelectedItem();
 
-            // Check for overlapping bookings
-            if (checkForOverlappingBookings(selectedRoomNumber, today, tomorrow)) {
-                JOptionPane.showMessageDialog(addBookingDialog,
-                        "There is already a booking for this room on the selected dates.", "Error",
-                        JOptionPane.ERROR_MESSAGE);
-                return; // Prevent booking
-            }
-
-
             // User ID validation
     int userId;
     try {
@@ -237,20 +253,11 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
         return;
     }
 
-    // Validate if user is a customer
-            if (!checkInOutRepository.isValidCustomerUser(userId)) {
-                JOptionPane.showMessageDialog(addBookingDialog,
-                        "Invalid User ID or User is not a Customer",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-    
             try {
                 // Create a new booking object
 
                 Booking newBooking = new Booking(
-                      Integer.parseInt(userIdField.getText()),
+                      userId,
                         (String) availableRoomsCombo.getSelectedItem(), // Selected room from available rooms
                         customerNameField.getText(),
                         today,
@@ -261,7 +268,7 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
                 );
                 
                 CheckInOut checkInOut = new CheckInOut(
-                        Integer.parseInt(userIdField.getText()), // Add user ID
+                        userId, // Add user ID
                         customerNameField.getText(),
                         today,
                         tomorrow,
@@ -270,17 +277,21 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
                         "Checked In"
                     );
 
-                checkInOutRepository.addCheckInOut(checkInOut); // Save the check-in record
-
-                // Save the booking using the repository
-                boolean isSuccess = bookingRepository.addBooking(newBooking, "User    "); // Pass the user who performed the action
-                if (isSuccess) {
-                    roomRepository.updateRoomStatusBasedOnCurrent((String) availableRoomsCombo.getSelectedItem(),
-                            statusCombo.getSelectedItem().toString()); // Update room status to Booked
+                // The overlap check and the walk-in run off the EDT; the dialog stays open until they answer
+                saveButton.setEnabled(false);
+                tasks.run(RepositoryExecutor.supply(() -> walkIn(newBooking, checkInOut, today, tomorrow)), error -> {
+                    saveButton.setEnabled(true);
+                    if (error != null) {
+                        JOptionPane.showMessageDialog(addBookingDialog, error, "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
                     JOptionPane.showMessageDialog(addBookingDialog, "Booking Added Successfully!");
                     addBookingDialog.dispose();
-                }
-                loadCheckInOuts(); // Refresh the table to show the new booking
+                    loadCheckInOuts(); // Refresh the table to show the new booking
+                }, ex -> {
+                    saveButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(addBookingDialog, "Error adding booking: " + ex.getMessage());
+                });
 
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(addBookingDialog, "Error adding booking: " + ex.getMessage());
@@ -316,8 +327,8 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
         panel.add(new JLabel("Select Booking ID:"), gbc);
 
         gbc.gridx = 1; // Second column
-        JComboBox<Integer> bookingIDComboBox = new JComboBox<>(
-                bookingRepository.getAllBookingIDs().toArray(new Integer[0]));
+        // Filled in once the pending booking IDs arrive from the background load
+        JComboBox<Integer> bookingIDComboBox = new JComboBox<>();
         panel.add(bookingIDComboBox, gbc);
 
         // Row 2: Room Number
@@ -397,8 +408,9 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
        bookingIDComboBox.addActionListener(actionEvent -> {
         Integer selectedBookingID = (Integer) bookingIDComboBox.getSelectedItem();
            if (selectedBookingID != null) {
-               Booking selectedBooking = bookingRepository.getBookingByID(selectedBookingID);
-               if (selectedBooking != null) {
+               tasks.run(asyncBookings.call(bookings -> bookings.getBookingByID(selectedBookingID)), selectedBooking -> {
+               // Ignore a late answer if the user has already picked another booking
+               if (selectedBooking != null && selectedBookingID.equals(bookingIDComboBox.getSelectedItem())) {
                    roomNumberField.setText(selectedBooking.getRoomNumber());
                    customerNameField.setText(selectedBooking.getCustomerName());
                    checkInDateField.setText(selectedBooking.getCheckInDate().toString());
@@ -409,6 +421,7 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
                    // Populate User ID
                    userIdField.setText(String.valueOf(selectedBooking.getUserId()));
                }
+               });
            }
     
        });
@@ -441,51 +454,28 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
         return;
     }
 
-    // Validate if user is a customer
-            if (!checkInOutRepository.isValidCustomerUser(userId)) {
-                JOptionPane.showMessageDialog(checkInByBookingDialog,
-                        "Invalid User ID or User is not a Customer",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-    
             Integer selectedBookingID = (Integer) bookingIDComboBox.getSelectedItem();
             if (selectedBookingID == null) {
                 JOptionPane.showMessageDialog(checkInByBookingDialog, "Please select a booking ID.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            Booking booking = bookingRepository.getBookingByID(selectedBookingID);
-            if (booking == null) {
-                JOptionPane.showMessageDialog(checkInByBookingDialog, "Booking not found.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-
-            try {
-                boolean isUpdated = bookingRepository.updateBookingStatusToConfirmed(selectedBookingID);
-                if (isUpdated) {
-                CheckInOut checkInOut = new CheckInOut(
-                        Integer.parseInt(userIdField.getText()), // Add user ID
-                        booking.getCustomerName(),
-                        booking.getCheckInDate(),
-                        booking.getCheckOutDate(),
-                        roomNumberField.getText(),
-                        "Booking",
-                        "Checked In"
-                    );
-
-                    checkInOutRepository.addCheckInOut(checkInOut); // Save the check-in record
-                    JOptionPane.showMessageDialog(checkInByBookingDialog, "Booking status updated to Confirmed!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadCheckInOuts(); // Refresh the table to show the new booking
-                } else {
-                    JOptionPane.showMessageDialog(checkInByBookingDialog, "Failed to update booking status.", "Error", JOptionPane.ERROR_MESSAGE);
+            // The check-in runs off the EDT; the dialog stays responsive
+            saveButton.setEnabled(false);
+            tasks.run(RepositoryExecutor.supply(() -> checkInByBooking(userId, selectedBookingID)), error -> {
+                saveButton.setEnabled(true);
+                if (error != null) {
+                    JOptionPane.showMessageDialog(checkInByBookingDialog, error, "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                JOptionPane.showMessageDialog(checkInByBookingDialog, "Booking status updated to Confirmed!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                loadCheckInOuts(); // Refresh the table to show the new booking
                 JOptionPane.showMessageDialog(checkInByBookingDialog, "Check-in successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 checkInByBookingDialog.dispose(); // Close dialog
-            } catch (Exception ex) {
+            }, ex -> {
+                saveButton.setEnabled(true);
                 JOptionPane.showMessageDialog(checkInByBookingDialog, "Error during check-in: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         });
         panel.add(saveButton, gbc);
 
@@ -496,9 +486,51 @@ String[] columnNames = {"Check In ID", "User ID", "Customer Name", "Check In Dat
         panel.add(cancelButton, gbc);
 
         checkInByBookingDialog.add(panel);
+
+        // Load the pending bookings in the background; the dialog opens straight away
+        tasks.run(asyncBookings.call(BookingRepository::getAllBookingIDs), bookingIDs -> {
+            for (Integer bookingID : bookingIDs) {
+                bookingIDComboBox.addItem(bookingID);
+            }
+        });
         checkInByBookingDialog.setVisible(true);
 }
 
+    // Runs on a repository worker thread. Returns an error message for the
+    // user, or null when the walk-in's booking and check-in were recorded.
+    private String walkIn(Booking newBooking, CheckInOut checkInOut, LocalDate today, LocalDate tomorrow) {
+        // Check for overlapping bookings
+        if (checkForOverlappingBookings(newBooking.getRoomNumber(), today, tomorrow)) {
+            return "There is already a booking for this room on the selected dates.";
+        }
+        // Booking, check-in record and room status are written together or not at all
+        switch (checkInService.walkIn(newBooking, checkInOut)) {
+            case DONE:
+                return null;
+            case ROOM_TAKEN:
+                return "This room was just booked for tonight at another desk.";
+            case INVALID_USER:
+                return "Invalid User ID or User is not a Customer";
+            default:
+                return "Error adding booking.";
+        }
+    }
+
+    // Runs on a repository worker thread. Returns an error message for the
+    // user, or null when the booking was confirmed and the check-in recorded.
+    private String checkInByBooking(int userId, int bookingID) {
+        switch (checkInService.checkInBooking(bookingID, userId)) {
+            case DONE:
+                return null;
+            case INVALID_USER:
+                return "Invalid User ID or User is not a Customer";
+            case NOT_FOUND:
+                return "Booking not found.";
+            default:
+                return "Failed to update booking status.";
+        }
+    }
+
     
     
 private void checkOutBooking(ActionEvent e) {
@@ -511,31 +543,29 @@ private void checkOutBooking(ActionEvent e) {
     int checkInId = (Integer) tableModel.getValueAt(selectedRow, 0);
     int userId = (Integer) tableModel.getValueAt(selectedRow, 1);
 
-    // Validate user
-    if (!checkInOutRepository.isValidCustomerUser(userId)) {
-        JOptionPane.showMessageDialog(this,
-                "Invalid User ID or User is not a Customer",
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
-        return;
-    }
-
     String status = (String) tableModel.getValueAt(selectedRow, 7); // Status is now at index 7
     if ("OUT".equals(status)) {
         JOptionPane.showMessageDialog(this, "This check-in record has already been checked out.");
         return;
     }
 
-    CheckInOut checkInOut = checkInOutRepository.getCheckInOutById(checkInId);
-    if (checkInOut != null) {
-        checkInOut.setStatus("OUT"); // Update status to OUT
-        checkInOutRepository.updateCheckInOut(checkInOut); // Save changes to repository
-
-        roomRepository.updateRoomStatus(checkInOut.getRoomNumber(), "Maintenance"); // Update room status to Maintenance
-        loadCheckInOuts(); // Refresh the table to show updated status
-    } else {
-        JOptionPane.showMessageDialog(this, "Error retrieving check-in record.");
-    }
+    // Stay, room nights and room status (to Maintenance) change in one transaction, off the EDT
+    tasks.run(RepositoryExecutor.supply(() -> checkInService.checkOut(checkInId, userId)), result -> {
+        if (result == CheckInService.Result.DONE) {
+            JOptionPane.showMessageDialog(this, "Checked out successfully.");
+            loadCheckInOuts(); // Refresh the table to show updated status
+        } else if (result == CheckInService.Result.NOT_FOUND) {
+            JOptionPane.showMessageDialog(this, "This check-in record has already been checked out.");
+            loadCheckInOuts();
+        } else if (result == CheckInService.Result.INVALID_USER) {
+            JOptionPane.showMessageDialog(this,
+                    "Invalid User ID or User is not a Customer",
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Error retrieving check-in record.");
+        }
+    });
 }
 
 
@@ -543,57 +573,44 @@ private void checkOutBooking(ActionEvent e) {
         // Clear existing items
         availableRoomsCombo.removeAllItems();
 
-        // Fetch available rooms from the RoomRepository based on the selected room type
-        List<String> availableRooms = roomRepository.getAvailableRoomsByType(roomType); // Implement this method in RoomRepository
-
-        // Add available rooms to the combo box
-        if (availableRooms.isEmpty()) {
-            availableRoomsCombo.addItem("No available rooms");
-        } else {
-            for (String room : availableRooms) {
-                availableRoomsCombo.addItem(room);
+        // Walk-ins stay tonight, so search by tonight's bookings rather than the room status
+        LocalDate today = LocalDate.now();
+        tasks.run(RepositoryExecutor.supply(
+                () -> roomSearchService.findAvailableRoomNumbers(roomType, 1, today, today.plusDays(1))),
+                availableRooms -> {
+            // Add available rooms to the combo box
+            availableRoomsCombo.removeAllItems();
+            if (availableRooms.isEmpty()) {
+                availableRoomsCombo.addItem("No available rooms");
+            } else {
+                for (String room : availableRooms) {
+                    availableRoomsCombo.addItem(room);
+                }
             }
-        }
+        }, error -> {
+            System.err.println("Error searching available rooms: " + error.getMessage());
+            availableRoomsCombo.removeAllItems();
+            availableRoomsCombo.addItem("No available rooms");
+        });
     }
 
+    // Answered from the in-memory availability index; stays are [check-in, check-out)
     private boolean checkForOverlappingBookings(String roomNumber, LocalDate newStartDate, LocalDate newEndDate) {
-        List<Booking> existingBookings = getExistingBookingsForRoom(roomNumber);
-
-        for (Booking booking : existingBookings) {
-            LocalDate existingStartDate = booking.getCheckInDate(); // Use getCheckInDate()
-            LocalDate existingEndDate = booking.getCheckOutDate(); // Use getCheckOutDate()
-
-            // Check if the new booking overlaps with the existing booking
-            if ((newStartDate.isEqual(existingStartDate) || newStartDate.isAfter(existingStartDate)) &&
-                    (newStartDate.isBefore(existingEndDate) || newStartDate.isEqual(existingEndDate))) {
-                return true; // Overlap found
-            }
-
-            if ((newEndDate.isEqual(existingStartDate) || newEndDate.isBefore(existingEndDate)) &&
-                    (newEndDate.isAfter(existingStartDate) || newEndDate.isEqual(existingStartDate))) {
-                return true; // Overlap found
-            }
-
-            // Check if the new booking completely encompasses the existing booking
-            if (newStartDate.isBefore(existingStartDate) && newEndDate.isAfter(existingEndDate)) {
-                return true; // Overlap found
-            }
+        try {
+            return bookingRepository.hasConflictingBooking(roomNumber, newStartDate, newEndDate);
+        } catch (SQLException e) {
+            // Treat an unreadable room as taken rather than risk a double booking
+            System.err.println("Error checking overlapping bookings: " + e.getMessage());
+            return true;
         }
-
-        return false; // No overlaps found
     }
-     
-    public List<Booking> getExistingBookingsForRoom(String roomNumber) {
-        List<Booking> existingBookings = new ArrayList<>();
-        List<Booking> allBookings = bookingRepository.getAllBookings(); // Retrieve all bookings
 
-        // Filter bookings for the specified room number
-        for (Booking booking : allBookings) {
-            if (booking.getRoomNumber().equals(roomNumber)) {
-                existingBookings.add(booking);
-            }
+    public List<Booking> getExistingBookingsForRoom(String roomNumber) {
+        try (Stream<Booking> existingBookings = bookingRepository.streamBookingsForRoom(roomNumber)) {
+            return existingBookings.collect(Collectors.toList());
+        } catch (SQLException | UncheckedSQLException e) {
+            System.err.println("Error retrieving bookings for room: " + e.getMessage());
+            return new ArrayList<>();
         }
-
-        return existingBookings; // Return the filtered list of bookings for the specified room
     }
-}
\ No newline at end of file
+}
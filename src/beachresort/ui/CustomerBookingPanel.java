@@ -2,27 +2,42 @@ package beachresort.ui;
 
 import beachresort.models.Booking;
 import beachresort.models.Room;
+import beachresort.repositories.AsyncRepository;
 import beachresort.repositories.BookingRepository;
+import beachresort.repositories.BookingRepository.ReservationResult;
+import beachresort.repositories.RepositoryExecutor;
 import beachresort.repositories.RoomRepository;
+import beachresort.services.RateEngine;
+import beachresort.services.RoomAssignmentOptimizer;
+import beachresort.services.RoomSearchService;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.sql.SQLException;
 import java.time.LocalDate;
-import java.util.List;
 
 public class CustomerBookingPanel extends JPanel {
     private JTable bookingsTable;
     private DefaultTableModel tableModel;
     private BookingRepository bookingRepository;
     private RoomRepository roomRepository;
+    private RoomSearchService roomSearchService;
+    private AsyncRepository<BookingRepository> asyncBookings;
+    private AsyncRepository<RoomRepository> asyncRooms;
+    private final PanelTasks tasks = new PanelTasks(this);
     private int currentUserId; // Track the current user's ID
 
     public CustomerBookingPanel(int userId) {
         this.currentUserId = userId;
         bookingRepository = new BookingRepository();
         roomRepository = new RoomRepository();
+        roomSearchService = new RoomSearchService();
+        asyncBookings = AsyncRepository.of(bookingRepository);
+        asyncRooms = AsyncRepository.of(roomRepository);
         
         setLayout(new BorderLayout());
 
@@ -51,6 +66,7 @@ public class CustomerBookingPanel extends JPanel {
         buttonPanel.add(addBookingButton);
         buttonPanel.add(editBookingButton);
         buttonPanel.add(deleteBookingButton);
+        buttonPanel.add(tasks.getIndicator());
         add(buttonPanel, BorderLayout.SOUTH);
 
         // Load user's bookings
@@ -58,24 +74,23 @@ public class CustomerBookingPanel extends JPanel {
     }
 
     private void loadUserBookings() {
-        // Clear existing rows
-        tableModel.setRowCount(0);
-        
-        // Fetch bookings for the current user
-        List<Booking> bookings = bookingRepository.getBookingsByUserId(currentUserId);
-        for (Booking booking : bookings) {
-            Object[] rowData = {
-                booking.getBookingID(),
-                booking.getRoomNumber(),
-                booking.getCustomerName(),
-                booking.getCheckInDate(),
-                booking.getCheckOutDate(),
-                booking.getTotalPrice(),
-                booking.getStatus()
-            };
-            tableModel.addRow(rowData);
-        }
-        
+        // Fetch bookings for the current user off the EDT, then fill the table
+        tasks.run(asyncBookings.call(bookings -> bookings.getBookingsByUserId(currentUserId)), bookings -> {
+            // Clear existing rows
+            tableModel.setRowCount(0);
+            for (Booking booking : bookings) {
+                Object[] rowData = {
+                    booking.getBookingID(),
+                    booking.getRoomNumber(),
+                    booking.getCustomerName(),
+                    booking.getCheckInDate(),
+                    booking.getCheckOutDate(),
+                    booking.getTotalPrice(),
+                    booking.getStatus()
+                };
+                tableModel.addRow(rowData);
+            }
+        });
     }
 
     private void addBooking(ActionEvent e) {
@@ -164,22 +179,35 @@ public class CustomerBookingPanel extends JPanel {
         totalPriceField.setEditable(false); // Make it read-only
         panel.add(totalPriceField, gbc);
 
-        // Calculate total price based on room type and number of guests
-        roomTypeCombo.addActionListener(e1 -> {
-            String selectedRoomType = (String) roomTypeCombo.getSelectedItem();
-            List<String> availableRooms = roomRepository.getAvailableRoomsByType(selectedRoomType);
-            availableRoomsCombo.removeAllItems();
-            for (String room : availableRooms) {
-                availableRoomsCombo.addItem(room);
+        // Offer the rooms of the chosen type that are free for the entered dates and party size
+        Runnable refreshRooms = () -> updateAvailableRooms((String) roomTypeCombo.getSelectedItem(),
+                checkInField.getText(), checkOutField.getText(), numberOfGuestsField.getText(), availableRoomsCombo);
+        roomTypeCombo.addActionListener(e1 -> refreshRooms.run());
+        FocusAdapter refreshOnLeave = new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e1) {
+                refreshRooms.run();
             }
-        });
+        };
+        for (JTextField field : new JTextField[] { numberOfGuestsField, checkInField, checkOutField }) {
+            field.addActionListener(e1 -> refreshRooms.run());
+            field.addFocusListener(refreshOnLeave);
+        }
 
+        // Quote the whole stay for the picked room; the list is refilled whenever the dates change
         availableRoomsCombo.addActionListener(e1 -> {
             String selectedRoom = (String) availableRoomsCombo.getSelectedItem();
-            Room room = roomRepository.getRoomByNumber(selectedRoom);
-            if (room != null) {
-                totalPriceField.setText(String.valueOf(room.getPricePerNight()));
+            if (selectedRoom == null) {
+                totalPriceField.setText("");
+                return;
             }
+            tasks.run(asyncRooms.call(rooms -> rooms.getRoomByNumber(selectedRoom)), room -> {
+                // Ignore a late answer if the guest has already picked another room
+                if (selectedRoom.equals(availableRoomsCombo.getSelectedItem())) {
+                    totalPriceField.setText(StayQuotes.quoteText(room, checkInField.getText(),
+                            checkOutField.getText()));
+                }
+            });
         });
 
         // Add Booking Button
@@ -203,16 +231,29 @@ public class CustomerBookingPanel extends JPanel {
             String roomNumber = (String) availableRoomsCombo.getSelectedItem();
            
             int numberOfGuests = Integer.parseInt(numberOfGuestsField.getText());
-            double totalPrice = Double.parseDouble(totalPriceField.getText());
+            if (roomNumber == null) {
+                JOptionPane.showMessageDialog(addBookingDialog,
+                        "This room is not available on the selected dates.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
-            Booking newBooking = new Booking(0, currentUserId, roomNumber, customerName, newStartDate, newEndDate, numberOfGuests, totalPrice, "Pending");
-            if (bookingRepository.addBooking(newBooking, "User ")) {
+            // The availability check and the reservation run off the EDT; the dialog stays open until they answer
+            addButton.setEnabled(false);
+            tasks.run(RepositoryExecutor.supply(() -> reserveBooking(roomNumber, customerName, newStartDate,
+                    newEndDate, numberOfGuests)), error -> {
+                addButton.setEnabled(true);
+                if (error != null) {
+                    JOptionPane.showMessageDialog(addBookingDialog, error, "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 JOptionPane.showMessageDialog(addBookingDialog, "Booking added successfully!");
                 loadUserBookings(); // Refresh the bookings table
                 addBookingDialog.dispose();
-            } else {
-                JOptionPane.showMessageDialog(addBookingDialog, "Failed to add booking. Please try again.");
-            }
+            }, ex -> {
+                addButton.setEnabled(true);
+                JOptionPane.showMessageDialog(addBookingDialog,
+                        "Could not check room availability: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            });
         });
 
         gbc.gridx = 0;
@@ -224,104 +265,173 @@ public class CustomerBookingPanel extends JPanel {
         addBookingDialog.setVisible(true);
     }
 
+    // Runs on a repository worker thread. Returns an error message for the
+    // guest, or null when the booking was reserved.
+    private String reserveBooking(String roomNumber, String customerName, LocalDate newStartDate,
+            LocalDate newEndDate, int numberOfGuests) throws SQLException {
+        if (bookingRepository.hasConflictingBooking(roomNumber, newStartDate, newEndDate)) {
+            return "This room is not available on the selected dates.";
+        }
+        Room room = roomRepository.getRoomByNumber(roomNumber);
+        if (room == null) {
+            return "This room no longer exists.";
+        }
+        // Priced again here rather than read back from the field, which may predate a date change
+        double totalPrice = RateEngine.shared().quote(room, newStartDate, newEndDate);
+
+        Booking newBooking = new Booking(0, currentUserId, roomNumber, customerName, newStartDate, newEndDate, numberOfGuests, totalPrice, "Pending");
+        ReservationResult result = bookingRepository.reserveBooking(newBooking, "User ");
+        if (result == ReservationResult.RESERVED) {
+            RoomAssignmentOptimizer.shared().bookingAddedInBackground(newBooking);
+            return null;
+        } else if (result == ReservationResult.CONFLICT) {
+            return "This room was just booked for those dates. Please choose another room.";
+        }
+        return "Failed to add booking. Please try again.";
+    }
+
+    private void updateAvailableRooms(String roomType, String checkIn, String checkOut, String guests,
+            JComboBox<String> availableRoomsCombo) {
+        Object previous = availableRoomsCombo.getSelectedItem();
+        availableRoomsCombo.removeAllItems();
+        LocalDate checkInDate;
+        LocalDate checkOutDate;
+        int numberOfGuests;
+        try {
+            checkInDate = LocalDate.parse(checkIn.trim());
+            checkOutDate = LocalDate.parse(checkOut.trim());
+            numberOfGuests = guests.trim().isEmpty() ? 1 : Integer.parseInt(guests.trim());
+        } catch (RuntimeException ex) {
+            // Wait until the dates (and guest count, if given) are complete
+            return;
+        }
+        if (!checkOutDate.isAfter(checkInDate)) {
+            return;
+        }
+        tasks.run(RepositoryExecutor.supply(() -> roomSearchService.findAvailableRoomNumbers(roomType,
+                numberOfGuests, checkInDate, checkOutDate)), rooms -> {
+            availableRoomsCombo.removeAllItems();
+            for (String room : rooms) {
+                availableRoomsCombo.addItem(room);
+            }
+            if (previous != null) {
+                // Keep the guest's pick if it is still free
+                availableRoomsCombo.setSelectedItem(previous);
+            }
+        }, ex -> System.err.println("Error searching available rooms: " + ex.getMessage()));
+    }
+
     private void editBooking(ActionEvent e) {
         int selectedRow = bookingsTable.getSelectedRow();
         if (selectedRow >= 0) {
             int bookingId = (int) tableModel.getValueAt(selectedRow, 0);
-            Booking booking = bookingRepository.getBookingById(bookingId);
-
-            if (booking != null) {
-                JDialog editBookingDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Edit Booking", true);
-                editBookingDialog.setSize(400, 500);
-                editBookingDialog.setLocationRelativeTo(this);
-
-                JPanel panel = new JPanel(new GridBagLayout());
-                GridBagConstraints gbc = new GridBagConstraints();
-                gbc.fill = GridBagConstraints.HORIZONTAL;
-                gbc.insets = new Insets(10, 10, 10, 10);
-
-                // Populate fields with existing booking data
-                gbc.gridx = 0;
-                gbc.gridy = 0;
-                panel.add(new JLabel("Booking ID:"), gbc);
-
-                gbc.gridx = 1;
-                JTextField bookingIdField = new JTextField(String.valueOf(booking.getBookingID()));
-                bookingIdField.setEditable(false);
-                panel.add(bookingIdField, gbc);
-
-                gbc.gridx = 0;
-                gbc.gridy = 1;
-                panel.add(new JLabel("Customer Name:"), gbc);
-
-                gbc.gridx = 1;
-                JTextField customerNameField = new JTextField(booking.getCustomerName());
-                panel.add(customerNameField, gbc);
-
-                gbc.gridx = 0;
-                gbc.gridy = 2;
-                panel.add(new JLabel("Room Number:"), gbc);
-
-                gbc.gridx = 1;
-                JTextField roomNumberField = new JTextField(booking.getRoomNumber());
-                roomNumberField.setEditable(false); // Make it read-only
-                panel.add(roomNumberField, gbc);
-
-                gbc.gridx = 0;
-                gbc.gridy = 3;
-                panel.add(new JLabel("Check-in Date:"), gbc);
-
-                gbc.gridx = 1;
-                 JTextField checkInField = new JTextField(booking.getCheckInDate().toString());
-        
-                panel.add(checkInField, gbc);
+            // Fetch the booking in the background, then open the dialog on it
+            tasks.run(asyncBookings.call(bookings -> bookings.getBookingById(bookingId)), booking -> {
+                if (booking != null) {
+                    showEditBookingDialog(booking);
+                }
+            });
+        } else {
+            JOptionPane.showMessageDialog(this, "Please select a booking to edit.");
+        }
+    }
+
+    private void showEditBookingDialog(Booking booking) {
+        JDialog editBookingDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Edit Booking", true);
+        editBookingDialog.setSize(400, 500);
+        editBookingDialog.setLocationRelativeTo(this);
+
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(10, 10, 10, 10);
+
+        // Populate fields with existing booking data
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        panel.add(new JLabel("Booking ID:"), gbc);
+
+        gbc.gridx = 1;
+        JTextField bookingIdField = new JTextField(String.valueOf(booking.getBookingID()));
+        bookingIdField.setEditable(false);
+        panel.add(bookingIdField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        panel.add(new JLabel("Customer Name:"), gbc);
 
-                gbc.gridx = 0;
-                gbc.gridy = 4;
-                panel.add(new JLabel("Check-out Date:"), gbc);
+        gbc.gridx = 1;
+        JTextField customerNameField = new JTextField(booking.getCustomerName());
+        panel.add(customerNameField, gbc);
 
-                gbc.gridx = 1;
-                  JTextField checkOutField = new JTextField(booking.getCheckOutDate().toString());
-                panel.add(checkOutField, gbc);
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        panel.add(new JLabel("Room Number:"), gbc);
 
-                gbc.gridx = 0;
-                gbc.gridy = 5;
-                panel.add(new JLabel("Total Price:"), gbc);
+        gbc.gridx = 1;
+        JTextField roomNumberField = new JTextField(booking.getRoomNumber());
+        roomNumberField.setEditable(false); // Make it read-only
+        panel.add(roomNumberField, gbc);
 
-                gbc.gridx = 1;
-                JTextField totalPriceField = new JTextField(String.valueOf(booking.getTotalPrice()));
-                totalPriceField.setEditable(false); // Make it read-only
-                panel.add(totalPriceField, gbc);
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        panel.add(new JLabel("Check-in Date:"), gbc);
 
-                // Update Booking Button
-                JButton updateButton = new JButton("Update Booking");
-                updateButton.addActionListener(e1 -> {
-                 
+        gbc.gridx = 1;
+         JTextField checkInField = new JTextField(booking.getCheckInDate().toString());
 
-                    booking.setCheckInDate(LocalDate.parse(checkInField.getText()));
+        panel.add(checkInField, gbc);
 
-                    booking.setCheckOutDate(LocalDate.parse(checkOutField.getText()));
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        panel.add(new JLabel("Check-out Date:"), gbc);
 
-                    if (bookingRepository.updateBooking(booking, "User  ")) {
-                        JOptionPane.showMessageDialog(editBookingDialog, "Booking updated successfully!");
-                        loadUserBookings(); // Refresh the bookings table
-                        editBookingDialog.dispose();
-                    } else {
-                        JOptionPane.showMessageDialog(editBookingDialog, "Failed to update booking. Please try again.");
-                    }
-                });
+        gbc.gridx = 1;
+          JTextField checkOutField = new JTextField(booking.getCheckOutDate().toString());
+        panel.add(checkOutField, gbc);
 
-                gbc.gridx = 0;
-                gbc.gridy = 6;
-                gbc.gridwidth = 2;
-                panel.add(updateButton, gbc);
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        panel.add(new JLabel("Total Price:"), gbc);
 
-                editBookingDialog.add(panel);
-                editBookingDialog.setVisible(true);
-            }
-        } else {
-            JOptionPane.showMessageDialog(this, "Please select a booking to edit.");
-        }
+        gbc.gridx = 1;
+        JTextField totalPriceField = new JTextField(String.valueOf(booking.getTotalPrice()));
+        totalPriceField.setEditable(false); // Make it read-only
+        panel.add(totalPriceField, gbc);
+
+        // Update Booking Button
+        JButton updateButton = new JButton("Update Booking");
+        updateButton.addActionListener(e1 -> {
+         
+
+            booking.setCheckInDate(LocalDate.parse(checkInField.getText()));
+
+            booking.setCheckOutDate(LocalDate.parse(checkOutField.getText()));
+
+            // Save off the EDT; the dialog stays open until it answers
+            updateButton.setEnabled(false);
+            tasks.run(asyncBookings.call(bookings -> bookings.updateBooking(booking, "User  ")), updated -> {
+                updateButton.setEnabled(true);
+                if (updated) {
+                    JOptionPane.showMessageDialog(editBookingDialog, "Booking updated successfully!");
+                    loadUserBookings(); // Refresh the bookings table
+                    editBookingDialog.dispose();
+                } else {
+                    JOptionPane.showMessageDialog(editBookingDialog, "Failed to update booking. Please try again.");
+                }
+            }, error -> {
+                updateButton.setEnabled(true);
+                JOptionPane.showMessageDialog(editBookingDialog, "Failed to update booking: " + error.getMessage());
+            });
+        });
+
+        gbc.gridx = 0;
+        gbc.gridy = 6;
+        gbc.gridwidth = 2;
+        panel.add(updateButton, gbc);
+
+        editBookingDialog.add(panel);
+        editBookingDialog.setVisible(true);
     }
 
     private void deleteBooking(ActionEvent e) {
@@ -330,12 +440,14 @@ public class CustomerBookingPanel extends JPanel {
             int bookingId = (int) tableModel.getValueAt(selectedRow, 0);
             int response = JOptionPane.showConfirmDialog(this, "Are you sure you want to cancel this booking?", "Confirm Cancellation", JOptionPane.YES_NO_OPTION);
             if (response == JOptionPane.YES_OPTION) {
-                if (bookingRepository.deleteBooking(bookingId, "User  ")) {
-                    JOptionPane.showMessageDialog(this, "Booking cancelled successfully!");
-                    loadUserBookings(); // Refresh the bookings table
-                } else {
-                    JOptionPane.showMessageDialog(this, "Failed to cancel booking. Please try again.");
-                }
+                tasks.run(asyncBookings.call(bookings -> bookings.deleteBooking(bookingId, "User  ")), deleted -> {
+                    if (deleted) {
+                        JOptionPane.showMessageDialog(this, "Booking cancelled successfully!");
+                        loadUserBookings(); // Refresh the bookings table
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Failed to cancel booking. Please try again.");
+                    }
+                });
             }
         } else {
             JOptionPane.showMessageDialog(this, "Please select a booking to cancel.");
@@ -1,6 +1,7 @@
 package beachresort.ui;
 
 import beachresort.models.Person;
+import beachresort.repositories.RepositoryExecutor;
 import beachresort.services.AuthenticationService;
 
 import javax.swing.*;
@@ -13,6 +14,8 @@ public class LoginFrame extends JFrame {
     private JPasswordField passwordField;
     private JComboBox<Person.PersonRole> roleComboBox; // Use enum for roles
     private AuthenticationService authService;
+    private PanelTasks tasks;
+    private JButton loginButton;
 
     public LoginFrame() {
         // Frame setup
@@ -37,6 +40,7 @@ public class LoginFrame extends JFrame {
     private void createLoginUI() {
         // Main panel with centered layout
         JPanel mainPanel = new JPanel(new GridBagLayout());
+        tasks = new PanelTasks(mainPanel);
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(10, 10, 10, 10);
         gbc.fill = GridBagConstraints.HORIZONTAL;
@@ -85,7 +89,7 @@ public class LoginFrame extends JFrame {
         gbc.gridx = 0;
         gbc.gridy = 4;
         gbc.gridwidth = 2;
-        JButton loginButton = new JButton("Login");
+        loginButton = new JButton("Login");
         loginButton.setPreferredSize(new Dimension(250, 35));
         loginButton.addActionListener(this::performLogin);
         mainPanel.add(loginButton, gbc);
@@ -103,6 +107,9 @@ public class LoginFrame extends JFrame {
         registerLink.setHorizontalAlignment(SwingConstants.CENTER);
         mainPanel.add(registerLink, gbc);
 
+        gbc.gridy = 6;
+        mainPanel.add(tasks.getIndicator(), gbc);
+
         // Add main panel to frame
         add(mainPanel);
     }
@@ -119,14 +126,15 @@ public class LoginFrame extends JFrame {
             return;
         }
 
-        try {
-            String username = usernameField.getText().trim();
-            String password = new String(passwordField.getPassword());
-            Person.PersonRole role = (Person.PersonRole) roleComboBox.getSelectedItem();
-           
-            // Authenticate user and get User object
-            Person person = authService.authenticateUser(username, password, role.name());
+        String username = usernameField.getText().trim();
+        String password = new String(passwordField.getPassword());
+        Person.PersonRole role = (Person.PersonRole) roleComboBox.getSelectedItem();
 
+        // Authenticate user and get User object, off the EDT
+        loginButton.setEnabled(false);
+        tasks.run(RepositoryExecutor.supply(() -> authService.authenticateUser(username, password, role.name())),
+                person -> {
+            loginButton.setEnabled(true);
             if (person != null) {
                 // Successful login
                 JOptionPane.showMessageDialog(this,
@@ -143,9 +151,10 @@ public class LoginFrame extends JFrame {
                 // Failed login
                 showErrorDialog("Invalid username, password, or role");
             }
-        } catch (Exception ex) {
+        }, ex -> {
+            loginButton.setEnabled(true);
             showErrorDialog("Error: " + ex.getMessage());
-        }
+        });
     }
     
 
@@ -2,27 +2,51 @@ package beachresort.ui;
 
 import beachresort.models.Booking;
 import beachresort.models.Room;
+import beachresort.repositories.AsyncRepository;
 import beachresort.repositories.BookingRepository;
+import beachresort.repositories.BookingRepository.ReservationResult;
+import beachresort.repositories.RepositoryExecutor;
 import beachresort.repositories.RoomRepository;
+import beachresort.repositories.UncheckedSQLException;
+import beachresort.services.GroupBookingService;
+import beachresort.services.GroupBookingService.GroupResult;
+import beachresort.services.RateEngine;
+import beachresort.services.RoomAssignmentOptimizer;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ManageBookingsPanel extends JPanel {
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 10;
+
     private JTable bookingsTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<Booking, Integer> tableModel;
+    private JComboBox<String> statusFilterCombo;
+    private JCheckBox newestFirstCheck;
     private BookingRepository bookingRepository;
     private RoomRepository roomRepository;
+    private AsyncRepository<BookingRepository> asyncBookings;
+    private AsyncRepository<RoomRepository> asyncRooms;
+    private final GroupBookingService groupBookingService = new GroupBookingService();
+    private final PanelTasks tasks = new PanelTasks(this);
 
     public ManageBookingsPanel() {
         bookingRepository = new BookingRepository();
         roomRepository = new RoomRepository();
+        asyncBookings = AsyncRepository.of(bookingRepository);
+        asyncRooms = AsyncRepository.of(roomRepository);
         setLayout(new BorderLayout());
 
         JLabel bookingsLabel = new JLabel("Manage Bookings", SwingConstants.CENTER);
@@ -31,7 +55,19 @@ public class ManageBookingsPanel extends JPanel {
 
         // Create table model
         String[] columnNames = {"Booking ID", "Customer Name", "Room Number", "Check-in Date", "Check-out Date", "Status"};
-        tableModel = new DefaultTableModel(columnNames, 0);
+        tableModel = new PagedTableModel<Booking, Integer>(columnNames, PAGE_SIZE, MAX_CACHED_PAGES) {
+            @Override
+            protected Object getColumnValue(Booking booking, int columnIndex) {
+                switch (columnIndex) {
+                    case 0: return booking.getBookingID();
+                    case 1: return booking.getCustomerName();
+                    case 2: return booking.getRoomNumber();
+                    case 3: return booking.getCheckInDate();
+                    case 4: return booking.getCheckOutDate();
+                    default: return booking.getStatus();
+                }
+            }
+        };
         bookingsTable = new JTable(tableModel);
         
         // Add scrollpane to table
@@ -41,43 +77,64 @@ public class ManageBookingsPanel extends JPanel {
         // Create buttons for managing bookings
         JPanel buttonPanel = new JPanel();
         JButton addButton = new JButton("Add Booking");
+        JButton groupButton = new JButton("Group Booking");
         JButton editButton = new JButton("Edit Booking");
         JButton deleteButton = new JButton("Delete Booking");
         JButton refreshButton = new JButton("Refresh");
-        
+        statusFilterCombo = new JComboBox<>(new String[]{"All", "Pending", "Confirmed", "Cancelled", "No-Show"});
+        newestFirstCheck = new JCheckBox("Newest first", true);
+
+        buttonPanel.add(new JLabel("Status:"));
+        buttonPanel.add(statusFilterCombo);
+        buttonPanel.add(newestFirstCheck);
         buttonPanel.add(addButton);
+        buttonPanel.add(groupButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
         buttonPanel.add(refreshButton);
+        buttonPanel.add(tasks.getIndicator());
         add(buttonPanel, BorderLayout.SOUTH);
 
         // Add action listeners for buttons
         addButton.addActionListener(this::addBooking);
+        groupButton.addActionListener(this::addGroupBooking);
         editButton.addActionListener(this::editBooking);
         deleteButton.addActionListener(this::deleteBooking);
         refreshButton.addActionListener(this::refreshBookings);
+        statusFilterCombo.addActionListener(e -> loadBookings());
+        newestFirstCheck.addActionListener(e -> loadBookings());
 
         // Load initial bookings
         loadBookings();
     }
 
+    // Pages are fetched on demand by the table model as the user scrolls
     private void loadBookings() {
-        // Clear existing rows
-        tableModel.setRowCount(0);
-        
-        // Fetch bookings from the repository
-        List<Booking> bookings = bookingRepository.getAllBookings();
-        for (Booking booking : bookings) {
-            Object[] rowData = {
-                booking.getBookingID(),
-                booking.getCustomerName(),
-                booking.getRoomNumber(),
-                booking.getCheckInDate(),
-                booking.getCheckOutDate(),
-                booking.getStatus()
-            };
-            tableModel.addRow(rowData);
-        }
+        String selectedStatus = (String) statusFilterCombo.getSelectedItem();
+        String statusFilter = "All".equals(selectedStatus) ? null : selectedStatus;
+        boolean newestFirst = newestFirstCheck.isSelected();
+
+        tableModel.setSource(new PagedTableModel.PageSource<Booking, Integer>() {
+            @Override
+            public int count() throws SQLException {
+                return bookingRepository.countBookings(statusFilter);
+            }
+
+            @Override
+            public List<Booking> fetchPage(Integer afterBookingId, int limit) throws SQLException {
+                return bookingRepository.getBookingsPage(statusFilter, newestFirst, afterBookingId, limit);
+            }
+
+            @Override
+            public Integer skip(Integer afterBookingId, int rows) throws SQLException {
+                return bookingRepository.skipBookings(statusFilter, newestFirst, afterBookingId, rows);
+            }
+
+            @Override
+            public Integer keyOf(Booking booking) {
+                return booking.getBookingID();
+            }
+        });
     }
 
     private void addBooking(ActionEvent e) {
@@ -138,10 +195,10 @@ public class ManageBookingsPanel extends JPanel {
         capacityField.setEditable(false);
         panel.add(capacityField, gbc);
 
-        // Row 6: Room Price
+        // Row 6: Price (the stay's total once both dates are in)
         gbc.gridx = 0;
         gbc.gridy = 5;
-        panel.add(new JLabel("Room Price:"), gbc);
+        panel.add(new JLabel("Price:"), gbc);
 
         gbc.gridx = 1;
         JTextField priceField = new JTextField();
@@ -154,18 +211,6 @@ public class ManageBookingsPanel extends JPanel {
             updateAvailableRooms(selectedRoomType, availableRoomsCombo);
         });
 
-        // Available Rooms Listener
-        availableRoomsCombo.addActionListener(actionEvent -> {
-            String selectedRoomNumber = (String) availableRoomsCombo.getSelectedItem();
-            if (selectedRoomNumber != null) {
-                Room selectedRoom = roomRepository.getRoomByNumber(selectedRoomNumber);
-                if (selectedRoom != null) {
-                    capacityField.setText(String.valueOf(selectedRoom.getCapacity()));
-                    priceField.setText(String.valueOf(selectedRoom.getPricePerNight()));
-                }
-            }
-        });
-
         // Row 7: Check-in Date
         gbc.gridx = 0;
         gbc.gridy = 6;
@@ -184,6 +229,40 @@ public class ManageBookingsPanel extends JPanel {
         JTextField checkOutField = new JTextField();
         panel.add(checkOutField, gbc);
 
+        // Available Rooms Listener: the room is fetched in the background, quotes come from memory
+        Room[] selectedRoom = new Room[1];
+        Runnable refreshPrice = () -> {
+            if (selectedRoom[0] != null) {
+                capacityField.setText(String.valueOf(selectedRoom[0].getCapacity()));
+                priceField.setText(StayQuotes.quoteText(selectedRoom[0], checkInField.getText(),
+                        checkOutField.getText()));
+            }
+        };
+        availableRoomsCombo.addActionListener(actionEvent -> {
+            String selectedRoomNumber = (String) availableRoomsCombo.getSelectedItem();
+            selectedRoom[0] = null;
+            if (selectedRoomNumber != null) {
+                tasks.run(asyncRooms.call(rooms -> rooms.getRoomByNumber(selectedRoomNumber)), room -> {
+                    // Ignore a late answer if the user has already picked another room
+                    if (selectedRoomNumber.equals(availableRoomsCombo.getSelectedItem())) {
+                        selectedRoom[0] = room;
+                        refreshPrice.run();
+                    }
+                });
+            }
+        });
+        // Re-quote as the dates are filled in
+        FocusAdapter requoteOnLeave = new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent focusEvent) {
+                refreshPrice.run();
+            }
+        };
+        for (JTextField field : new JTextField[] { checkInField, checkOutField }) {
+            field.addActionListener(actionEvent -> refreshPrice.run());
+            field.addFocusListener(requoteOnLeave);
+        }
+
         // Row 9: Status
         gbc.gridx = 0;
         gbc.gridy = 8;
@@ -209,12 +288,6 @@ public class ManageBookingsPanel extends JPanel {
                 return;
             }
 
-            // Check if user is a valid customer
-            if (!bookingRepository.isValidCustomerUser (userId)) {
-                JOptionPane.showMessageDialog(addBookingDialog, "Invalid User ID or User is not a Customer", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-
             // Get selected room number and date range
             String selectedRoomNumber = (String) availableRoomsCombo.getSelectedItem();
             LocalDate newStartDate;
@@ -228,35 +301,25 @@ public class ManageBookingsPanel extends JPanel {
                 return;
             }
 
-            // Check for overlapping bookings
-            if (checkForOverlappingBookings(selectedRoomNumber, newStartDate, newEndDate)) {
-                JOptionPane.showMessageDialog(addBookingDialog, "There is already a booking for this room on the selected dates.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
+            String customerName = customerNameField.getText();
+            String status = statusCombo.getSelectedItem().toString();
 
-            try {
-                Booking newBooking = new Booking(
-                          userId,
-                    selectedRoomNumber,
-                    customerNameField.getText(),
-                    newStartDate,
-                    newEndDate,
-                    1, // Placeholder for number of guests
-                    Double.parseDouble(priceField.getText()),
-                    statusCombo.getSelectedItem().toString()
-              
-                );
-
-                boolean isSuccess = bookingRepository.addBooking(newBooking, "User ");
-                if (isSuccess) {
-                    roomRepository.updateRoomStatusBasedOnCurrent(selectedRoomNumber, statusCombo.getSelectedItem().toString());
-                    JOptionPane.showMessageDialog(addBookingDialog, "Booking Added Successfully!");
-                    addBookingDialog.dispose();
-                }
+            // Validation and the reservation run off the EDT; the dialog stays open until they answer
+            saveButton.setEnabled(false);
+            tasks.run(RepositoryExecutor.supply(() -> reserveBooking(userId, selectedRoomNumber, customerName,
+                    newStartDate, newEndDate, status)), error -> {
+                saveButton.setEnabled(true);
                 loadBookings();
-            } catch (Exception ex) {
+                if (error != null) {
+                    JOptionPane.showMessageDialog(addBookingDialog, error, "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(addBookingDialog, "Booking Added Successfully!");
+                addBookingDialog.dispose();
+            }, ex -> {
+                saveButton.setEnabled(true);
                 JOptionPane.showMessageDialog(addBookingDialog, "Error adding booking: " + ex.getMessage());
-            }
+            });
         });
         panel.add(saveButton, gbc);
 
@@ -270,16 +333,167 @@ public class ManageBookingsPanel extends JPanel {
         addBookingDialog.setVisible(true);
     }
 
+    // Runs on a repository worker thread. Returns an error message for the
+    // user, or null when the booking was reserved.
+    private String reserveBooking(int userId, String roomNumber, String customerName, LocalDate checkIn,
+            LocalDate checkOut, String status) throws SQLException {
+        // Check if user is a valid customer
+        if (!bookingRepository.isValidCustomerUser (userId)) {
+            return "Invalid User ID or User is not a Customer";
+        }
+
+        // Check for overlapping bookings
+        if (checkForOverlappingBookings(roomNumber, checkIn, checkOut)) {
+            return "There is already a booking for this room on the selected dates.";
+        }
+
+        Room selectedRoom = roomRepository.getRoomByNumber(roomNumber);
+        if (selectedRoom == null) {
+            return "Please select an available room.";
+        }
+        Booking newBooking = new Booking(
+            userId,
+            roomNumber,
+            customerName,
+            checkIn,
+            checkOut,
+            1, // Placeholder for number of guests
+            RateEngine.shared().quote(selectedRoom, checkIn, checkOut),
+            status
+        );
+
+        ReservationResult result = bookingRepository.reserveBooking(newBooking, "User ");
+        if (result == ReservationResult.CONFLICT) {
+            return "Another booking for this room was just saved on these dates.";
+        }
+        if (result != ReservationResult.RESERVED) {
+            return "Error adding booking.";
+        }
+        RoomAssignmentOptimizer.shared().bookingAddedInBackground(newBooking);
+        roomRepository.updateRoomStatusBasedOnCurrent(roomNumber, status);
+        return null;
+    }
+
+    // Books a block of rooms of one type for a group, all or none
+    private void addGroupBooking(ActionEvent e) {
+        JDialog groupDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Group Booking", true);
+        groupDialog.setSize(420, 380);
+        groupDialog.setLocationRelativeTo(this);
+
+        JPanel panel = new JPanel(new GridLayout(0, 2, 10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        panel.add(new JLabel("User ID:"));
+        JTextField userIdField = new JTextField();
+        panel.add(userIdField);
+
+        panel.add(new JLabel("Group Name:"));
+        JTextField groupNameField = new JTextField();
+        panel.add(groupNameField);
+
+        panel.add(new JLabel("Room Type:"));
+        JComboBox<String> roomTypeCombo = new JComboBox<>(new String[] { "Standard", "Deluxe", "Suite" });
+        panel.add(roomTypeCombo);
+
+        panel.add(new JLabel("Rooms:"));
+        JTextField countField = new JTextField();
+        panel.add(countField);
+
+        panel.add(new JLabel("Guests per Room:"));
+        JTextField guestsField = new JTextField("2");
+        panel.add(guestsField);
+
+        panel.add(new JLabel("Check-in Date (yyyy-MM-dd):"));
+        JTextField checkInField = new JTextField();
+        panel.add(checkInField);
+
+        panel.add(new JLabel("Check-out Date (yyyy-MM-dd):"));
+        JTextField checkOutField = new JTextField();
+        panel.add(checkOutField);
+
+        JButton bookButton = new JButton("Book Rooms");
+        bookButton.addActionListener(bookEvent -> {
+            int userId;
+            int count;
+            int guestsPerRoom;
+            LocalDate checkIn;
+            LocalDate checkOut;
+            try {
+                userId = Integer.parseInt(userIdField.getText().trim());
+                count = Integer.parseInt(countField.getText().trim());
+                guestsPerRoom = Integer.parseInt(guestsField.getText().trim());
+                checkIn = LocalDate.parse(checkInField.getText().trim());
+                checkOut = LocalDate.parse(checkOutField.getText().trim());
+            } catch (NumberFormatException | DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(groupDialog,
+                        "Please enter numbers for the user, rooms and guests, and dates as yyyy-MM-dd.", "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            String groupName = groupNameField.getText().trim();
+            if (groupName.isEmpty() || count < 1 || guestsPerRoom < 1 || !checkOut.isAfter(checkIn)) {
+                JOptionPane.showMessageDialog(groupDialog,
+                        "A group needs a name, at least one room and guest, and a check-out after check-in.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            String roomType = (String) roomTypeCombo.getSelectedItem();
+            bookButton.setEnabled(false);
+            tasks.run(RepositoryExecutor.supply(() -> groupBookingService.bookGroup(userId, groupName, roomType,
+                    count, guestsPerRoom, checkIn, checkOut, "User " + userId)), result -> {
+                bookButton.setEnabled(true);
+                showGroupResult(groupDialog, result, count, roomType);
+            }, error -> {
+                bookButton.setEnabled(true);
+                JOptionPane.showMessageDialog(groupDialog, "Error booking group: " + error.getMessage());
+            });
+        });
+        panel.add(bookButton);
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(cancelEvent -> groupDialog.dispose());
+        panel.add(cancelButton);
+
+        groupDialog.add(panel);
+        groupDialog.setVisible(true);
+    }
+
+    private void showGroupResult(JDialog groupDialog, GroupResult result, int count, String roomType) {
+        switch (result.getOutcome()) {
+            case BOOKED:
+                JOptionPane.showMessageDialog(groupDialog, String.format("Booked %s%nTotal: %.2f",
+                        result.getAllocation(), result.getTotalPrice()));
+                groupDialog.dispose();
+                loadBookings();
+                break;
+            case SHORTFALL:
+                JOptionPane.showMessageDialog(groupDialog, "Not enough " + roomType + " rooms for " + count
+                        + ":\n" + result.getAllocation() + "\nNothing was booked.", "Not Enough Rooms",
+                        JOptionPane.WARNING_MESSAGE);
+                break;
+            case INVALID_USER:
+                JOptionPane.showMessageDialog(groupDialog, "Invalid User ID or User is not a Customer", "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                break;
+            default:
+                JOptionPane.showMessageDialog(groupDialog, "The group could not be booked; nothing was saved.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void updateAvailableRooms(String roomType, JComboBox<String> availableRoomsCombo) {
         availableRoomsCombo.removeAllItems();
-        List<String> availableRooms = roomRepository.getAvailableRoomsByType(roomType);
-        if (availableRooms.isEmpty()) {
-            availableRoomsCombo.addItem("No available rooms");
-        } else {
-            for (String room : availableRooms) {
-                availableRoomsCombo.addItem(room);
+        tasks.run(asyncRooms.call(rooms -> rooms.getAvailableRoomsByType(roomType)), availableRooms -> {
+            availableRoomsCombo.removeAllItems();
+            if (availableRooms.isEmpty()) {
+                availableRoomsCombo.addItem("No available rooms");
+            } else {
+                for (String room : availableRooms) {
+                    availableRoomsCombo.addItem(room);
+                }
             }
-        }
+        });
     }
 
     private void editBooking(ActionEvent e) {
@@ -288,10 +502,24 @@ public class ManageBookingsPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a booking to edit");
             return;
         }
+        if (tableModel.getRow(selectedRow) == null) {
+            JOptionPane.showMessageDialog(this, "Bookings are still loading, please try again");
+            return;
+        }
 
         int bookingId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        Booking booking = bookingRepository.getBookingById(bookingId);
+        // Fetch the booking in the background, then open the dialog on it
+        tasks.run(asyncBookings.call(bookings -> bookings.getBookingById(bookingId)), booking -> {
+            if (booking == null) {
+                JOptionPane.showMessageDialog(this, "Booking not found");
+                loadBookings();
+                return;
+            }
+            showEditBookingDialog(bookingId, booking);
+        });
+    }
 
+    private void showEditBookingDialog(int bookingId, Booking booking) {
         JDialog editBookingDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Edit Booking", true);
         editBookingDialog.setSize(400, 350);
         editBookingDialog.setLocationRelativeTo(this);
@@ -339,27 +567,44 @@ public class ManageBookingsPanel extends JPanel {
                     return;
                 }
 
-                // Check if user is a valid customer
-                if (!bookingRepository.isValidCustomerUser (userId)) {
-                    JOptionPane.showMessageDialog(editBookingDialog, "Invalid User ID or User is not a Customer", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                // Update the booking object
-                booking.setBookingId(bookingId);
-                booking.setUserId(userId);
-                booking.setCustomerName(customerNameField.getText());
-                booking.setCheckInDate(LocalDate.parse(checkInField.getText()));
-                booking.setCheckOutDate(LocalDate.parse(checkOutField.getText()));
-                booking.setStatus(statusCombo.getSelectedItem().toString());
-
-                // Save the updated booking using the repository
-                bookingRepository.updateBooking(booking, "User ");
-                loadBookings();
-
-                roomRepository.updateRoomStatusBasedOnCurrent(booking.getRoomNumber(), statusCombo.getSelectedItem().toString());
-                JOptionPane.showMessageDialog(editBookingDialog, "Booking Updated Successfully!");
-                editBookingDialog.dispose();
+                String customerName = customerNameField.getText();
+                LocalDate checkIn = LocalDate.parse(checkInField.getText());
+                LocalDate checkOut = LocalDate.parse(checkOutField.getText());
+                String status = statusCombo.getSelectedItem().toString();
+
+                // Validation and the update run off the EDT; the dialog stays open until they answer
+                saveButton.setEnabled(false);
+                tasks.run(RepositoryExecutor.supply(() -> {
+                    // Check if user is a valid customer
+                    if (!bookingRepository.isValidCustomerUser (userId)) {
+                        return false;
+                    }
+
+                    // Update the booking object
+                    booking.setBookingId(bookingId);
+                    booking.setUserId(userId);
+                    booking.setCustomerName(customerName);
+                    booking.setCheckInDate(checkIn);
+                    booking.setCheckOutDate(checkOut);
+                    booking.setStatus(status);
+
+                    // Save the updated booking using the repository
+                    bookingRepository.updateBooking(booking, "User ");
+                    roomRepository.updateRoomStatusBasedOnCurrent(booking.getRoomNumber(), status);
+                    return true;
+                }), validUser -> {
+                    saveButton.setEnabled(true);
+                    if (!validUser) {
+                        JOptionPane.showMessageDialog(editBookingDialog, "Invalid User ID or User is not a Customer", "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    loadBookings();
+                    JOptionPane.showMessageDialog(editBookingDialog, "Booking Updated Successfully!");
+                    editBookingDialog.dispose();
+                }, ex -> {
+                    saveButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(editBookingDialog, "Error updating booking: " + ex.getMessage());
+                });
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(editBookingDialog, "Error updating booking: " + ex.getMessage());
             }
@@ -380,16 +625,29 @@ public class ManageBookingsPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a booking to delete");
             return;
         }
+        if (tableModel.getRow(selectedRow) == null) {
+            JOptionPane.showMessageDialog(this, "Bookings are still loading, please try again");
+            return;
+        }
         int bookingId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        Booking booking = bookingRepository.getBookingById(bookingId);
 
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete this booking?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
-            roomRepository.updateRoomStatusBasedOnCurrent(booking.getRoomNumber(), "Cancelled");
-            bookingRepository.deleteBooking(bookingId, "User ");
-            loadBookings();
-            JOptionPane.showMessageDialog(this, "Booking deleted successfully");
+            tasks.run(RepositoryExecutor.supply(() -> {
+                Booking booking = bookingRepository.getBookingById(bookingId);
+                if (booking != null) {
+                    roomRepository.updateRoomStatusBasedOnCurrent(booking.getRoomNumber(), "Cancelled");
+                }
+                return bookingRepository.deleteBooking(bookingId, "User ");
+            }), deleted -> {
+                loadBookings();
+                if (deleted) {
+                    JOptionPane.showMessageDialog(this, "Booking deleted successfully");
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to delete booking", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
@@ -398,41 +656,23 @@ public class ManageBookingsPanel extends JPanel {
         JOptionPane.showMessageDialog(this, "Bookings refreshed successfully.");
     }
 
+    // Answered from the in-memory availability index; stays are [check-in, check-out)
     private boolean checkForOverlappingBookings(String roomNumber, LocalDate newStartDate, LocalDate newEndDate) {
-        List<Booking> existingBookings = getExistingBookingsForRoom(roomNumber);
-
-        for (Booking booking : existingBookings) {
-            LocalDate existingStartDate = booking.getCheckInDate();
-            LocalDate existingEndDate = booking.getCheckOutDate();
-
-            if ((newStartDate.isEqual(existingStartDate) || newStartDate.isAfter(existingStartDate)) &&
-                    (newStartDate.isBefore(existingEndDate) || newStartDate.isEqual(existingEndDate))) {
-                return true;
-            }
-
-            if ((newEndDate.isEqual(existingStartDate) || newEndDate.isBefore(existingEndDate)) &&
-                    (newEndDate.isAfter(existingStartDate) || newEndDate.isEqual(existingStartDate))) {
-                return true;
-            }
-
-            if (newStartDate.isBefore(existingStartDate) && newEndDate.isAfter(existingEndDate)) {
-                return true;
-            }
+        try {
+            return bookingRepository.hasConflictingBooking(roomNumber, newStartDate, newEndDate);
+        } catch (SQLException e) {
+            // Treat an unreadable room as taken rather than risk a double booking
+            System.err.println("Error checking overlapping bookings: " + e.getMessage());
+            return true;
         }
-
-        return false;
     }
 
     public List<Booking> getExistingBookingsForRoom(String roomNumber) {
-        List<Booking> existingBookings = new ArrayList<>();
-        List<Booking> allBookings = bookingRepository.getAllBookings();
-
-        for (Booking booking : allBookings) {
-            if (booking.getRoomNumber().equals(roomNumber )) {
-                existingBookings.add(booking);
-            }
+        try (Stream<Booking> existingBookings = bookingRepository.streamBookingsForRoom(roomNumber)) {
+            return existingBookings.collect(Collectors.toList());
+        } catch (SQLException | UncheckedSQLException e) {
+            System.err.println("Error retrieving bookings for room: " + e.getMessage());
+            return new ArrayList<>();
         }
-
-        return existingBookings;
     }
-}
\ No newline at end of file
+}
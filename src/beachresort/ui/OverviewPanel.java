@@ -1,21 +1,17 @@
 package beachresort.ui;
 
-import beachresort.repositories.*;
-import beachresort.database.DatabaseConnection;
+import beachresort.models.DashboardSnapshot;
+import beachresort.services.DashboardSnapshotService;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 
 public class OverviewPanel extends JPanel {
-    private RoomRepository roomRepository;
-    private BookingRepository bookingRepository;
-    private StaffRepository staffRepository;
-    private PaymentRepository paymentRepository;
+    // How often the labels are repainted from the cached snapshot
+    private static final int REPAINT_MILLIS = 1_000;
+
+    private final DashboardSnapshotService snapshotService;
 
     // Labels to update on refresh
     private JLabel totalRoomsLabel;
@@ -24,16 +20,15 @@ public class OverviewPanel extends JPanel {
     private JLabel totalStaffLabel;
     private JLabel totalBookingsLabel;
     private JLabel totalRevenueLabel;
+    private JLabel snapshotAgeLabel;
 
     private JPanel dashboardPanel;
+    private final PanelTasks tasks = new PanelTasks(this);
+    private final Timer repaintTimer;
 
     public OverviewPanel() {
-    
-            // Initialize repositories
-        roomRepository = new RoomRepository();
-        bookingRepository = new BookingRepository();
-        staffRepository = new StaffRepository();
-        paymentRepository = new PaymentRepository();
+        snapshotService = DashboardSnapshotService.shared();
+        snapshotService.start();
 
         setLayout(new BorderLayout());
 
@@ -49,12 +44,37 @@ public class OverviewPanel extends JPanel {
         JButton refreshButton = new JButton("Refresh Dashboard");
         refreshButton.addActionListener(e -> refreshDashboard());
         titlePanel.add(refreshButton, BorderLayout.EAST);
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        snapshotAgeLabel = new JLabel(" ", SwingConstants.CENTER);
+        statusPanel.add(snapshotAgeLabel, BorderLayout.CENTER);
+        statusPanel.add(tasks.getIndicator(), BorderLayout.SOUTH);
+        titlePanel.add(statusPanel, BorderLayout.SOUTH);
 
         add(titlePanel, BorderLayout.NORTH);
 
         // Create main dashboard panel
         dashboardPanel = createDashboardPanel();
         add(new JScrollPane(dashboardPanel), BorderLayout.CENTER);
+
+        repaintTimer = new Timer(REPAINT_MILLIS, e -> showSnapshot(snapshotService.getSnapshot()));
+        DashboardSnapshot snapshot = snapshotService.getSnapshot();
+        if (snapshot != null) {
+            showSnapshot(snapshot);
+        } else {
+            refreshDashboard();
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        repaintTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        repaintTimer.stop();
+        super.removeNotify();
     }
 
     private JPanel createDashboardPanel() {
@@ -62,12 +82,12 @@ public class OverviewPanel extends JPanel {
         dashboardPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
 
         // Create labels for each analytics card
-        totalRoomsLabel = new JLabel(getRoomCount(), SwingConstants.CENTER);
-        availableRoomsLabel = new JLabel(getAvailableRoomCount(), SwingConstants.CENTER);
-        occupiedRoomsLabel = new JLabel(getOccupiedRoomCount(), SwingConstants.CENTER);
-        totalStaffLabel = new JLabel(getStaffCount(), SwingConstants.CENTER);
-        totalBookingsLabel = new JLabel(getBookingCount(), SwingConstants.CENTER);
-        totalRevenueLabel = new JLabel(getTotalRevenue(), SwingConstants.CENTER);
+        totalRoomsLabel = new JLabel("...", SwingConstants.CENTER);
+        availableRoomsLabel = new JLabel("...", SwingConstants.CENTER);
+        occupiedRoomsLabel = new JLabel("...", SwingConstants.CENTER);
+        totalStaffLabel = new JLabel("...", SwingConstants.CENTER);
+        totalBookingsLabel = new JLabel("...", SwingConstants.CENTER);
+        totalRevenueLabel = new JLabel("...", SwingConstants.CENTER);
 
         // Styling for labels
         Font valueFont = new Font("Arial", Font.BOLD, 24);
@@ -114,113 +134,24 @@ public class OverviewPanel extends JPanel {
 
         return card;
     }
-    // Analytics Methods
-
-      // Refresh method
-      private void refreshDashboard() {
-          // Update each label with fresh data
-          totalRoomsLabel.setText(getRoomCount());
-          availableRoomsLabel.setText(getAvailableRoomCount());
-          occupiedRoomsLabel.setText(getOccupiedRoomCount());
-          totalStaffLabel.setText(getStaffCount());
-          totalBookingsLabel.setText(getBookingCount());
-          totalRevenueLabel.setText(getTotalRevenue());
-
-          // Optional: Show a brief notification
-          JOptionPane.showMessageDialog(this, "Dashboard Refreshed", "Refresh", JOptionPane.INFORMATION_MESSAGE);
-      }
-
-    
-    private String getRoomCount() {
-        try {
-            String query = "SELECT COUNT(*) FROM rooms";
-            try (Connection conn = DatabaseConnection.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(query);
-                 ResultSet rs = pstmt.executeQuery()) {
-                
-                return rs.next() ? rs.getString(1) : "0";
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return "N/A";
-        }
-    }
-
-    private String getAvailableRoomCount() {
-        try {
-            String query = "SELECT COUNT(*) FROM rooms WHERE status = 'Available'";
-            try (Connection conn = DatabaseConnection.getConnection();
-                    PreparedStatement pstmt = conn.prepareStatement(query);
-                    ResultSet rs = pstmt.executeQuery()) {
-
-                return rs.next() ? rs.getString(1) : "0";
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return "N/A";
-        }
-    }
-    
-    
-
-    private String getOccupiedRoomCount() {
-        try {
-            String query = "SELECT COUNT(*) FROM rooms WHERE status = 'Occupied'";
-            try (Connection conn = DatabaseConnection.getConnection();
-                    PreparedStatement pstmt = conn.prepareStatement(query);
-                    ResultSet rs = pstmt.executeQuery()) {
-
-                return rs.next() ? rs.getString(1) : "0";
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return "N/A";
-        }
-    }
-   
-
-    private String getStaffCount() {
-        try {
-            String query = "SELECT COUNT(*) FROM staff";
-            try (Connection conn = DatabaseConnection.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(query);
-                 ResultSet rs = pstmt.executeQuery()) {
-                
-                return rs.next() ? rs.getString(1) : "0";
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return "N/A";
-        }
-    }
-
-    private String getBookingCount() {
-        try {
-            String query = "SELECT COUNT(*) FROM bookings";
-            try (Connection conn = DatabaseConnection.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(query);
-                 ResultSet rs = pstmt.executeQuery()) {
-                
-                return rs.next() ? rs.getString(1) : "0";
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return "N/A";
-        }
+    // Fetches a fresh snapshot off the EDT; the labels keep the old one until it arrives
+    private void refreshDashboard() {
+        tasks.run(snapshotService.refreshInBackground(), this::showSnapshot,
+                error -> snapshotAgeLabel.setText("Could not refresh: " + error.getMessage()));
     }
 
-    private String getTotalRevenue() {
-        try {
-            String query = "SELECT COALESCE(SUM(amount), 0) FROM payments WHERE status = 'Completed'";
-            try (Connection conn = DatabaseConnection.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(query);
-                 ResultSet rs = pstmt.executeQuery()) {
-                
-                return rs.next() ? String.format("₱%.2f", rs.getDouble(1)) : "₱0.00";
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return "N/A";
+    // Reads only the snapshot in memory, so it is cheap enough to run every second
+    private void showSnapshot(DashboardSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
         }
+        totalRoomsLabel.setText(String.valueOf(snapshot.getTotalRooms()));
+        availableRoomsLabel.setText(String.valueOf(snapshot.getAvailableRooms()));
+        occupiedRoomsLabel.setText(String.valueOf(snapshot.getOccupiedRooms()));
+        totalStaffLabel.setText(String.valueOf(snapshot.getTotalStaff()));
+        totalBookingsLabel.setText(String.valueOf(snapshot.getTotalBookings()));
+        totalRevenueLabel.setText(String.format("₱%.2f", snapshot.getTotalRevenue()));
+        snapshotAgeLabel.setText(String.format("Updated %d s ago (computed in %.0f ms)",
+                snapshot.getAgeMillis() / 1000, snapshot.getComputeMillis()));
     }
-}
\ No newline at end of file
+}
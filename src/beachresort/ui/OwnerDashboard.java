@@ -32,8 +32,10 @@ public class OwnerDashboard extends JFrame {
         mainPanel.add(new CheckInOutPanel(), "Check In / Checkout"); // Add the new panel
         mainPanel.add(new ManageBookingsPanel(), "Manage Bookings");
         mainPanel.add(new RoomManagementPanel(), "Room Management");
+        mainPanel.add(new RateRulesPanel(), "Rate Rules");
         mainPanel.add(new StaffManagementPanel(), "Staff Management");
         mainPanel.add(new PaymentManagementPanel(), "Payment Management"); // Add the new panel
+        mainPanel.add(new ReportingPanel(), "Reports");
         mainPanel.add(new OwnerDetailsPanel(person), "Details");
       
         add(mainPanel, BorderLayout.CENTER);
@@ -73,8 +75,10 @@ public class OwnerDashboard extends JFrame {
         JButton checkInOutButton = createStyledButton("Check In / Checkout"); // New button
         JButton manageBookingsButton = createStyledButton("Manage Bookings");
         JButton roomManagementButton = createStyledButton("Room Management");
+        JButton rateRulesButton = createStyledButton("Rate Rules");
         JButton staffManagementButton = createStyledButton("Staff Management");
         JButton paymentManagementButton = createStyledButton("Payment Management"); // New button
+        JButton reportsButton = createStyledButton("Reports");
         JButton detailsButton = createStyledButton("Details");
         
 
@@ -83,8 +87,10 @@ public class OwnerDashboard extends JFrame {
         navigationPanel.add(checkInOutButton, gbc); // Add the new button
         navigationPanel.add(manageBookingsButton, gbc);
         navigationPanel.add(roomManagementButton, gbc);
+        navigationPanel.add(rateRulesButton, gbc);
         navigationPanel.add(staffManagementButton, gbc);
         navigationPanel.add(paymentManagementButton, gbc); // Add the new button
+        navigationPanel.add(reportsButton, gbc);
         navigationPanel.add(detailsButton, gbc);
     
 
@@ -105,9 +111,11 @@ public class OwnerDashboard extends JFrame {
         overviewButton.addActionListener(e -> showPanel("Overview"));
         manageBookingsButton.addActionListener(e -> showPanel("Manage Bookings"));
         roomManagementButton.addActionListener(e -> showPanel("Room Management"));
+        rateRulesButton.addActionListener(e -> showPanel("Rate Rules"));
         staffManagementButton.addActionListener(e -> showPanel("Staff Management"));
         checkInOutButton.addActionListener(e -> showPanel("Check In / Checkout")); // Action for new button
         paymentManagementButton.addActionListener(e -> showPanel("Payment Management")); // Action for new button
+        reportsButton.addActionListener(e -> showPanel("Reports"));
         detailsButton.addActionListener(e -> showPanel("Details"));
         logoutButton.addActionListener(e -> handleLogout());
 
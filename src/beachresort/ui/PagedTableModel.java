@@ -0,0 +1,231 @@
+package beachresort.ui;
+
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Table model that loads rows a page at a time as the table asks for them.
+ * The row count comes from a COUNT query so the scrollbar has its full length
+ * straight away; cells of pages that are not loaded yet render empty and the
+ * page is fetched in the background. Only the most recently used maxPages
+ * pages are kept, so memory stays bounded however far the user scrolls.
+ *
+ * Pages are fetched by keyset (seek) pagination. The model remembers the last
+ * key of every page it has seen; to reach a page beyond those it skips the
+ * whole distance from the nearest known key in one index-only skip query,
+ * rather than an OFFSET over full rows or a round trip per page in between.
+ * Only the target page's start key is remembered from the skip; the pages
+ * it jumped over get theirs when they are asked for.
+ *
+ * All state is touched on the EDT only; workers receive a snapshot of what
+ * they need and hand results back in done().
+ */
+public abstract class PagedTableModel<T, K> extends AbstractTableModel {
+
+    // Backing queries for one filter/sort combination
+    public interface PageSource<T, K> {
+        int count() throws SQLException;
+
+        // Up to limit rows after the given key (null for the start)
+        List<T> fetchPage(K after, int limit) throws SQLException;
+
+        // Key of the row `rows` positions after the given key, or null past the end
+        K skip(K after, int rows) throws SQLException;
+
+        K keyOf(T row);
+    }
+
+    private final String[] columnNames;
+    private final int pageSize;
+    private final int maxPages;
+
+    private PageSource<T, K> source;
+    private int rowCount;
+    private int generation;
+
+    private final Map<Integer, List<T>> pages;
+    // startKeys.get(p) is the key the page p starts after; page 0 maps to null
+    private final TreeMap<Integer, K> startKeys = new TreeMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    protected PagedTableModel(String[] columnNames, int pageSize, int maxPages) {
+        this.columnNames = columnNames.clone();
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > PagedTableModel.this.maxPages;
+            }
+        };
+    }
+
+    protected abstract Object getColumnValue(T row, int columnIndex);
+
+    // Called on the EDT when a count or page query fails
+    protected void onLoadError(SQLException e) {
+        System.err.println("Error loading table page: " + e.getMessage());
+    }
+
+    // Drops everything and starts over against the given source
+    public void setSource(PageSource<T, K> source) {
+        this.source = source;
+        refresh();
+    }
+
+    public void refresh() {
+        generation++;
+        pages.clear();
+        startKeys.clear();
+        startKeys.put(0, null);
+        loading.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+        if (source == null) {
+            return;
+        }
+
+        int requestGeneration = generation;
+        PageSource<T, K> requestSource = source;
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws SQLException {
+                return requestSource.count();
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                try {
+                    rowCount = get();
+                    fireTableDataChanged();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    reportFailure(e);
+                }
+            }
+        }.execute();
+    }
+
+    // The row object if its page is loaded, otherwise null (and the page is requested)
+    public T getRow(int rowIndex) {
+        int page = rowIndex / pageSize;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        int offset = rowIndex % pageSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T row = getRow(rowIndex);
+        return row == null ? null : getColumnValue(row, columnIndex);
+    }
+
+    private void requestPage(int page) {
+        if (source == null || loading.contains(page)) {
+            return;
+        }
+        loading.add(page);
+
+        // Closest page at or before the target whose start key we already know
+        Map.Entry<Integer, K> known = startKeys.floorEntry(page);
+        int fromPage = known.getKey();
+        K fromKey = known.getValue();
+        int requestGeneration = generation;
+        PageSource<T, K> requestSource = source;
+
+        new SwingWorker<PageResult<T, K>, Void>() {
+            @Override
+            protected PageResult<T, K> doInBackground() throws SQLException {
+                PageResult<T, K> result = new PageResult<>();
+                K key = fromKey;
+                if (page > fromPage) {
+                    key = requestSource.skip(fromKey, (page - fromPage) * pageSize);
+                    if (key == null) {
+                        return result; // the table shrank since it was counted
+                    }
+                    result.startKeys.put(page, key);
+                }
+                result.rows = requestSource.fetchPage(key, pageSize);
+                return result;
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading.remove(page);
+                try {
+                    PageResult<T, K> result = get();
+                    startKeys.putAll(result.startKeys);
+                    if (result.rows == null) {
+                        return;
+                    }
+                    pages.put(page, result.rows);
+                    if (result.rows.size() == pageSize) {
+                        startKeys.put(page + 1, requestSource.keyOf(result.rows.get(pageSize - 1)));
+                    }
+                    int firstRow = page * pageSize;
+                    int lastRow = Math.min(firstRow + pageSize, rowCount) - 1;
+                    if (lastRow >= firstRow) {
+                        fireTableRowsUpdated(firstRow, lastRow);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    reportFailure(e);
+                }
+            }
+        }.execute();
+    }
+
+    private void reportFailure(ExecutionException e) {
+        if (e.getCause() instanceof SQLException) {
+            onLoadError((SQLException) e.getCause());
+        } else {
+            onLoadError(new SQLException(e.getCause()));
+        }
+    }
+
+    private static class PageResult<T, K> {
+        final Map<Integer, K> startKeys = new HashMap<>();
+        List<T> rows;
+    }
+}
@@ -0,0 +1,105 @@
+package beachresort.ui;
+
+import javax.swing.JComponent;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import java.awt.Cursor;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyEvent;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Background repository calls owned by one panel. Results and errors are
+ * delivered on the EDT, a busy indicator is shown while anything is in flight,
+ * and everything still pending is cancelled when the panel is hidden (e.g. the
+ * dashboard switches cards) or removed, so late results never touch a panel
+ * the user has left.
+ */
+public class PanelTasks {
+    private final JComponent owner;
+    private final JProgressBar indicator = new JProgressBar();
+    private final Set<CompletableFuture<?>> inFlight = new HashSet<>();
+
+    public PanelTasks(JComponent owner) {
+        this.owner = owner;
+        indicator.setIndeterminate(true);
+        indicator.setVisible(false);
+        indicator.setString("Loading...");
+        indicator.setStringPainted(true);
+
+        owner.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                cancelAll();
+            }
+        });
+        owner.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !owner.isDisplayable()) {
+                cancelAll();
+            }
+        });
+    }
+
+    // Add this somewhere in the panel; it is only visible while work is running
+    public JProgressBar getIndicator() {
+        return indicator;
+    }
+
+    public <T> CompletableFuture<T> run(CompletableFuture<T> future, Consumer<? super T> onSuccess) {
+        return run(future, onSuccess, this::showError);
+    }
+
+    // Must be called on the EDT
+    public <T> CompletableFuture<T> run(CompletableFuture<T> future, Consumer<? super T> onSuccess,
+            Consumer<Throwable> onFailure) {
+        inFlight.add(future);
+        updateIndicator();
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            inFlight.remove(future);
+            updateIndicator();
+            if (future.isCancelled()) {
+                return;
+            }
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onFailure.accept(unwrap(error));
+            }
+        }));
+        return future;
+    }
+
+    public boolean isBusy() {
+        return !inFlight.isEmpty();
+    }
+
+    public void cancelAll() {
+        for (CompletableFuture<?> future : new HashSet<>(inFlight)) {
+            future.cancel(false);
+        }
+    }
+
+    private void updateIndicator() {
+        boolean busy = !inFlight.isEmpty();
+        indicator.setVisible(busy);
+        owner.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+    }
+
+    private void showError(Throwable error) {
+        System.err.println("Background task failed: " + error.getMessage());
+        JOptionPane.showMessageDialog(owner, "Error: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+}
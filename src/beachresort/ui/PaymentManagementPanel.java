@@ -1,24 +1,33 @@
 package beachresort.ui;
 
 import beachresort.models.Payment;
+import beachresort.repositories.AsyncRepository;
 import beachresort.repositories.PaymentRepository;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.List;
 
 public class PaymentManagementPanel extends JPanel {
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 10;
+
     private JTable paymentsTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<Payment, PaymentRepository.PageKey> tableModel;
+    private JComboBox<String> statusFilterCombo;
+    private JCheckBox newestFirstCheck;
     private PaymentRepository paymentRepository;
+    private AsyncRepository<PaymentRepository> asyncPayments;
+    private final PanelTasks tasks = new PanelTasks(this);
 
     public PaymentManagementPanel() {
         // Initialize repository
         paymentRepository = new PaymentRepository();
+        asyncPayments = AsyncRepository.of(paymentRepository);
 
         // Set layout
         setLayout(new BorderLayout());
@@ -30,10 +39,19 @@ public class PaymentManagementPanel extends JPanel {
 
         // Table Model Setup
         String[] columnNames = {"Payment ID", "User ID", "Type", "Amount", "Method", "Status", "Description", "Date"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        tableModel = new PagedTableModel<Payment, PaymentRepository.PageKey>(columnNames, PAGE_SIZE, MAX_CACHED_PAGES) {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+            protected Object getColumnValue(Payment payment, int columnIndex) {
+                switch (columnIndex) {
+                    case 0: return payment.getPaymentId();
+                    case 1: return payment.getUserId();
+                    case 2: return payment.getPaymentType();
+                    case 3: return payment.getAmount();
+                    case 4: return payment.getPaymentMethod();
+                    case 5: return payment.getStatus();
+                    case 6: return payment.getDescription();
+                    default: return payment.getPaymentDate();
+                }
             }
         };
         paymentsTable = new JTable(tableModel);
@@ -49,11 +67,17 @@ public class PaymentManagementPanel extends JPanel {
         JButton editPaymentButton = new JButton("Edit Payment");
         JButton deletePaymentButton = new JButton("Delete Payment");
         JButton refreshButton = new JButton("Refresh");
+        statusFilterCombo = new JComboBox<>(new String[]{"All", "Pending", "Completed", "Failed"});
+        newestFirstCheck = new JCheckBox("Newest first", true);
 
+        buttonPanel.add(new JLabel("Status:"));
+        buttonPanel.add(statusFilterCombo);
+        buttonPanel.add(newestFirstCheck);
         buttonPanel.add(addPaymentButton);
         buttonPanel.add(editPaymentButton);
         buttonPanel.add(deletePaymentButton);
         buttonPanel.add(refreshButton);
+        buttonPanel.add(tasks.getIndicator());
 
         add(buttonPanel, BorderLayout.SOUTH);
 
@@ -62,31 +86,40 @@ public class PaymentManagementPanel extends JPanel {
         editPaymentButton.addActionListener(this::editPayment);
         deletePaymentButton.addActionListener(this::deletePayment);
         refreshButton.addActionListener(this::loadPayments);
+        statusFilterCombo.addActionListener(this::loadPayments);
+        newestFirstCheck.addActionListener(this::loadPayments);
 
         // Initial load of payments
         loadPayments(null);
     }
 
+    // Pages are fetched on demand by the table model as the user scrolls
     private void loadPayments(ActionEvent event) {
-        // Clear existing rows
-        tableModel.setRowCount(0);
-        
-        // Fetch payments from repository
-        List<Payment> payments = paymentRepository.getAllPayments();
-        
-        // Populate table
-        for (Payment payment : payments) {
-            tableModel.addRow(new Object[]{
-                payment.getPaymentId(),
-                payment.getUserId(),
-                payment.getPaymentType(),
-                payment.getAmount(),
-                payment.getPaymentMethod(),
-                payment.getStatus(),
-                payment.getDescription(),
-                payment.getPaymentDate()
-            });
-        }
+        String selectedStatus = (String) statusFilterCombo.getSelectedItem();
+        String statusFilter = "All".equals(selectedStatus) ? null : selectedStatus;
+        boolean newestFirst = newestFirstCheck.isSelected();
+
+        tableModel.setSource(new PagedTableModel.PageSource<Payment, PaymentRepository.PageKey>() {
+            @Override
+            public int count() throws SQLException {
+                return paymentRepository.countPayments(statusFilter);
+            }
+
+            @Override
+            public List<Payment> fetchPage(PaymentRepository.PageKey after, int limit) throws SQLException {
+                return paymentRepository.getPaymentsPage(statusFilter, newestFirst, after, limit);
+            }
+
+            @Override
+            public PaymentRepository.PageKey skip(PaymentRepository.PageKey after, int rows) throws SQLException {
+                return paymentRepository.skipPayments(statusFilter, newestFirst, after, rows);
+            }
+
+            @Override
+            public PaymentRepository.PageKey keyOf(Payment payment) {
+                return PaymentRepository.PageKey.of(payment);
+            }
+        });
     }
 
     private void addPayment(ActionEvent e) {
@@ -135,17 +168,27 @@ public class PaymentManagementPanel extends JPanel {
                     new Timestamp(System.currentTimeMillis())
                 );
 
-                // Add payment
-                if (paymentRepository.addPayment(newPayment)) {
-                    JOptionPane.showMessageDialog(addPaymentDialog, "Payment Added Successfully!");
-                    loadPayments(null);
-                    addPaymentDialog.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(addPaymentDialog, 
-                        "Failed to add payment. Please check user ID", 
-                        "Error", 
+                // Add payment off the EDT; the dialog stays open until it answers
+                saveButton.setEnabled(false);
+                tasks.run(asyncPayments.call(payments -> payments.addPayment(newPayment)), added -> {
+                    saveButton.setEnabled(true);
+                    if (added) {
+                        JOptionPane.showMessageDialog(addPaymentDialog, "Payment Added Successfully!");
+                        loadPayments(null);
+                        addPaymentDialog.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(addPaymentDialog, 
+                            "Failed to add payment. Please check user ID", 
+                            "Error", 
+                            JOptionPane.ERROR_MESSAGE);
+                    }
+                }, error -> {
+                    saveButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(addPaymentDialog,
+                        "Error adding payment: " + error.getMessage(),
+                        "Error",
                         JOptionPane.ERROR_MESSAGE);
-                }
+                });
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(addPaymentDialog, 
                     "Invalid amount", 
@@ -170,6 +213,10 @@ public class PaymentManagementPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a payment to edit");
             return;
         }
+        if (tableModel.getRow(selectedRow) == null) {
+            JOptionPane.showMessageDialog(this, "Payments are still loading, please try again");
+            return;
+        }
 
         // Get payment ID of selected payment
         int paymentId = (int) tableModel.getValueAt(selectedRow, 0);
@@ -229,17 +276,27 @@ public class PaymentManagementPanel extends JPanel {
                 );
                 updatedPayment.setPaymentId(paymentId);
 
-                // Update payment in repository
-                if (paymentRepository.updatePayment(updatedPayment)) {
-                    JOptionPane.showMessageDialog(editPaymentDialog, "Payment Updated Successfully!");
-                    loadPayments(null);
-                    editPaymentDialog.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(editPaymentDialog, 
-                        "Failed to update payment", 
-                        "Error", 
+                // Update payment in repository off the EDT
+                saveButton.setEnabled(false);
+                tasks.run(asyncPayments.call(payments -> payments.updatePayment(updatedPayment)), updated -> {
+                    saveButton.setEnabled(true);
+                    if (updated) {
+                        JOptionPane.showMessageDialog(editPaymentDialog, "Payment Updated Successfully!");
+                        loadPayments(null);
+                        editPaymentDialog.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(editPaymentDialog, 
+                            "Failed to update payment", 
+                            "Error", 
+                            JOptionPane.ERROR_MESSAGE);
+                    }
+                }, error -> {
+                    saveButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(editPaymentDialog,
+                        "Error updating payment: " + error.getMessage(),
+                        "Error",
                         JOptionPane.ERROR_MESSAGE);
-                }
+                });
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(editPaymentDialog, 
                     "Invalid amount", 
@@ -264,6 +321,10 @@ public class PaymentManagementPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a payment to delete");
             return;
         }
+        if (tableModel.getRow(selectedRow) == null) {
+            JOptionPane.showMessageDialog(this, "Payments are still loading, please try again");
+            return;
+        }
 
         // Get payment ID of selected payment
         int paymentId = (int) tableModel.getValueAt(selectedRow, 0);
@@ -273,12 +334,14 @@ public class PaymentManagementPanel extends JPanel {
             JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
-            if (paymentRepository.deletePayment(paymentId)) {
-                JOptionPane.showMessageDialog(this, "Payment Deleted Successfully!");
-                loadPayments(null);
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to delete payment", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            tasks.run(asyncPayments.call(payments -> payments.deletePayment(paymentId)), deleted -> {
+                if (deleted) {
+                    JOptionPane.showMessageDialog(this, "Payment Deleted Successfully!");
+                    loadPayments(null);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to delete payment", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }
 
@@ -0,0 +1,246 @@
+package beachresort.ui;
+
+import beachresort.models.RateRule;
+import beachresort.repositories.RepositoryExecutor;
+import beachresort.services.RateEngine;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class RateRulesPanel extends JPanel {
+    private static final String ALL_TYPES = "All";
+    private static final String[] DAY_CHOICES = { "Every day", "Weekends (Fri, Sat)", "Weeknights (Sun-Thu)" };
+    private static final int[] DAY_MASKS = { RateRule.EVERY_DAY, RateRule.WEEKENDS,
+            RateRule.EVERY_DAY & ~RateRule.WEEKENDS };
+
+    private JTable rulesTable;
+    private DefaultTableModel tableModel;
+    private final RateEngine rateEngine = RateEngine.shared();
+    private final List<RateRule> rules = new ArrayList<>();
+    private final PanelTasks tasks = new PanelTasks(this);
+
+    public RateRulesPanel() {
+        setLayout(new BorderLayout());
+
+        // Title
+        JLabel titleLabel = new JLabel("Rate Rules", SwingConstants.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
+        add(titleLabel, BorderLayout.NORTH);
+
+        // Table Model Setup
+        String[] columnNames = { "Name", "Room Type", "From", "Until", "Days", "Adjustment" };
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false; // Make table non-editable
+            }
+        };
+        rulesTable = new JTable(tableModel);
+        rulesTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        add(new JScrollPane(rulesTable), BorderLayout.CENTER);
+
+        // Button Panel
+        JPanel buttonPanel = new JPanel();
+        JButton addRuleButton = new JButton("Add Rule");
+        JButton editRuleButton = new JButton("Edit Rule");
+        JButton deleteRuleButton = new JButton("Delete Rule");
+        JButton refreshButton = new JButton("Refresh");
+
+        buttonPanel.add(addRuleButton);
+        buttonPanel.add(editRuleButton);
+        buttonPanel.add(deleteRuleButton);
+        buttonPanel.add(refreshButton);
+        buttonPanel.add(tasks.getIndicator());
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // Add Action Listeners
+        addRuleButton.addActionListener(e -> showRuleDialog(null));
+        editRuleButton.addActionListener(this::editRule);
+        deleteRuleButton.addActionListener(this::deleteRule);
+        refreshButton.addActionListener(e -> loadRules(true));
+
+        loadRules(false);
+    }
+
+    // reload: read the rules from the database again, for edits made on another machine
+    private void loadRules(boolean reload) {
+        tasks.run(RepositoryExecutor.supply(() -> {
+            if (reload) {
+                rateEngine.rebuild();
+            }
+            return rateEngine.getRules();
+        }), loaded -> {
+            rules.clear();
+            rules.addAll(loaded);
+            tableModel.setRowCount(0);
+            for (RateRule rule : loaded) {
+                tableModel.addRow(new Object[] {
+                    rule.getName(),
+                    rule.getRoomType() == null ? ALL_TYPES : rule.getRoomType(),
+                    rule.getStartDate(),
+                    rule.getEndDate(),
+                    describeDays(rule.getDaysOfWeek()),
+                    String.format("%+.2f%%", rule.getAdjustmentPercent())
+                });
+            }
+        });
+    }
+
+    private void editRule(ActionEvent e) {
+        int selectedRow = rulesTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a rule to edit");
+            return;
+        }
+        showRuleDialog(rules.get(selectedRow));
+    }
+
+    private void deleteRule(ActionEvent e) {
+        int selectedRow = rulesTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a rule to delete");
+            return;
+        }
+        RateRule rule = rules.get(selectedRow);
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "Delete the rate rule \"" + rule.getName() + "\"? Existing bookings keep their price.",
+                "Confirm Deletion", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+        tasks.run(RepositoryExecutor.supply(() -> rateEngine.deleteRule(rule.getRuleId())), deleted -> {
+            if (!deleted) {
+                JOptionPane.showMessageDialog(this, "Rule not found; it may have been deleted elsewhere.");
+            }
+            loadRules(!deleted);
+        });
+    }
+
+    // existing is null when adding a rule
+    private void showRuleDialog(RateRule existing) {
+        JDialog ruleDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this),
+                existing == null ? "Add Rate Rule" : "Edit Rate Rule", true);
+        ruleDialog.setSize(420, 360);
+        ruleDialog.setLocationRelativeTo(this);
+
+        JPanel panel = new JPanel(new GridLayout(7, 2, 10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        panel.add(new JLabel("Name:"));
+        JTextField nameField = new JTextField();
+        panel.add(nameField);
+
+        panel.add(new JLabel("Room Type:"));
+        JComboBox<String> roomTypeCombo = new JComboBox<>(new String[] { ALL_TYPES, "Standard", "Deluxe", "Suite",
+                "Family" });
+        panel.add(roomTypeCombo);
+
+        panel.add(new JLabel("From (yyyy-MM-dd):"));
+        JTextField startField = new JTextField();
+        panel.add(startField);
+
+        panel.add(new JLabel("Until, not included:"));
+        JTextField endField = new JTextField();
+        panel.add(endField);
+
+        panel.add(new JLabel("Days:"));
+        JComboBox<String> daysCombo = new JComboBox<>(DAY_CHOICES);
+        panel.add(daysCombo);
+
+        panel.add(new JLabel("Adjustment (%):"));
+        JTextField adjustmentField = new JTextField();
+        panel.add(adjustmentField);
+
+        if (existing != null) {
+            nameField.setText(existing.getName());
+            roomTypeCombo.setSelectedItem(existing.getRoomType() == null ? ALL_TYPES : existing.getRoomType());
+            startField.setText(existing.getStartDate().toString());
+            endField.setText(existing.getEndDate().toString());
+            for (int i = 0; i < DAY_MASKS.length; i++) {
+                if (DAY_MASKS[i] == existing.getDaysOfWeek()) {
+                    daysCombo.setSelectedIndex(i);
+                }
+            }
+            adjustmentField.setText(String.valueOf(existing.getAdjustmentPercent()));
+        }
+
+        JButton saveButton = new JButton("Save");
+        saveButton.addActionListener(saveEvent -> {
+            RateRule rule;
+            try {
+                String roomType = (String) roomTypeCombo.getSelectedItem();
+                rule = new RateRule(
+                        existing == null ? 0 : existing.getRuleId(),
+                        nameField.getText().trim(),
+                        ALL_TYPES.equals(roomType) ? null : roomType,
+                        LocalDate.parse(startField.getText().trim()),
+                        LocalDate.parse(endField.getText().trim()),
+                        DAY_MASKS[daysCombo.getSelectedIndex()],
+                        Double.parseDouble(adjustmentField.getText().trim()));
+            } catch (DateTimeParseException | NumberFormatException ex) {
+                JOptionPane.showMessageDialog(ruleDialog, "Please enter dates as yyyy-MM-dd and a numeric adjustment.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (!rule.validate()) {
+                JOptionPane.showMessageDialog(ruleDialog,
+                        "A rule needs a name, an end date after its start date and an adjustment of at least -100%.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // Saved and priced into the calendar off the EDT
+            saveButton.setEnabled(false);
+            tasks.run(RepositoryExecutor.supply(() -> {
+                if (existing == null) {
+                    rateEngine.addRule(rule);
+                    return true;
+                }
+                return rateEngine.updateRule(rule);
+            }), saved -> {
+                saveButton.setEnabled(true);
+                if (saved) {
+                    loadRules(false);
+                    ruleDialog.dispose();
+                } else {
+                    JOptionPane.showMessageDialog(ruleDialog, "Rule not found; it may have been deleted elsewhere.");
+                }
+            }, error -> {
+                saveButton.setEnabled(true);
+                JOptionPane.showMessageDialog(ruleDialog, "Error saving rate rule: " + error.getMessage());
+            });
+        });
+        panel.add(saveButton);
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(cancelEvent -> ruleDialog.dispose());
+        panel.add(cancelButton);
+
+        ruleDialog.add(panel);
+        ruleDialog.setVisible(true);
+    }
+
+    private static String describeDays(int mask) {
+        for (int i = 0; i < DAY_MASKS.length; i++) {
+            if (DAY_MASKS[i] == mask) {
+                return DAY_CHOICES[i];
+            }
+        }
+        StringBuilder days = new StringBuilder();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((mask & RateRule.dayBit(day)) != 0) {
+                days.append(days.length() == 0 ? "" : ", ").append(day.getDisplayName(TextStyle.SHORT, Locale.ENGLISH));
+            }
+        }
+        return days.toString();
+    }
+}
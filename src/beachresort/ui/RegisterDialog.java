@@ -1,6 +1,7 @@
 package beachresort.ui;
 
 import beachresort.models.Person;
+import beachresort.repositories.RepositoryExecutor;
 import beachresort.services.AuthenticationService;
 
 import javax.swing.*;
@@ -17,6 +18,8 @@ public class RegisterDialog extends JDialog {
     private JTextField addressField;
     private JTextField contactNumberField;
     private AuthenticationService authService;
+    private PanelTasks tasks;
+    private JButton registerButton;
 
     public RegisterDialog(JFrame parent) {
         // Call parent constructor with modal settings
@@ -45,6 +48,7 @@ public class RegisterDialog extends JDialog {
     private void createUI() {
         // Main panel with grid bag layout
         JPanel mainPanel = new JPanel(new GridBagLayout());
+        tasks = new PanelTasks(mainPanel);
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(10, 10, 10, 10);
         gbc.fill = GridBagConstraints.HORIZONTAL;
@@ -142,7 +146,7 @@ public class RegisterDialog extends JDialog {
         gbc.gridx = 0;
         gbc.gridy = 9;
         gbc.gridwidth = 2;
-        JButton registerButton = new JButton("Register");
+        registerButton = new JButton("Register");
         registerButton.setPreferredSize(new Dimension(250, 35));
         registerButton.addActionListener(this::performRegistration);
         mainPanel.add(registerButton, gbc);
@@ -154,6 +158,9 @@ public class RegisterDialog extends JDialog {
         cancelButton.addActionListener(e -> dispose());
         mainPanel.add(cancelButton, gbc);
 
+        gbc.gridy = 11;
+        mainPanel.add(tasks.getIndicator(), gbc);
+
         // Add main panel to dialog
         add(mainPanel);
     }
@@ -198,10 +205,11 @@ public class RegisterDialog extends JDialog {
             return;
         }
 
-        // Perform registration
-        try {
-            boolean registrationSuccess = authService.registerUser(username, password, role.name(), email, fullName, address, contactNumber);
-
+        // Perform registration off the EDT
+        registerButton.setEnabled(false);
+        tasks.run(RepositoryExecutor.supply(() -> authService.registerUser(username, password, role.name(), email,
+                fullName, address, contactNumber)), registrationSuccess -> {
+            registerButton.setEnabled(true);
             if (registrationSuccess) {
                 JOptionPane.showMessageDialog(this, 
                     "Registration Successful!", 
@@ -214,11 +222,12 @@ public class RegisterDialog extends JDialog {
                     "Registration Error", 
                     JOptionPane.ERROR_MESSAGE);
             }
-        } catch (Exception ex) {
+        }, ex -> {
+            registerButton.setEnabled(true);
             JOptionPane.showMessageDialog(this, 
                 "Unexpected Error: " + ex.getMessage(), 
                 "Registration Error", 
                 JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 }
\ No newline at end of file
@@ -1,34 +1,90 @@
 package beachresort.ui;
 
+import beachresort.repositories.ReportRepository.Granularity;
+import beachresort.repositories.RepositoryExecutor;
+import beachresort.services.DataExportService;
+import beachresort.services.DataExportService.Dataset;
+import beachresort.services.DataExportService.Format;
+import beachresort.services.ReportingService;
+import beachresort.services.ReportingService.Report;
+import beachresort.services.ReportingService.ReportType;
+
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ReportingPanel extends JPanel {
     private static final Color BACKGROUND_COLOR = Color.WHITE;
     private static final Color ACCENT_COLOR = new Color(52, 152, 219);
 
+    private static final String CURRENT_REPORT = "Current report";
+
+    private final ReportingService reportingService = new ReportingService();
+    private final DataExportService exportService = new DataExportService();
+    private final PanelTasks tasks = new PanelTasks(this);
+    private JComboBox<ReportType> reportTypeCombo;
+    private JComboBox<Granularity> granularityCombo;
+    private JTextField fromField;
+    private JTextField toField;
+    private DefaultTableModel tableModel;
+    private JLabel statusLabel;
+    private Report lastReport;
+
     public ReportingPanel() {
         setLayout(new BorderLayout());
         initComponents();
     }
 
     private void initComponents() {
+        JPanel headerPanel = new JPanel(new BorderLayout());
         JLabel titleLabel = new JLabel("Reports", SwingConstants.CENTER);
         titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
         titleLabel.setForeground(ACCENT_COLOR);
-        add(titleLabel, BorderLayout.NORTH);
+        headerPanel.add(titleLabel, BorderLayout.NORTH);
 
-        JTextArea reportArea = new JTextArea();
-        reportArea.setEditable(false);
-        reportArea.setBackground(BACKGROUND_COLOR);
-        reportArea.setFont(new Font("Arial", Font.PLAIN, 16));
-        reportArea.setText("Select a report type to view details...");
+        // Report, period and date range; the range is [From, To)
+        JPanel criteriaPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        reportTypeCombo = new JComboBox<>(ReportType.values());
+        granularityCombo = new JComboBox<>(Granularity.values());
+        granularityCombo.setSelectedItem(Granularity.MONTH);
+        LocalDate firstOfMonth = LocalDate.now().withDayOfMonth(1);
+        fromField = new JTextField(firstOfMonth.minusYears(1).toString(), 10);
+        toField = new JTextField(firstOfMonth.plusMonths(1).toString(), 10);
+        criteriaPanel.add(new JLabel("Report:"));
+        criteriaPanel.add(reportTypeCombo);
+        criteriaPanel.add(new JLabel("By:"));
+        criteriaPanel.add(granularityCombo);
+        criteriaPanel.add(new JLabel("From (yyyy-mm-dd):"));
+        criteriaPanel.add(fromField);
+        criteriaPanel.add(new JLabel("To (exclusive):"));
+        criteriaPanel.add(toField);
+        headerPanel.add(criteriaPanel, BorderLayout.CENTER);
+        headerPanel.add(tasks.getIndicator(), BorderLayout.SOUTH);
+        add(headerPanel, BorderLayout.NORTH);
 
-        JScrollPane scrollPane = new JScrollPane(reportArea);
-        add(scrollPane, BorderLayout.CENTER);
+        tableModel = new DefaultTableModel(0, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable reportTable = new JTable(tableModel);
+        reportTable.setBackground(BACKGROUND_COLOR);
+        add(new JScrollPane(reportTable), BorderLayout.CENTER);
 
-        JPanel buttonPanel = createButtonPanel();
-        add(buttonPanel, BorderLayout.SOUTH);
+        JPanel footerPanel = new JPanel(new BorderLayout());
+        statusLabel = new JLabel("Select a report type to view details...");
+        footerPanel.add(statusLabel, BorderLayout.WEST);
+        footerPanel.add(createButtonPanel(), BorderLayout.EAST);
+        add(footerPanel, BorderLayout.SOUTH);
     }
 
     private JPanel createButtonPanel() {
@@ -57,12 +113,120 @@ public class ReportingPanel extends JPanel {
     }
 
     private void generateReport() {
-        // Logic to generate report
-        JOptionPane.showMessageDialog(this, "Report generated successfully!");
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(fromField.getText().trim());
+            to = LocalDate.parse(toField.getText().trim());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Enter dates as yyyy-mm-dd.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (!from.isBefore(to)) {
+            JOptionPane.showMessageDialog(this, "From must be before To.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        ReportType type = (ReportType) reportTypeCombo.getSelectedItem();
+        Granularity granularity = (Granularity) granularityCombo.getSelectedItem();
+        tasks.run(RepositoryExecutor.supply(() -> reportingService.generate(type, from, to, granularity)),
+                this::showReport);
+    }
+
+    private void showReport(Report report) {
+        tableModel.setColumnIdentifiers(report.getColumns().toArray());
+        tableModel.setRowCount(0);
+        for (Object[] row : report.getRows()) {
+            Object[] cells = new Object[row.length];
+            for (int i = 0; i < row.length; i++) {
+                cells[i] = row[i] instanceof Double ? String.format("%,.2f", (Double) row[i]) : row[i];
+            }
+            tableModel.addRow(cells);
+        }
+        lastReport = report;
+        statusLabel.setText(report.getType() + ": " + report.getRows().size() + " rows in "
+                + report.getElapsedMillis() + " ms");
     }
 
+    // The report on screen, or a whole table, to a CSV or .xlsx file chosen by the user
     private void exportReport() {
-        // Logic to export report
-        JOptionPane.showMessageDialog(this, "Report exported successfully!");
+        Object[] choices = { CURRENT_REPORT, Dataset.BOOKINGS, Dataset.PAYMENTS, Dataset.STAYS, Dataset.ABSENCES };
+        Object choice = JOptionPane.showInputDialog(this, "Export:", "Export", JOptionPane.QUESTION_MESSAGE, null,
+                choices, lastReport != null ? CURRENT_REPORT : Dataset.BOOKINGS);
+        if (choice == null) {
+            return;
+        }
+        if (choice == CURRENT_REPORT && lastReport == null) {
+            JOptionPane.showMessageDialog(this, "Generate a report first.", "Export", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV (*.csv)", "csv");
+        FileNameExtensionFilter xlsxFilter = new FileNameExtensionFilter("Excel workbook (*.xlsx)", "xlsx");
+        chooser.addChoosableFileFilter(csvFilter);
+        chooser.addChoosableFileFilter(xlsxFilter);
+        chooser.setAcceptAllFileFilterUsed(false);
+        chooser.setFileFilter(csvFilter);
+        String name = (choice == CURRENT_REPORT ? lastReport.getType().name() : ((Dataset) choice).name())
+                .toLowerCase() + "-" + LocalDate.now();
+        chooser.setSelectedFile(new File(name + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Format format = chooser.getFileFilter() == xlsxFilter ? Format.XLSX : Format.CSV;
+        File file = chooser.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith("." + format.getExtension())) {
+            file = new File(file.getPath() + "." + format.getExtension());
+        }
+        if (file.exists() && JOptionPane.showConfirmDialog(this, file.getName() + " exists. Replace it?", "Export",
+                JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        startExport(choice, file.toPath());
+    }
+
+    /**
+     * Runs the export in the background behind a progress dialog. Its Cancel
+     * button, or leaving the panel, stops the export at the next row and
+     * leaves no file behind.
+     */
+    private void startExport(Object choice, Path file) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exporting " + choice + " to " + file.getFileName(),
+                "Starting...", 0, 100);
+        monitor.setMillisToDecideToPopup(0);
+        monitor.setMillisToPopup(0);
+        DataExportService.Progress progress = (rows, estimate) -> SwingUtilities.invokeLater(() -> {
+            if (monitor.isCanceled()) {
+                cancelled.set(true);
+                return;
+            }
+            monitor.setNote(String.format("%,d rows written", rows));
+            if (estimate > 0) {
+                // The estimate is the server's statistics, so never claim to be done early
+                monitor.setProgress((int) Math.min(99, rows * 100 / estimate));
+            }
+        });
+
+        Report report = lastReport;
+        CompletableFuture<DataExportService.ExportReport> future = RepositoryExecutor.supply(() ->
+                choice == CURRENT_REPORT
+                        ? exportService.export(report.getType().toString(), report.getColumns(), report.getRows(),
+                                file, progress, cancelled::get)
+                        : exportService.export((Dataset) choice, file, progress, cancelled::get));
+        // Also reached when tasks cancels the future because the panel was hidden
+        future.whenComplete((result, error) -> {
+            cancelled.set(true);
+            SwingUtilities.invokeLater(monitor::close);
+        });
+        tasks.run(future, result -> statusLabel.setText(result.toString()), error -> {
+            if (error instanceof CancellationException) {
+                statusLabel.setText("Export cancelled");
+            } else {
+                System.err.println("Export failed: " + error.getMessage());
+                JOptionPane.showMessageDialog(this, "Export failed: " + error.getMessage(), "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 }
\ No newline at end of file
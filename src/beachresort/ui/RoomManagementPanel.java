@@ -1,6 +1,7 @@
 package beachresort.ui;
 
 import beachresort.models.Room;
+import beachresort.repositories.AsyncRepository;
 import beachresort.repositories.RoomRepository;
 
 import javax.swing.*;
@@ -12,12 +13,15 @@ public class RoomManagementPanel extends JPanel {
     private JTable roomsTable;
     private DefaultTableModel tableModel;
     private RoomRepository roomRepository;
+    private AsyncRepository<RoomRepository> asyncRooms;
+    private final PanelTasks tasks = new PanelTasks(this);
    
 
 
     public RoomManagementPanel() {
         // Initialize repository
         roomRepository = new RoomRepository();
+        asyncRooms = AsyncRepository.of(roomRepository);
 
         // Set layout
         setLayout(new BorderLayout());
@@ -56,6 +60,7 @@ public class RoomManagementPanel extends JPanel {
         buttonPanel.add(editRoomButton);
         buttonPanel.add(deleteRoomButton);
         buttonPanel.add(refreshButton);
+        buttonPanel.add(tasks.getIndicator());
 
         add(buttonPanel, BorderLayout.SOUTH);
 
@@ -70,23 +75,21 @@ public class RoomManagementPanel extends JPanel {
     }
 
     private void loadRooms() {
-        // Clear existing rows
-        tableModel.setRowCount(0);
-
-        // Fetch rooms from repository
-        List<Room> rooms = roomRepository.getAllRooms();
-        
-        // Populate table
-        for (Room room : rooms) {
-            Object[] rowData = {
-                room.getRoomNumber(),
-                room.getRoomType(),
-                room.getCapacity(),
-                String.format("₱%.2f", room.getPricePerNight()),
-                room.getStatus()
-            };
-            tableModel.addRow(rowData);
-        }
+        // Fetch rooms off the EDT, then populate the table
+        tasks.run(asyncRooms.call(RoomRepository::getAllRooms), rooms -> {
+            // Clear existing rows
+            tableModel.setRowCount(0);
+            for (Room room : rooms) {
+                Object[] rowData = {
+                    room.getRoomNumber(),
+                    room.getRoomType(),
+                    room.getCapacity(),
+                    String.format("₱%.2f", room.getPricePerNight()),
+                    room.getStatus()
+                };
+                tableModel.addRow(rowData);
+            }
+        });
     }
 
     private void addRoom(ActionEvent e) {
@@ -122,16 +125,22 @@ public class RoomManagementPanel extends JPanel {
                     null
                 );
 
-                                // Add to repository
-                if (roomRepository.addRoom(newRoom)) {
-                   
-                    loadRooms(); // Refresh table
-                    JOptionPane.showMessageDialog(addRoomDialog, "Room Added Successfully!");
-                    addRoomDialog.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(addRoomDialog,
-                            "Failed to add room. Room number might already exist.");
-                }
+                // Add to repository off the EDT; the dialog stays open until it answers
+                saveButton.setEnabled(false);
+                tasks.run(asyncRooms.call(rooms -> rooms.addRoom(newRoom)), added -> {
+                    saveButton.setEnabled(true);
+                    if (added) {
+                        loadRooms(); // Refresh table
+                        JOptionPane.showMessageDialog(addRoomDialog, "Room Added Successfully!");
+                        addRoomDialog.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(addRoomDialog,
+                                "Failed to add room. Room number might already exist.");
+                    }
+                }, error -> {
+                    saveButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(addRoomDialog, "Error adding room: " + error.getMessage());
+                });
                 
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(addRoomDialog, "Invalid numeric input for capacity or price");
@@ -159,13 +168,17 @@ public class RoomManagementPanel extends JPanel {
        // Get room number of selected row
        String roomNumber = (String) tableModel.getValueAt(selectedRow, 0);
 
-       // Fetch room from repository
-       Room existingRoom = roomRepository.getRoomByNumber(roomNumber);
-       if (existingRoom == null) {
-           JOptionPane.showMessageDialog(this, "Room not found");
-           return;
-       }
+       // Fetch room from repository off the EDT, then open the dialog on it
+       tasks.run(asyncRooms.call(rooms -> rooms.getRoomByNumber(roomNumber)), existingRoom -> {
+           if (existingRoom == null) {
+               JOptionPane.showMessageDialog(this, "Room not found");
+               return;
+           }
+           showEditRoomDialog(existingRoom);
+       });
+   }
 
+   private void showEditRoomDialog(Room existingRoom) {
        // Create edit dialog
        JDialog editRoomDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Edit Room", true);
        editRoomDialog.setSize(400, 300);
@@ -211,15 +224,21 @@ public class RoomManagementPanel extends JPanel {
                     null  // updatedAt (can be set to null or use existingRoom.getUpdatedAt())
                 );
 
-                // Update in repository
-                if (roomRepository.updateRoom(updatedRoom)) {
-                  
-                    loadRooms(); // Refresh table
-                    JOptionPane.showMessageDialog(editRoomDialog, "Room Updated Successfully!");
-                    editRoomDialog.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(editRoomDialog, "Failed to update room");
-                }
+                // Update in repository off the EDT
+                saveButton.setEnabled(false);
+                tasks.run(asyncRooms.call(rooms -> rooms.updateRoom(updatedRoom)), updated -> {
+                    saveButton.setEnabled(true);
+                    if (updated) {
+                        loadRooms(); // Refresh table
+                        JOptionPane.showMessageDialog(editRoomDialog, "Room Updated Successfully!");
+                        editRoomDialog.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(editRoomDialog, "Failed to update room");
+                    }
+                }, error -> {
+                    saveButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(editRoomDialog, "Error updating room: " + error.getMessage());
+                });
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(editRoomDialog, "Invalid numeric input");
             }
@@ -249,47 +268,43 @@ public class RoomManagementPanel extends JPanel {
 
         
         // Fetch existing room details before deletion
-        Room existingRoom = roomRepository.getRoomByNumber(roomNumber);
-        if (existingRoom == null) {
-            JOptionPane.showMessageDialog(this, "Room not found");
-            return;
-        }
-        // Confirm deletion
-        int confirm = JOptionPane.showConfirmDialog(
-            this, 
-            "Are you sure you want to delete room " + roomNumber + "?", 
-            "Confirm Deletion", 
-            JOptionPane.YES_NO_OPTION
-        );
-        
-        if (confirm == JOptionPane.YES_OPTION) {
-                try {
-                    // Attempt to delete from repository
-                    boolean deletionSuccessful = roomRepository.deleteRoom(roomNumber);
-                
+        tasks.run(asyncRooms.call(rooms -> rooms.getRoomByNumber(roomNumber)), existingRoom -> {
+            if (existingRoom == null) {
+                JOptionPane.showMessageDialog(this, "Room not found");
+                return;
+            }
+            // Confirm deletion
+            int confirm = JOptionPane.showConfirmDialog(
+                this, 
+                "Are you sure you want to delete room " + roomNumber + "?", 
+                "Confirm Deletion", 
+                JOptionPane.YES_NO_OPTION
+            );
+
+            if (confirm == JOptionPane.YES_OPTION) {
+                // Attempt to delete from repository off the EDT
+                tasks.run(asyncRooms.call(rooms -> rooms.deleteRoom(roomNumber)), deletionSuccessful -> {
                     if (deletionSuccessful) {
-                                                 int generatedRoomID = existingRoom.getRoomID();
-
-    // Refresh the room list
-    loadRooms();
-
-    // Show success message
-    JOptionPane.showMessageDialog(
-        this, 
-        "Room " + existingRoom.getRoomNumber() + " has been successfully deleted.", 
-        "Deletion Successful", 
-        JOptionPane.INFORMATION_MESSAGE
-    );
-} else {
-    // Deletion failed
-    JOptionPane.showMessageDialog(
-        this, 
-        "Failed to delete room. Please try again or contact support.", 
-        "Deletion Error", 
-        JOptionPane.ERROR_MESSAGE
-    );
-}
-                } catch (Exception deleteException) {
+                        // Refresh the room list
+                        loadRooms();
+
+                        // Show success message
+                        JOptionPane.showMessageDialog(
+                            this, 
+                            "Room " + existingRoom.getRoomNumber() + " has been successfully deleted.", 
+                            "Deletion Successful", 
+                            JOptionPane.INFORMATION_MESSAGE
+                        );
+                    } else {
+                        // Deletion failed
+                        JOptionPane.showMessageDialog(
+                            this, 
+                            "Failed to delete room. Please try again or contact support.", 
+                            "Deletion Error", 
+                            JOptionPane.ERROR_MESSAGE
+                        );
+                    }
+                }, deleteException -> {
                     // Log any unexpected errors
                     System.err.println("Unexpected error during room deletion: " + deleteException.getMessage());
                     JOptionPane.showMessageDialog(
@@ -299,8 +314,9 @@ public class RoomManagementPanel extends JPanel {
                         "Deletion Error", 
                         JOptionPane.ERROR_MESSAGE
                     );
-                }
-        }
+                });
+            }
+        });
     }
 
     // Utility methods
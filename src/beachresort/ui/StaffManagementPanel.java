@@ -4,6 +4,7 @@ import beachresort.models.Absence;
 import beachresort.models.Staff;
 import beachresort.repositories.StaffRepository;
 import beachresort.repositories.AbsenceRepository;
+import beachresort.repositories.AsyncRepository;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -18,11 +19,16 @@ public class StaffManagementPanel extends JPanel {
     private StaffRepository staffRepository;
     private AbsenceRepository absenceRepository;
     private JTabbedPane tabbedPane;
+    private AsyncRepository<StaffRepository> asyncStaff;
+    private AsyncRepository<AbsenceRepository> asyncAbsences;
+    private final PanelTasks tasks = new PanelTasks(this);
 
     public StaffManagementPanel() {
         // Initialize repository
         staffRepository = new StaffRepository();
         absenceRepository = new AbsenceRepository();
+        asyncStaff = AsyncRepository.of(staffRepository);
+        asyncAbsences = AsyncRepository.of(absenceRepository);
 
         // Set layout
         setLayout(new BorderLayout());
@@ -44,6 +50,7 @@ public class StaffManagementPanel extends JPanel {
         tabbedPane.addTab("Leave Requests", leaveRequestsPanel);
 
         add(tabbedPane, BorderLayout.CENTER);
+        add(tasks.getIndicator(), BorderLayout.SOUTH);
     }
 
     private JPanel createStaffListPanel() {
@@ -128,13 +135,15 @@ public class StaffManagementPanel extends JPanel {
                 return;
             }
             int absenceId = (int) leaveTableModel.getValueAt(selectedRow, 0); // Get Absence ID
-            // Call method to approve the absence
-            if (absenceRepository.updateAbsenceStatus(absenceId, "Approved")) {
-                JOptionPane.showMessageDialog(leaveRequestsPanel, "Leave request approved successfully.");
-                loadLeaveRequests(leaveTableModel); // Refresh the table
-            } else {
-                JOptionPane.showMessageDialog(leaveRequestsPanel, "Failed to approve leave request.");
-            }
+            // Call method to approve the absence off the EDT
+            tasks.run(asyncAbsences.call(absences -> absences.updateAbsenceStatus(absenceId, "Approved")), updated -> {
+                if (updated) {
+                    JOptionPane.showMessageDialog(leaveRequestsPanel, "Leave request approved successfully.");
+                    loadLeaveRequests(leaveTableModel); // Refresh the table
+                } else {
+                    JOptionPane.showMessageDialog(leaveRequestsPanel, "Failed to approve leave request.");
+                }
+            });
         });
 
         // Action for Reject button
@@ -145,13 +154,15 @@ public class StaffManagementPanel extends JPanel {
                 return;
             }
             int absenceId = (int) leaveTableModel.getValueAt(selectedRow, 0); // Get Absence ID
-            // Call method to reject the absence
-            if (absenceRepository.updateAbsenceStatus(absenceId, "Rejected")) {
-                JOptionPane.showMessageDialog(leaveRequestsPanel, "Leave request rejected successfully.");
-                loadLeaveRequests(leaveTableModel); // Refresh the table
-            } else {
-                JOptionPane.showMessageDialog(leaveRequestsPanel, "Failed to reject leave request.");
-            }
+            // Call method to reject the absence off the EDT
+            tasks.run(asyncAbsences.call(absences -> absences.updateAbsenceStatus(absenceId, "Rejected")), updated -> {
+                if (updated) {
+                    JOptionPane.showMessageDialog(leaveRequestsPanel, "Leave request rejected successfully.");
+                    loadLeaveRequests(leaveTableModel); // Refresh the table
+                } else {
+                    JOptionPane.showMessageDialog(leaveRequestsPanel, "Failed to reject leave request.");
+                }
+            });
         });
 
         // Action for View Details button
@@ -162,61 +173,60 @@ public class StaffManagementPanel extends JPanel {
                 return;
             }
             int absenceId = (int) leaveTableModel.getValueAt(selectedRow, 0); 
-            // Fetch and display details for the selected absence
-            Absence absence = absenceRepository.getAbsenceById(absenceId); 
-            if (absence != null) {
-                String details = String.format("Absence ID: %d\nStaff ID: %d\nLeave Type: %s\nStart Date: %s\nEnd Date: %s\nStatus: %s\nReason: %s",
-                        absence.getAbsenceId(), absence.getUserId(), absence.getLeaveType(),
-                        absence.getStartDate(), absence.getEndDate(), absence.getStatus(), absence.getReason());
-                JOptionPane.showMessageDialog(leaveRequestsPanel, details, "Leave Request Details", JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(leaveRequestsPanel, "Failed to retrieve absence details.");
-            }
+            // Fetch (off the EDT) and display details for the selected absence
+            tasks.run(asyncAbsences.call(absences -> absences.getAbsenceById(absenceId)), absence -> {
+                if (absence != null) {
+                    String details = String.format("Absence ID: %d\nStaff ID: %d\nLeave Type: %s\nStart Date: %s\nEnd Date: %s\nStatus: %s\nReason: %s",
+                            absence.getAbsenceId(), absence.getUserId(), absence.getLeaveType(),
+                            absence.getStartDate(), absence.getEndDate(), absence.getStatus(), absence.getReason());
+                    JOptionPane.showMessageDialog(leaveRequestsPanel, details, "Leave Request Details", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(leaveRequestsPanel, "Failed to retrieve absence details.");
+                }
+            });
         });
 
         return leaveRequestsPanel;
     }
 
 private void loadLeaveRequests(DefaultTableModel leaveTableModel) {
-    // Clear existing rows
-    leaveTableModel.setRowCount(0);
-
-    // Fetch leave requests from the repository
-    List<Absence> absences = absenceRepository.getAllLeaveRequests(); // Assuming this method exists to fetch all leave requests
-    for (Absence absence : absences) {
-        leaveTableModel.addRow(new Object[] {
-                absence.getAbsenceId(),
-                absence.getUserId(),
-                absence.getLeaveType(),
-                absence.getStartDate(),
-                absence.getEndDate(),
-                absence.getStatus(),
-                absence.getReason()
-        });
-    }
+    // Fetch leave requests off the EDT, then fill the table
+    tasks.run(asyncAbsences.call(AbsenceRepository::getAllLeaveRequests), absences -> {
+        // Clear existing rows
+        leaveTableModel.setRowCount(0);
+        for (Absence absence : absences) {
+            leaveTableModel.addRow(new Object[] {
+                    absence.getAbsenceId(),
+                    absence.getUserId(),
+                    absence.getLeaveType(),
+                    absence.getStartDate(),
+                    absence.getEndDate(),
+                    absence.getStatus(),
+                    absence.getReason()
+            });
+        }
+    });
 }
 
 
 
     private void loadStaff() {
-        // Clear existing rows
-        tableModel.setRowCount(0);
-
-        // Fetch staff from repository
-        List<Staff> staffList = staffRepository.getAllStaff();
-        
-        // Populate table
-        for (Staff staff : staffList) {
-            Object[] rowData = {
-                staff.getStaffId(),
-                staff.getFullName(),
-                staff.getPosition(),
-                staff.getContactNumber(),
-                staff.getEmail(),
-                staff.getStatus()
-            };
-            tableModel.addRow(rowData);
-        }
+        // Fetch staff off the EDT, then populate the table
+        tasks.run(asyncStaff.call(StaffRepository::getAllStaff), staffList -> {
+            // Clear existing rows
+            tableModel.setRowCount(0);
+            for (Staff staff : staffList) {
+                Object[] rowData = {
+                    staff.getStaffId(),
+                    staff.getFullName(),
+                    staff.getPosition(),
+                    staff.getContactNumber(),
+                    staff.getEmail(),
+                    staff.getStatus()
+                };
+                tableModel.addRow(rowData);
+            }
+        });
     }
 
 
@@ -253,27 +263,35 @@ private void loadLeaveRequests(DefaultTableModel leaveTableModel) {
 
         // Add ActionListener to staffIdCombo to populate fields when a staff ID is selected
         staffIdCombo.addActionListener(event -> {
-            int selectedStaffId = Integer.parseInt((String) staffIdCombo.getSelectedItem());
-            Staff staff = staffRepository.getStaffByStaffId(selectedStaffId); // Assuming this method exists
-
-            if (staff != null) {
-                nameField.setText(staff.getFullName());
-                phoneField.setText(staff.getContactNumber());
-                emailField.setText(staff.getEmail());
-                userIdField.setText(String.valueOf(staff.getId()));
-                positionCombo.setSelectedItem(staff.getPosition());
-                statusCombo.setSelectedItem(staff.getStatus());
-                taskArea.setText(staff.getTask()); // Populate the task area
-            } else {
-                // Clear fields if no staff is found
-                nameField.setText("");
-                phoneField.setText("");
-                emailField.setText("");
-                userIdField.setText("");
-                positionCombo.setSelectedItem("Unassigned");
-                statusCombo.setSelectedItem("Active");
-                taskArea.setText(""); // Clear the task area
+            String selectedItem = (String) staffIdCombo.getSelectedItem();
+            if (selectedItem == null) {
+                return;
             }
+            int selectedStaffId = Integer.parseInt(selectedItem);
+            tasks.run(asyncStaff.call(staffRepo -> staffRepo.getStaffByStaffId(selectedStaffId)), staff -> {
+                // Ignore a late answer if another staff ID has been picked since
+                if (!selectedItem.equals(staffIdCombo.getSelectedItem())) {
+                    return;
+                }
+                if (staff != null) {
+                    nameField.setText(staff.getFullName());
+                    phoneField.setText(staff.getContactNumber());
+                    emailField.setText(staff.getEmail());
+                    userIdField.setText(String.valueOf(staff.getId()));
+                    positionCombo.setSelectedItem(staff.getPosition());
+                    statusCombo.setSelectedItem(staff.getStatus());
+                    taskArea.setText(staff.getTask()); // Populate the task area
+                } else {
+                    // Clear fields if no staff is found
+                    nameField.setText("");
+                    phoneField.setText("");
+                    emailField.setText("");
+                    userIdField.setText("");
+                    positionCombo.setSelectedItem("Unassigned");
+                    statusCombo.setSelectedItem("Active");
+                    taskArea.setText(""); // Clear the task area
+                }
+            });
         });
 
 
@@ -286,20 +304,27 @@ private void loadLeaveRequests(DefaultTableModel leaveTableModel) {
                    String selectedItem = staffIdCombo.getSelectedItem().toString();
                     int staffId = Integer.parseInt(selectedItem);
                    
-                    // Save the updated staff information to the repository
-                    
-                    boolean success =   staffRepository.updateStaff( positionCombo.getSelectedItem().toString(),
-                        statusCombo.getSelectedItem().toString(),
-                        taskArea.getText(),
-                        staffId); 
-                    if (success) {
-
-                        JOptionPane.showMessageDialog(addStaffDialog, "Staff updated successfully.");
-                        addStaffDialog.dispose();
-                    }
-                    else {
-                        JOptionPane.showMessageDialog(addStaffDialog, "Staff not updated successfully.");
-                    }
+                    // Save the updated staff information to the repository off the EDT
+                    String position = positionCombo.getSelectedItem().toString();
+                    String status = statusCombo.getSelectedItem().toString();
+                    String task = taskArea.getText();
+                    saveButton.setEnabled(false);
+                    tasks.run(asyncStaff.call(staffRepo -> staffRepo.updateStaff(position, status, task, staffId)), success -> {
+                        saveButton.setEnabled(true);
+                        if (success) {
+                            JOptionPane.showMessageDialog(addStaffDialog, "Staff updated successfully.");
+                            addStaffDialog.dispose();
+                        }
+                        else {
+                            JOptionPane.showMessageDialog(addStaffDialog, "Staff not updated successfully.");
+                        }
+                    }, error -> {
+                        saveButton.setEnabled(true);
+                        JOptionPane.showMessageDialog(addStaffDialog,
+                                "Error adding staff: " + error.getMessage(),
+                                "Error",
+                                JOptionPane.ERROR_MESSAGE);
+                    });
 
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(addStaffDialog,
@@ -333,13 +358,17 @@ private void loadLeaveRequests(DefaultTableModel leaveTableModel) {
         String userIdString = staffTable.getValueAt(selectedRow, 0).toString();
         Integer userId = Integer.parseInt(userIdString);
 
-        // Fetch existing staff
-        Staff existingStaff = staffRepository.getStaffByStaffId(userId);
-        if (existingStaff == null) {
-            JOptionPane.showMessageDialog(this, "Staff not found");
-            return;
-        }
+        // Fetch existing staff off the EDT, then open the dialog on it
+        tasks.run(asyncStaff.call(staffRepo -> staffRepo.getStaffByStaffId(userId)), existingStaff -> {
+            if (existingStaff == null) {
+                JOptionPane.showMessageDialog(this, "Staff not found");
+                return;
+            }
+            showEditStaffDialog(existingStaff);
+        });
+    }
 
+    private void showEditStaffDialog(Staff existingStaff) {
         JDialog editStaffDialog = new JDialog((Frame)SwingUtilities.getWindowAncestor(this), "Edit Staff", true);
         editStaffDialog.setSize(400, 400);
         editStaffDialog.setLocationRelativeTo(this);
@@ -395,15 +424,24 @@ private void loadLeaveRequests(DefaultTableModel leaveTableModel) {
                 try {
                     // Logic to save the updated staff information
                    
-                    // Save the updated staff information to the repository
-                    staffRepository.updateStaff( positionCombo.getSelectedItem().toString(),
-                            statusCombo.getSelectedItem().toString(),
-                                userIdField.getText(),
-                        existingStaff.getStaffId());
-
-                   // Show success message
-                    JOptionPane.showMessageDialog(editStaffDialog, "Staff updated successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    editStaffDialog.dispose();
+                    // Save the updated staff information to the repository off the EDT
+                    String position = positionCombo.getSelectedItem().toString();
+                    String status = statusCombo.getSelectedItem().toString();
+                    String task = userIdField.getText();
+                    saveButton.setEnabled(false);
+                    tasks.run(asyncStaff.call(staffRepo -> staffRepo.updateStaff(position, status, task,
+                            existingStaff.getStaffId())), updated -> {
+                        saveButton.setEnabled(true);
+                        // Show success message
+                        JOptionPane.showMessageDialog(editStaffDialog, "Staff updated successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        editStaffDialog.dispose();
+                    }, error -> {
+                        saveButton.setEnabled(true);
+                        JOptionPane.showMessageDialog(editStaffDialog,
+                                "Error updating staff: " + error.getMessage(),
+                                "Error",
+                                JOptionPane.ERROR_MESSAGE);
+                    });
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(editStaffDialog,
                             "Error updating staff: " + ex.getMessage(),
@@ -435,29 +473,31 @@ private void loadLeaveRequests(DefaultTableModel leaveTableModel) {
         String userIdString = staffTable.getValueAt(selectedRow, 0).toString();
         Integer userId = Integer.parseInt(userIdString);
 
-        // Fetch existing staff
-        Staff existingStaff = staffRepository.getStaffByStaffId(userId);
-        if (existingStaff == null) {
-            JOptionPane.showMessageDialog(this, "Staff not found");
-            return;
-        }
-
+        // Fetch existing staff off the EDT
+        tasks.run(asyncStaff.call(staffRepo -> staffRepo.getStaffByStaffId(userId)), existingStaff -> {
+            if (existingStaff == null) {
+                JOptionPane.showMessageDialog(this, "Staff not found");
+                return;
+            }
 
-        // Confirm deletion
-        int confirm = JOptionPane.showConfirmDialog(this, 
-            "Are you sure you want to delete this staff member?", 
-            "Confirm Deletion", 
-            JOptionPane.YES_NO_OPTION);
-        
-        if (confirm == JOptionPane.YES_OPTION) {
-            if (staffRepository.deleteStaff(existingStaff.getStaffId())) {
-                JOptionPane.showMessageDialog(this, "Staff Deleted Successfully!");
-                loadStaff(); // Refresh the staff list
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to delete staff. Please try again.", 
-                    "Error", JOptionPane.ERROR_MESSAGE);
+            // Confirm deletion
+            int confirm = JOptionPane.showConfirmDialog(this, 
+                "Are you sure you want to delete this staff member?", 
+                "Confirm Deletion", 
+                JOptionPane.YES_NO_OPTION);
+            
+            if (confirm == JOptionPane.YES_OPTION) {
+                tasks.run(asyncStaff.call(staffRepo -> staffRepo.deleteStaff(existingStaff.getStaffId())), deleted -> {
+                    if (deleted) {
+                        JOptionPane.showMessageDialog(this, "Staff Deleted Successfully!");
+                        loadStaff(); // Refresh the staff list
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Failed to delete staff. Please try again.", 
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             }
-        }
+        });
     }
 
     private boolean validateInputs(JTextField nameField, JTextField phoneField, JTextField emailField, JTextField userIdField) {
@@ -511,11 +551,12 @@ private void loadLeaveRequests(DefaultTableModel leaveTableModel) {
         panel.add(new JLabel(label));
         JComboBox<String> comboBox = new JComboBox<>();
 
-        // Populate the combo box with staff IDs
-        List<Integer> staffIds = staffRepository.getAllStaffIds();
-        for (Integer id : staffIds) {
-            comboBox.addItem(String.valueOf(id)); // Convert Integer to String and add to combo box
-        }
+        // Populate the combo box with staff IDs once they arrive
+        tasks.run(asyncStaff.call(StaffRepository::getAllStaffIds), staffIds -> {
+            for (Integer id : staffIds) {
+                comboBox.addItem(String.valueOf(id)); // Convert Integer to String and add to combo box
+            }
+        });
 
         panel.add(comboBox);
         return comboBox;
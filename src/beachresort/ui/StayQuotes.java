@@ -0,0 +1,43 @@
+package beachresort.ui;
+
+import beachresort.models.Room;
+import beachresort.services.RateEngine;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The price the booking dialogs show: the whole stay under the current rate
+ * rules once both dates are filled in, the room's nightly price until then.
+ * Quotes come from RateEngine's precomputed calendar, so the field can be
+ * refreshed on every change without touching the database.
+ */
+final class StayQuotes {
+
+    private StayQuotes() {
+    }
+
+    static String quoteText(Room room, String checkIn, String checkOut) {
+        try {
+            return quoteText(room, LocalDate.parse(checkIn.trim()), LocalDate.parse(checkOut.trim()));
+        } catch (DateTimeParseException e) {
+            // Dates not complete yet
+            return room == null ? "" : String.valueOf(room.getPricePerNight());
+        }
+    }
+
+    static String quoteText(Room room, LocalDate checkIn, LocalDate checkOut) {
+        if (room == null) {
+            return "";
+        }
+        if (checkOut.isAfter(checkIn)) {
+            try {
+                return String.valueOf(RateEngine.shared().quote(room, checkIn, checkOut));
+            } catch (SQLException e) {
+                System.err.println("Error quoting stay: " + e.getMessage());
+            }
+        }
+        return String.valueOf(room.getPricePerNight());
+    }
+}